@@ -0,0 +1,128 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * CheckData.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Conjuntos de datos de las comprobaciones de equivalencia.
+ * <p>
+ * <b>Detalles</b><br>
+ * Genera conjuntos de regresión con una semilla, de modo que cada comprobación es reproducible. Hay tres
+ * tipos de conjunto: valores continuos (sin empates en las distancias), valores en una rejilla entera
+ * (muchas distancias empatadas) y conjuntos con muchas instancias duplicadas.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Creación de los conjuntos y comprobación de las condiciones de las comprobaciones.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class CheckData {
+
+	/**
+	 * Conjunto de valores continuos.
+	 */
+	public static final int CONTINUOUS = 0;
+
+	/**
+	 * Conjunto de valores en una rejilla entera, con distancias empatadas.
+	 */
+	public static final int GRID = 1;
+
+	/**
+	 * Conjunto en el que aproximadamente la mitad de las instancias son copias de otras.
+	 */
+	public static final int DUPLICATES = 2;
+
+	/**
+	 * Nombre de cada tipo de conjunto.
+	 */
+	public static final String[] KIND_NAMES = {"continuous", "grid", "duplicates"};
+
+	/**
+	 * Crea un conjunto de regresión con los atributos en las primeras posiciones y la clase en la última.
+	 *
+	 * @param kind Tipo de conjunto: CONTINUOUS, GRID o DUPLICATES.
+	 * @param seed Semilla del generador de números aleatorios.
+	 * @param numInstances Número de instancias.
+	 * @param numAttributes Número de atributos, sin contar la clase.
+	 * @return Conjunto de instancias.
+	 */
+	public static Instances create (int kind, long seed, int numInstances, int numAttributes) {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>(numAttributes + 1);
+		Random random = new Random(seed);
+		Instances data;
+		double values[], sum;
+
+		for (int j = 0; j < numAttributes; j++)
+			attributes.add(new Attribute("x" + j));
+
+		attributes.add(new Attribute("y"));
+
+		data = new Instances(KIND_NAMES[kind] + "-" + seed, attributes, numInstances);
+		data.setClassIndex(numAttributes);
+
+		for (int i = 0; i < numInstances; i++) {
+			if (kind == DUPLICATES && i > 0 && random.nextBoolean()) {
+				values = data.instance(random.nextInt(data.numInstances())).toDoubleArray();
+			} else {
+				values = new double[numAttributes + 1];
+				sum = 0;
+
+				for (int j = 0; j < numAttributes; j++) {
+					values[j] = kind == GRID ? random.nextInt(4) : random.nextDouble();
+					sum += Math.sin(values[j] * 3);
+				}
+
+				values[numAttributes] = sum + random.nextGaussian() * 0.3;
+
+				if (kind == GRID)
+					values[numAttributes] = Math.round(values[numAttributes]);
+			}
+
+			data.add(new DenseInstance(1.0, values));
+		}
+
+		return data;
+	} // create
+
+	/**
+	 * Comprueba una condición de una comprobación.
+	 *
+	 * @param condition Condición que debe cumplirse.
+	 * @param message Descripción del caso que no la cumple.
+	 * @throws IllegalStateException Si la condición no se cumple.
+	 */
+	public static void check (boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	} // check
+
+} // CheckData
@@ -0,0 +1,201 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * DuplicateRemovalCheck.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import main.core.util.InstanceIS;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.InstanceComparator;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * <b>Descripción</b><br>
+ * Comprobación de equivalencia de la eliminación de duplicados por huellas.
+ * <p>
+ * <b>Detalles</b><br>
+ * Compara <code>InstanceIS.removeDuplicateInstances</code>, que agrupa las instancias por su huella y
+ * verifica las coincidencias con el comparador, con la implementación de referencia: un
+ * <code>TreeMap</code> ordenado con <code>InstanceComparator(true)</code> que conserva la primera
+ * aparición de cada instancia. Además de los conjuntos numéricos, con empates y con duplicados, utiliza un
+ * conjunto con -0.0 y 0.0, valores perdidos y un atributo de texto con cadenas ("Aa", "BB", "C#") que
+ * tienen el mismo código hash y, por tanto, la misma huella.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Falla si difieren las posiciones conservadas, las instancias, el número de copias de cada instancia o
+ * si el conjunto de texto no ha producido ninguna colisión de huellas que verificar.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class DuplicateRemovalCheck {
+
+	/**
+	 * Cadenas del atributo de texto: las tres primeras tienen el mismo código hash.
+	 */
+	private static final String[] STRINGS = {"Aa", "BB", "C#", "Ab"};
+
+	/**
+	 * Valores de los atributos numéricos del conjunto de texto, incluidos -0.0, 0.0 y el valor perdido.
+	 */
+	private static final double[] VALUES = {-0.0, 0.0, 1, 2, Utils.missingValue()};
+
+	/**
+	 * Ejecuta la comprobación.
+	 *
+	 * @param args No se utilizan.
+	 * @throws Exception Si algún resultado difiere.
+	 */
+	public static void main (String[] args) throws Exception {
+		Instances data;
+		int sets = 0, collisions = 0;
+
+		for (long seed = 1; seed <= 5; seed++) {
+			for (int kind = 0; kind < CheckData.KIND_NAMES.length; kind++) {
+				compare(CheckData.create(kind, seed, 300, 2));
+				sets++;
+			}
+
+			data = createStringSet(seed, 300);
+			compare(data);
+			collisions += countCollisions(data);
+			sets++;
+		}
+
+		CheckData.check(collisions > 0, "No fingerprint collision was verified");
+
+		System.out.println("DuplicateRemovalCheck: " + sets + " sets match the TreeSet reference (" +
+		                   collisions + " fingerprint collisions verified)");
+	} // main
+
+	/**
+	 * Compara la eliminación de duplicados con la referencia sobre una copia del conjunto.
+	 *
+	 * @param data Conjunto de instancias, no se modifica.
+	 */
+	private static void compare (Instances data) {
+		TreeMap<Instance, Integer> first = new TreeMap<Instance, Integer>(new InstanceComparator(true));
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		Instances result = new Instances(data);
+		Vector<Integer> vIndex = new Vector<Integer>();
+		int counts[] = new int[data.numInstances()], multiplicities[], total = 0;
+		String name = data.relationName();
+
+		// Referencia: primera aparición de cada instancia y número de copias.
+		for (int i = 0; i < data.numInstances(); i++) {
+			Integer pos = first.get(data.instance(i));
+
+			if (pos == null) {
+				first.put(data.instance(i), i);
+				expected.add(i);
+				pos = i;
+			}
+
+			counts[pos]++;
+		}
+
+		for (int i = 0; i < data.numInstances(); i++)
+			vIndex.add(i);
+
+		multiplicities = InstanceIS.removeDuplicateInstances(result, vIndex);
+
+		CheckData.check(vIndex.equals(expected),
+		                name + ": kept positions " + vIndex + ", expected " + expected);
+		CheckData.check(result.numInstances() == expected.size() && multiplicities.length == expected.size(),
+		                name + ": " + result.numInstances() + " instances kept, expected " + expected.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			CheckData.check(InstanceIS.equals(result.instance(i), data.instance(expected.get(i))),
+			                name + ": instance " + i + " is not the instance at position " + expected.get(i));
+			CheckData.check(multiplicities[i] == counts[expected.get(i)],
+			                name + ": instance " + i + " has " + multiplicities[i] + " copies, expected " +
+			                counts[expected.get(i)]);
+			total += multiplicities[i];
+		}
+
+		CheckData.check(total == data.numInstances(),
+		                name + ": " + total + " copies, expected " + data.numInstances());
+	} // compare
+
+	/**
+	 * Cuenta los pares de instancias con la misma huella que el comparador considera distintas.
+	 *
+	 * @param data Conjunto de instancias.
+	 * @return Número de colisiones de huellas.
+	 */
+	private static int countCollisions (Instances data) {
+		InstanceComparator comparator = new InstanceComparator(true);
+		int collisions = 0;
+
+		for (int i = 0; i < data.numInstances(); i++)
+			for (int j = i + 1; j < data.numInstances(); j++)
+				if (InstanceIS.fingerprint(data.instance(i)) == InstanceIS.fingerprint(data.instance(j)) &&
+				    comparator.compare(data.instance(i), data.instance(j)) != 0)
+					collisions++;
+
+		return collisions;
+	} // countCollisions
+
+	/**
+	 * Crea un conjunto con dos atributos numéricos de pocos valores (incluidos -0.0, 0.0 y perdidos), un
+	 * atributo de texto y la clase, de modo que haya muchas instancias iguales y colisiones de huellas.
+	 *
+	 * @param seed Semilla del generador de números aleatorios.
+	 * @param numInstances Número de instancias.
+	 * @return Conjunto de instancias.
+	 */
+	private static Instances createStringSet (long seed, int numInstances) {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>(4);
+		Random random = new Random(seed);
+		Instances data;
+		double values[];
+
+		attributes.add(new Attribute("x0"));
+		attributes.add(new Attribute("x1"));
+		attributes.add(new Attribute("s", (ArrayList<String>)null));
+		attributes.add(new Attribute("y"));
+
+		data = new Instances("strings-" + seed, attributes, numInstances);
+		data.setClassIndex(3);
+
+		for (int i = 0; i < numInstances; i++) {
+			values = new double[4];
+			values[0] = VALUES[random.nextInt(VALUES.length)];
+			values[1] = VALUES[random.nextInt(VALUES.length)];
+			values[2] = data.attribute(2).addStringValue(STRINGS[random.nextInt(STRINGS.length)]);
+			values[3] = random.nextInt(2);
+
+			data.add(new DenseInstance(1.0, values));
+		}
+
+		return data;
+	} // createStringSet
+
+} // DuplicateRemovalCheck
@@ -0,0 +1,223 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * ENNRegCheck.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import java.util.Vector;
+
+import main.core.algorithm.AlgorithmReg;
+import main.core.algorithm.ENNRegAlgorithm;
+import main.core.util.InstanceIS;
+import main.core.util.LinearISNNSearch;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Comprobación de equivalencia de la evaluación de RegENN con el algoritmo secuencial original.
+ * <p>
+ * <b>Detalles</b><br>
+ * Compara la selección de <code>ENNRegAlgorithm</code>, que decide a partir de los vecinos calculados una
+ * sola vez (<code>ENNRegEvaluator</code>), con RegENN tal como se implementaba originalmente: para cada
+ * instancia se copia el conjunto solución sin ella, se buscan sus vecinos con
+ * <code>LinearISNNSearch</code>, se calcula &Theta; y se entrena IBk con la copia. Se utilizan conjuntos
+ * continuos, con empates y con duplicados, varios valores de k y de alfa y uno o varios hilos. El primer
+ * conjunto de cada tipo se comprueba también con una instancia de peso 2, con la que el evaluador no es
+ * aplicable y todas las instancias se deciden con IBk sobre las instancias no eliminadas.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Falla si alguna selección o el conjunto solución difieren, o si ninguna instancia eliminada era el único
+ * extremo de algún atributo, ya que entonces no se habría comprobado la evaluación con los rangos del
+ * conjunto solución distintos de los iniciales.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class ENNRegCheck {
+
+	/**
+	 * Valores de k comprobados.
+	 */
+	private static final int[] K_VALUES = {1, 3, 5};
+
+	/**
+	 * Valores de alfa comprobados.
+	 */
+	private static final double[] ALPHAS = {0.5, 1};
+
+	/**
+	 * Número de instancias eliminadas por el algoritmo de referencia que eran el único extremo de algún
+	 * atributo.
+	 */
+	private static int mNumOfRangeChanges;
+
+	/**
+	 * Ejecuta la comprobación.
+	 *
+	 * @param args No se utilizan.
+	 * @throws Exception Si alguna selección difiere o se produce un error en la ejecución.
+	 */
+	public static void main (String[] args) throws Exception {
+		ENNRegAlgorithm algorithm;
+		Instances data;
+		Vector<Integer> expected;
+		String name;
+		int identity[], runs = 0;
+
+		for (int kind = 0; kind < CheckData.KIND_NAMES.length; kind++)
+			for (int set = 0; set < 4; set++) {
+				data = CheckData.create(kind, set % 3 + 1, 300, 3);
+
+				if (set == 3) {
+					data.instance(0).setWeight(2);
+					data.setRelationName(data.relationName() + "-weighted");
+				}
+
+				identity = new int[data.numInstances()];
+
+				for (int i = 0; i < identity.length; i++)
+					identity[i] = i;
+
+				for (int k : K_VALUES)
+					for (double alpha : ALPHAS) {
+						expected = reference(data, k, alpha);
+
+						for (int threads = 1; threads <= 4; threads += 3) {
+							name = data.relationName() + ", k=" + k + ", alpha=" + alpha + ", " + threads +
+							       " threads";
+
+							algorithm = new ENNRegAlgorithm(new Instances(data), identity);
+							algorithm.setNumOfNearestNeighbour(k);
+							algorithm.setAlpha(alpha);
+							algorithm.setNumOfThreads(threads);
+							algorithm.allSteps();
+
+							CheckData.check(algorithm.getOutputDatasetIndex().equals(expected),
+							                name + ": kept " + algorithm.getOutputDatasetIndex() + ", expected " +
+							                expected);
+							checkSolutionSet(algorithm.getSolutionSet(), data, expected, name);
+							runs++;
+						}
+					}
+			}
+
+		CheckData.check(mNumOfRangeChanges > 0, "No removed instance changed the range of an attribute");
+
+		System.out.println("ENNRegCheck: " + runs + " selections match the sequential RegENN (" +
+		                   mNumOfRangeChanges + " removals changed the ranges)");
+	} // main
+
+	/**
+	 * Ejecuta RegENN como el algoritmo original: cada instancia se evalúa frente a una copia del conjunto
+	 * solución sin ella y, si se elimina, se borra del conjunto solución.
+	 *
+	 * @param data Conjunto de entrenamiento, no se modifica.
+	 * @param k Número de vecinos cercanos.
+	 * @param alpha Valor de alfa.
+	 * @return Posiciones de las instancias conservadas.
+	 * @throws Exception Si se produce un error en la búsqueda de vecinos o en IBk.
+	 */
+	private static Vector<Integer> reference (Instances data, int k, double alpha) throws Exception {
+		Instances solution = new Instances(data), withoutCurrent, neighbours;
+		Vector<Integer> kept = new Vector<Integer>();
+		Instance instance;
+		double theta;
+		int pos = 0;
+
+		for (int id = 0; id < data.numInstances(); id++) {
+			instance = solution.instance(pos);
+
+			withoutCurrent = new Instances(solution);
+			withoutCurrent.delete(pos);
+
+			neighbours = new LinearISNNSearch(withoutCurrent).kNearestNeighbours(instance, k);
+			theta = AlgorithmReg.getTheta(neighbours, alpha);
+
+			if (AlgorithmReg.isMisclassified(instance, withoutCurrent, theta, k)) {
+				if (isOnlyExtreme(solution, pos))
+					mNumOfRangeChanges++;
+
+				solution.delete(pos);
+			} else {
+				kept.add(id);
+				pos++;
+			}
+		}
+
+		return kept;
+	} // reference
+
+	/**
+	 * Comprueba si una instancia es la única con el valor mínimo o máximo de algún atributo del conjunto,
+	 * de modo que eliminarla cambia su rango.
+	 *
+	 * @param set Conjunto de instancias.
+	 * @param pos Posición de la instancia.
+	 * @return Verdadero si eliminarla cambia el rango de algún atributo.
+	 */
+	private static boolean isOnlyExtreme (Instances set, int pos) {
+		double value;
+		boolean lower, higher;
+
+		for (int j = 0; j < set.numAttributes(); j++) {
+			if (j == set.classIndex())
+				continue;
+
+			value = set.instance(pos).value(j);
+			lower = false;
+			higher = false;
+
+			for (int i = 0; i < set.numInstances(); i++)
+				if (i != pos) {
+					lower |= set.instance(i).value(j) <= value;
+					higher |= set.instance(i).value(j) >= value;
+				}
+
+			if (!lower || !higher)
+				return true;
+		}
+
+		return false;
+	} // isOnlyExtreme
+
+	/**
+	 * Comprueba que el conjunto solución contiene, en orden, las instancias de las posiciones conservadas.
+	 *
+	 * @param solution Conjunto solución del algoritmo.
+	 * @param data Conjunto de entrenamiento.
+	 * @param expected Posiciones conservadas.
+	 * @param name Descripción de la ejecución.
+	 */
+	private static void checkSolutionSet (Instances solution, Instances data, Vector<Integer> expected,
+	                                      String name) {
+		CheckData.check(solution.numInstances() == expected.size(),
+		                name + ": " + solution.numInstances() + " instances in the solution set, expected " +
+		                expected.size());
+
+		for (int i = 0; i < expected.size(); i++)
+			CheckData.check(InstanceIS.equals(solution.instance(i), data.instance(expected.get(i))),
+			                name + ": instance " + i + " of the solution set is not the instance at position " +
+			                expected.get(i));
+	} // checkSolutionSet
+
+} // ENNRegCheck
@@ -0,0 +1,182 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * KDTreeSearchCheck.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import main.core.util.KDTreeISNNSearch;
+import main.core.util.LinearISNNSearch;
+
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Comprobación de equivalencia del KD-tree con la búsqueda lineal.
+ * <p>
+ * <b>Detalles</b><br>
+ * Construye <code>KDTreeISNNSearch</code> y <code>LinearISNNSearch</code> sobre el mismo conjunto y
+ * compara los vecinos de cada instancia para varios valores de k, tanto con las búsquedas originales como
+ * con las vistas de los hilos (<code>createWorker</code>). Después borra las mismas instancias en ambas,
+ * pasando de la mitad del conjunto para que el árbol se reconstruya, y vuelve a comparar en varios puntos.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Ambas búsquedas devuelven los k vecinos más los que empatan con el k-ésimo, por lo que los conjuntos de
+ * vecinos deben coincidir siempre. Dentro de un empate el orden puede variar (el KD-tree desempata por
+ * posición y la búsqueda lineal según su montículo), así que el orden solo se exige en los conjuntos
+ * continuos, sin empates.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class KDTreeSearchCheck {
+
+	/**
+	 * Valores de k comprobados.
+	 */
+	private static final int[] K_VALUES = {1, 3, 7};
+
+	/**
+	 * Diferencia máxima admitida entre las distancias de ambas búsquedas.
+	 */
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * Ejecuta la comprobación.
+	 *
+	 * @param args No se utilizan.
+	 * @throws Exception Si algún vecindario difiere o se produce un error en la búsqueda.
+	 */
+	public static void main (String[] args) throws Exception {
+		KDTreeISNNSearch kdTree;
+		LinearISNNSearch linear;
+		Instances data;
+		Random random;
+		int numInstances = 200, order[], removed, queries = 0;
+
+		for (int kind = 0; kind < CheckData.KIND_NAMES.length; kind++)
+			for (long seed = 1; seed <= 3; seed++) {
+				data = CheckData.create(kind, seed, numInstances, 3);
+				kdTree = new KDTreeISNNSearch(data);
+				linear = new LinearISNNSearch(data);
+
+				queries += compare(kdTree, linear, data, kind, "full");
+				queries += compare(kdTree.createWorker(), linear.createWorker(), data, kind, "worker");
+
+				// Mismos borrados en ambas búsquedas, en orden aleatorio.
+				random = new Random(seed);
+				order = new int[numInstances];
+
+				for (int i = 0; i < numInstances; i++)
+					order[i] = i;
+
+				for (int i = numInstances - 1; i > 0; i--) {
+					int j = random.nextInt(i + 1), tmp = order[i];
+
+					order[i] = order[j];
+					order[j] = tmp;
+				}
+
+				removed = 0;
+
+				for (int checkpoint : new int[] {numInstances / 4, numInstances / 2, numInstances / 2 + 1,
+				                                 numInstances * 3 / 4, numInstances - 2}) {
+					for (; removed < checkpoint; removed++) {
+						kdTree.removeInstance(order[removed]);
+						linear.removeInstance(order[removed]);
+					}
+
+					queries += compare(kdTree, linear, data, kind, removed + " removed");
+					queries += compare(kdTree.createWorker(), linear.createWorker(), data, kind,
+					                   removed + " removed, worker");
+				}
+			}
+
+		System.out.println("KDTreeSearchCheck: " + queries + " queries match the linear search");
+	} // main
+
+	/**
+	 * Compara los vecinos de todas las instancias del conjunto en ambas búsquedas.
+	 *
+	 * @param kdTree Búsqueda con el KD-tree.
+	 * @param linear Búsqueda lineal.
+	 * @param data Conjunto de instancias de ambas búsquedas.
+	 * @param kind Tipo de conjunto.
+	 * @param stage Descripción del estado de las búsquedas.
+	 * @return Número de búsquedas comparadas.
+	 * @throws Exception Si algún vecindario difiere o se produce un error en la búsqueda.
+	 */
+	private static int compare (KDTreeISNNSearch kdTree, LinearISNNSearch linear, Instances data, int kind,
+	                            String stage) throws Exception {
+		String name;
+		int queries = 0;
+
+		for (int k : K_VALUES)
+			for (int i = 0; i < data.numInstances(); i++) {
+				name = data.relationName() + " (" + stage + "), instance " + i + ", k=" + k;
+
+				kdTree.kNearestNeighbours(data.instance(i), k);
+				linear.kNearestNeighbours(data.instance(i), k);
+
+				compareNeighbours(kdTree, linear, kind == CheckData.CONTINUOUS, name);
+				queries++;
+			}
+
+		return queries;
+	} // compare
+
+	/**
+	 * Compara los vecinos de la última búsqueda de cada una.
+	 *
+	 * @param kdTree Búsqueda con el KD-tree.
+	 * @param linear Búsqueda lineal.
+	 * @param sameOrder Verdadero si los vecinos deben devolverse además en el mismo orden.
+	 * @param name Descripción de la búsqueda.
+	 * @throws Exception Si no se ha realizado ninguna búsqueda.
+	 */
+	private static void compareNeighbours (KDTreeISNNSearch kdTree, LinearISNNSearch linear,
+	                                       boolean sameOrder, String name) throws Exception {
+		double kdDistances[] = kdTree.getDistances(), linearDistances[] = linear.getDistances();
+		int kdIndices[] = kdTree.getNeighbourIndices().clone();
+		int linearIndices[] = linear.getNeighbourIndices().clone();
+
+		CheckData.check(kdIndices.length == linearIndices.length,
+		                name + ": " + kdIndices.length + " neighbours with the KD-tree, " + linearIndices.length +
+		                " with the linear search");
+
+		for (int n = 0; n < kdDistances.length; n++)
+			CheckData.check(Math.abs(kdDistances[n] - linearDistances[n]) <= TOLERANCE,
+			                name + ": distance " + n + " is " + kdDistances[n] + " with the KD-tree, " +
+			                linearDistances[n] + " with the linear search");
+
+		if (!sameOrder) {
+			Arrays.sort(kdIndices);
+			Arrays.sort(linearIndices);
+		}
+
+		CheckData.check(Arrays.equals(kdIndices, linearIndices),
+		                name + ": neighbours " + Arrays.toString(kdIndices) + " with the KD-tree, " +
+		                Arrays.toString(linearIndices) + " with the linear search");
+	} // compareNeighbours
+
+} // KDTreeSearchCheck
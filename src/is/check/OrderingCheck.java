@@ -0,0 +1,329 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * OrderingCheck.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+import main.core.algorithm.DROP2RegThresholdAlgorithm;
+import main.core.algorithm.DROP3RegErrorAlgorithm;
+import main.core.algorithm.DROP3RegThresholdAlgorithm;
+import main.core.algorithm.DROPRegAlgorithm;
+import main.core.algorithm.DROPRegErrorAlgorithm;
+import main.core.algorithm.sort.SortByDistance;
+import main.core.exception.NotEnoughInstancesException;
+import main.core.util.InstanceIS;
+import main.core.util.NeighbourGraph;
+
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Comprobación de las opciones que corrigen la ordenación de DROP y su conjunto solución.
+ * <p>
+ * <b>Detalles</b><br>
+ * Por defecto los algoritmos DROP de regresión mantienen los resultados originales. Cada caso activa una
+ * de las opciones que cambian ese comportamiento y comprueba su efecto: con
+ * <code>setTrackOutputIndex</code> las posiciones de salida corresponden a las instancias seleccionadas
+ * aunque se hayan eliminado duplicados o editado el conjunto, y con <code>setSortByEnemyDistance</code>
+ * DROP3 procesa las instancias de mayor a menor distancia a su enemigo más próximo, conservando el orden
+ * de las que están a la misma distancia. Con <code>setKeepLastInstance</code> ningún algoritmo devuelve un
+ * conjunto vacío en conjuntos de tres instancias, en los que por defecto puede eliminarlas todas.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Falla si alguna opción no produce el resultado esperado.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class OrderingCheck {
+
+	/**
+	 * Nombre de cada algoritmo comprobado.
+	 */
+	private static final String[] TYPE_NAMES = {"DROP2-error", "DROP2-threshold", "DROP3-threshold",
+	                                             "DROP3-error"};
+
+	/**
+	 * Número de ordenaciones comprobadas.
+	 */
+	private static int mNumOfOrderings = 0;
+
+	/**
+	 * Ejecuta la comprobación.
+	 *
+	 * @param args No se utilizan.
+	 * @throws Exception Si alguna comprobación falla o se produce un error en la ejecución.
+	 */
+	public static void main (String[] args) throws Exception {
+		DROPRegAlgorithm algorithm;
+		Instances data;
+		String name;
+		int selections = 0;
+
+		// Índices de salida reordenados con las instancias.
+		for (int kind = 0; kind < CheckData.KIND_NAMES.length; kind++)
+			for (long seed = 1; seed <= 3; seed++) {
+				data = CheckData.create(kind, seed, 150, 3);
+
+				for (int type = 0; type < TYPE_NAMES.length; type++) {
+					algorithm = createAlgorithm(type, data, 3);
+					algorithm.setTrackOutputIndex(true);
+					algorithm.allSteps();
+					checkSelection(algorithm, data, TYPE_NAMES[type] + " on " + data.relationName());
+					selections++;
+				}
+
+				// Ordenación de DROP3 por distancia al enemigo más próximo.
+				for (int type = 2; type < TYPE_NAMES.length; type++) {
+					algorithm = createAlgorithm(type, data, 3);
+					algorithm.setSortByEnemyDistance(true);
+					algorithm.allSteps();
+					checkSelection(algorithm, data, TYPE_NAMES[type] + " sorted on " + data.relationName());
+					selections++;
+				}
+			}
+
+		// Conjuntos de tres instancias, en los que DROP puede eliminarlas todas.
+		for (long seed = 1; seed <= 8; seed++) {
+			data = CheckData.create(CheckData.CONTINUOUS, seed, 3, 2);
+
+			for (int type = 0; type < TYPE_NAMES.length; type++) {
+				name = TYPE_NAMES[type] + " on " + data.relationName() + " (3 instances)";
+				algorithm = createAlgorithm(type, data, 1);
+				algorithm.setTrackOutputIndex(true);
+				algorithm.setKeepLastInstance(true);
+				algorithm.allSteps();
+
+				CheckData.check(algorithm.getSolutionSet().numInstances() > 0, name + ": empty selection");
+				checkSelection(algorithm, data, name);
+				selections++;
+			}
+		}
+
+		CheckData.check(mNumOfOrderings > 0, "No ordering was checked");
+
+		System.out.println("OrderingCheck: " + selections + " selections have correct output indices, " +
+		                   mNumOfOrderings + " orderings by enemy distance");
+	} // main
+
+	/**
+	 * Comprueba que cada posición de salida corresponde a la instancia seleccionada en su misma posición.
+	 *
+	 * @param algorithm Algoritmo ejecutado.
+	 * @param data Conjunto de entrenamiento del algoritmo.
+	 * @param name Descripción de la ejecución.
+	 */
+	private static void checkSelection (DROPRegAlgorithm algorithm, Instances data, String name) {
+		Instances solution = algorithm.getSolutionSet();
+		Vector<Integer> index = algorithm.getOutputDatasetIndex();
+
+		CheckData.check(solution.numInstances() == index.size(),
+		                name + ": " + solution.numInstances() + " instances and " + index.size() + " positions");
+
+		for (int i = 0; i < index.size(); i++)
+			CheckData.check(InstanceIS.equals(solution.instance(i), data.instance(index.get(i))),
+			                name + ": instance " + i + " is not the instance at position " + index.get(i));
+	} // checkSelection
+
+	/**
+	 * Comprueba la ordenación de las instancias realizada por <code>orderInstances</code>.
+	 *
+	 * @param before Posiciones de las instancias antes de ordenarlas.
+	 * @param distances Distancia al enemigo más próximo de cada instancia, en el orden anterior.
+	 * @param after Posiciones de las instancias tras ordenarlas.
+	 * @param orderBy Verdadero si se ordenan de menor a mayor distancia, falso de mayor a menor.
+	 * @param name Descripción de la ejecución.
+	 */
+	private static void checkOrder (Vector<Integer> before, double[] distances, Vector<Integer> after,
+	                                boolean orderBy, String name) {
+		HashMap<Integer, Integer> previousPos = new HashMap<Integer, Integer>();
+		int prev, curr;
+
+		for (int i = 0; i < before.size(); i++)
+			previousPos.put(before.get(i), i);
+
+		CheckData.check(after.size() == before.size(),
+		                name + ": the ordering changed the number of instances");
+
+		for (int i = 0; i < after.size(); i++)
+			CheckData.check(previousPos.containsKey(after.get(i)),
+			                name + ": position " + after.get(i) + " was not in the set before ordering");
+
+		mNumOfOrderings++;
+
+		for (int i = 1; i < after.size(); i++) {
+			prev = previousPos.get(after.get(i - 1));
+			curr = previousPos.get(after.get(i));
+
+			// Ordenadas por distancia y, a igual distancia, en su orden anterior.
+			CheckData.check(orderBy ? distances[prev] <= distances[curr] : distances[prev] >= distances[curr],
+			                name + ": instance " + i + " is not ordered by its distance to the nearest enemy");
+			CheckData.check(distances[prev] != distances[curr] || prev < curr,
+			                name + ": instances " + (i - 1) + " and " + i + " are tied but were swapped");
+		}
+	} // checkOrder
+
+	/**
+	 * Calcula la distancia de cada instancia del conjunto solución a su enemigo más próximo, igual que
+	 * <code>orderInstances</code>.
+	 *
+	 * @param solution Conjunto solución.
+	 * @param index Posiciones de salida del conjunto solución.
+	 * @param graph Grafo de vecinos del algoritmo.
+	 * @param beta Multiplicador del radio de la soft-class.
+	 * @return Distancias al enemigo más próximo.
+	 */
+	private static double[] enemyDistances (Instances solution, Vector<Integer> index,
+	                                        NeighbourGraph graph, double beta) {
+		SortByDistance sbd = new SortByDistance(solution, index);
+
+		sbd.prepareNearestEnemyReg(graph, beta);
+		sbd.calcNearestEnemyDistancesReg(0, solution.numInstances());
+
+		return sbd.getDistancesToNearEnemy().clone();
+	} // enemyDistances
+
+	/**
+	 * Crea un algoritmo DROP de regresión sobre una copia del conjunto, con los valores por defecto del
+	 * filtro. Los algoritmos DROP3 comprueban además la ordenación de sus instancias.
+	 *
+	 * @param type Posición del algoritmo en <code>TYPE_NAMES</code>.
+	 * @param data Conjunto de entrenamiento.
+	 * @param k Número de vecinos cercanos.
+	 * @return Algoritmo configurado.
+	 * @throws Exception Si el conjunto no tiene instancias.
+	 */
+	private static DROPRegAlgorithm createAlgorithm (int type, Instances data, int k) throws Exception {
+		DROPRegAlgorithm algorithm;
+
+		if (type == 0) {
+			algorithm = new DROPRegErrorAlgorithm(new Instances(data));
+		} else if (type == 1) {
+			algorithm = new DROP2RegThresholdAlgorithm(new Instances(data));
+			((DROP2RegThresholdAlgorithm)algorithm).setBeta(5);
+		} else if (type == 2) {
+			algorithm = new OrderedDROP3Threshold(new Instances(data));
+			((DROP3RegThresholdAlgorithm)algorithm).setBeta(5);
+		} else {
+			algorithm = new OrderedDROP3Error(new Instances(data));
+			((DROP3RegErrorAlgorithm)algorithm).setBeta(5);
+		}
+
+		algorithm.setNumOfNearestNeighbour(k);
+		algorithm.setAlpha(1);
+
+		return algorithm;
+	} // createAlgorithm
+
+	/**
+	 * DROP3 por umbral que comprueba la ordenación de sus instancias.
+	 */
+	private static class OrderedDROP3Threshold extends DROP3RegThresholdAlgorithm {
+
+		/**
+		 * Para la serialización.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param train Conjunto de entrenamiento.
+		 * @throws NotEnoughInstancesException Si el conjunto no tiene instancias.
+		 */
+		public OrderedDROP3Threshold (Instances train) throws NotEnoughInstancesException {
+			super(train);
+		} // OrderedDROP3Threshold
+
+		/**
+		 * Ordena las instancias y, si se ordenan por la distancia al enemigo, comprueba el resultado.
+		 *
+		 * @param orderBy Verdadero para ordenar de menor a mayor distancia, falso de mayor a menor.
+		 * @param beta Multiplicador del radio de la soft-class.
+		 * @throws Exception Si la ordenación no es correcta.
+		 */
+		protected void orderInstances (boolean orderBy, double beta) throws Exception {
+			Vector<Integer> before = new Vector<Integer>(mOutputDatasetIndex);
+			double distances[];
+
+			if (!getSortByEnemyDistance()) {
+				super.orderInstances(orderBy, beta);
+				return;
+			}
+
+			distances = enemyDistances(mSolutionSet, mOutputDatasetIndex, mGraph, beta);
+			super.orderInstances(orderBy, beta);
+
+			checkOrder(before, distances, mOutputDatasetIndex, orderBy,
+			           "DROP3-threshold on " + mTrainSet.relationName());
+		} // orderInstances
+
+	} // OrderedDROP3Threshold
+
+	/**
+	 * DROP3 por error que comprueba la ordenación de sus instancias.
+	 */
+	private static class OrderedDROP3Error extends DROP3RegErrorAlgorithm {
+
+		/**
+		 * Para la serialización.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param train Conjunto de entrenamiento.
+		 * @throws NotEnoughInstancesException Si el conjunto no tiene instancias.
+		 */
+		public OrderedDROP3Error (Instances train) throws NotEnoughInstancesException {
+			super(train);
+		} // OrderedDROP3Error
+
+		/**
+		 * Ordena las instancias y, si se ordenan por la distancia al enemigo, comprueba el resultado.
+		 *
+		 * @param orderBy Verdadero para ordenar de menor a mayor distancia, falso de mayor a menor.
+		 * @param beta Multiplicador del radio de la soft-class.
+		 * @throws Exception Si la ordenación no es correcta.
+		 */
+		protected void orderInstances (boolean orderBy, double beta) throws Exception {
+			Vector<Integer> before = new Vector<Integer>(mOutputDatasetIndex);
+			double distances[];
+
+			if (!getSortByEnemyDistance()) {
+				super.orderInstances(orderBy, beta);
+				return;
+			}
+
+			distances = enemyDistances(mSolutionSet, mOutputDatasetIndex, mGraph, beta);
+			super.orderInstances(orderBy, beta);
+
+			checkOrder(before, distances, mOutputDatasetIndex, orderBy,
+			           "DROP3-error on " + mTrainSet.relationName());
+		} // orderInstances
+
+	} // OrderedDROP3Error
+
+} // OrderingCheck
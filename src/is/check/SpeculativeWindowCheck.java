@@ -0,0 +1,143 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * SpeculativeWindowCheck.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package check;
+
+import main.core.algorithm.DROP2RegThresholdAlgorithm;
+import main.core.algorithm.DROP3RegErrorAlgorithm;
+import main.core.algorithm.DROP3RegThresholdAlgorithm;
+import main.core.algorithm.DROPRegAlgorithm;
+import main.core.algorithm.DROPRegErrorAlgorithm;
+
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Comprobación de equivalencia de la ventana especulativa de DROP.
+ * <p>
+ * <b>Detalles</b><br>
+ * Ejecuta cada algoritmo DROP de regresión de forma secuencial y con varios hilos, evaluando en paralelo
+ * la ventana especulativa (descartando las decisiones en conflicto según el contador de modificaciones del
+ * grafo) y los asociados, y comprueba que seleccionan exactamente las mismas instancias. Se utilizan
+ * conjuntos continuos, con empates y con duplicados, y búsquedas lineal y con KD-tree.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Falla si alguna selección difiere o si ninguna decisión especulativa ha entrado en conflicto, ya que
+ * entonces no se habría comprobado el caso que vuelve a evaluar las decisiones.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class SpeculativeWindowCheck {
+
+	/**
+	 * Nombre de cada algoritmo comprobado.
+	 */
+	private static final String[] TYPE_NAMES = {"DROP2-error", "DROP2-threshold", "DROP3-threshold",
+	                                             "DROP3-error"};
+
+	/**
+	 * Tamaños de la ventana especulativa comprobados.
+	 */
+	private static final int[] WINDOWS = {4, 32};
+
+	/**
+	 * Ejecuta la comprobación.
+	 *
+	 * @param args No se utilizan.
+	 * @throws Exception Si alguna selección difiere o se produce un error en la ejecución.
+	 */
+	public static void main (String[] args) throws Exception {
+		Instances data;
+		DROPRegAlgorithm sequential, speculative;
+		String name;
+		int runs = 0, conflicts = 0;
+
+		for (int kind = 0; kind < CheckData.KIND_NAMES.length; kind++)
+			for (long seed = 1; seed <= 2; seed++) {
+				data = CheckData.create(kind, seed, 150, 3);
+
+				for (int type = 0; type < TYPE_NAMES.length; type++)
+					for (int kdTree = 0; kdTree < 2; kdTree++)
+						for (int window : WINDOWS) {
+							name = TYPE_NAMES[type] + (kdTree == 1 ? " (KD-tree)" : "") + " window " + window +
+							       " on " + data.relationName();
+
+							sequential = createAlgorithm(type, data, kdTree == 1);
+							sequential.allSteps();
+
+							speculative = createAlgorithm(type, data, kdTree == 1);
+							speculative.setNumOfThreads(4);
+							speculative.setSpeculativeWindow(window);
+							speculative.setParallelAssociates(true);
+							speculative.setMinParallelAssociates(1);
+							speculative.allSteps();
+
+							CheckData.check(sequential.getOutputDatasetIndex().equals(
+							                speculative.getOutputDatasetIndex()),
+							                name + ": the speculative selection differs from the sequential one");
+
+							conflicts += speculative.getNumOfConflicts();
+							runs++;
+						}
+			}
+
+		CheckData.check(conflicts > 0, "No speculative decision was re-evaluated");
+
+		System.out.println("SpeculativeWindowCheck: " + runs + " selections match the sequential ones (" +
+		                   conflicts + " conflicts re-evaluated)");
+	} // main
+
+	/**
+	 * Crea un algoritmo DROP de regresión sobre una copia del conjunto.
+	 *
+	 * @param type Posición del algoritmo en <code>TYPE_NAMES</code>.
+	 * @param data Conjunto de entrenamiento.
+	 * @param useKDTree Verdadero para buscar los vecinos con el KD-tree.
+	 * @return Algoritmo configurado.
+	 * @throws Exception Si el conjunto no tiene instancias.
+	 */
+	private static DROPRegAlgorithm createAlgorithm (int type, Instances data, boolean useKDTree)
+	                                                  throws Exception {
+		DROPRegAlgorithm algorithm;
+
+		if (type == 0) {
+			algorithm = new DROPRegErrorAlgorithm(new Instances(data));
+		} else if (type == 1) {
+			algorithm = new DROP2RegThresholdAlgorithm(new Instances(data));
+			((DROP2RegThresholdAlgorithm)algorithm).setBeta(0.5);
+		} else if (type == 2) {
+			algorithm = new DROP3RegThresholdAlgorithm(new Instances(data));
+			((DROP3RegThresholdAlgorithm)algorithm).setBeta(0.5);
+		} else {
+			algorithm = new DROP3RegErrorAlgorithm(new Instances(data));
+			((DROP3RegErrorAlgorithm)algorithm).setBeta(0.5);
+		}
+
+		algorithm.setNumOfNearestNeighbour(3);
+		algorithm.setAlpha(0.5);
+		algorithm.setUseKDTree(useKDTree);
+
+		return algorithm;
+	} // createAlgorithm
+
+} // SpeculativeWindowCheck
@@ -22,8 +22,15 @@ package main.core.algorithm;
 
 import java.io.Serializable;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import main.core.exception.NotEnoughInstancesException;
+import main.core.util.SelectionMetrics;
 
 import weka.core.Instance;
 import weka.core.Instances;
@@ -90,6 +97,96 @@ public abstract class Algorithm implements Serializable {
 	 */
 	protected NearestNeighbourSearch mNearestNeighbourSearch;
 	
+	/**
+	 * Número de hilos a utilizar en las fases paralelizables del algoritmo.
+	 */
+	protected int mNumOfThreads;
+	
+	/**
+	 * Conjunto de hilos compartido por las fases paralelizables del algoritmo, se crea al utilizarlo por
+	 * primera vez y se libera al terminar <code>allSteps</code>.
+	 */
+	protected transient ExecutorService mExecutor;
+	
+	/**
+	 * Métricas de la ejecución del algoritmo: tiempos y contadores de cada fase.
+	 */
+	protected SelectionMetrics mMetrics;
+	
+	/**
+	 * Observadores de los pasos del algoritmo, null si nunca se ha añadido ninguno.
+	 */
+	private transient Vector<StepListener> mStepListeners;
+	
+	/**
+	 * Número de pasos de cada lote entregado a los observadores.
+	 */
+	private int mStepBatchSize;
+	
+	/**
+	 * Lote de pasos pendiente de entregar a los observadores.
+	 */
+	private transient StepBatch mStepBatch;
+	
+	/**
+	 * Número de pasos realizados desde el último reinicio.
+	 */
+	private long mNumOfSteps;
+	
+	/**
+	 * Número de pasos en los que se ha eliminado la instancia desde el último reinicio.
+	 */
+	private long mNumOfRemovedSteps;
+	
+	/**
+	 * Instante, en nanosegundos, en que terminó el último paso registrado.
+	 */
+	private long mLastStepTime;
+	
+	/**
+	 * <b>Descripción</b><br>
+	 * Tarea que procesa un rango de posiciones.
+	 * <p>
+	 * <b>Detalles</b><br>
+	 * Cada rango se procesa de forma independiente, por lo que las tareas no deben compartir estado mutable
+	 * salvo escrituras en posiciones distintas.
+	 * </p>
+	 */
+	protected interface RangeTask {
+		
+		/**
+		 * Procesa las posiciones [start, end).
+		 * 
+		 * @param start Primera posición a procesar.
+		 * @param end Posición siguiente a la última a procesar.
+		 * @throws Exception Excepción producida durante el procesamiento.
+		 */
+		void run (int start, int end) throws Exception;
+	} // RangeTask
+	
+	/**
+	 * <b>Descripción</b><br>
+	 * Hilo del conjunto de hilos compartido del algoritmo.
+	 * <p>
+	 * <b>Detalles</b><br>
+	 * Permite detectar que una tarea ya se está ejecutando en paralelo, para no volver a repartirla entre
+	 * los mismos hilos y bloquearlos esperándose unos a otros.
+	 * </p>
+	 */
+	private static class WorkerThread extends Thread {
+		
+		/**
+		 * Constructor del hilo.
+		 * 
+		 * @param runnable Tarea a ejecutar.
+		 */
+		public WorkerThread (Runnable runnable) {
+			super(runnable, "Algorithm-worker");
+			
+			setDaemon(true);
+		} // WorkerThread
+	} // WorkerThread
+	
 	/**
 	 * Constructor por defecto del algoritmo de selección de instancias.
 	 */
@@ -100,6 +197,9 @@ public abstract class Algorithm implements Serializable {
 		mInputDatasetIndex = null;
 		mOutputDatasetIndex = null;
 		mCurrInstancePos = 0;
+		mNumOfThreads = 1;
+		mMetrics = new SelectionMetrics();
+		mStepBatchSize = 256;
 	} // Algorithm
 	
 	/**
@@ -180,6 +280,181 @@ public abstract class Algorithm implements Serializable {
 		return mOutputDatasetIndex;
 	} // getOutputDatasetIndex
 	
+	/**
+	 * Devuelve las métricas de la ejecución del algoritmo desde el último reinicio.
+	 * 
+	 * @return Métricas de la ejecución.
+	 */
+	public SelectionMetrics getMetrics () {
+		
+		return mMetrics;
+	} // getMetrics
+	
+	/**
+	 * Devuelve la posición de la instancia que se está evaluando. Se puede consultar desde otro hilo
+	 * mientras se ejecuta el algoritmo para seguir su progreso.
+	 * 
+	 * @return Posición de la instancia actual.
+	 */
+	public int getCurrInstancePos () {
+		
+		return mCurrInstancePos;
+	} // getCurrInstancePos
+	
+	/**
+	 * Devuelve el número de posiciones que recorre el algoritmo, la posición de la instancia actual
+	 * avanza hasta él.
+	 * 
+	 * @return Número de posiciones a recorrer.
+	 */
+	public int getNumOfPositions () {
+		Instances train = mTrainSet;
+		
+		return train != null ? train.numInstances() : 0;
+	} // getNumOfPositions
+	
+	/**
+	 * Estima la memoria en bytes de las estructuras auxiliares del algoritmo, sin contar los conjuntos de
+	 * instancias. Se puede consultar desde otro hilo mientras se ejecuta el algoritmo.
+	 * 
+	 * @return Memoria estimada en bytes, 0 si el algoritmo no tiene estructuras auxiliares.
+	 */
+	public long getMemoryFootprint () {
+		
+		return 0;
+	} // getMemoryFootprint
+	
+	/**
+	 * Devuelve el número de hilos a utilizar en las fases paralelizables del algoritmo.
+	 * 
+	 * @return Número de hilos.
+	 */
+	public int getNumOfThreads () {
+		
+		return mNumOfThreads;
+	} // getNumOfThreads
+	
+	/**
+	 * Establece el número de hilos a utilizar en las fases paralelizables del algoritmo.
+	 * El resultado del algoritmo no depende del número de hilos.
+	 * 
+	 * @param numOfThreads Número de hilos, 1 para ejecución secuencial.
+	 * @throws IllegalArgumentException Si el número de hilos es menor que 1.
+	 */
+	public void setNumOfThreads (int numOfThreads) {
+		if (numOfThreads < 1)
+			throw new IllegalArgumentException("El número de hilos debe ser mayor de 0.");
+		
+		// El conjunto de hilos se volverá a crear con el nuevo número de hilos.
+		if (numOfThreads != mNumOfThreads)
+			releaseExecutor();
+		
+		mNumOfThreads = numOfThreads;
+	} // setNumOfThreads
+	
+	/**
+	 * Devuelve el conjunto de hilos compartido del algoritmo, creándolo si es necesario.
+	 * Los hilos son demonios, por lo que no impiden terminar a la máquina virtual si el algoritmo se
+	 * ejecuta paso a paso y no se libera.
+	 * 
+	 * @return Conjunto de hilos con tantos hilos como los del algoritmo.
+	 */
+	protected synchronized ExecutorService getExecutor () {
+		if (mExecutor == null)
+			mExecutor = Executors.newFixedThreadPool(mNumOfThreads, new ThreadFactory() {
+				public Thread newThread (Runnable runnable) {
+					
+					return new WorkerThread(runnable);
+				}
+			});
+		
+		return mExecutor;
+	} // getExecutor
+	
+	/**
+	 * Indica si el hilo actual es uno de los hilos de un conjunto compartido de hilos.
+	 * 
+	 * @return Verdadero si el código se está ejecutando dentro de una tarea paralela.
+	 */
+	protected static boolean isWorkerThread () {
+		
+		return Thread.currentThread() instanceof WorkerThread;
+	} // isWorkerThread
+	
+	/**
+	 * Libera el conjunto de hilos compartido del algoritmo. Si se vuelve a necesitar se creará de nuevo.
+	 */
+	public synchronized void releaseExecutor () {
+		if (mExecutor != null)
+			mExecutor.shutdown();
+		
+		mExecutor = null;
+	} // releaseExecutor
+	
+	/**
+	 * Ejecuta una tarea sobre las posiciones [0, size) repartiéndolas en bloques contiguos entre los hilos
+	 * del conjunto compartido del algoritmo. Con un único hilo, o si ya se está ejecutando dentro de una
+	 * tarea paralela, la tarea se ejecuta en el hilo actual.<br>
+	 * Cada bloque mide el tiempo de CPU de su hilo y lo suma a las métricas del algoritmo.
+	 * 
+	 * @param size Número de posiciones a procesar.
+	 * @param task Tarea a ejecutar sobre cada bloque.
+	 * @throws Exception Primera excepción producida por alguno de los bloques.
+	 */
+	protected void runInParallel (int size, final RangeTask task) throws Exception {
+		int numOfBlocks = Math.min(mNumOfThreads, size);
+		Vector<Future<Object>> futures;
+		ExecutorService executor;
+		
+		if (numOfBlocks <= 1 || isWorkerThread()) {
+			task.run(0, size);
+			return;
+		}
+		
+		executor = getExecutor();
+		futures = new Vector<Future<Object>>(numOfBlocks);
+		
+		try {
+			for (int b = 0; b < numOfBlocks; b++) {
+				final int start = (int)((long)size * b / numOfBlocks);
+				final int end = (int)((long)size * (b + 1) / numOfBlocks);
+				
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call () throws Exception {
+						long userStart = SelectionMetrics.getThreadUserTime(), userTime;
+						long cpuStart = SelectionMetrics.getThreadCPUTime(), cpuTime;
+						
+						try {
+							task.run(start, end);
+						} finally {
+							userTime = SelectionMetrics.getThreadUserTime() - userStart;
+							cpuTime = SelectionMetrics.getThreadCPUTime() - cpuStart;
+							mMetrics.addWorkerTime(userTime, Math.max(0, cpuTime - userTime));
+						}
+						
+						return null;
+					}
+				}));
+			}
+			
+			// Esperar a todos los bloques y propagar la primera excepción.
+			for (Future<Object> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException ex) {
+					if (ex.getCause() instanceof Exception)
+						throw (Exception)ex.getCause();
+					
+					throw ex;
+				}
+			}
+		} finally {
+			// Si algún bloque ha fallado no esperar al resto.
+			for (Future<Object> future : futures)
+				future.cancel(true);
+		}
+	} // runInParallel
+	
 	/**
 	 * Ejecuta un paso del algoritmo.
 	 * 
@@ -190,13 +465,138 @@ public abstract class Algorithm implements Serializable {
 	
 	/**
 	 * Ejecuta todos los pasos del algoritmo desde el punto en el que se encuentre hasta el final.
+	 * Al terminar libera el conjunto de hilos compartido.
 	 * 
 	 * @throws Exception Excepción producida durante el paso del algoritmo.
 	 */
 	public void allSteps () throws Exception {
-		while (step ());
+		mLastStepTime = System.nanoTime();
+		
+		try {
+			while (step ());
+			
+			flushSteps();
+		} finally {
+			releaseExecutor();
+		}
 	} // allSteps
 	
+	/**
+	 * Añade un observador de los pasos del algoritmo. Los pasos se le entregan por lotes.
+	 * 
+	 * @param listener Observador a añadir.
+	 */
+	public void addStepListener (StepListener listener) {
+		if (mStepListeners == null)
+			mStepListeners = new Vector<StepListener>();
+		
+		// Los pasos anteriores al primer observador no tienen tiempo.
+		if (mStepListeners.isEmpty())
+			mLastStepTime = System.nanoTime();
+		
+		mStepListeners.add(listener);
+	} // addStepListener
+	
+	/**
+	 * Elimina un observador de los pasos del algoritmo.
+	 * 
+	 * @param listener Observador a eliminar.
+	 */
+	public void removeStepListener (StepListener listener) {
+		if (mStepListeners != null)
+			mStepListeners.remove(listener);
+	} // removeStepListener
+	
+	/**
+	 * Añade los observadores de este algoritmo, con el mismo tamaño de lote, a un algoritmo que se ejecuta
+	 * dentro de él. Los observadores reciben sus pasos indicando que los ha realizado el otro algoritmo.
+	 * 
+	 * @param algorithm Algoritmo anidado.
+	 */
+	protected void shareStepListeners (Algorithm algorithm) {
+		if (mStepListeners == null)
+			return;
+		
+		algorithm.setStepBatchSize(mStepBatchSize);
+		
+		for (StepListener listener : mStepListeners)
+			algorithm.addStepListener(listener);
+	} // shareStepListeners
+	
+	/**
+	 * Devuelve el número de pasos de cada lote entregado a los observadores.
+	 * 
+	 * @return Número de pasos por lote.
+	 */
+	public int getStepBatchSize () {
+		
+		return mStepBatchSize;
+	} // getStepBatchSize
+	
+	/**
+	 * Establece el número de pasos de cada lote entregado a los observadores. Con lotes mayores los
+	 * observadores se invocan menos veces pero reciben los pasos con más retraso.
+	 * 
+	 * @param stepBatchSize Número de pasos por lote.
+	 * @throws IllegalArgumentException Si el número de pasos es menor que 1.
+	 */
+	public void setStepBatchSize (int stepBatchSize) {
+		if (stepBatchSize < 1)
+			throw new IllegalArgumentException("El número de pasos por lote debe ser mayor de 0.");
+		
+		// El lote pendiente se entrega con su tamaño actual.
+		flushSteps();
+		
+		mStepBatchSize = stepBatchSize;
+	} // setStepBatchSize
+	
+	/**
+	 * Registra la decisión tomada sobre una instancia y, si hay observadores, la añade al lote pendiente,
+	 * que se entrega al llenarse. Sin observadores solo incrementa los contadores de pasos.
+	 * 
+	 * @param instanceId Índice de la instancia en el conjunto original.
+	 * @param removed Verdadero si la instancia se elimina.
+	 */
+	protected void recordStep (int instanceId, boolean removed) {
+		long now;
+		
+		mNumOfSteps++;
+		
+		if (removed)
+			mNumOfRemovedSteps++;
+		
+		if (mStepListeners == null || mStepListeners.isEmpty())
+			return;
+		
+		now = System.nanoTime();
+		
+		if (mStepBatch == null)
+			mStepBatch = new StepBatch(mNumOfSteps - 1, mStepBatchSize);
+		
+		mStepBatch.add(instanceId, removed, now - mLastStepTime, mNumOfRemovedSteps);
+		mLastStepTime = now;
+		
+		if (mStepBatch.isFull())
+			flushSteps();
+	} // recordStep
+	
+	/**
+	 * Entrega a los observadores el lote de pasos pendiente aunque no esté lleno. Se invoca al terminar
+	 * <code>allSteps</code>; si el algoritmo se ejecuta paso a paso debe invocarse al terminar.
+	 */
+	public void flushSteps () {
+		StepBatch batch = mStepBatch;
+		
+		if (batch == null || batch.size() == 0 || mStepListeners == null)
+			return;
+		
+		mStepBatch = null;
+		
+		// Copiar los observadores para que puedan eliminarse durante el aviso.
+		for (StepListener listener : mStepListeners.toArray(new StepListener[0]))
+			listener.stepsPerformed(this, batch);
+	} // flushSteps
+	
 	/**
 	 * Reinicia el algoritmo con un conjunto de entrenamiento nuevo.
 	 * Inicializa las variables de trabajo del algoritmo.
@@ -227,6 +627,11 @@ public abstract class Algorithm implements Serializable {
 		mSolutionSet = new Instances(train, train.numInstances()/10);
 		mInputDatasetIndex = new Vector<Integer>(inputDatasetIndex.length, 0);
 		mOutputDatasetIndex = new Vector<Integer>(train.numInstances()/10);
+		mMetrics = new SelectionMetrics();
+		mStepBatch = null;
+		mNumOfSteps = 0;
+		mNumOfRemovedSteps = 0;
+		mLastStepTime = System.nanoTime();
 		
 		// Copiar inputDatsetIndex en mInputDatasetIndex
 		for (int i = 0; i < inputDatasetIndex.length; i++)
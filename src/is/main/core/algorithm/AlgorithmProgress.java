@@ -0,0 +1,203 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * AlgorithmProgress.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.algorithm;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import main.core.util.SelectionMetrics;
+import main.core.util.SelectionMetrics.Counter;
+import main.core.util.SelectionMetrics.Phase;
+
+/**
+ * <b>Descripción</b><br>
+ * Progreso de una ejecución de un algoritmo de selección de instancias, publicado por JMX.
+ * <p>
+ * <b>Detalles</b><br>
+ * Lee el estado del algoritmo en cada consulta, por lo que no añade ningún coste a la ejecución. Se registra
+ * en el servidor de MBeans de la plataforma con el nombre
+ * <code>main.core:type=AlgorithmProgress,name=&lt;algoritmo&gt;-&lt;n&gt;</code> y debe eliminarse al
+ * terminar la ejecución.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite seguir desde una consola JMX el progreso de una ejecución larga.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class AlgorithmProgress implements AlgorithmProgressMXBean {
+
+	/**
+	 * Número de ejecuciones registradas, para que cada una tenga un nombre distinto.
+	 */
+	private static final AtomicInteger NUM_OF_REGISTRATIONS = new AtomicInteger();
+
+	/**
+	 * Algoritmo en ejecución.
+	 */
+	private Algorithm mAlgorithm;
+
+	/**
+	 * Instante de inicio de la ejecución en milisegundos.
+	 */
+	private long mStartTime;
+
+	/**
+	 * Constructor del progreso de una ejecución que empieza ahora.
+	 *
+	 * @param algorithm Algoritmo en ejecución.
+	 */
+	public AlgorithmProgress (Algorithm algorithm) {
+		mAlgorithm = algorithm;
+		mStartTime = System.currentTimeMillis();
+	} // AlgorithmProgress
+
+	/**
+	 * Registra el progreso de una ejecución en el servidor de MBeans de la plataforma.
+	 * Si no se puede registrar la ejecución continúa sin él.
+	 *
+	 * @param algorithm Algoritmo en ejecución.
+	 * @return Nombre con el que se ha registrado, null si no se ha podido registrar.
+	 */
+	public static ObjectName register (Algorithm algorithm) {
+		ObjectName name;
+
+		try {
+			name = new ObjectName("main.core:type=AlgorithmProgress,name=" + 
+			                      algorithm.getClass().getSimpleName() + "-" + 
+			                      NUM_OF_REGISTRATIONS.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new AlgorithmProgress(algorithm), name);
+		} catch (JMException ex) {
+			return null;
+		}
+
+		return name;
+	} // register
+
+	/**
+	 * Elimina del servidor de MBeans de la plataforma el progreso de una ejecución.
+	 *
+	 * @param name Nombre devuelto por <code>register</code>, si es null no se hace nada.
+	 */
+	public static void unregister (ObjectName name) {
+		if (name == null)
+			return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException ex) {
+			// Ya no está registrado.
+		}
+	} // unregister
+
+	/**
+	 * Devuelve el nombre del algoritmo en ejecución.
+	 *
+	 * @return Nombre de la clase del algoritmo.
+	 */
+	public String getAlgorithm () {
+
+		return mAlgorithm.getClass().getSimpleName();
+	} // getAlgorithm
+
+	/**
+	 * Devuelve la fase en curso del algoritmo.
+	 *
+	 * @return Nombre de la fase en curso, NONE si no hay ninguna.
+	 */
+	public String getPhase () {
+		Phase phase = mAlgorithm.getMetrics().getCurrentPhase();
+
+		return phase != null ? phase.name() : "NONE";
+	} // getPhase
+
+	/**
+	 * Devuelve la posición de la instancia que se está evaluando.
+	 *
+	 * @return Posición de la instancia actual.
+	 */
+	public int getCurrInstancePos () {
+
+		return mAlgorithm.getCurrInstancePos();
+	} // getCurrInstancePos
+
+	/**
+	 * Devuelve el número de posiciones que recorre el algoritmo.
+	 *
+	 * @return Número de posiciones a recorrer.
+	 */
+	public int getNumOfPositions () {
+
+		return mAlgorithm.getNumOfPositions();
+	} // getNumOfPositions
+
+	/**
+	 * Devuelve el número de instancias eliminadas hasta el momento en todas las fases.
+	 *
+	 * @return Número de instancias eliminadas.
+	 */
+	public long getRemovedInstances () {
+
+		return mAlgorithm.getMetrics().getTotal(Counter.REMOVED_INSTANCES);
+	} // getRemovedInstances
+
+	/**
+	 * Devuelve el tiempo transcurrido desde el inicio de la ejecución.
+	 *
+	 * @return Tiempo transcurrido en milisegundos.
+	 */
+	public long getElapsedTime () {
+
+		return System.currentTimeMillis() - mStartTime;
+	} // getElapsedTime
+
+	/**
+	 * Devuelve una estimación del tiempo que falta para terminar la fase de eliminación, a partir de las
+	 * posiciones recorridas por unidad de tiempo en ella.
+	 *
+	 * @return Tiempo restante estimado en milisegundos, -1 si aún no se puede estimar.
+	 */
+	public long getEstimatedRemainingTime () {
+		SelectionMetrics metrics = mAlgorithm.getMetrics();
+		int position = mAlgorithm.getCurrInstancePos(), numOfPositions = mAlgorithm.getNumOfPositions();
+
+		if (!metrics.isRunning(Phase.REMOVAL) || position <= 0 || position > numOfPositions)
+			return -1;
+
+		return (long)(metrics.getWallTime(Phase.REMOVAL) / 1e6 * (numOfPositions - position) / position);
+	} // getEstimatedRemainingTime
+
+	/**
+	 * Devuelve la memoria estimada de las estructuras de vecinos y asociados del algoritmo.
+	 *
+	 * @return Memoria estimada en bytes.
+	 */
+	public long getMemoryFootprint () {
+
+		return mAlgorithm.getMemoryFootprint();
+	} // getMemoryFootprint
+
+} // AlgorithmProgress
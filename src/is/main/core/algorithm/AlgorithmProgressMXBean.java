@@ -0,0 +1,98 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * AlgorithmProgressMXBean.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.algorithm;
+
+/**
+ * <b>Descripción</b><br>
+ * Interfaz de gestión (JMX) del progreso de una ejecución de un algoritmo de selección de instancias.
+ * <p>
+ * <b>Detalles</b><br>
+ * Todos los atributos son de solo lectura y se pueden consultar mientras el algoritmo se ejecuta en otro
+ * hilo; los valores son instantáneas aproximadas.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite seguir por JMX local el progreso de una ejecución larga.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public interface AlgorithmProgressMXBean {
+
+	/**
+	 * Devuelve el nombre del algoritmo en ejecución.
+	 *
+	 * @return Nombre de la clase del algoritmo.
+	 */
+	public String getAlgorithm ();
+
+	/**
+	 * Devuelve la fase en curso del algoritmo.
+	 *
+	 * @return Nombre de la fase en curso, NONE si no hay ninguna.
+	 */
+	public String getPhase ();
+
+	/**
+	 * Devuelve la posición de la instancia que se está evaluando.
+	 *
+	 * @return Posición de la instancia actual.
+	 */
+	public int getCurrInstancePos ();
+
+	/**
+	 * Devuelve el número de posiciones que recorre el algoritmo.
+	 *
+	 * @return Número de posiciones a recorrer.
+	 */
+	public int getNumOfPositions ();
+
+	/**
+	 * Devuelve el número de instancias eliminadas hasta el momento en todas las fases.
+	 *
+	 * @return Número de instancias eliminadas.
+	 */
+	public long getRemovedInstances ();
+
+	/**
+	 * Devuelve el tiempo transcurrido desde el inicio de la ejecución.
+	 *
+	 * @return Tiempo transcurrido en milisegundos.
+	 */
+	public long getElapsedTime ();
+
+	/**
+	 * Devuelve una estimación del tiempo que falta para terminar la fase de eliminación, a partir de las
+	 * posiciones recorridas por unidad de tiempo en ella.
+	 *
+	 * @return Tiempo restante estimado en milisegundos, -1 si aún no se puede estimar.
+	 */
+	public long getEstimatedRemainingTime ();
+
+	/**
+	 * Devuelve la memoria estimada de las estructuras de vecinos y asociados del algoritmo.
+	 *
+	 * @return Memoria estimada en bytes.
+	 */
+	public long getMemoryFootprint ();
+
+} // AlgorithmProgressMXBean
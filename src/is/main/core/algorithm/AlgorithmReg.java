@@ -56,6 +56,11 @@ public abstract class AlgorithmReg extends Algorithm {
 	 */
 	protected int mClassIndex;
 	
+	/**
+	 * Error de redondeo unitario de la aritmética de doble precisión (2<sup>-53</sup>).
+	 */
+	private static final double UNIT_ROUNDOFF = 0x1.0p-53;
+	
 	/**
 	 * Constructor por defecto del algoritmo de selección de instancias para regresión.
 	 */
@@ -136,7 +141,7 @@ public abstract class AlgorithmReg extends Algorithm {
 	 * @return Valor umbral en regresión, 0 en cualquier otro caso.
 	 */
 	public static double getTheta (Vector<Instance> subset, double alpha, int classIndex) {
-		double sigma = 0.0, mean = 0.0;
+		double values[];
 		
 		// Si solo existe una instancia (o ninguna) devuelve alfa.
 		if (subset.size() <= 1)
@@ -146,21 +151,57 @@ public abstract class AlgorithmReg extends Algorithm {
 		if (!subset.firstElement().attribute(classIndex).isNumeric())
 			return 0.0;
 		
-		// Calcular la media
-		for (Instance inst : subset)
-			mean += inst.value(classIndex);
+		values = new double[subset.size()];
 		
-		mean /= subset.size();
+		for (int i = 0; i < values.length; i++)
+			values[i] = subset.elementAt(i).value(classIndex);
 		
-		// Calcular la desviación típica
-		for (Instance inst : subset)
-			sigma += Math.pow(inst.value(classIndex) - mean, 2);
+		return getTheta(values, values.length, alpha);
+	} // getTheta
+	
+	/**
+	 * Devuelve el umbral theta calculado como &Theta; = &alpha; · std(Y(X<sub>s</sub>)) a partir de los
+	 * valores de la clase de las instancias.
+	 * 
+	 * @param values Valores de la clase de las instancias del subconjunto.
+	 * @param count Número de valores a utilizar.
+	 * @param alpha Coeficiente a utilizar en el cálculo.
+	 * @return Valor umbral en regresión.
+	 */
+	public static double getTheta (double[] values, int count, double alpha) {
 		
-		sigma = Math.sqrt(sigma / (subset.size() - 1));
+		// Si solo existe una instancia (o ninguna) devuelve alfa.
+		if (count <= 1)
+			return alpha;
 		
-		return sigma * alpha;
+		return getStandardDeviation(values, count) * alpha;
 	} // getTheta
 	
+	/**
+	 * Devuelve la desviación típica muestral de una serie de valores.
+	 * Se calcula en dos pasadas, primero la media y después la suma de los cuadrados de las desviaciones,
+	 * sumando los valores en el orden en que se reciben.
+	 * 
+	 * @param values Valores de los que calcular la desviación típica.
+	 * @param count Número de valores a utilizar, al menos 2.
+	 * @return Desviación típica muestral.
+	 */
+	public static double getStandardDeviation (double[] values, int count) {
+		double sigma = 0.0, mean = 0.0;
+		
+		// Calcular la media
+		for (int i = 0; i < count; i++)
+			mean += values[i];
+		
+		mean /= count;
+		
+		// Calcular la desviación típica
+		for (int i = 0; i < count; i++)
+			sigma += Math.pow(values[i] - mean, 2);
+		
+		return Math.sqrt(sigma / (count - 1));
+	} // getStandardDeviation
+	
 	/**
 	 * Devuelve el valor de la clase para la instancia dada.
 	 * No se tiene en cuenta el valor de la clase de la instancia sino la que tiene almacenada el 
@@ -219,5 +260,29 @@ public abstract class AlgorithmReg extends Algorithm {
 		
 		return false;
 	} // isMisclassified
+	
+	/**
+	 * Devuelve una cota del error de redondeo del error de predicción |media - valor| calculado
+	 * directamente frente al que calcula IBk.<br>
+	 * IBk sin ponderación, con tantos vecinos como instancias de entrenamiento y pesos unitarios, predice
+	 * la media de los valores de clase, pero suma los valores en el orden en el que le devuelve los vecinos
+	 * la búsqueda normalizada. Dos órdenes de suma distintos difieren como mucho en
+	 * 2·(n - 1)·u·&Sigma;|y<sub>i</sub>|, a lo que se añaden los redondeos de la división y de la resta. La
+	 * cota devuelta es cuatro veces mayor que ese valor. Si la diferencia entre el error calculado y el
+	 * umbral la supera, IBk toma la misma decisión.
+	 * 
+	 * @param sumOfAbsValues Suma de los valores absolutos de la clase de los vecinos.
+	 * @param count Número de vecinos.
+	 * @param prediction Predicción calculada directamente.
+	 * @param classValue Valor de la clase de la instancia a clasificar.
+	 * @return Cota del error de redondeo.
+	 */
+	public static double getPredictionErrorBound (double sumOfAbsValues, int count, double prediction, 
+	                                              double classValue) {
+		double sumBound = 2.0 * Math.max(count - 1, 0) * sumOfAbsValues / Math.max(count, 1);
+		
+		return 4.0 * UNIT_ROUNDOFF * (sumBound + 2.0 * (Math.abs(prediction) + Math.abs(classValue))) +
+		       Double.MIN_VALUE;
+	} // getPredictionErrorBound
 
 } // AlgorithmReg
@@ -23,7 +23,8 @@ package main.core.algorithm;
 import java.io.Serializable;
 
 import main.core.exception.NotEnoughInstancesException;
-import main.core.util.InstanceIS;
+import main.core.util.SelectionMetrics.Counter;
+import main.core.util.SelectionMetrics.Phase;
 
 import weka.core.Instances;
 
@@ -82,7 +83,7 @@ import weka.core.Instances;
  * </p>
  * 
  * @author Álvar Arnaiz González
- * @version 1.6
+ * @version 1.7
  */
 public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm implements Serializable {
 	
@@ -96,6 +97,22 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 	 */
 	private boolean mFilter;
 	
+	/**
+	 * Indica si el filtrado RegENN se realiza por lotes (edición de Wilson).
+	 */
+	private boolean mBatchEditing;
+	
+	/**
+	 * Indica si el filtrado por lotes se compara con el filtrado secuencial.
+	 */
+	private boolean mCountEditingDifferences;
+	
+	/**
+	 * Número de decisiones del filtrado por lotes que difieren de las del filtrado secuencial, -1 si no se
+	 * han comparado.
+	 */
+	private int mNumOfEditingDifferences = -1;
+	
 	/**
 	 * Constructor por defecto del algoritmo DROP2.
 	 * Antes de comenzar la ejecución del algoritmo debe llamarse a setNumOfNearestNeighbour para establecer
@@ -141,6 +158,58 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 		super(train, inputDatasetIndex);
 	} // DROP3RegThresholdAlgorithm
 	
+	/**
+	 * Indica si el filtrado RegENN se realiza por lotes.
+	 * 
+	 * @return Verdadero si el filtrado evalúa cada instancia frente al conjunto de entrenamiento completo.
+	 */
+	public boolean getBatchEditing () {
+		
+		return mBatchEditing;
+	} // getBatchEditing
+	
+	/**
+	 * Establece si el filtrado RegENN se realiza por lotes, como la edición de Wilson: cada instancia se
+	 * evalúa en paralelo frente al conjunto de entrenamiento completo en lugar de frente al conjunto ya
+	 * filtrado.
+	 * 
+	 * @param batchEditing Verdadero para filtrar por lotes.
+	 */
+	public void setBatchEditing (boolean batchEditing) {
+		mBatchEditing = batchEditing;
+	} // setBatchEditing
+	
+	/**
+	 * Indica si el filtrado por lotes se compara con el filtrado secuencial.
+	 * 
+	 * @return Verdadero si se cuentan las decisiones que difieren.
+	 */
+	public boolean getCountEditingDifferences () {
+		
+		return mCountEditingDifferences;
+	} // getCountEditingDifferences
+	
+	/**
+	 * Establece si, como diagnóstico, el filtrado por lotes se compara con el filtrado secuencial completo.
+	 * Su coste se incluye en los tiempos medidos.
+	 * 
+	 * @param countEditingDifferences Verdadero para comparar ambos filtrados.
+	 */
+	public void setCountEditingDifferences (boolean countEditingDifferences) {
+		mCountEditingDifferences = countEditingDifferences;
+	} // setCountEditingDifferences
+	
+	/**
+	 * Devuelve el número de decisiones del filtrado por lotes que difieren de las del filtrado secuencial.
+	 * 
+	 * @return Número de decisiones distintas o -1 si no se ha pedido la comparación o no se ha filtrado
+	 *         por lotes.
+	 */
+	public int getNumOfEditingDifferences () {
+		
+		return mNumOfEditingDifferences;
+	} // getNumOfEditingDifferences
+	
 	/**
 	 * Ejecuta un paso del algoritmo.
 	 * En el primer paso elimina las instancias ruidosas mediante RegENN.
@@ -164,7 +233,7 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 			return filterInstances();
 		} else if (!mOrdered){
 			// Borrar las instancias duplicadas.
-			InstanceIS.removeDuplicateInstances(mSolutionSet, mOutputDatasetIndex);
+			removeDuplicateInstances();
 			
 			// Si tras el filtrado queda una instancia o menos devolver falso.
 			if (mSolutionSet.numInstances() <= 1)
@@ -185,7 +254,7 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 			mCalcNeighbourAssociate = true;
 		} else {
 			// Si without >= with eliminar la instancia actual.
-			if (calcWithout(mTempSet) >= calcWith(mTempSet))
+			if (isCurrentInstanceRemovable(mTempSet))
 				// Eliminar la instancia actual porque without >= with.
 				removeCurrentInstance();
 
@@ -212,20 +281,40 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 	private boolean filterInstances () throws Exception {
 		ENNRegAlgorithm wea = new ENNRegAlgorithm(mTrainSet, vectorToArray(mInputDatasetIndex));
 		
+		mMetrics.startPhase(Phase.EDITING);
+		
 		// Asignar el alfa.
 		wea.setAlpha(mBeta);
 		
 		// Establecer el número de vecinos cercanos a utilizar.
 		wea.setNumOfNearestNeighbour(mNumOfNearestNeighbour);
 		
+		// Calcular los vecinos del filtrado con los mismos hilos.
+		wea.setNumOfThreads(mNumOfThreads);
+		
+		// Filtrar por lotes o secuencialmente.
+		wea.setBatchEditing(mBatchEditing);
+		wea.setCountDifferences(mCountEditingDifferences);
+		
+		// Los observadores de los pasos reciben también los del filtrado.
+		shareStepListeners(wea);
+		
 		// Ejecutar el filtrado.
 		wea.allSteps();
+		mNumOfEditingDifferences = wea.getNumOfDifferences();
+		
+		// El filtrado utiliza su propio conjunto de hilos.
+		mMetrics.addWorkerTimes(wea.getMetrics());
 		
 		// Inicializar el algoritmo con los datos devueltos por el filtrado RegENN.
 		mOutputDatasetIndex = wea.getOutputDatasetIndex();
 		mSolutionSet = wea.getSolutionSet();
 		mFilter = true;
 		
+		mMetrics.endPhase(Phase.EDITING);
+		mMetrics.add(Phase.EDITING, Counter.REMOVED_INSTANCES, 
+		             mTrainSet.numInstances() - mSolutionSet.numInstances());
+		
 		// Si tras el filtrado solo queda una instancia o menos devolver falso.
 		if (mSolutionSet.numInstances() <= 1)
 			return false;
@@ -256,6 +345,7 @@ public class DROP3RegThresholdAlgorithm extends DROP2RegThresholdAlgorithm imple
 		super.reset(train, inputDatasetIndex);
 		
 		mFilter = false;
+		mNumOfEditingDifferences = -1;
 	} // reset
 	
 } // DROP3RegThresholdAlgorithm
@@ -21,15 +21,18 @@
 package main.core.algorithm;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Vector;
 
 import main.core.algorithm.sort.SortByDistance;
 import main.core.exception.NotEnoughInstancesException;
 import main.core.util.InstanceIS;
+import main.core.util.InstanceIndex;
 import main.core.util.LinearISNNSearch;
 
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * <b>Descripción</b><br>
@@ -47,7 +50,7 @@ import weka.core.Instances;
  * </p>
  * 
  * @author Álvar Arnaiz González
- * @version 1.2
+ * @version 1.3
  */
 public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 	
@@ -66,6 +69,11 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 	 */
 	protected Vector<Vector<Instance>> mNeighbours;
 	
+	/**
+	 * Distancias de cada instancia a sus vecinos, en el mismo orden que en mNeighbours.
+	 */
+	protected Vector<double[]> mNeighbourDistances;
+	
 	/**
 	 * Conjunto de los asociados ordenados.
 	 */
@@ -200,11 +208,13 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 
 		// Inicializar los vectores de vectores.
 		mNeighbours = new Vector<Vector<Instance>>(capacity);
+		mNeighbourDistances = new Vector<double[]>(capacity);
 		mAssociates = new Vector<Vector<Instance>>(capacity);
 		
 		for (int i = 0; i < capacity; i++) {
 			v = new Vector<Instance>(realNumOfNeighbours);
 			mNeighbours.add(v);
+			mNeighbourDistances.add(new double[0]);
 			v = new Vector<Instance>(realNumOfNeighbours*2);
 			mAssociates.add(v);
 		}
@@ -212,15 +222,53 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 	
 	/**
 	 * Calcula el conjunto vecindario para todas las instancias del algoritmo.
-	 * Selecciona los "k" vecinos más cercanos de cada instancia y los ordena de menor a mayor distancia.
+	 * Selecciona los "k" vecinos más cercanos de cada instancia y los ordena de menor a mayor distancia.<br>
+	 * Si el algoritmo utiliza varios hilos las instancias se reparten en bloques contiguos y cada hilo
+	 * utiliza su propia búsqueda, que comparte la matriz plana del algoritmo de búsqueda.
 	 * 
 	 * @param instances Conjunto de instancias a utilizar para el cálculo del vecindario.
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos. 
 	 */
-	protected void calcNeighbourSet (Instances instances) throws Exception {
-		// Calcular el conjunto vecindario.
-		for (int i = 0; i < instances.numInstances(); i++)
-			mNeighbours.set(i, getNeighbours(instances.instance(i)));
+	protected void calcNeighbourSet (final Instances instances) throws Exception {
+		if (mNumOfThreads <= 1) {
+			calcNeighbourSet(instances, mNearestNeighbourSearch, 0, instances.numInstances());
+			return;
+		}
+		
+		runInParallel(instances.numInstances(), new RangeTask() {
+			public void run (int start, int end) throws Exception {
+				NearestNeighbourSearch search;
+				
+				if (mNearestNeighbourSearch instanceof LinearISNNSearch) {
+					search = ((LinearISNNSearch)mNearestNeighbourSearch).createWorker();
+				} else {
+					search = new LinearISNNSearch();
+					search.setInstances(mNearestNeighbourSearch.getInstances());
+				}
+				
+				calcNeighbourSet(instances, search, start, end);
+			}
+		});
+	} // calcNeighbourSet
+	
+	/**
+	 * Calcula el conjunto vecindario de las instancias del rango [start, end).
+	 * 
+	 * @param instances Conjunto de instancias a utilizar para el cálculo del vecindario.
+	 * @param search Algoritmo de búsqueda de vecinos cercanos.
+	 * @param start Primera instancia del rango.
+	 * @param end Instancia siguiente a la última del rango.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos. 
+	 */
+	protected void calcNeighbourSet (Instances instances, NearestNeighbourSearch search, int start, int end) 
+	                                 throws Exception {
+		double distances[] = new double[mNumOfNearestNeighbour + 1];
+		
+		// Calcular el conjunto vecindario y guardar las distancias a los vecinos.
+		for (int i = start; i < end; i++) {
+			mNeighbours.set(i, getNeighbours(search, instances.instance(i), distances));
+			mNeighbourDistances.set(i, Arrays.copyOf(distances, mNeighbours.elementAt(i).size()));
+		}
 	} // calcNeighbourSet
 	
 	/**
@@ -232,15 +280,49 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
 	 */
 	protected Vector<Instance> getNeighbours (Instance instance) throws Exception {
+		
+		return getNeighbours(instance, new double[mNumOfNearestNeighbour + 1]);
+	} // getNeighbours
+	
+	/**
+	 * Devuelve el conjunto vecindario para una instancia dada junto con las distancias a los vecinos.
+	 * Selecciona los vecinos mas cercanos a cada instancia y los ordena de menor a mayor distancia.
+	 * 
+	 * @param instance Instancia para la cual se va a calcular el vecindario. 
+	 * @param neighbourDistances Array, de al menos k + 1 posiciones, donde se devuelven las distancias a
+	 *        los vecinos en el mismo orden que el vector devuelto.
+	 * @return Vector de vecinos ordenados de menor a mayor distancia.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
+	 */
+	protected Vector<Instance> getNeighbours (Instance instance, double[] neighbourDistances) 
+	                                          throws Exception {
+		
+		return getNeighbours(mNearestNeighbourSearch, instance, neighbourDistances);
+	} // getNeighbours
+	
+	/**
+	 * Devuelve el conjunto vecindario para una instancia dada, calculado con el algoritmo de búsqueda
+	 * indicado, junto con las distancias a los vecinos.
+	 * 
+	 * @param search Algoritmo de búsqueda de vecinos cercanos.
+	 * @param instance Instancia para la cual se va a calcular el vecindario. 
+	 * @param neighbourDistances Array, de al menos k + 1 posiciones, donde se devuelven las distancias a
+	 *        los vecinos en el mismo orden que el vector devuelto.
+	 * @return Vector de vecinos ordenados de menor a mayor distancia.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
+	 */
+	protected Vector<Instance> getNeighbours (NearestNeighbourSearch search, Instance instance, 
+	                                          double[] neighbourDistances) throws Exception {
+		Vector<Instance> neighbours;
 		Instances nearNeighbours, reducedNearNeighbours;
 		double distances[], reducedDistances[];
 		int realNumOfNeighbours = mNumOfNearestNeighbour + 1;
 		
 		// Obtener los vecinos mas cercanos de instance.
-		nearNeighbours = mNearestNeighbourSearch.kNearestNeighbours(instance, realNumOfNeighbours);
+		nearNeighbours = search.kNearestNeighbours(instance, realNumOfNeighbours);
 		
 		// Obtener las distancias a los vecinos.
-		distances = mNearestNeighbourSearch.getDistances();
+		distances = search.getDistances();
 		
 		// Si hay mas vecinos cercanos que los establecidos en el algoritmo.
 		if (nearNeighbours.numInstances() > realNumOfNeighbours ) {
@@ -256,8 +338,12 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 			distances = reducedDistances;
 		}
 		
-		// Ordenar los vecinos más cercanos en función de la distancia. 
-		return SortByDistance.getSortVectorOfInstances(nearNeighbours, distances, true);
+		// Ordenar los vecinos más cercanos en función de la distancia, QuickSort deja las distancias
+		// ordenadas.
+		neighbours = SortByDistance.getSortVectorOfInstances(nearNeighbours, distances, true);
+		System.arraycopy(distances, 0, neighbourDistances, 0, neighbours.size());
+		
+		return neighbours;
 	} // getNeighbours
 	
 	/**
@@ -307,42 +393,59 @@ public abstract class DROPAlgorithm extends Algorithm implements Serializable {
 	
 	/**
 	 * Calcula el conjunto de asociados para todas las instancias del algoritmo.
-	 * Selecciona los asociados de cada instancia y los ordena de menor a mayor distancia.
+	 * Selecciona los asociados de cada instancia y los ordena de menor a mayor distancia.<br>
+	 * Los asociados se obtienen invirtiendo las listas de vecinos en una única pasada O(n·k), recorriendo
+	 * los vecindarios en orden, y se ordenan con las distancias calculadas en la búsqueda de vecinos.
 	 *
 	 * @param instances Conjunto de instancias a utilizar para el cálculo de los asociados.
 	 */
 	protected void calcAssociateSet (Instances instances) {
-		// Calcular la lista de asociados.
-		for (int i = 0; i < instances.numInstances(); i++)
-			// Recorrer todos los vecindarios.
-			for (int j = 0; j < mNeighbours.size(); j++)
-				// No recorrer sus propios vecinos.
-				if (i != j)
-					for (int k = 0; k < mNeighbours.elementAt(j).size(); k++)
-						// Si esta en el vecindario asignarlo a su lista de asociados.
-						if (InstanceIS.equals(mNeighbours.elementAt(j).elementAt(k), instances.instance(i)))
-							mAssociates.elementAt(i).add(instances.instance(j));
+		InstanceIndex index = new InstanceIndex(instances);
+		int pos[][] = new int[mNeighbours.size()][], count[] = new int[instances.numInstances()], i;
+		double distances[][] = new double[instances.numInstances()][];
+		
+		// Traducir cada vecino a su posición en el conjunto y contar los asociados de cada instancia.
+		for (int j = 0; j < mNeighbours.size(); j++) {
+			pos[j] = new int[mNeighbours.elementAt(j).size()];
+			
+			for (int k = 0; k < pos[j].length; k++) {
+				pos[j][k] = index.idOf(mNeighbours.elementAt(j).elementAt(k));
+				
+				if (pos[j][k] != -1 && pos[j][k] != j)
+					count[pos[j][k]]++;
+			}
+		}
+		
+		for (i = 0; i < count.length; i++) {
+			distances[i] = new double[count[i]];
+			count[i] = 0;
+		}
+		
+		// Invertir las listas de vecinos: j es asociado de cada uno de sus vecinos.
+		for (int j = 0; j < mNeighbours.size(); j++)
+			for (int k = 0; k < pos[j].length; k++) {
+				i = pos[j][k];
+				
+				// No añadir la propia instancia como asociado.
+				if (i != -1 && i != j) {
+					mAssociates.elementAt(i).add(instances.instance(j));
+					distances[i][count[i]++] = mNeighbourDistances.elementAt(j)[k];
+				}
+			}
 		
 		// Ordenar la lista de asociados de cada instancia en función de la distancia.
-		for (int i = 0; i < mAssociates.size(); i++)
-			mAssociates.set(i, getSortVectorByDistance(instances.instance(i), mAssociates.elementAt(i)));
+		for (i = 0; i < count.length; i++)
+			mAssociates.set(i, getSortVectorByDistance(mAssociates.elementAt(i), distances[i]));
 	} // calcAssociateSet
 	
 	/**
-	 * Devuelve el vector ordenado en función de la distancia a la instancia dada.
-	 * Ordena el vector dado en función de la distancia a la instancia dada.
+	 * Devuelve el vector ordenado en función de las distancias dadas.
 	 * 
-	 * @param instance Instancia con la que calcular las distancias.
 	 * @param vectorToSort Vector de instancias a ordenar por distancias.
+	 * @param distances Distancias de cada instancia del vector a la instancia de referencia.
 	 * @return Vector ordenado de instancias en función de la distancia.
 	 */
-	protected Vector<Instance> getSortVectorByDistance (Instance instance, Vector<Instance> vectorToSort) {
-		double distances[] = new double[vectorToSort.size()];
-		
-		// Calcular la distancia con todos los elementos del vector.
-		for (int i = 0; i < vectorToSort.size(); i++)
-			distances[i] = mNearestNeighbourSearch.getDistanceFunction().distance(instance,
-			                 vectorToSort.elementAt(i));
+	protected Vector<Instance> getSortVectorByDistance (Vector<Instance> vectorToSort, double[] distances) {
 		
 		return SortByDistance.getSortVectorOfInstances(vectorToSort, distances, true);
 	} // getSortVectorByDistance
@@ -21,15 +21,27 @@
 package main.core.algorithm;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import main.core.algorithm.sort.SortByDistance;
+import main.core.event.DROPStepEvent;
+import main.core.event.NeighbourRepairEvent;
 import main.core.exception.NotEnoughInstancesException;
 import main.core.util.InstanceIS;
+import main.core.util.InstanceIndex;
+import main.core.util.KDTreeISNNSearch;
 import main.core.util.LinearISNNSearch;
+import main.core.util.NeighbourGraph;
+import main.core.util.Permutation;
+import main.core.util.SelectionMetrics.Counter;
+import main.core.util.SelectionMetrics.Phase;
 
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * <b>Descripción</b><br>
@@ -39,7 +51,11 @@ import weka.core.Instances;
  * <b>Detalles</b><br>
  * Presenta el concepto de conjuntos de vecinos más cercanos y asociados y, en función de estos, elimina o
  * mantiene las instancias.
- * Posibilita seguir al algoritmo paso a paso.  
+ * Posibilita seguir al algoritmo paso a paso.<br>
+ * Durante la ejecución el conjunto solución se representa como el conjunto de trabajo más una máscara de
+ * instancias no eliminadas, de modo que eliminar una instancia solo desmarca su bit. El conjunto solución y
+ * sus índices de salida se construyen una única vez al terminar <code>allSteps</code>, o al consultarlos si
+ * se sigue al algoritmo paso a paso.
  * </p>
  * <p>
  * <b>Funcionalidad</b><br>
@@ -48,7 +64,7 @@ import weka.core.Instances;
  * </p>
  * 
  * @author Álvar Arnaiz González
- * @version 1.6
+ * @version 1.10
  */
 public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializable {
 	
@@ -64,6 +80,21 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 	 */
 	protected Instances mTempSet;
 	
+	/**
+	 * Índice en el conjunto original de cada instancia del conjunto de trabajo.
+	 */
+	protected Vector<Integer> mTempDatasetIndex;
+	
+	/**
+	 * Identificadores de las instancias del conjunto de trabajo que siguen en el conjunto solución.
+	 */
+	protected BitSet mAlive;
+	
+	/**
+	 * Indica si se han eliminado instancias desde la última vez que se construyó el conjunto solución.
+	 */
+	protected boolean mSolutionSetOutdated;
+	
 	/**
 	 * Valor de alfa: sensitividad/especificidad.
 	 */
@@ -75,14 +106,120 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 	protected boolean mCalcNeighbourAssociate;
 	
 	/**
-	 * Conjunto de los k vecinos más cercanos ordenados.
+	 * Grafo de vecinos y asociados de las instancias del conjunto de trabajo. Cada instancia se identifica
+	 * por su posición en dicho conjunto; sus k + 1 vecinos más cercanos y sus asociados se almacenan
+	 * ordenados de menor a mayor distancia.
+	 */
+	protected NeighbourGraph mGraph;
+	
+	/**
+	 * Índice de posiciones de las instancias del conjunto de trabajo en el conjunto de la búsqueda de
+	 * vecinos. Se construye tras eliminar las instancias duplicadas y se mantiene al reordenar; las
+	 * instancias eliminadas se marcan en <code>mAlive</code>, por lo que las posiciones no cambian.
+	 */
+	protected InstanceIndex mIndex;
+	
+	/**
+	 * Valor de la clase de cada instancia del conjunto de trabajo.
+	 */
+	protected double[] mClassValues;
+	
+	/**
+	 * Indica si las predicciones kNN se pueden calcular directamente como la media de los valores de clase:
+	 * todas las instancias del conjunto de trabajo tienen peso 1 y valor de clase.
+	 */
+	protected boolean mDirectPrediction;
+	
+	/**
+	 * Desviación típica de los valores de clase del vecindario de cada instancia del conjunto de trabajo.
+	 * Se actualiza cada vez que cambia la lista de vecinos de la instancia, de modo que obtener su theta
+	 * no requiere recorrer el vecindario.
+	 */
+	protected double[] mNeighbourhoodDeviations;
+	
+	/**
+	 * Indica si la clase del conjunto de trabajo es numérica.
+	 */
+	protected boolean mNumericClass;
+	
+	/**
+	 * Indica si la búsqueda de vecinos se realiza con un KD-tree que admite borrados en lugar de con una
+	 * búsqueda lineal.
+	 */
+	protected boolean mUseKDTree;
+	
+	/**
+	 * Número de vecinos adicionales (m) que se guardan por instancia como candidatos para sustituir a los
+	 * vecinos eliminados. Con 0 no se guardan candidatos.
+	 */
+	protected int mNumOfExtraNeighbours;
+	
+	/**
+	 * Indica si los asociados de la instancia actual se evalúan en paralelo.
+	 */
+	protected boolean mParallelAssociates;
+	
+	/**
+	 * Número mínimo de asociados de la instancia actual para repartir su evaluación entre los hilos.
+	 */
+	protected int mMinParallelAssociates;
+	
+	/**
+	 * Número de instancias siguientes a la actual cuya decisión se evalúa especulativamente en paralelo,
+	 * 0 para no especular.
+	 */
+	protected int mSpeculativeWindow;
+	
+	/**
+	 * Indica si al ordenar las instancias se reordenan sus índices de salida con ellas en lugar de tomarlos
+	 * del conjunto de entrada.
+	 */
+	protected boolean mTrackOutputIndex;
+	
+	/**
+	 * Indica si las instancias se ordenan realmente por su distancia al enemigo más próximo.
+	 */
+	protected boolean mSortByEnemyDistance;
+	
+	/**
+	 * Indica si se conserva la última instancia del conjunto solución aunque la regla la elimine.
+	 */
+	protected boolean mKeepLastInstance;
+	
+	/**
+	 * Decisiones de eliminación calculadas especulativamente para las instancias de la ventana actual.
+	 */
+	protected boolean[] mSpeculativeDecisions;
+	
+	/**
+	 * Identificador de la primera instancia de la ventana especulativa actual.
+	 */
+	protected int mSpeculativeStart;
+	
+	/**
+	 * Identificador siguiente al de la última instancia de la ventana especulativa actual.
+	 */
+	protected int mSpeculativeEnd;
+	
+	/**
+	 * Contador de modificaciones del grafo cuando se evaluó la ventana especulativa actual.
+	 */
+	protected long mSpeculativeModificationCount;
+	
+	/**
+	 * Número de decisiones especulativas descartadas por conflicto con una eliminación anterior.
 	 */
-	protected Vector<Vector<Instance>> mNeighbours;
+	protected int mNumOfConflicts;
 	
 	/**
-	 * Conjunto de los asociados ordenados.
+	 * Número de vecinos nuevos tomados de las listas de candidatos, sin buscarlos.
 	 */
-	protected Vector<Vector<Instance>> mAssociates;
+	protected int mNumOfBufferRepairs;
+	
+	/**
+	 * Número de vecinos nuevos que han necesitado una búsqueda de vecinos cercanos.
+	 */
+	protected int mNumOfQueryRepairs;
 	
 	/**
 	 * Número de vecinos cercanos a buscar.
@@ -107,6 +244,9 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 
 		// Por defecto el alfa utilizado es 0.05.
 		mAlpha = 0.05;
+		
+		// Por defecto solo se reparten entre los hilos las instancias con al menos 64 asociados.
+		mMinParallelAssociates = 64;
 	} // DROPAlgorithm
 	
 	/**
@@ -130,6 +270,9 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 
 		// Por defecto el alfa utilizado es 0.05.
 		mAlpha = 0.05;
+		
+		// Por defecto solo se reparten entre los hilos las instancias con al menos 64 asociados.
+		mMinParallelAssociates = 64;
 	} // DROPAlgorithm
 	
 	/**
@@ -155,8 +298,91 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 
 		// Por defecto el alfa utilizado es 0.05.
 		mAlpha = 0.05;
+		
+		// Por defecto solo se reparten entre los hilos las instancias con al menos 64 asociados.
+		mMinParallelAssociates = 64;
 	} // DROPAlgorithm
 	
+	/**
+	 * Devuelve el conjunto solución del algoritmo, construyéndolo a partir de la máscara de instancias no
+	 * eliminadas si ha cambiado desde la última consulta.
+	 * 
+	 * @return Conjunto reducido de instancias.
+	 */
+	public Instances getSolutionSet () {
+		updateSolutionSet();
+		
+		return mSolutionSet;
+	} // getSolutionSet
+	
+	/**
+	 * Devuelve el número de posiciones que recorre la fase de eliminación: el tamaño del conjunto de
+	 * trabajo, o el del conjunto de entrenamiento si aún no se ha construido.
+	 * 
+	 * @return Número de posiciones a recorrer.
+	 */
+	public int getNumOfPositions () {
+		Instances set = mTempSet;
+		
+		return set != null ? set.numInstances() : super.getNumOfPositions();
+	} // getNumOfPositions
+	
+	/**
+	 * Estima la memoria en bytes del grafo de vecinos y asociados, de los valores de clase, de las
+	 * desviaciones de los vecindarios y de la máscara de instancias no eliminadas.
+	 * 
+	 * @return Memoria estimada en bytes.
+	 */
+	public long getMemoryFootprint () {
+		NeighbourGraph graph = mGraph;
+		double[] classValues = mClassValues, deviations = mNeighbourhoodDeviations;
+		BitSet alive = mAlive;
+		long bytes = 0;
+		
+		if (graph != null)
+			bytes += graph.getMemoryFootprint();
+		
+		if (classValues != null)
+			bytes += 16 + 8L * classValues.length;
+		
+		if (deviations != null)
+			bytes += 16 + 8L * deviations.length;
+		
+		if (alive != null)
+			bytes += 16 + alive.size() / 8;
+		
+		return bytes;
+	} // getMemoryFootprint
+	
+	/**
+	 * Devuelve el vector de índices del conjunto solución, construyéndolo a partir de la máscara de
+	 * instancias no eliminadas si ha cambiado desde la última consulta.
+	 * 
+	 * @return Vector de índices del conjunto solución seleccionado.
+	 */
+	public Vector<Integer> getOutputDatasetIndex () {
+		updateSolutionSet();
+		
+		return mOutputDatasetIndex;
+	} // getOutputDatasetIndex
+	
+	/**
+	 * Ejecuta todos los pasos del algoritmo desde el punto en el que se encuentre hasta el final y
+	 * construye el conjunto solución y sus índices de salida. Al terminar cierra la fase de eliminación de
+	 * las métricas.
+	 * 
+	 * @throws Exception Excepción producida durante el paso del algoritmo.
+	 */
+	public void allSteps () throws Exception {
+		try {
+			super.allSteps();
+			
+			updateSolutionSet();
+		} finally {
+			mMetrics.endPhase(Phase.REMOVAL);
+		}
+	} // allSteps
+	
 	/**
 	 * Devuelve el número de vecinos a utilizar.
 	 * 
@@ -207,6 +433,283 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 		mAlpha = alpha;
 	} // setAlpha
 	
+	/**
+	 * Indica si la búsqueda de vecinos se realiza con un KD-tree.
+	 * 
+	 * @return Verdadero si se utiliza un KD-tree, falso si se utiliza la búsqueda lineal.
+	 */
+	public boolean getUseKDTree () {
+		
+		return mUseKDTree;
+	} // getUseKDTree
+	
+	/**
+	 * Establece si la búsqueda de vecinos se realiza con un KD-tree que admite borrados.
+	 * Con el KD-tree las instancias eliminadas se marcan como borradas en el árbol en lugar de reiniciar la
+	 * búsqueda, por lo que la búsqueda de los nuevos vecinos es sublineal. Los vecinos empatados en
+	 * distancia se ordenan por su posición, por lo que en caso de empates el resultado puede diferir del
+	 * de la búsqueda lineal. Debe establecerse antes de comenzar la ejecución del algoritmo.
+	 * 
+	 * @param useKDTree Verdadero para utilizar un KD-tree, falso para la búsqueda lineal.
+	 */
+	public void setUseKDTree (boolean useKDTree) {
+		mUseKDTree = useKDTree;
+		
+		mNearestNeighbourSearch = createNearestNeighbourSearch();
+	} // setUseKDTree
+	
+	/**
+	 * Devuelve el número de vecinos adicionales que se guardan como candidatos.
+	 * 
+	 * @return Número de vecinos adicionales.
+	 */
+	public int getNumOfExtraNeighbours () {
+		
+		return mNumOfExtraNeighbours;
+	} // getNumOfExtraNeighbours
+	
+	/**
+	 * Establece el número de vecinos adicionales (m) que se guardan por instancia.
+	 * Al calcular el vecindario se buscan los k + 1 + m vecinos más cercanos de cada instancia; al eliminar
+	 * una instancia sus asociados toman el nuevo vecino de esta lista siempre que sea seguro que coincide
+	 * con el que devolvería una nueva búsqueda, en caso contrario se realiza la búsqueda.
+	 * 
+	 * @param m Número de vecinos adicionales, 0 para no guardar candidatos.
+	 * @throws IllegalArgumentException Si el número de vecinos adicionales es negativo.
+	 */
+	public void setNumOfExtraNeighbours (int m) {
+		if (m < 0)
+			throw new IllegalArgumentException("El número de vecinos adicionales no puede ser negativo.");
+		
+		mNumOfExtraNeighbours = m;
+	} // setNumOfExtraNeighbours
+	
+	/**
+	 * Indica si los asociados de la instancia actual se evalúan en paralelo.
+	 * 
+	 * @return Verdadero si la evaluación de los asociados se reparte entre los hilos.
+	 */
+	public boolean getParallelAssociates () {
+		
+		return mParallelAssociates;
+	} // getParallelAssociates
+	
+	/**
+	 * Establece si los asociados de la instancia actual se evalúan en paralelo.
+	 * Si el algoritmo utiliza varios hilos y la instancia actual tiene al menos el número mínimo de
+	 * asociados, estos se reparten en bloques contiguos entre los hilos. El resultado es idéntico al de la
+	 * evaluación secuencial.
+	 * 
+	 * @param parallelAssociates Verdadero para evaluar los asociados en paralelo.
+	 */
+	public void setParallelAssociates (boolean parallelAssociates) {
+		mParallelAssociates = parallelAssociates;
+	} // setParallelAssociates
+	
+	/**
+	 * Devuelve el número mínimo de asociados para evaluarlos en paralelo.
+	 * 
+	 * @return Número mínimo de asociados.
+	 */
+	public int getMinParallelAssociates () {
+		
+		return mMinParallelAssociates;
+	} // getMinParallelAssociates
+	
+	/**
+	 * Establece el número mínimo de asociados de la instancia actual para evaluarlos en paralelo. Con
+	 * pocos asociados el coste de repartir el trabajo supera al de evaluarlos.
+	 * 
+	 * @param minParallelAssociates Número mínimo de asociados.
+	 * @throws IllegalArgumentException Si el número mínimo de asociados es menor que 1.
+	 */
+	public void setMinParallelAssociates (int minParallelAssociates) {
+		if (minParallelAssociates < 1)
+			throw new IllegalArgumentException("El número mínimo de asociados debe ser mayor de 0.");
+		
+		mMinParallelAssociates = minParallelAssociates;
+	} // setMinParallelAssociates
+	
+	/**
+	 * Devuelve el número de instancias cuya decisión se evalúa especulativamente en paralelo.
+	 * 
+	 * @return Tamaño de la ventana especulativa, 0 si no se especula.
+	 */
+	public int getSpeculativeWindow () {
+		
+		return mSpeculativeWindow;
+	} // getSpeculativeWindow
+	
+	/**
+	 * Establece el número de instancias cuya decisión se evalúa especulativamente en paralelo.<br>
+	 * Si el algoritmo utiliza varios hilos, al llegar a una instancia sin decisión especulativa se evalúan
+	 * en paralelo las decisiones de esa instancia y las siguientes, sobre el grafo en ese momento. Después
+	 * las decisiones se aplican en orden, y solo se vuelven a evaluar aquellas cuya lista de asociados, o
+	 * la lista de vecinos de alguno de sus asociados, ha cambiado por una eliminación anterior. El
+	 * resultado es idéntico al de la evaluación secuencial.
+	 * 
+	 * @param speculativeWindow Tamaño de la ventana especulativa, 0 para no especular.
+	 * @throws IllegalArgumentException Si el tamaño de la ventana es negativo.
+	 */
+	public void setSpeculativeWindow (int speculativeWindow) {
+		if (speculativeWindow < 0)
+			throw new IllegalArgumentException("El tamaño de la ventana especulativa no puede ser negativo.");
+		
+		mSpeculativeWindow = speculativeWindow;
+	} // setSpeculativeWindow
+	
+	/**
+	 * Indica si al ordenar las instancias se reordenan sus índices de salida con ellas.
+	 * 
+	 * @return Verdadero si los índices de salida se reordenan con las instancias.
+	 */
+	public boolean getTrackOutputIndex () {
+		
+		return mTrackOutputIndex;
+	} // getTrackOutputIndex
+	
+	/**
+	 * Establece si al ordenar las instancias se reordenan sus índices de salida con ellas.<br>
+	 * Por defecto se mantiene el comportamiento original: la instancia que pasa a la posición i toma el
+	 * índice de la posición order[i] del conjunto de entrada. Si antes se han eliminado instancias
+	 * duplicadas o se ha editado el conjunto (DROP3), esos índices no corresponden a las instancias
+	 * seleccionadas. Con esta opción se aplica la misma permutación al vector de índices de salida, por lo
+	 * que cada índice sigue a su instancia; cambia los índices devueltos, no las instancias seleccionadas.
+	 * 
+	 * @param trackOutputIndex Verdadero para reordenar los índices de salida con las instancias.
+	 */
+	public void setTrackOutputIndex (boolean trackOutputIndex) {
+		mTrackOutputIndex = trackOutputIndex;
+	} // setTrackOutputIndex
+	
+	/**
+	 * Indica si las instancias se ordenan realmente por su distancia al enemigo más próximo.
+	 * 
+	 * @return Verdadero si se ordenan por su distancia al enemigo más próximo.
+	 */
+	public boolean getSortByEnemyDistance () {
+		
+		return mSortByEnemyDistance;
+	} // getSortByEnemyDistance
+	
+	/**
+	 * Establece si las instancias se ordenan realmente por su distancia al enemigo más próximo.<br>
+	 * Por defecto se mantiene la ordenación original, que ordenaba con QuickSort el propio vector de
+	 * distancias y obtenía la permutación ordenando de nuevo las distancias ya ordenadas, por lo que las
+	 * instancias conservan prácticamente su orden de entrada (salvo en los empates). Con esta opción la
+	 * permutación se obtiene con una ordenación estable de las distancias (<code>Permutation.sort</code>),
+	 * las instancias a la misma distancia conservan su orden y los índices de salida se reordenan siempre
+	 * con las instancias. Cambia las instancias seleccionadas por DROP2 y DROP3 con ordenación.
+	 * 
+	 * @param sortByEnemyDistance Verdadero para ordenar por la distancia al enemigo más próximo.
+	 */
+	public void setSortByEnemyDistance (boolean sortByEnemyDistance) {
+		mSortByEnemyDistance = sortByEnemyDistance;
+	} // setSortByEnemyDistance
+	
+	/**
+	 * Indica si se conserva la última instancia del conjunto solución.
+	 * 
+	 * @return Verdadero si la última instancia del conjunto solución no se elimina nunca.
+	 */
+	public boolean getKeepLastInstance () {
+		
+		return mKeepLastInstance;
+	} // getKeepLastInstance
+	
+	/**
+	 * Establece si se conserva la última instancia del conjunto solución.<br>
+	 * Por defecto se mantiene el comportamiento original, en el que la regla de eliminación se aplica
+	 * también a la única instancia que queda, por lo que en conjuntos muy pequeños el algoritmo puede
+	 * devolver un conjunto vacío. Con esta opción esa instancia no se elimina nunca.
+	 * 
+	 * @param keepLastInstance Verdadero para no eliminar nunca la última instancia del conjunto solución.
+	 */
+	public void setKeepLastInstance (boolean keepLastInstance) {
+		mKeepLastInstance = keepLastInstance;
+	} // setKeepLastInstance
+	
+	/**
+	 * Devuelve el número de decisiones especulativas que se han vuelto a evaluar por conflicto con una
+	 * eliminación anterior de su ventana.
+	 * 
+	 * @return Número de conflictos.
+	 */
+	public int getNumOfConflicts () {
+		
+		return mNumOfConflicts;
+	} // getNumOfConflicts
+	
+	/**
+	 * Devuelve el número de vecinos nuevos que se han tomado de las listas de candidatos al eliminar
+	 * instancias, sin realizar una búsqueda.
+	 * 
+	 * @return Número de reparaciones servidas por las listas de candidatos.
+	 */
+	public int getNumOfBufferRepairs () {
+		
+		return mNumOfBufferRepairs;
+	} // getNumOfBufferRepairs
+	
+	/**
+	 * Devuelve el número de vecinos nuevos que han necesitado una búsqueda de vecinos cercanos al eliminar
+	 * instancias.
+	 * 
+	 * @return Número de reparaciones que han realizado una búsqueda.
+	 */
+	public int getNumOfQueryRepairs () {
+		
+		return mNumOfQueryRepairs;
+	} // getNumOfQueryRepairs
+	
+	/**
+	 * Indica si la evaluación de un número dado de asociados se reparte entre los hilos. Dentro de una
+	 * evaluación especulativa los asociados se evalúan siempre en el hilo de la instancia.
+	 * 
+	 * @param numOfAssociates Número de asociados a evaluar.
+	 * @return Verdadero si los asociados se deben evaluar en paralelo.
+	 */
+	protected boolean isParallelEvaluation (int numOfAssociates) {
+		
+		return mParallelAssociates && mNumOfThreads > 1 && numOfAssociates >= mMinParallelAssociates &&
+		       !isWorkerThread();
+	} // isParallelEvaluation
+	
+	/**
+	 * Crea el algoritmo de cálculo de vecinos cercanos según la configuración del algoritmo.
+	 * 
+	 * @return Algoritmo de cálculo de vecinos cercanos.
+	 */
+	protected NearestNeighbourSearch createNearestNeighbourSearch () {
+		if (mUseKDTree)
+			return new KDTreeISNNSearch();
+		
+		return new LinearISNNSearch();
+	} // createNearestNeighbourSearch
+	
+	/**
+	 * Crea un algoritmo de búsqueda de vecinos cercanos para un hilo que comparte, sin copiarlas, las
+	 * estructuras del algoritmo de búsqueda actual. Si este no lo permite se crea uno nuevo sobre el mismo
+	 * conjunto de instancias.
+	 * 
+	 * @return Algoritmo de búsqueda para el hilo.
+	 * @throws Exception Excepción producida al inicializar el algoritmo de búsqueda.
+	 */
+	protected NearestNeighbourSearch createWorkerSearch () throws Exception {
+		NearestNeighbourSearch search;
+		
+		if (mNearestNeighbourSearch instanceof KDTreeISNNSearch)
+			return ((KDTreeISNNSearch)mNearestNeighbourSearch).createWorker();
+		
+		if (mNearestNeighbourSearch instanceof LinearISNNSearch)
+			return ((LinearISNNSearch)mNearestNeighbourSearch).createWorker();
+		
+		search = createNearestNeighbourSearch();
+		search.setInstances(mNearestNeighbourSearch.getInstances());
+		
+		return search;
+	} // createWorkerSearch
+	
 	/**
 	 * Ejecuta un paso del algoritmo.
 	 * Cada algoritmo deberá implementar este método.
@@ -216,6 +719,21 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 	 */
 	public abstract boolean step () throws Exception;
 	
+	/**
+	 * Elimina las instancias duplicadas del conjunto solución y de su vector de índices de salida,
+	 * registrando el tiempo y las instancias eliminadas en las métricas.
+	 */
+	protected void removeDuplicateInstances () {
+		int numOfInstances = mSolutionSet.numInstances();
+		
+		mMetrics.startPhase(Phase.DEDUPLICATION);
+		InstanceIS.removeDuplicateInstances(mSolutionSet, mOutputDatasetIndex);
+		mMetrics.endPhase(Phase.DEDUPLICATION);
+		
+		mMetrics.add(Phase.DEDUPLICATION, Counter.REMOVED_INSTANCES, 
+		             numOfInstances - mSolutionSet.numInstances());
+	} // removeDuplicateInstances
+	
 	/**
 	 * Calcula los conjuntos vecindario y asociados.
 	 *  
@@ -223,208 +741,795 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos. 
 	 */
 	protected void calcNeighbourAssociateSets (Instances set) throws Exception {
+		mMetrics.startPhase(Phase.NEIGHBOURS);
+		
+		// Construir el índice de posiciones del conjunto de trabajo.
+		mIndex = new InstanceIndex(set);
+		cacheClassValues(set);
+		
 		// Inicializar los conjuntos vecindario y asociados.
 		initNeighbourAssociateSets(set.numInstances());
 
 		// Calcular el conjunto vecindario.
 		calcNeighbourSet(set);
 		
+		mMetrics.endPhase(Phase.NEIGHBOURS);
+		mMetrics.startPhase(Phase.ASSOCIATES);
+		
 		// Calcular el conjunto de asociados.
 		calcAssociateSet(set);
+		
+		// Calcular la desviación típica de los vecindarios.
+		updateNeighbourhoodDeviations();
+		
+		mMetrics.endPhase(Phase.ASSOCIATES);
 	} // calcNeighbourAssociateSets
 	
 	/**
-	 * Inicializa los conjuntos vecindario y asociados.
-	 * Crea los vectores mNeighbours y mAssociates, la capacidad de cada uno de los vectores de vecinos será 
-	 * la que se indica por parámetro y la de asociados el doble.
+	 * Suma a una fase de las métricas las búsquedas y distancias de un algoritmo de búsqueda de vecinos
+	 * desde la última vez que se sumaron, y reinicia sus contadores.
 	 * 
-	 * @param capacity Capacidad de los conjuntos vecindario y asociados.
+	 * @param search Algoritmo de búsqueda de vecinos cercanos.
+	 * @param phase Fase a la que pertenecen las búsquedas.
 	 */
-	protected void initNeighbourAssociateSets (int capacity) {
-		Vector<Instance> v;
-		int realNumOfNeighbours = mNumOfNearestNeighbour + 1;
+	protected void addSearchCounters (NearestNeighbourSearch search, Phase phase) {
+		if (search instanceof LinearISNNSearch) {
+			mMetrics.add(phase, Counter.KNN_QUERIES, ((LinearISNNSearch)search).getNumOfQueries());
+			mMetrics.add(phase, Counter.DISTANCES, ((LinearISNNSearch)search).getNumOfDistances());
+			((LinearISNNSearch)search).resetCounters();
+		} else if (search instanceof KDTreeISNNSearch) {
+			mMetrics.add(phase, Counter.KNN_QUERIES, ((KDTreeISNNSearch)search).getNumOfQueries());
+			mMetrics.add(phase, Counter.DISTANCES, ((KDTreeISNNSearch)search).getNumOfDistances());
+			((KDTreeISNNSearch)search).resetCounters();
+		}
+	} // addSearchCounters
+
+	/**
+	 * Inicializa el conjunto de trabajo con el conjunto solución actual, que contiene todas sus instancias
+	 * en el orden de sus identificadores. Desde ese momento el conjunto solución no se modifica: las
+	 * instancias eliminadas se desmarcan en <code>mAlive</code> y el conjunto solución y sus índices de
+	 * salida se construyen de nuevo en <code>updateSolutionSet</code>.
+	 */
+	protected void initWorkingSet () {
+		int n = mSolutionSet.numInstances();
+		
+		mTempSet = mSolutionSet;
+		mTempDatasetIndex = mOutputDatasetIndex;
+		mAlive = new BitSet(n);
+		mAlive.set(0, n);
+		mSolutionSetOutdated = false;
+	} // initWorkingSet
+	
+	/**
+	 * Construye el conjunto solución y sus índices de salida con las instancias del conjunto de trabajo que
+	 * no han sido eliminadas, en el orden de sus identificadores. Solo se construyen si se ha eliminado
+	 * alguna instancia desde la última vez; el conjunto de trabajo no cambia.
+	 */
+	protected void updateSolutionSet () {
+		Instances solution;
+		Vector<Integer> outputDatasetIndex;
+		
+		if (!mSolutionSetOutdated)
+			return;
+		
+		solution = new Instances(mTempSet, mAlive.cardinality());
+		outputDatasetIndex = new Vector<Integer>(mAlive.cardinality());
+		
+		for (int id = mAlive.nextSetBit(0); id >= 0; id = mAlive.nextSetBit(id + 1)) {
+			solution.add(mTempSet.instance(id));
+			outputDatasetIndex.add(mTempDatasetIndex.get(id));
+		}
+		
+		mSolutionSet = solution;
+		mOutputDatasetIndex = outputDatasetIndex;
+		mSolutionSetOutdated = false;
+	} // updateSolutionSet
+	
+	/**
+	 * Ordena el conjunto solución en función de la distancia de cada instancia a su enemigo más próximo y
+	 * lo utiliza como conjunto de trabajo <code>mTempSet</code>.<br>
+	 * Las distancias al enemigo más próximo se calculan con la búsqueda indexada de
+	 * <code>SortByDistance</code>, repartiendo las instancias entre los hilos del algoritmo.<br>
+	 * Se calcula una única permutación de las instancias (<code>calcOrder</code> o, según
+	 * <code>setSortByEnemyDistance</code>, una ordenación estable) y se aplica a los datos que
+	 * dependen de su posición: el conjunto solución (intercambiando sus instancias, sin copiarlas), el
+	 * vector de índices de salida (según <code>setTrackOutputIndex</code>), el grafo de vecinos y asociados y
+	 * el índice de posiciones. Los valores de
+	 * clase y las desviaciones de los vecindarios se calculan de nuevo sobre el conjunto ordenado. Debe
+	 * invocarse tras calcular los conjuntos vecindario y asociados y antes de eliminar ninguna instancia.
+	 *
+	 * @param orderBy Si es verdadero las instancias serán ordenadas de menor a mayor distancia a su enemigo,
+	 * en caso contrario las ordenará de mayor a menor distancia.
+	 * @param beta Multiplicador del radio de la soft-class utilizado para determinar los enemigos.
+	 * @throws Exception Excepción producida al reiniciar el algoritmo de vecinos cercanos.
+	 */
+	protected void orderInstances (boolean orderBy, double beta) throws Exception {
+		final SortByDistance sbd = new SortByDistance(mSolutionSet, mOutputDatasetIndex);
+		int order[];
+
+		mMetrics.startPhase(Phase.ORDERING);
+
+		// Calcular la distancia de cada instancia a su enemigo más próximo, en paralelo si es posible.
+		sbd.prepareNearestEnemyReg(mGraph, beta);
+
+		if (sbd.canRunInParallel())
+			runInParallel(mSolutionSet.numInstances(), new RangeTask() {
+				public void run (int start, int end) {
+					sbd.calcNearestEnemyDistancesReg(start, end);
+				}
+			});
+		else
+			sbd.calcNearestEnemyDistancesReg(0, mSolutionSet.numInstances());
+
+		// Calcular la permutación que ordena las instancias.
+		if (mSortByEnemyDistance)
+			order = Permutation.sort(sbd.getDistancesToNearEnemy(), orderBy);
+		else
+			order = calcOrder(sbd.getDistancesToNearEnemy(), orderBy);
+
+		// Aplicar la permutación al conjunto solución y obtener sus índices de salida.
+		Permutation.apply(mSolutionSet, order);
+		
+		if (mTrackOutputIndex || mSortByEnemyDistance)
+			Permutation.apply(mOutputDatasetIndex, order);
+		else
+			for (int i = 0; i < order.length; i++)
+				mOutputDatasetIndex.set(i, mInputDatasetIndex.get(order[i]));
+
+		// El conjunto de trabajo conserva todas las instancias ordenadas aunque se eliminen del solución.
+		initWorkingSet();
+
+		// Aplicar la permutación a los datos indexados por el identificador de las instancias.
+		mGraph.reorder(order);
+		mIndex.reorder(order, mTempSet);
+		
+		// Los valores de clase se guardan de nuevo para que las subclases reconstruyan lo que dependa de ellos.
+		cacheClassValues(mTempSet);
+		updateNeighbourhoodDeviations();
+
+		// Reiniciar el algoritmo de vecinos cercanos con el conjunto solución ordenado.
+		mNearestNeighbourSearch.setInstances(mSolutionSet);
+
+		mMetrics.endPhase(Phase.ORDERING);
+	} // orderInstances
+
+	/**
+	 * Calcula la permutación que utiliza <code>orderInstances</code>, la misma que obtenía la ordenación
+	 * original: <code>SortByDistance</code> ordenaba con QuickSort el propio vector de distancias, y la
+	 * permutación se obtenía ordenando de nuevo con QuickSort las distancias ya ordenadas (y recorriéndola
+	 * al revés si se ordena de mayor a menor).
+	 *
+	 * @param distances Distancia de cada instancia a su enemigo más próximo, se modifica.
+	 * @param orderBy Verdadero para recorrer la permutación de principio a fin, falso al revés.
+	 * @return Permutación: order[nuevaPos] = antiguaPos.
+	 */
+	private static int[] calcOrder (double[] distances, boolean orderBy) {
+		double indexOfInstances[] = SortByDistance.getIndexArray(distances.length);
+		int order[] = new int[distances.length];
+
+		// Ordenación por QuickSort de las distancias, como en SortByDistance.
+		NearestNeighbourSearch.quickSort(distances, SortByDistance.getIndexArray(distances.length), 0,
+		                                 distances.length - 1);
+
+		// Ordenación por QuickSort de las distancias ya ordenadas.
+		NearestNeighbourSearch.quickSort(distances, indexOfInstances, 0, distances.length - 1);
 
-		// Inicializar los vectores de vectores.
-		mNeighbours = new Vector<Vector<Instance>>(capacity);
-		mAssociates = new Vector<Vector<Instance>>(capacity);
-		
-		for (int i = 0; i < capacity; i++) {
-			v = new Vector<Instance>(realNumOfNeighbours);
-			mNeighbours.add(v);
-			v = new Vector<Instance>(realNumOfNeighbours*2);
-			mAssociates.add(v);
+		for (int i = 0; i < order.length; i++)
+			order[i] = (int)indexOfInstances[orderBy ? i : order.length - 1 - i];
+
+		return order;
+	} // calcOrder
+
+	/**
+	 * Guarda los valores de clase del conjunto de trabajo, que debe estar en el orden de los
+	 * identificadores de las instancias.
+	 * 
+	 * @param set Conjunto de trabajo.
+	 */
+	protected void cacheClassValues (Instances set) {
+		mClassValues = new double[set.numInstances()];
+		mDirectPrediction = true;
+		mNumericClass = set.classAttribute().isNumeric();
+		
+		for (int i = 0; i < set.numInstances(); i++) {
+			mClassValues[i] = set.instance(i).classValue();
+			
+			if (set.instance(i).weight() != 1 || set.instance(i).classIsMissing())
+				mDirectPrediction = false;
 		}
+	} // cacheClassValues
+	
+	/**
+	 * Calcula la desviación típica de los valores de clase del vecindario de todas las instancias del
+	 * conjunto de trabajo.
+	 */
+	protected void updateNeighbourhoodDeviations () {
+		double values[] = new double[mGraph.getNeighbourCapacity()];
+		
+		mNeighbourhoodDeviations = new double[mGraph.numNodes()];
+		
+		for (int id = 0; id < mGraph.numNodes(); id++)
+			values = updateNeighbourhoodDeviation(id, values);
+	} // updateNeighbourhoodDeviations
+	
+	/**
+	 * Calcula la desviación típica de los valores de clase del vecindario de una instancia. Debe invocarse
+	 * cada vez que cambia su lista de vecinos.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @param values Array auxiliar para los valores de clase, puede ser null.
+	 * @return Array auxiliar utilizado, para reutilizarlo en la siguiente llamada.
+	 */
+	protected double[] updateNeighbourhoodDeviation (int id, double[] values) {
+		int numOfNeighbours = mGraph.numNeighbours(id);
+		
+		if (values == null || values.length < numOfNeighbours)
+			values = new double[numOfNeighbours];
+		
+		for (int i = 0; i < numOfNeighbours; i++)
+			values[i] = mClassValues[mGraph.getNeighbour(id, i)];
+		
+		if (numOfNeighbours > 1)
+			mNeighbourhoodDeviations[id] = getStandardDeviation(values, numOfNeighbours);
+		
+		return values;
+	} // updateNeighbourhoodDeviation
+	
+	/**
+	 * Devuelve el umbral theta del vecindario completo (los k + 1 vecinos) de una instancia.
+	 * Es equivalente a <code>getTheta(getNeighbourVector(id, set), mAlpha, set.classIndex())</code>.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @return Valor umbral del vecindario de la instancia.
+	 */
+	protected double getNeighbourhoodTheta (int id) {
+		
+		// Si solo existe una instancia (o ninguna) devuelve alfa.
+		if (mGraph.numNeighbours(id) <= 1)
+			return mAlpha;
+		
+		// Si el valor de la clase no es numérico devolver 0.
+		if (!mNumericClass)
+			return 0.0;
+		
+		return mNeighbourhoodDeviations[id] * mAlpha;
+	} // getNeighbourhoodTheta
+	
+	/**
+	 * Inicializa los conjuntos vecindario y asociados.
+	 * Crea el grafo de vecinos y asociados, cada instancia podrá tener como máximo k + 1 vecinos.
+	 * 
+	 * @param capacity Número de instancias del conjunto de trabajo.
+	 */
+	protected void initNeighbourAssociateSets (int capacity) {
+		mGraph = new NeighbourGraph(capacity, mNumOfNearestNeighbour + 1);
+		clearSpeculativeWindow();
 	} // initNeighbourAssociateSets
 	
 	/**
 	 * Calcula el conjunto vecindario para todas las instancias del algoritmo.
-	 * Selecciona los "k" vecinos más cercanos de cada instancia y los ordena de menor a mayor distancia.
+	 * Selecciona los "k" vecinos más cercanos de cada instancia y los ordena de menor a mayor distancia.<br>
+	 * Si el algoritmo utiliza varios hilos las instancias se reparten en bloques contiguos y cada hilo
+	 * utiliza su propia búsqueda, que comparte la matriz plana o el árbol del algoritmo de búsqueda, por lo
+	 * que el vecindario obtenido es idéntico al de la ejecución secuencial.
 	 * 
 	 * @param instances Conjunto de instancias a utilizar para el cálculo del vecindario.
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos. 
 	 */
-	protected void calcNeighbourSet (Instances instances) throws Exception {
+	protected void calcNeighbourSet (final Instances instances) throws Exception {
+		// Las listas de candidatos se reservan antes de repartir el trabajo entre los hilos.
+		if (mNumOfExtraNeighbours > 0)
+			mGraph.initCandidates();
+		
+		if (mNumOfThreads <= 1) {
+			calcNeighbourSet(instances, mNearestNeighbourSearch, 0, instances.numInstances());
+			addSearchCounters(mNearestNeighbourSearch, Phase.NEIGHBOURS);
+			return;
+		}
+		
+		runInParallel(instances.numInstances(), new RangeTask() {
+			public void run (int start, int end) throws Exception {
+				NearestNeighbourSearch search = createWorkerSearch();
+				
+				calcNeighbourSet(instances, search, start, end);
+				addSearchCounters(search, Phase.NEIGHBOURS);
+			}
+		});
+	} // calcNeighbourSet
+	
+	/**
+	 * Calcula el conjunto vecindario de las instancias del rango [start, end).
+	 * Si se guardan vecinos adicionales se buscan los k + 1 + m más cercanos, que se guardan como
+	 * candidatos. Si entre los k + 2 primeros no hay empates de distancia los k + 1 primeros son
+	 * exactamente los que devolvería la búsqueda de k + 1 vecinos y en el mismo orden; en caso contrario
+	 * se realiza dicha búsqueda.
+	 * 
+	 * @param instances Conjunto de instancias a utilizar para el cálculo del vecindario.
+	 * @param search Algoritmo de búsqueda de vecinos cercanos sobre el conjunto solución.
+	 * @param start Primera instancia del rango.
+	 * @param end Instancia siguiente a la última del rango.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos. 
+	 */
+	protected void calcNeighbourSet (Instances instances, NearestNeighbourSearch search, int start, int end) 
+	                                 throws Exception {
+		int neighbours[], candidates[], realNumOfNeighbours = mNumOfNearestNeighbour + 1;
+		int numOfCandidates = realNumOfNeighbours + mNumOfExtraNeighbours;
+		double distances[] = new double[realNumOfNeighbours];
+		double candidateDistances[] = new double[numOfCandidates];
+		boolean ties;
+		
 		// Calcular el conjunto vecindario.
-		for (int i = 0; i < instances.numInstances(); i++)
-			mNeighbours.set(i, getNeighbours(instances.instance(i)));
+		for (int i = start; i < end; i++) {
+			if (mNumOfExtraNeighbours > 0) {
+				candidates = getNeighbours(search, instances.instance(i), numOfCandidates, candidateDistances);
+				
+				// Si se han obtenido todos los vecinos solicitados puede haber más instancias a la distancia
+				// del último.
+				mGraph.setCandidates(i, candidates, candidateDistances, candidates.length,
+				                     candidates.length == numOfCandidates ? 
+				                       candidateDistances[candidates.length - 1] : Double.POSITIVE_INFINITY);
+				
+				// Comprobar si hay empates entre los k + 2 primeros vecinos.
+				ties = false;
+				
+				for (int j = 0; j < realNumOfNeighbours && j + 1 < candidates.length; j++)
+					if (candidateDistances[j] == candidateDistances[j + 1])
+						ties = true;
+				
+				if (!ties) {
+					mGraph.setNeighbours(i, candidates, candidateDistances, 
+					                     Math.min(candidates.length, realNumOfNeighbours));
+					continue;
+				}
+			}
+			
+			neighbours = getNeighbours(search, instances.instance(i), realNumOfNeighbours, distances);
+			mGraph.setNeighbours(i, neighbours, distances, neighbours.length);
+		}
 	} // calcNeighbourSet
 	
 	/**
 	 * Devuelve el conjunto vecindario para una instancia dada.
-	 * Selecciona los vecinos mas cercanos a cada instancia y los ordena de menor a mayor distancia.
+	 * Selecciona los k + 1 vecinos mas cercanos a cada instancia y los ordena de menor a mayor distancia.
 	 * 
 	 * @param instance Instancia para la cual se va a calcular el vecindario. 
-	 * @return Vector de vecinos ordenados de menor a mayor distancia.
+	 * @param neighbourDistances Array, de al menos k + 1 posiciones, donde se devuelven las distancias a
+	 *        los vecinos en el mismo orden que los identificadores.
+	 * @return Identificadores de los vecinos ordenados de menor a mayor distancia.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
+	 */
+	protected int[] getNeighbours (Instance instance, double[] neighbourDistances) throws Exception {
+		
+		return getNeighbours(instance, mNumOfNearestNeighbour + 1, neighbourDistances);
+	} // getNeighbours
+	
+	/**
+	 * Devuelve los vecinos más cercanos a una instancia dada ordenados de menor a mayor distancia.<br>
+	 * Los vecinos se buscan en el conjunto solución y se traducen a sus identificadores en el conjunto de
+	 * trabajo mediante el índice de posiciones.
+	 * 
+	 * @param instance Instancia para la cual se va a calcular el vecindario. 
+	 * @param realNumOfNeighbours Número de vecinos a buscar.
+	 * @param neighbourDistances Array, de al menos <code>realNumOfNeighbours</code> posiciones, donde se
+	 *        devuelven las distancias a los vecinos en el mismo orden que los identificadores.
+	 * @return Identificadores de los vecinos ordenados de menor a mayor distancia.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
+	 */
+	protected int[] getNeighbours (Instance instance, int realNumOfNeighbours, double[] neighbourDistances) 
+	                               throws Exception {
+		
+		return getNeighbours(mNearestNeighbourSearch, instance, realNumOfNeighbours, neighbourDistances);
+	} // getNeighbours
+	
+	/**
+	 * Devuelve los vecinos más cercanos a una instancia dada, calculados con el algoritmo de búsqueda
+	 * indicado, ordenados de menor a mayor distancia.
+	 * 
+	 * @param search Algoritmo de búsqueda de vecinos cercanos sobre el conjunto solución.
+	 * @param instance Instancia para la cual se va a calcular el vecindario. 
+	 * @param realNumOfNeighbours Número de vecinos a buscar.
+	 * @param neighbourDistances Array, de al menos <code>realNumOfNeighbours</code> posiciones, donde se
+	 *        devuelven las distancias a los vecinos en el mismo orden que los identificadores.
+	 * @return Identificadores de los vecinos ordenados de menor a mayor distancia.
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
 	 */
-	protected Vector<Instance> getNeighbours (Instance instance) throws Exception {
-		Instances nearNeighbours, reducedNearNeighbours;
-		double distances[], reducedDistances[];
-		int realNumOfNeighbours = mNumOfNearestNeighbour + 1;
+	protected int[] getNeighbours (NearestNeighbourSearch search, Instance instance, int realNumOfNeighbours,
+	                               double[] neighbourDistances) throws Exception {
+		Instances nearNeighbours;
+		double distances[], indexOfNeighbours[];
+		int neighbours[], positions[] = null, numOfNeighbours;
 		
 		// Obtener los vecinos mas cercanos de instance.
-		nearNeighbours = mNearestNeighbourSearch.kNearestNeighbours(instance, realNumOfNeighbours);
+		nearNeighbours = search.kNearestNeighbours(instance, realNumOfNeighbours);
 		
 		// Obtener las distancias a los vecinos.
-		distances = mNearestNeighbourSearch.getDistances();
+		distances = search.getDistances();
 		
-		// Si hay mas vecinos cercanos que los establecidos en el algoritmo.
-		if (nearNeighbours.numInstances() > realNumOfNeighbours ) {
-			reducedNearNeighbours = new Instances(nearNeighbours, realNumOfNeighbours);
-			reducedDistances = new double[realNumOfNeighbours];
-			
-			for (int i = 0; i < realNumOfNeighbours; i++) {
-				reducedNearNeighbours.add(nearNeighbours.instance(i));
-				reducedDistances[i] = distances[i];
-			}
+		// Si hay mas vecinos cercanos que los establecidos en el algoritmo solo se tienen en cuenta los
+		// primeros.
+		numOfNeighbours = Math.min(nearNeighbours.numInstances(), realNumOfNeighbours);
+		
+		if (distances.length > numOfNeighbours)
+			distances = Arrays.copyOf(distances, numOfNeighbours);
+		
+		// Ordenar los vecinos más cercanos en función de la distancia. 
+		indexOfNeighbours = SortByDistance.getIndexArray(numOfNeighbours);
+		NearestNeighbourSearch.quickSort(distances, indexOfNeighbours, 0, numOfNeighbours - 1);
+		
+		// Posiciones de los vecinos en el conjunto solución, si el algoritmo de búsqueda las proporciona.
+		if (search instanceof LinearISNNSearch)
+			positions = ((LinearISNNSearch)search).getNeighbourIndices();
+		else if (search instanceof KDTreeISNNSearch)
+			positions = ((KDTreeISNNSearch)search).getNeighbourIndices();
+		
+		// Traducir los vecinos a sus identificadores en el conjunto de trabajo.
+		neighbours = new int[numOfNeighbours];
+		
+		for (int i = 0; i < numOfNeighbours; i++) {
+			if (positions != null)
+				neighbours[i] = mIndex.idAt(positions[(int)indexOfNeighbours[i]]);
+			else
+				neighbours[i] = mIndex.idOf(nearNeighbours.instance((int)indexOfNeighbours[i]));
 			
-			nearNeighbours = reducedNearNeighbours;
-			distances = reducedDistances;
+			// QuickSort ha dejado las distancias ordenadas.
+			neighbourDistances[i] = distances[i];
 		}
 		
-		// Ordenar los vecinos más cercanos en función de la distancia. 
-		return SortByDistance.getSortVectorOfInstances(nearNeighbours, distances, true);
+		return neighbours;
 	} // getNeighbours
 	
 	/**
-	 * Devuelve los nuevos vecinos de una instancia dada.
-	 * A partir de los vecinos antiguos, calcula el nuevo y devuelve un vector con los nuevos vecinos
-	 * ordenados.
+	 * Busca el nuevo vecino de una instancia dada.
+	 * A partir de los vecinos antiguos, calcula el nuevo, lo añade al final de la lista de vecinos de la
+	 * instancia y añade la instancia a la lista de asociados del nuevo vecino.<br>
+	 * Cuenta en <code>mNumOfBufferRepairs</code> o en <code>mNumOfQueryRepairs</code> si el nuevo vecino se
+	 * ha tomado de la lista de candidatos o se ha buscado.
 	 * 
-	 * @param instance Instancia a calcular sus vecinos.
-	 * @param oldNeighbours Antiguos vecinos de instance.
+	 * @param id Identificador de la instancia a calcular sus vecinos.
 	 * @param set Conjunto de instancias con el que se esta trabajando.
-	 * @return Vector ordenado de los vecinos cercanos.
+	 * @return Identificador del nuevo vecino o -1 si no se ha encontrado ninguno.
 	 * @throws Exception Excepción producida en el cálculo de los vecinos cercanos.
 	 */
-	protected Vector<Instance> getNewNeighbours (Instance instance, Vector<Instance> oldNeighbours, 
-	                                             Instances set) throws Exception {
-		Vector<Instance> nearNeighbours;
+	protected int getNewNeighbours (int id, Instances set) throws Exception {
+		int nearNeighbours[], candidate;
+		double distances[] = new double[mNumOfNearestNeighbour + 1];
 		
-		// Obtener los vecinos mas cercanos de instance.
-		nearNeighbours = getNeighbours(instance);
+		// Tomar el nuevo vecino de la lista de candidatos si es posible.
+		candidate = getCandidateNeighbour(id);
 		
-		// Buscar el nuevo vecino de instance.
-		for (int newNeighbourPos, i = 0; i < nearNeighbours.size() && i < mNumOfNearestNeighbour + 1; i++) {
-			boolean found = false;
-			
-			// Buscar si el nuevo vecino ya era vecino antes.
-			for (int j = 0; j < oldNeighbours.size() && !found; j++)
-				if (InstanceIS.equals(oldNeighbours.elementAt(j), nearNeighbours.elementAt(i)))
-					found = true;
+		if (candidate != -1) {
+			mNumOfBufferRepairs++;
+			mGraph.addNeighbour(id, mGraph.getCandidate(id, candidate), mGraph.getCandidateDistance(id, candidate));
+			mGraph.addAssociate(mGraph.getCandidate(id, candidate), id);
 			
-			// Si no era antes vecino quiere decir que es nuevo y no hay que seguir buscando
-			if (!found) {
-				// Añadir el nuevo vecino.
-				oldNeighbours.add(nearNeighbours.elementAt(i));
+			return mGraph.getCandidate(id, candidate);
+		}
+		
+		// Obtener los vecinos mas cercanos de la instancia.
+		mNumOfQueryRepairs++;
+		nearNeighbours = getNeighbours(set.instance(id), distances);
+		
+		// Buscar el nuevo vecino de la instancia.
+		for (int i = 0; i < nearNeighbours.length && i < mNumOfNearestNeighbour + 1; i++)
+			// Si no era antes vecino quiere decir que es nuevo y no hay que seguir buscando.
+			if (!mGraph.containsNeighbour(id, nearNeighbours[i])) {
+				// Añadir el nuevo vecino, getNeighbours ya los devuelve ordenados.
+				mGraph.addNeighbour(id, nearNeighbours[i], distances[i]);
 				
-				// Obtener la posición del nuevo vecino.
-                newNeighbourPos = InstanceIS.getPosOfInstance(set, nearNeighbours.elementAt(i));
-                
-                // Añadir como asociado del nuevo vecino la instancia A.
-                mAssociates.elementAt(newNeighbourPos).add(instance);
-				break;
+				// Añadir como asociado del nuevo vecino la instancia.
+				mGraph.addAssociate(nearNeighbours[i], id);
+				
+				return nearNeighbours[i];
 			}
+		
+		return -1;
+	} // getNewNeighbours
+	
+	/**
+	 * Busca en la lista de candidatos de una instancia su nuevo vecino.
+	 * El nuevo vecino es la instancia más cercana que sigue en el conjunto solución y no es ya vecina. Solo
+	 * se devuelve si es única a su distancia y esta es menor que la distancia límite de la lista, ya que
+	 * entonces coincide con el que devolvería una nueva búsqueda.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @return Posición del nuevo vecino en la lista de candidatos o -1 si es necesario realizar una búsqueda.
+	 */
+	protected int getCandidateNeighbour (int id) {
+		int candidate, found = -1;
+		
+		for (int j = 0; j < mGraph.numCandidates(id); j++) {
+			// Si ya hay uno y este está más lejos no hay empate.
+			if (found != -1 && mGraph.getCandidateDistance(id, j) != mGraph.getCandidateDistance(id, found))
+				break;
+			
+			candidate = mGraph.getCandidate(id, j);
+			
+			// Descartar los eliminados del conjunto solución y los que ya son vecinos.
+			if (!mAlive.get(candidate) || mGraph.containsNeighbour(id, candidate))
+				continue;
+			
+			// Si hay empate el orden dependería del algoritmo de búsqueda.
+			if (found != -1)
+				return -1;
+			
+			found = j;
 		}
 		
-		// No es necesario ordenar las instancias ya que getNeighbours(instance) ya lo devuelve ordenado. 
-		return oldNeighbours;
-	} // getNeighbours
+		if (found == -1 || mGraph.getCandidateDistance(id, found) >= mGraph.getCandidateBound(id))
+			return -1;
+		
+		return found;
+	} // getCandidateNeighbour
 	
 	/**
 	 * Calcula el conjunto de asociados para todas las instancias del algoritmo.
-	 * Selecciona los asociados de cada instancia y los ordena de menor a mayor distancia.
+	 * Selecciona los asociados de cada instancia y los ordena de menor a mayor distancia.<br>
+	 * Los asociados se obtienen invirtiendo las listas de vecinos en una única pasada O(n·k), recorriendo
+	 * los vecindarios en orden, y se ordenan con las distancias calculadas en la búsqueda de vecinos.
 	 *
 	 * @param instances Conjunto de instancias a utilizar para el cálculo de los asociados.
 	 */
 	protected void calcAssociateSet (Instances instances) {
-		// Calcular la lista de asociados.
-		for (int i = 0; i < instances.numInstances(); i++)
-			// Recorrer todos los vecindarios.
-			for (int j = 0; j < mNeighbours.size(); j++)
-				// No recorrer sus propios vecinos.
-				if (i != j)
-					for (int k = 0; k < mNeighbours.elementAt(j).size(); k++)
-						// Si esta en el vecindario asignarlo a su lista de asociados.
-						if (InstanceIS.equals(mNeighbours.elementAt(j).elementAt(k), instances.instance(i)))
-							mAssociates.elementAt(i).add(instances.instance(j));
+		int numOfNodes = mGraph.numNodes(), neighbour, start[] = new int[numOfNodes + 1], next[];
+		int associates[];
+		double distances[];
+		
+		// Contar los asociados de cada instancia.
+		for (int j = 0; j < numOfNodes; j++)
+			for (int k = 0; k < mGraph.numNeighbours(j); k++)
+				if (mGraph.getNeighbour(j, k) != j)
+					start[mGraph.getNeighbour(j, k) + 1]++;
+		
+		for (int i = 0; i < numOfNodes; i++)
+			start[i + 1] += start[i];
+		
+		associates = new int[start[numOfNodes]];
+		distances = new double[start[numOfNodes]];
+		next = Arrays.copyOf(start, numOfNodes);
+		
+		// Invertir las listas de vecinos: j es asociado de cada uno de sus vecinos.
+		for (int j = 0; j < numOfNodes; j++)
+			for (int k = 0; k < mGraph.numNeighbours(j); k++) {
+				neighbour = mGraph.getNeighbour(j, k);
+				
+				// No añadir la propia instancia como asociado.
+				if (neighbour != j) {
+					associates[next[neighbour]] = j;
+					distances[next[neighbour]] = mGraph.getNeighbourDistance(j, k);
+					next[neighbour]++;
+				}
+			}
 		
 		// Ordenar la lista de asociados de cada instancia en función de la distancia.
-		for (int i = 0; i < mAssociates.size(); i++)
-			mAssociates.set(i, getSortVectorByDistance(instances.instance(i), mAssociates.elementAt(i)));
+		for (int i = 0; i < numOfNodes; i++)
+			sortAssociatesByDistance(i, Arrays.copyOfRange(associates, start[i], start[i + 1]),
+			                         Arrays.copyOfRange(distances, start[i], start[i + 1]));
 	} // calcAssociateSet
 	
 	/**
-	 * Devuelve el vector ordenado en función de la distancia a la instancia dada.
-	 * Ordena el vector dado en función de la distancia a la instancia dada.
+	 * Ordena los asociados de una instancia en función de la distancia a dicha instancia y los asigna como
+	 * su lista de asociados.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @param associates Identificadores de los asociados de la instancia.
+	 * @param distances Distancias de la instancia a cada asociado. Se devuelven ordenadas.
+	 */
+	protected void sortAssociatesByDistance (int id, int[] associates, double[] distances) {
+		int numOfAssociates = associates.length, sortedAssociates[] = new int[numOfAssociates];
+		double indexOfAssociates[] = SortByDistance.getIndexArray(numOfAssociates);
+		
+		// Ordenación por QuickSort.
+		NearestNeighbourSearch.quickSort(distances, indexOfAssociates, 0, numOfAssociates - 1);
+		
+		for (int i = 0; i < numOfAssociates; i++)
+			sortedAssociates[i] = associates[(int)indexOfAssociates[i]];
+		
+		mGraph.setAssociates(id, sortedAssociates, numOfAssociates);
+	} // sortAssociatesByDistance
+	
+	/**
+	 * Devuelve el vector con los vecinos de una instancia.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Vector de vecinos ordenados de menor a mayor distancia.
+	 */
+	protected Vector<Instance> getNeighbourVector (int id, Instances set) {
+		Vector<Instance> neighbours = new Vector<Instance>(mGraph.numNeighbours(id));
+		
+		for (int i = 0; i < mGraph.numNeighbours(id); i++)
+			neighbours.add(set.instance(mGraph.getNeighbour(id, i)));
+		
+		return neighbours;
+	} // getNeighbourVector
+	
+	/**
+	 * Comprueba si una instancia debe ser eliminada según el criterio del algoritmo, como si fuera la
+	 * instancia actual. Solo debe leer el grafo y los valores de clase, ya que se puede invocar desde
+	 * varios hilos a la vez sobre el mismo grafo.
+	 * 
+	 * @param id Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si la instancia debe ser eliminada, falso en caso contrario.
+	 * @throws Exception Excepción en la evaluación de la instancia.
+	 */
+	protected abstract boolean isRemovable (int id, Instances set) throws Exception;
+	
+	/**
+	 * Comprueba si la instancia actual debe ser eliminada.<br>
+	 * Si se especula, la decisión se toma de la ventana especulativa, que se evalúa en paralelo al llegar
+	 * a una instancia fuera de ella. La decisión especulativa de una instancia depende únicamente de su
+	 * lista de asociados y de las listas de vecinos de estos; si ninguna ha cambiado desde que se evaluó,
+	 * coincide con la que se obtendría ahora, en caso contrario se vuelve a evaluar.<br>
+	 * La primera llamada inicia la fase de eliminación de las métricas. Cada decisión emite un evento
+	 * <code>DROPStepEvent</code> si está activado y se registra como paso para los observadores.<br>
+	 * Si se ha pedido con <code>setKeepLastInstance</code>, la única instancia que queda en el conjunto
+	 * solución no se elimina.
+	 * 
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si la instancia actual debe ser eliminada, falso en caso contrario.
+	 * @throws Exception Excepción en la evaluación de la instancia.
+	 */
+	protected boolean isCurrentInstanceRemovable (Instances set) throws Exception {
+		DROPStepEvent event = new DROPStepEvent();
+		boolean removable;
+		
+		event.begin();
+		
+		// La última instancia del conjunto solución solo se conserva si se ha pedido.
+		if (mKeepLastInstance && mAlive.nextSetBit(mCurrInstancePos + 1) == -1 &&
+				mAlive.previousSetBit(mCurrInstancePos - 1) == -1)
+			removable = false;
+		else
+			removable = decideCurrentInstance(set);
+		
+		if (event.shouldCommit()) {
+			event.algorithm = getClass().getSimpleName();
+			event.instanceId = mTempDatasetIndex.get(mCurrInstancePos);
+			event.associates = mGraph.numAssociates(mCurrInstancePos);
+			event.removed = removable;
+			event.commit();
+		}
+		
+		recordStep(mTempDatasetIndex.get(mCurrInstancePos), removable);
+		
+		return removable;
+	} // isCurrentInstanceRemovable
+	
+	/**
+	 * Decide si la instancia actual debe ser eliminada, directamente o a partir de la ventana especulativa.
+	 * 
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si la instancia actual debe ser eliminada, falso en caso contrario.
+	 * @throws Exception Excepción en la evaluación de la instancia.
+	 */
+	private boolean decideCurrentInstance (Instances set) throws Exception {
+		if (!mMetrics.isRunning(Phase.REMOVAL))
+			mMetrics.startPhase(Phase.REMOVAL);
+		
+		if (mSpeculativeWindow <= 1 || mNumOfThreads <= 1) {
+			mMetrics.add(Phase.REMOVAL, Counter.CLASSIFIER_EVALUATIONS, 1);
+			
+			return isRemovable(mCurrInstancePos, set);
+		}
+		
+		if (mCurrInstancePos < mSpeculativeStart || mCurrInstancePos >= mSpeculativeEnd)
+			evaluateSpeculativeWindow(set);
+		
+		if (isSpeculativeDecisionValid(mCurrInstancePos))
+			return mSpeculativeDecisions[mCurrInstancePos - mSpeculativeStart];
+		
+		mNumOfConflicts++;
+		mMetrics.add(Phase.REMOVAL, Counter.CLASSIFIER_EVALUATIONS, 1);
+		
+		return isRemovable(mCurrInstancePos, set);
+	} // decideCurrentInstance
+	
+	/**
+	 * Evalúa en paralelo las decisiones de la instancia actual y las siguientes, hasta el tamaño de la
+	 * ventana especulativa, sobre el grafo actual.
 	 * 
-	 * @param instance Instancia con la que calcular las distancias.
-	 * @param vectorToSort Vector de instancias a ordenar por distancias.
-	 * @return Vector ordenado de instancias en función de la distancia.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @throws Exception Excepción en la evaluación de alguna instancia.
 	 */
-	protected Vector<Instance> getSortVectorByDistance (Instance instance, Vector<Instance> vectorToSort) {
-		double distances[] = new double[vectorToSort.size()];
+	protected void evaluateSpeculativeWindow (final Instances set) throws Exception {
+		final int start = mCurrInstancePos;
+		
+		mSpeculativeStart = start;
+		mSpeculativeEnd = Math.min(start + mSpeculativeWindow, set.numInstances());
+		mSpeculativeModificationCount = mGraph.getModificationCount();
 		
-		// Calcular la distancia con todos los elementos del vector.
-		for (int i = 0; i < vectorToSort.size(); i++)
-			distances[i] = mNearestNeighbourSearch.getDistanceFunction().distance(instance,
-			                 vectorToSort.elementAt(i));
+		if (mSpeculativeDecisions == null || mSpeculativeDecisions.length < mSpeculativeWindow)
+			mSpeculativeDecisions = new boolean[mSpeculativeWindow];
 		
-		return SortByDistance.getSortVectorOfInstances(vectorToSort, distances, true);
-	} // getSortVectorByDistance
+		mMetrics.add(Phase.REMOVAL, Counter.CLASSIFIER_EVALUATIONS, mSpeculativeEnd - mSpeculativeStart);
+		
+		runInParallel(mSpeculativeEnd - mSpeculativeStart, new RangeTask() {
+			public void run (int first, int end) throws Exception {
+				for (int i = first; i < end; i++)
+					mSpeculativeDecisions[i] = isRemovable(start + i, set);
+			}
+		});
+	} // evaluateSpeculativeWindow
+	
+	/**
+	 * Comprueba si la decisión especulativa de una instancia sigue siendo válida: ni su lista de asociados
+	 * ni la lista de vecinos de ninguno de sus asociados han cambiado desde que se evaluó la ventana.
+	 * 
+	 * @param id Identificador de la instancia.
+	 * @return Verdadero si la decisión especulativa es válida.
+	 */
+	protected boolean isSpeculativeDecisionValid (int id) {
+		if (mGraph.associatesModifiedSince(id, mSpeculativeModificationCount))
+			return false;
+		
+		for (int a = 0; a < mGraph.numAssociates(id); a++)
+			if (mGraph.neighboursModifiedSince(mGraph.getAssociate(id, a), mSpeculativeModificationCount))
+				return false;
+		
+		return true;
+	} // isSpeculativeDecisionValid
+	
+	/**
+	 * Descarta la ventana especulativa actual.
+	 */
+	protected void clearSpeculativeWindow () {
+		mSpeculativeStart = 0;
+		mSpeculativeEnd = 0;
+	} // clearSpeculativeWindow
 	
 	/**
 	 * Calcula el valor de with.
 	 * Recorre la lista de asociados de la instancia actual contando cuantos asociados se clasifican
 	 * correctamente teniendo a la instancia actual como vecino.<br>
 	 * Cabe destacar que solo se tienen en cuenta los "n" vecinos próximos (no los n + 1 almacenados en
-	 * mNeighbours), de este modo el conjunto with y el without son comparables.
+	 * mGraph), de este modo el conjunto with y el without son comparables.
 	 * 
 	 * @param set Conjunto de instancias con el que se esta trabajando.
 	 * @return Valor de with.
 	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
 	 */
-	protected int calcWith (Instances set) throws Exception {
-		Instances neighbours;
-		int pos, with = 0;
+	protected int calcWith (final Instances set) throws Exception {
+		final AtomicInteger with;
+		int numOfAssociates = mGraph.numAssociates(mCurrInstancePos);
+		
+		if (!isParallelEvaluation(numOfAssociates))
+			return calcWith(set, 0, numOfAssociates);
+		
+		with = new AtomicInteger();
+		
+		runInParallel(numOfAssociates, new RangeTask() {
+			public void run (int start, int end) throws Exception {
+				with.addAndGet(calcWith(set, start, end));
+			}
+		});
+		
+		return with.get();
+	} // calcWith
+	
+	/**
+	 * Calcula la parte del valor de with correspondiente a los asociados [start, end) de la instancia
+	 * actual.
+	 * 
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @param start Posición del primer asociado.
+	 * @param end Posición siguiente a la del último asociado.
+	 * @return Número de asociados del rango que se clasifican correctamente con la instancia actual.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected int calcWith (Instances set, int start, int end) throws Exception {
+		int assoc, with = 0;
 		double theta;
 
 		// Recorrer los asociados de la instancia actual.
-		for (Instance assoc : mAssociates.elementAt(mCurrInstancePos)) {
-			pos = InstanceIS.getPosOfInstance(set, assoc);
+		for (int a = start; a < end; a++) {
+			assoc = mGraph.getAssociate(mCurrInstancePos, a);
 			
-			// Copiar la lista de vecinos eliminado al último de la lista.
-			neighbours = new Instances(mSolutionSet, mAssociates.elementAt(mCurrInstancePos).size() - 1);
+			theta = getNeighbourhoodTheta(assoc);
 			
-			for (int i = 0; i < mNeighbours.elementAt(pos).size() - 1; i++)
-				neighbours.add(mNeighbours.elementAt(pos).elementAt(i));
-			
-//			theta = getTheta(neighbours, mAlpha, assoc.classIndex());
-			theta = getTheta(mNeighbours.elementAt(pos), mAlpha, assoc.classIndex());
-			
-			// Incrementar with si el asociado se clasifica correctamente teniendo a la instancia actual como
-			// vecino.
-			if (!isMisclassified(assoc, neighbours, theta))
+			// Incrementar with si el asociado se clasifica correctamente por sus vecinos sin el último de la
+			// lista, teniendo a la instancia actual como vecino.
+			if (!isMisclassified(assoc, mGraph.numNeighbours(assoc) - 1, -1, theta, set))
 				with++;
 		}
 		
@@ -440,71 +1545,252 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 	 * @return Valor de without.
 	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
 	 */
-	protected int calcWithout (Instances set) throws Exception {
-		Instances neighbours;
-		int pos, without = 0;
+	protected int calcWithout (final Instances set) throws Exception {
+		final AtomicInteger without;
+		int numOfAssociates = mGraph.numAssociates(mCurrInstancePos);
+		
+		if (!isParallelEvaluation(numOfAssociates))
+			return calcWithout(set, 0, numOfAssociates);
+		
+		without = new AtomicInteger();
+		
+		runInParallel(numOfAssociates, new RangeTask() {
+			public void run (int start, int end) throws Exception {
+				without.addAndGet(calcWithout(set, start, end));
+			}
+		});
+		
+		return without.get();
+	} // calcWithout
+	
+	/**
+	 * Calcula la parte del valor de without correspondiente a los asociados [start, end) de la instancia
+	 * actual.
+	 * 
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @param start Posición del primer asociado.
+	 * @param end Posición siguiente a la del último asociado.
+	 * @return Número de asociados del rango que se clasifican correctamente sin la instancia actual.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected int calcWithout (Instances set, int start, int end) throws Exception {
+		int assoc, without = 0;
 		double theta;
 		
 		// Recorrer los asociados de la instancia actual.
-		for (Instance assoc : mAssociates.elementAt(mCurrInstancePos)) {
-			pos = InstanceIS.getPosOfInstance(set, assoc);
+		for (int a = start; a < end; a++) {
+			assoc = mGraph.getAssociate(mCurrInstancePos, a);
 			
-			// Copiar la lista de vecinos sin incluir a la instancia actual.
-			neighbours = new Instances(mSolutionSet, mAssociates.elementAt(mCurrInstancePos).size() - 1);
-			
-			for (Instance tmpInstance : mNeighbours.elementAt(pos))
-				if (!InstanceIS.equals(tmpInstance, mCurrentInstance))
-					neighbours.add(tmpInstance);
-			
-//			theta = getTheta(neighbours, mAlpha, assoc.classIndex());
-			theta = getTheta(mNeighbours.elementAt(pos), mAlpha, assoc.classIndex());
+			theta = getNeighbourhoodTheta(assoc);
 			
 			// Incrementar without si el asociado se clasifica correctamente sin tener a la instancia actual
 			// como vecino.
-			if (!isMisclassified(assoc, neighbours, theta))
+			if (!isMisclassified(assoc, mGraph.numNeighbours(assoc), mCurrInstancePos, theta, set))
 				without++;
 		}
 		
 		return without;
 	} // calcWithout
+	
+	/**
+	 * Comprueba si without &gt;= with para la instancia actual recorriendo una sola vez la lista de sus
+	 * asociados.<br>
+	 * Como cada asociado cambia la diferencia without - with en una unidad como mucho, el recorrido
+	 * secuencial termina en cuanto los asociados restantes no pueden cambiar el resultado. Si los asociados
+	 * se evalúan en paralelo cada hilo calcula la diferencia de su bloque completo.
+	 * 
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si <code>calcWithout(set) &gt;= calcWith(set)</code>, falso en caso contrario.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected boolean isWithoutGreaterOrEqual (Instances set) throws Exception {
+		
+		return isWithoutGreaterOrEqual(mCurrInstancePos, set);
+	} // isWithoutGreaterOrEqual
+	
+	/**
+	 * Comprueba si without &gt;= with para una instancia dada como si fuera la instancia actual. Solo lee
+	 * el grafo, por lo que se puede invocar desde varios hilos a la vez.
+	 * 
+	 * @param current Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si without &gt;= with para la instancia, falso en caso contrario.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected boolean isWithoutGreaterOrEqual (final int current, final Instances set) throws Exception {
+		final AtomicInteger total;
+		int remaining, difference = 0, numOfAssociates = mGraph.numAssociates(current);
+		
+		if (isParallelEvaluation(numOfAssociates)) {
+			total = new AtomicInteger();
+			
+			runInParallel(numOfAssociates, new RangeTask() {
+				public void run (int start, int end) throws Exception {
+					int blockDifference = 0;
+					
+					for (int a = start; a < end; a++)
+						blockDifference += getWithoutMinusWith(current, a, set);
+					
+					total.addAndGet(blockDifference);
+				}
+			});
+			
+			return total.get() >= 0;
+		}
+		
+		// Recorrer los asociados de la instancia actual.
+		for (int a = 0; a < numOfAssociates; a++) {
+			remaining = numOfAssociates - a;
+			
+			// Comprobar si el resultado ya es seguro.
+			if (difference - remaining >= 0)
+				return true;
+			
+			if (difference + remaining < 0)
+				return false;
+			
+			difference += getWithoutMinusWith(current, a, set);
+		}
+		
+		return difference >= 0;
+	} // isWithoutGreaterOrEqual
+	
+	/**
+	 * Calcula la aportación de un asociado de una instancia a la diferencia without - with.<br>
+	 * Se obtiene theta una única vez y se evalúa el asociado sin y con la instancia como vecino; si la
+	 * instancia es el último de sus vecinos ambos conjuntos coinciden y se evalúa una sola vez.
+	 * 
+	 * @param current Identificador de la instancia evaluada.
+	 * @param a Posición del asociado en la lista de asociados de la instancia.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return 1, 0 o -1.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected int getWithoutMinusWith (int current, int a, Instances set) throws Exception {
+		int assoc = mGraph.getAssociate(current, a), numOfNeighbours = mGraph.numNeighbours(assoc);
+		double theta = getNeighbourhoodTheta(assoc);
+		boolean without, with;
+		
+		// Clasificación del asociado sin la instancia actual como vecino.
+		without = !isMisclassified(assoc, numOfNeighbours, current, theta, set);
+		
+		// Clasificación con la instancia actual como vecino y sin el último de la lista.
+		if (numOfNeighbours > 0 && mGraph.getNeighbour(assoc, numOfNeighbours - 1) == current)
+			with = without;
+		else
+			with = !isMisclassified(assoc, numOfNeighbours - 1, -1, theta, set);
+		
+		return (without ? 1 : 0) - (with ? 1 : 0);
+	} // getWithoutMinusWith
+	
+	/**
+	 * Comprueba si una instancia se clasifica incorrectamente por un kNN entrenado con sus primeros
+	 * vecinos, utilizándolos todos como vecinos cercanos.<br>
+	 * Sin ponderación la predicción del kNN es la media de los valores de clase de los vecinos, que se
+	 * calcula directamente a partir de los valores de clase guardados. Solo si el error de predicción queda
+	 * tan cerca del umbral que el orden de suma de IBk podría cambiar la decisión se entrena IBk, de modo
+	 * que el resultado es siempre el de <code>AlgorithmReg.isMisclassified</code>.
+	 * 
+	 * @param id Identificador de la instancia a clasificar.
+	 * @param numOfNeighbours Número de vecinos de la lista de la instancia a tener en cuenta.
+	 * @param excluded Identificador del vecino a excluir o -1 para no excluir ninguno.
+	 * @param theta Valor umbral por el que se considera una instancia igual o distinta a otra.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si no se clasifica correctamente por sus vecinos, falso en caso contrario.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected boolean isMisclassified (int id, int numOfNeighbours, int excluded, double theta, Instances set)
+	                                   throws Exception {
+		Instances neighbours;
+		double sum = 0, sumOfAbsValues = 0, prediction, error;
+		int neighbour, count = 0;
+		
+		if (mDirectPrediction) {
+			for (int i = 0; i < numOfNeighbours; i++) {
+				neighbour = mGraph.getNeighbour(id, i);
+				
+				if (neighbour != excluded) {
+					sum += mClassValues[neighbour];
+					sumOfAbsValues += Math.abs(mClassValues[neighbour]);
+					count++;
+				}
+			}
+			
+			// Sin vecinos IBk predice 0, como el ZeroR sin instancias.
+			prediction = count == 0 ? 0 : sum / count;
+			error = Math.abs(prediction - mClassValues[id]);
+			
+			if (Math.abs(error - theta) > getPredictionErrorBound(sumOfAbsValues, count, prediction, 
+			                                                      mClassValues[id]))
+				return error > theta;
+		}
+		
+		// Entrenar IBk con los vecinos.
+		neighbours = new Instances(mSolutionSet, mGraph.numNeighbours(id));
+		
+		for (int i = 0; i < numOfNeighbours; i++) {
+			neighbour = mGraph.getNeighbour(id, i);
+			
+			if (neighbour != excluded)
+				neighbours.add(set.instance(neighbour));
+		}
+		
+		return isMisclassified(set.instance(id), neighbours, theta);
+	} // isMisclassified
 
 	/**
 	 * Elimina la instancia actual.
 	 * Será llamado en caso de que el conjunto with sea mayor o igual que without.
 	 * Elimina la instancia actual y recorre la lista de sus asociados eliminándose a si misma como vecino y
-	 * buscándoles su nuevo vecino.
+	 * buscándoles su nuevo vecino.<br>
+	 * La instancia solo se desmarca en <code>mAlive</code>, sin desplazar el conjunto solución ni sus índices
+	 * de salida.
 	 * 
 	 * @throws Exception Excepción producida durante la eliminación de la instancia actual.
 	 */
 	protected void removeCurrentInstance () throws Exception {
-		Vector<Instance> newNeighbours;
-		int solutionSetPosition, associatePos;
+		NeighbourRepairEvent event = new NeighbourRepairEvent();
+		int assoc, bufferRepairs = mNumOfBufferRepairs, queryRepairs = mNumOfQueryRepairs;
+		double values[] = null;
 		
-		// Obtener la posición de la instancia actual en el conjunto solución.
-		solutionSetPosition = InstanceIS.getPosOfInstance(mSolutionSet, mCurrentInstance);
+		event.begin();
 		
-		// Eliminar la instancia del conjunto solución.
-		mSolutionSet.delete(solutionSetPosition);
+		// Marcar la instancia como eliminada del conjunto solución.
+		mAlive.clear(mCurrInstancePos);
+		mSolutionSetOutdated = true;
 		
-		// Eliminar el índice de la instancia borrada.
-		mOutputDatasetIndex.remove(solutionSetPosition);
+		mMetrics.add(Phase.REMOVAL, Counter.REMOVED_INSTANCES, 1);
+		mMetrics.add(Phase.REMOVAL, Counter.NEIGHBOUR_REPAIRS, mGraph.numAssociates(mCurrInstancePos));
 		
-		// Reiniciar el algoritmo de cálculo de distancias.
-		mNearestNeighbourSearch.setInstances(mSolutionSet);
+		// Actualizar el algoritmo de cálculo de distancias: el KD-tree y la búsqueda lineal marcan la
+		// instancia como borrada en su posición, el resto se reinicia con el conjunto solución.
+		if (mNearestNeighbourSearch instanceof KDTreeISNNSearch)
+			((KDTreeISNNSearch)mNearestNeighbourSearch).removeInstance(mIndex.positionOf(mCurrInstancePos));
+		else if (mNearestNeighbourSearch instanceof LinearISNNSearch)
+			((LinearISNNSearch)mNearestNeighbourSearch).removeInstance(mIndex.positionOf(mCurrInstancePos));
+		else
+			mNearestNeighbourSearch.setInstances(getSolutionSet());
 		
 		// Recorrer todos los asociados (A) de P.
-		for (Instance assoc : mAssociates.elementAt(mCurrInstancePos)) {
-			// Posición del asociado A.
-			associatePos = InstanceIS.getPosOfInstance(mTempSet, assoc);
+		for (int a = 0; a < mGraph.numAssociates(mCurrInstancePos); a++) {
+			assoc = mGraph.getAssociate(mCurrInstancePos, a);
 			
-			// Eliminar la instancia actual de los vecinos.
-			InstanceIS.removeInstanceFromVector(mCurrentInstance, mNeighbours.elementAt(associatePos));
+			// Eliminar la instancia actual de los vecinos de A.
+			mGraph.removeNeighbour(assoc, mCurrInstancePos);
 			
-			// Calcular el vector ordenado de los nuevos vecinos de A.
-			newNeighbours = getNewNeighbours(assoc, mNeighbours.elementAt(associatePos), mTempSet);
-			
-			// Asignar los nuevos vecinos de A.
-			mNeighbours.set(associatePos, newNeighbours);
+			// Calcular el nuevo vecino de A y actualizar la desviación típica de su vecindario.
+			getNewNeighbours(assoc, mTempSet);
+			values = updateNeighbourhoodDeviation(assoc, values);
+		}
+		
+		addSearchCounters(mNearestNeighbourSearch, Phase.REMOVAL);
+		
+		if (event.shouldCommit()) {
+			event.instanceId = mTempDatasetIndex.get(mCurrInstancePos);
+			event.associates = mGraph.numAssociates(mCurrInstancePos);
+			event.bufferRepairs = mNumOfBufferRepairs - bufferRepairs;
+			event.queryRepairs = mNumOfQueryRepairs - queryRepairs;
+			event.commit();
 		}
 	} // removeCurrentInstance
 
@@ -533,9 +1819,19 @@ public abstract class DROPRegAlgorithm extends AlgorithmReg implements Serializa
 		// Inicializar el número de iteraciones y el flag de cálculo de conjuntos vecindario y asociados.
 		mNumOfIterations = 0;
 		mCalcNeighbourAssociate = false;
+		mNumOfConflicts = 0;
+		mNumOfBufferRepairs = 0;
+		mNumOfQueryRepairs = 0;
+		clearSpeculativeWindow();
+		
+		// El conjunto de trabajo se inicializa en initWorkingSet.
+		mTempSet = null;
+		mTempDatasetIndex = null;
+		mAlive = null;
+		mSolutionSetOutdated = false;
 		
 		// Crear el algoritmo de cálculo de distancias.
-		mNearestNeighbourSearch = new LinearISNNSearch();
+		mNearestNeighbourSearch = createNearestNeighbourSearch();
 	} // reset
 	
 } // DROPRegAlgorithm
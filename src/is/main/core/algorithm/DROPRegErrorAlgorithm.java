@@ -21,14 +21,14 @@
 package main.core.algorithm;
 
 import java.io.Serializable; 
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import main.core.exception.NotEnoughInstancesException;
-import main.core.util.InstanceIS;
+import main.core.util.NeighbourErrorEvaluator;
 
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.lazy.IBk;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -100,6 +100,17 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 	 */
 	private static final long serialVersionUID = -3104283987324202298L;
 	
+	/**
+	 * Evaluador de los errores with y without de los asociados sobre el conjunto de trabajo, null si los
+	 * datos no permiten reproducir el error de IBk.
+	 */
+	protected NeighbourErrorEvaluator mErrorEvaluator;
+	
+	/**
+	 * Copias del evaluador de errores de los hilos del conjunto compartido de hilos.
+	 */
+	protected transient ThreadLocal<NeighbourErrorEvaluator> mWorkerEvaluators;
+	
 	/**
 	 * Constructor por defecto del algoritmo DROP1.
 	 * Antes de comenzar la ejecuciÃ³n del algoritmo debe llamarse a setNumOfNearestNeighbour para establecer
@@ -164,7 +175,7 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 				mOutputDatasetIndex.add(new Integer(index));
 			
 			// Borrar las instancias duplicadas.
-			InstanceIS.removeDuplicateInstances(mSolutionSet, mOutputDatasetIndex);
+			removeDuplicateInstances();
 			
 			// Si solo queda una instancia tras eliminar las instancias duplicadas finaliza el algoritmo.
 			if (mSolutionSet.numInstances() == 1)
@@ -177,7 +188,7 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 			calcNeighbourAssociateSets(mSolutionSet);
 			
 			// Inicializar el conjunto temporal de instancias.
-			mTempSet = new Instances(mSolutionSet);
+			initWorkingSet();
 			
 			// Inicializar las variables para iniciar DROP1.
 			mCurrInstancePos = 0;
@@ -185,7 +196,7 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 			mCalcNeighbourAssociate = true;
 		} else {
 			// Si el error sin la instancia es menor o igual al error con ella -> eliminar.
-			if (!isUseful(mTempSet))
+			if (isCurrentInstanceRemovable(mTempSet))
 				// Eliminar la instancia actual
 				removeCurrentInstance();
 			
@@ -208,18 +219,183 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 	 * Calcula para cada asociado el error al clasificar dicho asociado en función de sus vecinos 
 	 * más cercanos: with (teniendo en cuenta a la instancia actual) y without (sin tener dicha
 	 * instancia en cuenta), si el error de without es menor al de with + alpha es que la 
-	 * instancia actual es prescindible y no aporta nada al conjunto.
+	 * instancia actual es prescindible y no aporta nada al conjunto.<br>
+	 * Los errores se calculan directamente con el evaluador de errores; solo si los datos no lo permiten o
+	 * la comparación queda dentro de su cota de error se entrena IBk, por lo que el resultado es siempre el
+	 * de <code>isUsefulIBk</code>.
 	 * 
 	 * @param set Conjunto de instancias con el que se esta trabajando.
 	 * @return Verdadero si no debe eliminarse la instancia actual y falso en caso contrario.
 	 * @throws Exception Si no puede realizar el cálculo del error.
 	 */
 	protected boolean isUseful (Instances set) throws Exception {
+		
+		return isUseful(mCurrInstancePos, set);
+	} // isUseful
+	
+	/**
+	 * Calcula si una instancia dada, como si fuera la instancia actual, debe ser eliminada o no en función
+	 * de su utilidad. Solo lee el grafo, por lo que se puede invocar desde varios hilos a la vez.
+	 * 
+	 * @param current Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si no debe eliminarse la instancia y falso en caso contrario.
+	 * @throws Exception Si no puede realizar el cálculo del error.
+	 */
+	protected boolean isUseful (int current, Instances set) throws Exception {
+		int comparison = 0, numOfAssociates = mGraph.numAssociates(current);
+		
+		if (mErrorEvaluator != null) {
+			if (isParallelEvaluation(numOfAssociates))
+				comparison = compareErrorsInParallel(current, numOfAssociates);
+			else
+				comparison = getErrorEvaluator().compare(mGraph, current, mAlpha);
+		}
+		
+		if (comparison != 0)
+			return comparison > 0;
+		
+		return isUsefulIBk(current, set);
+	} // isUseful
+	
+	/**
+	 * Comprueba si una instancia debe ser eliminada: si no es útil.
+	 * 
+	 * @param id Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si la instancia debe ser eliminada, falso en caso contrario.
+	 * @throws Exception Si no puede realizar el cálculo del error.
+	 */
+	protected boolean isRemovable (int id, Instances set) throws Exception {
+		
+		return !isUseful(id, set);
+	} // isRemovable
+	
+	/**
+	 * Devuelve el evaluador de errores a utilizar desde el hilo actual: el del algoritmo o, en los hilos
+	 * del conjunto compartido, una copia propia de cada hilo.
+	 * 
+	 * @return Evaluador de errores, null si los datos no permiten utilizarlo.
+	 */
+	protected NeighbourErrorEvaluator getErrorEvaluator () {
+		NeighbourErrorEvaluator evaluator;
+		
+		if (mErrorEvaluator == null || !isWorkerThread())
+			return mErrorEvaluator;
+		
+		// Tras deserializar el algoritmo no hay copias guardadas.
+		if (mWorkerEvaluators == null)
+			return mErrorEvaluator.copy();
+		
+		evaluator = mWorkerEvaluators.get();
+		
+		if (evaluator == null) {
+			evaluator = mErrorEvaluator.copy();
+			mWorkerEvaluators.set(evaluator);
+		}
+		
+		return evaluator;
+	} // getErrorEvaluator
+	
+	/**
+	 * Compara con el evaluador de errores los errores without y with + alfa de los asociados de la
+	 * instancia dada repartiendo los asociados entre los hilos. Cada hilo utiliza su propia copia del
+	 * evaluador y los errores se suman después en el orden de los asociados, como en la evaluación
+	 * secuencial.
+	 * 
+	 * @param current Identificador de la instancia evaluada.
+	 * @param numOfAssociates Número de asociados de la instancia.
+	 * @return El resultado de <code>NeighbourErrorEvaluator.compare</code>.
+	 * @throws Exception Excepción producida en la evaluación de algún bloque.
+	 */
+	protected int compareErrorsInParallel (final int current, int numOfAssociates) throws Exception {
+		final double errorsWith[] = new double[numOfAssociates], errorsWithout[] = new double[numOfAssociates];
+		final double errorBounds[] = new double[numOfAssociates];
+		final AtomicBoolean overflow = new AtomicBoolean();
+		double errorWith = 0.0, errorWithout = 0.0, errorBound = 0.0;
+		
+		runInParallel(numOfAssociates, new RangeTask() {
+			public void run (int start, int end) {
+				NeighbourErrorEvaluator evaluator = getErrorEvaluator();
+				
+				for (int a = start; a < end; a++) {
+					if (!evaluator.evaluate(mGraph, current, a)) {
+						overflow.set(true);
+						return;
+					}
+					
+					errorsWithout[a] = evaluator.getErrorWithout();
+					errorsWith[a] = evaluator.getErrorWith();
+					errorBounds[a] = evaluator.getErrorBound();
+				}
+			}
+		});
+		
+		if (overflow.get())
+			return 0;
+		
+		for (int a = 0; a < numOfAssociates; a++) {
+			errorWithout += errorsWithout[a];
+			errorWith += errorsWith[a];
+			errorBound += errorBounds[a];
+		}
+		
+		return NeighbourErrorEvaluator.compare(errorWith, errorWithout, errorBound, numOfAssociates, mAlpha);
+	} // compareErrorsInParallel
+
+	/**
+	 * Calcula si una instancia debe ser eliminada o no en función de su utilidad, entrenando y evaluando
+	 * un IBk por cada asociado con y sin la instancia. Si los asociados se evalúan en paralelo los errores
+	 * se suman después en el orden de los asociados.
+	 * 
+	 * @param current Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si no debe eliminarse la instancia y falso en caso contrario.
+	 * @throws Exception Si no puede realizar el cálculo del error.
+	 */
+	protected boolean isUsefulIBk (final int current, final Instances set) throws Exception {
+		int numOfAssociates = mGraph.numAssociates(current);
+		final double errorsWith[] = new double[numOfAssociates], errorsWithout[] = new double[numOfAssociates];
+		double errorWith  = 0.0, errorWithout = 0.0;
+		
+		if (isParallelEvaluation(numOfAssociates))
+			runInParallel(numOfAssociates, new RangeTask() {
+				public void run (int start, int end) throws Exception {
+					calcErrorsIBk(current, set, start, end, errorsWith, errorsWithout);
+				}
+			});
+		else
+			calcErrorsIBk(current, set, 0, numOfAssociates, errorsWith, errorsWithout);
+		
+		for (int a = 0; a < numOfAssociates; a++) {
+			errorWithout += errorsWithout[a];
+			errorWith += errorsWith[a];
+		}
+		
+		// Si el error sin la instancia es menor al error con ella -> eliminar. 
+		if (errorWithout <= (errorWith + mAlpha))
+			return false;
+		
+		return true;
+	} // isUsefulIBk
+	
+	/**
+	 * Calcula con IBk los errores with y without de los asociados [start, end) de una instancia.
+	 * 
+	 * @param current Identificador de la instancia evaluada.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @param start Posición del primer asociado.
+	 * @param end Posición siguiente a la del último asociado.
+	 * @param errorsWith Array donde se guarda el error with de cada asociado en su posición.
+	 * @param errorsWithout Array donde se guarda el error without de cada asociado en su posición.
+	 * @throws Exception Si no puede realizar el cálculo del error.
+	 */
+	protected void calcErrorsIBk (int current, Instances set, int start, int end, double[] errorsWith, 
+	                              double[] errorsWithout) throws Exception {
 		Classifier classifier = new IBk(mNumOfNearestNeighbour);
 		Instances test, toTrain;
 		Evaluation evalWith, evalWithout;
-		double errorWith  = 0.0, errorWithout = 0.0;
-		int assocPos;
+		int assoc, neighbour;
 		
 		// 20141201 -> Probar con la opción de que tenga en cuenta la distancia de los vecinos para asignar la clase.
 //		String[] options = new String[1];
@@ -228,37 +404,46 @@ public class DROPRegErrorAlgorithm extends DROPRegAlgorithm implements Serializa
 		// 20141203 -> No funciona mejor
 		
 		// Recorrer cada asociado.
-		for (Instance assoc : mAssociates.elementAt(mCurrInstancePos)) {
-			assocPos = InstanceIS.getPosOfInstance(set, assoc);
+		for (int a = start; a < end; a++) {
+			assoc = mGraph.getAssociate(current, a);
 			test = new Instances(set, 1);
-			test.add(assoc);
-			toTrain = new Instances(set, mNeighbours.elementAt(assocPos).size());
+			test.add(set.instance(assoc));
+			toTrain = new Instances(set, mGraph.numNeighbours(assoc));
 
 			// Generar el conjunto entrenamiento sin la instancia actual.
-			for (Instance neighbour : mNeighbours.elementAt(assocPos))
-				if (!InstanceIS.equals(neighbour, mCurrentInstance))
-					toTrain.add(neighbour);
+			for (int i = 0; i < mGraph.numNeighbours(assoc); i++) {
+				neighbour = mGraph.getNeighbour(assoc, i);
+				
+				if (neighbour != current)
+					toTrain.add(set.instance(neighbour));
+			}
 			
 			// Evaluar el conjunto sin la instancia actual.
 			evalWithout = new Evaluation(toTrain);
 			classifier.buildClassifier(toTrain);
 			evalWithout.evaluateModel(classifier, test);
-			errorWithout += evalWithout.errorRate();
+			errorsWithout[a] = evalWithout.errorRate();
 			
 			// Añadir la instancia actual y evaluar.
-			toTrain.add(mCurrentInstance);
+			toTrain.add(set.instance(current));
 			evalWith = new Evaluation(toTrain);
 			classifier.buildClassifier(toTrain);
 			evalWith.evaluateModel(classifier, test);
-			errorWith += evalWith.errorRate();
+			errorsWith[a] = evalWith.errorRate();
 		}
+	} // calcErrorsIBk
+
+	/**
+	 * Guarda los valores de clase del conjunto de trabajo y crea el evaluador de errores sobre él.
+	 * 
+	 * @param set Conjunto de trabajo.
+	 */
+	protected void cacheClassValues (Instances set) {
+		super.cacheClassValues(set);
 		
-		// Si el error sin la instancia es menor al error con ella -> eliminar. 
-		if (errorWithout <= (errorWith + mAlpha))
-			return false;
-		
-		return true;
-	} // isUseful
+		mErrorEvaluator = NeighbourErrorEvaluator.create(set, mClassValues, mNumOfNearestNeighbour);
+		mWorkerEvaluators = new ThreadLocal<NeighbourErrorEvaluator>();
+	} // cacheClassValues
 
 	/**
 	 * Reinicia el algoritmo con un conjunto de entrenamiento nuevo.
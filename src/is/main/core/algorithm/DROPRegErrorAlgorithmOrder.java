@@ -21,15 +21,10 @@
 package main.core.algorithm;
 
 import java.io.Serializable; 
-import java.util.Vector;
 
-import main.core.algorithm.sort.SortByDistance;
 import main.core.exception.NotEnoughInstancesException;
-import main.core.util.InstanceIS;
 
-import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * <b>Descripción</b><br>
@@ -174,7 +169,7 @@ public class DROPRegErrorAlgorithmOrder extends DROPRegErrorAlgorithm implements
 				mOutputDatasetIndex.add(new Integer(index));
 
 			// Borrar las instancias duplicadas.
-			InstanceIS.removeDuplicateInstances(mSolutionSet, mOutputDatasetIndex);
+			removeDuplicateInstances();
 			
 			// Si tras el filtrado queda una instancia o menos devolver falso.
 			if (mSolutionSet.numInstances() <= 1)
@@ -201,59 +196,16 @@ public class DROPRegErrorAlgorithmOrder extends DROPRegErrorAlgorithm implements
 	} // step
 
 	/**
-	 * Ordenar el conjunto solución en función a la distancia al enemigo más próximo de mayor a menor.
+	 * Ordenar el conjunto solución en función a la distancia al enemigo más próximo, utilizando beta para
+	 * determinar los enemigos.
 	 * 
 	 * @param orderBy Si es veradero las instancias serán ordenadas de menor a mayor distancia a su enemigo,
 	 * en caso contrario las ordenará de mayor a menor distancia.
-	 * @return Verdadero si existe más de una instancia tras la eliminación de duplicadas, falso en caso
-	 * contrario.
+	 * @throws Exception Excepción producida al reiniciar el algoritmo de vecinos cercanos.
 	 */
-	protected void orderInstances (boolean orderBy) {
-		SortByDistance sbd;
-		Vector<Vector<Instance>> tmpAssociates;
-		Vector<Vector<Instance>> tmpNeighbours;
-		Vector<Integer> tmpIndexes;
-		double indexOfInstances[] = SortByDistance.getIndexArray(mSolutionSet.numInstances());
+	protected void orderInstances (boolean orderBy) throws Exception {
+		orderInstances(orderBy, mBeta);
 		
-		// Ordenar las instancias en función a la distancia a su enemigo más próximo.
-		sbd = new SortByDistance(mSolutionSet, mOutputDatasetIndex);
-		
-		// Ordenar SolutionSet en función de la distancia al enemigo más próximo.
-		sbd.orderByNearestEnemyReg(mNeighbours, orderBy, mBeta);
-
-		// Ordenación por QuickSort.
-		NearestNeighbourSearch.quickSort(sbd.getDistancesToNearEnemy(), indexOfInstances, 0, mSolutionSet.numInstances() - 1);
-		
-		// Creamos un conjunto de instancias vacío.
-		mTempSet = new Instances(mSolutionSet, mSolutionSet.numInstances());
-		
-		// Inicializar los vectores temporales para la ordenación.
-		tmpAssociates = new Vector<Vector<Instance>>(mSolutionSet.numInstances());
-		tmpNeighbours = new Vector<Vector<Instance>>(mSolutionSet.numInstances());
-		tmpIndexes = new Vector<Integer>(mSolutionSet.numInstances());
-
-		// Almacenar en tmpInstances las instancias en el orden devuelto por quicksort.
-		// Mantener al mismo tiempo el vector de índices de salida.
-		if (orderBy)
-			for (int i = 0; i < indexOfInstances.length ; i++) {
-				mTempSet.add(mSolutionSet.instance((int)indexOfInstances[i]));
-				tmpIndexes.add(mInputDatasetIndex.get((int)indexOfInstances[i]));
-				tmpAssociates.add(mAssociates.get((int)indexOfInstances[i]));
-				tmpNeighbours.add(mNeighbours.get((int)indexOfInstances[i]));
-			}
-		else
-			for (int i = indexOfInstances.length - 1; i >= 0; i--) {
-				mTempSet.add(mSolutionSet.instance((int)indexOfInstances[i]));
-				tmpIndexes.add(mInputDatasetIndex.get((int)indexOfInstances[i]));
-				tmpAssociates.add(mAssociates.get((int)indexOfInstances[i]));
-				tmpNeighbours.add(mNeighbours.get((int)indexOfInstances[i]));
-			}
-		
-		// Inicializar el algoritmo con las instancias ordenadas.
-		mSolutionSet = new Instances(mTempSet);
-		mOutputDatasetIndex = tmpIndexes;
-		mAssociates = tmpAssociates;
-		mNeighbours = tmpNeighbours;
 		mOrdered = true;
 	} // orderInstances
 
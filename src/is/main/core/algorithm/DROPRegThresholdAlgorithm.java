@@ -23,7 +23,6 @@ package main.core.algorithm;
 import java.io.Serializable;
 
 import main.core.exception.NotEnoughInstancesException;
-import main.core.util.InstanceIS;
 
 import weka.core.Instances;
 
@@ -158,7 +157,7 @@ public class DROPRegThresholdAlgorithm extends DROPRegAlgorithm implements Seria
 				mOutputDatasetIndex.add(new Integer(index));
 			
 			// Borrar las instancias duplicadas.
-			InstanceIS.removeDuplicateInstances(mSolutionSet, mOutputDatasetIndex);
+			removeDuplicateInstances();
 			
 			// Si solo queda una instancia tras eliminar las instancias duplicadas finaliza el algoritmo.
 			if (mSolutionSet.numInstances() == 1)
@@ -171,7 +170,7 @@ public class DROPRegThresholdAlgorithm extends DROPRegAlgorithm implements Seria
 			calcNeighbourAssociateSets(mSolutionSet);
 
 			// Inicializar el conjunto temporal de instancias.
-			mTempSet = new Instances(mSolutionSet);
+			initWorkingSet();
 			
 			// Inicializar las variables para iniciar DROP1.
 			mCurrInstancePos = 0;
@@ -179,7 +178,7 @@ public class DROPRegThresholdAlgorithm extends DROPRegAlgorithm implements Seria
 			mCalcNeighbourAssociate = true;
 		} else {
 			// Si without >= with eliminar la instancia actual.
-			if (calcWithout(mTempSet) >= calcWith(mTempSet))
+			if (isCurrentInstanceRemovable(mTempSet))
 				// Eliminar la instancia actual porque without >= with.
 				removeCurrentInstance();
 
@@ -197,6 +196,19 @@ public class DROPRegThresholdAlgorithm extends DROPRegAlgorithm implements Seria
 		return true;
 	} // step
 	
+	/**
+	 * Comprueba si una instancia debe ser eliminada: si without &gt;= with.
+	 * 
+	 * @param id Identificador de la instancia a evaluar.
+	 * @param set Conjunto de instancias con el que se esta trabajando.
+	 * @return Verdadero si without &gt;= with para la instancia, falso en caso contrario.
+	 * @throws Exception Excepción en el cálculo de vecinos cercanos.
+	 */
+	protected boolean isRemovable (int id, Instances set) throws Exception {
+		
+		return isWithoutGreaterOrEqual(id, set);
+	} // isRemovable
+	
 	/**
 	 * Reinicia el algoritmo con un conjunto de entrenamiento nuevo.
 	 * Inicializa las variables de trabajo del algoritmo.
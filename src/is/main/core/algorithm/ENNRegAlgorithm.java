@@ -20,9 +20,15 @@
 
 package main.core.algorithm;
 
+import java.util.BitSet;
+import java.util.Vector;
+
+import main.core.event.EditingEvent;
 import main.core.exception.NotEnoughInstancesException;
+import main.core.util.ENNRegEvaluator;
 import main.core.util.LinearISNNSearch;
 
+import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -55,11 +61,22 @@ import weka.core.Instances;
  * </p>
  * <p>
  * <b>Funcionalidad</b><br>
- * Implementa el algoritmo RegENN.
+ * Implementa el algoritmo RegENN.<br>
+ * Si los datos lo permiten, en el primer paso se calculan una sola vez (en paralelo si se utilizan varios
+ * hilos) los vecinos de todas las instancias (<code>ENNRegEvaluator</code>), y cada paso decide a partir
+ * de ellos sin copiar el conjunto solución ni entrenar IBk. Solo los casos que el evaluador no puede
+ * decidir se calculan como en el algoritmo original, por lo que el resultado es el mismo.<br>
+ * Las instancias eliminadas solo se desmarcan en <code>mAlive</code>; el conjunto solución y sus índices de
+ * salida se construyen al consultarlos.<br>
+ * Opcionalmente (<code>setBatchEditing</code>) se puede editar por lotes como en la edición de Wilson:
+ * cada instancia se evalúa frente al conjunto de entrenamiento completo sin ella, por lo que todas las
+ * decisiones se toman en paralelo en el primer paso y los pasos solo las aplican. Como diagnóstico, y solo
+ * si se pide (<code>setCountDifferences</code>), al terminar se ejecuta también la versión secuencial para
+ * contar las decisiones que difieren (<code>getNumOfDifferences</code>).
  * </p>
  * 
  * @author Álvar Arnaiz González
- * @version 1.4
+ * @version 1.8
  */
 public class ENNRegAlgorithm extends AlgorithmReg {
 	
@@ -83,6 +100,43 @@ public class ENNRegAlgorithm extends AlgorithmReg {
 	 */
 	private int mNumOfIterations;
 	
+	/**
+	 * Posiciones del conjunto de entrenamiento de las instancias que siguen en el conjunto solución.
+	 */
+	private BitSet mAlive;
+	
+	/**
+	 * Indica si se han eliminado instancias desde la última vez que se construyó el conjunto solución.
+	 */
+	private boolean mSolutionSetOutdated;
+	
+	/**
+	 * Evaluador de la regla de edición a partir de los vecinos del conjunto inicial, null si los datos no
+	 * permiten utilizarlo.
+	 */
+	private ENNRegEvaluator mEvaluator;
+	
+	/**
+	 * Indica si se edita por lotes, evaluando cada instancia frente al conjunto de entrenamiento completo.
+	 */
+	private boolean mBatchEditing;
+	
+	/**
+	 * Decisiones de la edición por lotes: verdadero si la instancia debe eliminarse.
+	 */
+	private boolean[] mBatchDecisions;
+	
+	/**
+	 * Indica si al terminar la edición por lotes se ejecuta la edición secuencial para compararlas.
+	 */
+	private boolean mCountDifferences;
+	
+	/**
+	 * Número de decisiones de la edición por lotes que difieren de las de la edición secuencial, -1 si no
+	 * se han comparado.
+	 */
+	private int mNumOfDifferences = -1;
+	
 	/**
 	 * Constructor por defecto del algoritmo ENN.
 	 * Antes de comenzar la ejecución del algoritmo debe llamarse a setNumOfNearestNeighbour para
@@ -193,52 +247,295 @@ public class ENNRegAlgorithm extends AlgorithmReg {
 		mAlpha = alpha;
 	} // setAlpha
 	
+	/**
+	 * Indica si se edita por lotes.
+	 * 
+	 * @return Verdadero si cada instancia se evalúa frente al conjunto de entrenamiento completo.
+	 */
+	public boolean getBatchEditing () {
+		
+		return mBatchEditing;
+	} // getBatchEditing
+	
+	/**
+	 * Establece si se edita por lotes, evaluando en paralelo cada instancia frente al conjunto de
+	 * entrenamiento completo sin ella, en lugar de frente al conjunto solución actual.
+	 * 
+	 * @param batchEditing Verdadero para editar por lotes.
+	 */
+	public void setBatchEditing (boolean batchEditing) {
+		mBatchEditing = batchEditing;
+	} // setBatchEditing
+	
+	/**
+	 * Indica si al terminar la edición por lotes se compara con la edición secuencial.
+	 * 
+	 * @return Verdadero si se cuentan las decisiones que difieren.
+	 */
+	public boolean getCountDifferences () {
+		
+		return mCountDifferences;
+	} // getCountDifferences
+	
+	/**
+	 * Establece si al terminar la edición por lotes se ejecuta también la edición secuencial completa para
+	 * contar las decisiones que difieren. Es solo un diagnóstico: su coste se suma al de la edición y se
+	 * incluye en los tiempos medidos, por lo que no debe activarse al medir el rendimiento.
+	 * 
+	 * @param countDifferences Verdadero para comparar ambas ediciones.
+	 */
+	public void setCountDifferences (boolean countDifferences) {
+		mCountDifferences = countDifferences;
+	} // setCountDifferences
+	
+	/**
+	 * Devuelve el número de decisiones de la última edición por lotes que difieren de las de la edición
+	 * secuencial: instancias que una conserva y la otra elimina.
+	 * 
+	 * @return Número de decisiones distintas o -1 si no se ha pedido la comparación o no se ha terminado
+	 *         una edición por lotes.
+	 */
+	public int getNumOfDifferences () {
+		
+		return mNumOfDifferences;
+	} // getNumOfDifferences
+	
+	/**
+	 * Devuelve el conjunto solución del algoritmo, construyéndolo a partir de la máscara de instancias no
+	 * eliminadas si ha cambiado desde la última consulta.
+	 * 
+	 * @return Conjunto reducido de instancias.
+	 */
+	public Instances getSolutionSet () {
+		updateSolutionSet();
+		
+		return mSolutionSet;
+	} // getSolutionSet
+	
+	/**
+	 * Devuelve el vector de índices del conjunto solución, construyéndolo a partir de la máscara de
+	 * instancias no eliminadas si ha cambiado desde la última consulta.
+	 * 
+	 * @return Vector de índices del conjunto solución seleccionado.
+	 */
+	public Vector<Integer> getOutputDatasetIndex () {
+		updateSolutionSet();
+		
+		return mOutputDatasetIndex;
+	} // getOutputDatasetIndex
+	
 	/**
 	 * Ejecuta un paso del algoritmo.
 	 * Comienza con un conjunto solución que tiene todas las instancias del dataset original.
 	 * Recorre el conjunto solución comprobando cada instancia si se clasifica correctamente o no.
-	 * Si no se clasifica incorrectamente la elimina del conjunto solución.
+	 * Si no se clasifica incorrectamente la elimina del conjunto solución.<br>
+	 * Cada paso emite un evento <code>EditingEvent</code> si está activado y se registra como paso para los
+	 * observadores.
 	 * 
 	 * @return Verdadero si quedan pasos que ejecutar, falso en caso contratio.
 	 * @throws Exception Excepción producida durante el paso del algoritmo.
 	 */
 	public boolean step () throws Exception {
-		Instances instancesWithoutCurrent;
-		Instances neighbours;
-		double theta;
+		EditingEvent event = new EditingEvent();
+		int decision = 0, id;
+		
+		event.begin();
 		
 		// Aumentar el número de iteraciones.
 		mNumOfIterations++;
 		
-		// Obtener los vecinos más cercanos de la instancia actual.
-		instancesWithoutCurrent = new Instances(mSolutionSet);
-		instancesWithoutCurrent.delete(mCurrInstancePos);
+		// Las instancias se evalúan en el orden del conjunto de entrenamiento.
+		id = mNumOfIterations - 1;
 		
-		mNearestNeighbourSearch = new LinearISNNSearch(instancesWithoutCurrent);
-		neighbours = mNearestNeighbourSearch.kNearestNeighbours(mCurrentInstance, mNumOfNearestNeighbour);
-
-		// Calcular theta.
-		theta = getTheta(neighbours, mAlpha);
+		if (mNumOfIterations == 1) {
+			initEvaluator();
+			
+			if (mBatchEditing)
+				calcBatchDecisions();
+		}
 		
-		// Si no se clasifica correctamente por los vecinos cercanos se elimina.
-		if (isMisclassified(mCurrentInstance, instancesWithoutCurrent, theta, mNumOfNearestNeighbour)) {
-			mSolutionSet.delete(mCurrInstancePos);
-			mOutputDatasetIndex.remove(mCurrInstancePos);
+		if (mBatchEditing)
+			decision = mBatchDecisions[id] ? 1 : -1;
+		else if (mEvaluator != null)
+			decision = mEvaluator.evaluate(id, mAlpha);
+		
+		if (decision == 0)
+			decision = isMisclassified(id) ? 1 : -1;
+		
+		if (event.shouldCommit()) {
+			event.instanceId = mInputDatasetIndex.get(id);
+			event.batch = mBatchEditing;
+			event.removed = decision > 0;
+			event.commit();
 		}
-		else {
-			mCurrInstancePos++;
+		
+		recordStep(mInputDatasetIndex.get(id), decision > 0);
+		
+		// Si no se clasifica correctamente por los vecinos cercanos se elimina: solo se desmarca, sin
+		// desplazar el conjunto solución ni sus índices de salida.
+		if (decision > 0) {
+			mAlive.clear(id);
+			mSolutionSetOutdated = true;
+			
+			if (mEvaluator != null && !mBatchEditing)
+				mEvaluator.remove(id);
 		}
 		
+		mCurrInstancePos++;
+		
 		// Si se han procesado todas las intancias finalizar.
-		if (mTrainSet.numInstances() == mNumOfIterations)
+		if (mTrainSet.numInstances() == mNumOfIterations) {
+			if (mBatchEditing && mCountDifferences)
+				countDifferences();
+			
 			return false;
+		}
 		
 		// Pasar a la siguiente instancia.
-		mCurrentInstance = mSolutionSet.instance(mCurrInstancePos);
+		mCurrentInstance = mTrainSet.instance(mCurrInstancePos);
 		
 		return true;
 	} // step
 	
+	/**
+	 * Comprueba si una instancia del conjunto de entrenamiento se clasifica incorrectamente por sus vecinos
+	 * cercanos en el conjunto solución sin ella, buscando los vecinos y entrenando IBk con ese conjunto. El
+	 * conjunto se construye en una sola pasada con las instancias no eliminadas, en el mismo orden.
+	 * Solo lee la máscara de instancias no eliminadas, por lo que se puede invocar desde varios hilos a la
+	 * vez mientras no se eliminen instancias.
+	 * 
+	 * @param id Posición de la instancia a evaluar dentro del conjunto de entrenamiento.
+	 * @return Verdadero si la instancia debe eliminarse.
+	 * @throws Exception Excepción producida en el cálculo de los vecinos o en la clasificación.
+	 */
+	private boolean isMisclassified (int id) throws Exception {
+		Instances instancesWithoutCurrent = new Instances(mTrainSet, mAlive.cardinality());
+		Instances neighbours;
+		Instance instance = mTrainSet.instance(id);
+		double theta;
+		
+		// Obtener los vecinos más cercanos de la instancia.
+		for (int i = mAlive.nextSetBit(0); i >= 0; i = mAlive.nextSetBit(i + 1))
+			if (i != id)
+				instancesWithoutCurrent.add(mTrainSet.instance(i));
+		
+		neighbours = new LinearISNNSearch(instancesWithoutCurrent).kNearestNeighbours(instance, 
+		                                                                             mNumOfNearestNeighbour);
+
+		// Calcular theta.
+		theta = getTheta(neighbours, mAlpha);
+		
+		return isMisclassified(instance, instancesWithoutCurrent, theta, mNumOfNearestNeighbour);
+	} // isMisclassified
+	
+	/**
+	 * Calcula en paralelo las decisiones de la edición por lotes: cada instancia se evalúa frente al
+	 * conjunto de entrenamiento completo sin ella, antes de eliminar ninguna. Cada bloque utiliza su propia
+	 * copia del evaluador.
+	 * 
+	 * @throws Exception Excepción producida en la evaluación de algún bloque.
+	 */
+	private void calcBatchDecisions () throws Exception {
+		mBatchDecisions = new boolean[mTrainSet.numInstances()];
+		
+		runInParallel(mBatchDecisions.length, new RangeTask() {
+			public void run (int start, int end) throws Exception {
+				ENNRegEvaluator evaluator = mEvaluator != null ? mEvaluator.copy() : null;
+				int decision;
+				
+				for (int id = start; id < end; id++) {
+					decision = evaluator != null ? evaluator.evaluate(id, mAlpha) : 0;
+					
+					if (decision == 0)
+						mBatchDecisions[id] = isMisclassified(id);
+					else
+						mBatchDecisions[id] = decision > 0;
+				}
+			}
+		});
+	} // calcBatchDecisions
+	
+	/**
+	 * Ejecuta la edición secuencial sobre el mismo conjunto de entrenamiento y cuenta las instancias que
+	 * esta conserva y la edición por lotes elimina, o al revés.
+	 * 
+	 * @throws Exception Excepción producida durante la edición secuencial.
+	 */
+	private void countDifferences () throws Exception {
+		ENNRegAlgorithm sequential;
+		Vector<Integer> kept;
+		int identity[] = new int[mTrainSet.numInstances()], pos = 0;
+		
+		// Con los índices identidad los índices de salida son las posiciones conservadas.
+		for (int i = 0; i < identity.length; i++)
+			identity[i] = i;
+		
+		sequential = new ENNRegAlgorithm(mTrainSet, identity);
+		sequential.setAlpha(mAlpha);
+		sequential.setNumOfNearestNeighbour(mNumOfNearestNeighbour);
+		sequential.setNumOfThreads(mNumOfThreads);
+		sequential.allSteps();
+		
+		kept = sequential.getOutputDatasetIndex();
+		mNumOfDifferences = 0;
+		
+		for (int id = 0; id < identity.length; id++) {
+			if (pos < kept.size() && kept.get(pos) == id) {
+				pos++;
+				
+				if (mBatchDecisions[id])
+					mNumOfDifferences++;
+			} else if (!mBatchDecisions[id]) {
+				mNumOfDifferences++;
+			}
+		}
+	} // countDifferences
+	
+	/**
+	 * Construye el conjunto solución y sus índices de salida con las instancias del conjunto de
+	 * entrenamiento que no han sido eliminadas, en su orden. Solo se construyen si se ha eliminado alguna
+	 * instancia desde la última vez.
+	 */
+	private void updateSolutionSet () {
+		Instances solution;
+		Vector<Integer> outputDatasetIndex;
+		
+		if (!mSolutionSetOutdated)
+			return;
+		
+		solution = new Instances(mTrainSet, mAlive.cardinality());
+		outputDatasetIndex = new Vector<Integer>(mAlive.cardinality());
+		
+		for (int id = mAlive.nextSetBit(0); id >= 0; id = mAlive.nextSetBit(id + 1)) {
+			solution.add(mTrainSet.instance(id));
+			outputDatasetIndex.add(mInputDatasetIndex.get(id));
+		}
+		
+		mSolutionSet = solution;
+		mOutputDatasetIndex = outputDatasetIndex;
+		mSolutionSetOutdated = false;
+	} // updateSolutionSet
+	
+	/**
+	 * Crea el evaluador de la regla de edición y calcula, repartiéndolos entre los hilos, los vecinos de
+	 * todas las instancias del conjunto de entrenamiento.
+	 * 
+	 * @throws Exception Excepción producida en el cálculo de los vecinos.
+	 */
+	private void initEvaluator () throws Exception {
+		// Se guardan k vecinos adicionales para las instancias que se vayan eliminando.
+		mEvaluator = ENNRegEvaluator.create(mTrainSet, mNumOfNearestNeighbour, mNumOfNearestNeighbour);
+		
+		if (mEvaluator == null)
+			return;
+		
+		runInParallel(mEvaluator.numInstances(), new RangeTask() {
+			public void run (int start, int end) {
+				mEvaluator.calcNeighbours(start, end);
+			}
+		});
+	} // initEvaluator
+	
 	/**
 	 * Reinicia el algoritmo con un conjunto de entrenamiento nuevo.
 	 * Inicializa las variables de trabajo del algoritmo.
@@ -274,6 +571,9 @@ public class ENNRegAlgorithm extends AlgorithmReg {
 	private void init () {
 		// Inicializar el número de iteraciones.
 		mNumOfIterations = 0;
+		mEvaluator = null;
+		mBatchDecisions = null;
+		mNumOfDifferences = -1;
 		
 		// Copiar el conjunto de entrenamiento en el conjunto solución.
 		mSolutionSet = new Instances(mTrainSet);
@@ -282,8 +582,13 @@ public class ENNRegAlgorithm extends AlgorithmReg {
 		for (Integer index : mInputDatasetIndex)
 			mOutputDatasetIndex.add(new Integer(index));
 		
+		// Todas las instancias siguen en el conjunto solución.
+		mAlive = new BitSet(mTrainSet.numInstances());
+		mAlive.set(0, mTrainSet.numInstances());
+		mSolutionSetOutdated = false;
+		
 		// Inicializar la instancia actual.
-		mCurrentInstance = mSolutionSet.firstInstance();
+		mCurrentInstance = mTrainSet.firstInstance();
 		mCurrInstancePos = 0;
 	} // init
 	
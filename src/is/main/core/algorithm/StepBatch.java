@@ -0,0 +1,198 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * StepBatch.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.algorithm;
+
+import java.io.Serializable;
+
+/**
+ * <b>Descripción</b><br>
+ * Lote de pasos de un algoritmo de selección de instancias entregado a los observadores.
+ * <p>
+ * <b>Detalles</b><br>
+ * Cada paso es la decisión sobre una instancia: su índice en el conjunto original, si se elimina, el tiempo
+ * real transcurrido desde el paso anterior y el número acumulado de instancias eliminadas por los pasos del
+ * algoritmo hasta él, incluido.<br>
+ * Los pasos se guardan en arrays paralelos para no crear un objeto por paso.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Información de progreso para los <code>StepListener</code>.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class StepBatch implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = 3862291517205740215L;
+
+	/**
+	 * Número de pasos realizados por el algoritmo antes del primero del lote.
+	 */
+	private long mFirstStep;
+
+	/**
+	 * Índices en el conjunto original de las instancias decididas.
+	 */
+	private int[] mInstanceIds;
+
+	/**
+	 * Decisiones tomadas: verdadero si la instancia se elimina.
+	 */
+	private boolean[] mRemoved;
+
+	/**
+	 * Tiempo real de cada paso en nanosegundos.
+	 */
+	private long[] mTimes;
+
+	/**
+	 * Número acumulado de instancias eliminadas tras cada paso.
+	 */
+	private long[] mRemovedCounts;
+
+	/**
+	 * Número de pasos del lote.
+	 */
+	private int mSize;
+
+	/**
+	 * Constructor de un lote vacío.
+	 *
+	 * @param firstStep Número de pasos realizados antes del primero del lote.
+	 * @param capacity Número máximo de pasos del lote.
+	 */
+	StepBatch (long firstStep, int capacity) {
+		mFirstStep = firstStep;
+		mInstanceIds = new int[capacity];
+		mRemoved = new boolean[capacity];
+		mTimes = new long[capacity];
+		mRemovedCounts = new long[capacity];
+	} // StepBatch
+
+	/**
+	 * Añade un paso al final del lote.
+	 *
+	 * @param instanceId Índice de la instancia en el conjunto original.
+	 * @param removed Verdadero si la instancia se elimina.
+	 * @param time Tiempo real del paso en nanosegundos.
+	 * @param removedCount Número acumulado de instancias eliminadas tras el paso.
+	 */
+	void add (int instanceId, boolean removed, long time, long removedCount) {
+		mInstanceIds[mSize] = instanceId;
+		mRemoved[mSize] = removed;
+		mTimes[mSize] = time;
+		mRemovedCounts[mSize] = removedCount;
+		mSize++;
+	} // add
+
+	/**
+	 * Indica si el lote no admite más pasos.
+	 *
+	 * @return Verdadero si el lote está lleno.
+	 */
+	boolean isFull () {
+
+		return mSize == mInstanceIds.length;
+	} // isFull
+
+	/**
+	 * Devuelve el número de pasos del lote.
+	 *
+	 * @return Número de pasos.
+	 */
+	public int size () {
+
+		return mSize;
+	} // size
+
+	/**
+	 * Devuelve el número de pasos realizados por el algoritmo antes del primero del lote.
+	 *
+	 * @return Número de pasos anteriores al lote.
+	 */
+	public long getFirstStep () {
+
+		return mFirstStep;
+	} // getFirstStep
+
+	/**
+	 * Devuelve el índice en el conjunto original de la instancia decidida en un paso.
+	 *
+	 * @param i Posición del paso en el lote.
+	 * @return Índice de la instancia.
+	 */
+	public int getInstanceId (int i) {
+
+		return mInstanceIds[i];
+	} // getInstanceId
+
+	/**
+	 * Indica si en un paso se decidió eliminar la instancia.
+	 *
+	 * @param i Posición del paso en el lote.
+	 * @return Verdadero si la instancia se elimina.
+	 */
+	public boolean isRemoved (int i) {
+
+		return mRemoved[i];
+	} // isRemoved
+
+	/**
+	 * Devuelve el tiempo real de un paso, transcurrido desde el paso anterior.
+	 *
+	 * @param i Posición del paso en el lote.
+	 * @return Tiempo del paso en nanosegundos.
+	 */
+	public long getTime (int i) {
+
+		return mTimes[i];
+	} // getTime
+
+	/**
+	 * Devuelve el número acumulado de instancias eliminadas tras un paso.
+	 *
+	 * @param i Posición del paso en el lote.
+	 * @return Instancias eliminadas hasta el paso, incluido.
+	 */
+	public long getRemovedCount (int i) {
+
+		return mRemovedCounts[i];
+	} // getRemovedCount
+
+	/**
+	 * Devuelve el tiempo real de todos los pasos del lote.
+	 *
+	 * @return Tiempo total en nanosegundos.
+	 */
+	public long getTotalTime () {
+		long time = 0;
+
+		for (int i = 0; i < mSize; i++)
+			time += mTimes[i];
+
+		return time;
+	} // getTotalTime
+
+} // StepBatch
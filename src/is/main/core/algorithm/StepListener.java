@@ -0,0 +1,52 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * StepListener.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.algorithm;
+
+/**
+ * <b>Descripción</b><br>
+ * Observador de los pasos de un algoritmo de selección de instancias.
+ * <p>
+ * <b>Detalles</b><br>
+ * El algoritmo no avisa en cada paso: acumula los pasos en lotes y entrega cada lote completo, y el último
+ * incompleto al terminar <code>allSteps</code>. El aviso se realiza en el hilo que ejecuta el algoritmo,
+ * por lo que el observador debe volver pronto.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite mostrar el progreso, aplicar límites de tiempo o medir el rendimiento de una ejecución sin
+ * consultar periódicamente el algoritmo.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public interface StepListener {
+
+	/**
+	 * Recibe un lote de pasos realizados por el algoritmo.
+	 *
+	 * @param algorithm Algoritmo que ha realizado los pasos.
+	 * @param steps Pasos realizados, en el orden en que se tomaron las decisiones. El lote no se vuelve a
+	 * modificar, por lo que se puede conservar.
+	 */
+	public void stepsPerformed (Algorithm algorithm, StepBatch steps);
+
+} // StepListener
@@ -24,7 +24,11 @@ import java.io.Serializable;
 import java.util.Vector;
 
 import main.core.algorithm.AlgorithmReg;
+import main.core.util.FlatEuclideanDistance;
 import main.core.util.InstanceIS;
+import main.core.util.NearestEnemySearch;
+import main.core.util.NeighbourGraph;
+import main.core.util.Permutation;
 
 import weka.core.DistanceFunction;
 import weka.core.EuclideanDistance;
@@ -89,6 +93,37 @@ public class SortByDistance  implements Serializable {
 	 */
 	private Vector<Integer> mOutputDatasetIndex;
 	
+	/**
+	 * Valor de clase de cada instancia del conjunto a ordenar.
+	 */
+	private double[] mTargets;
+	
+	/**
+	 * Umbral theta de cada instancia del conjunto a ordenar.
+	 */
+	private double[] mThetas;
+	
+	/**
+	 * Posiciones de las instancias del conjunto a ordenar por valor de clase de menor a mayor, con los
+	 * valores perdidos al final.
+	 */
+	private int[] mTargetOrder;
+	
+	/**
+	 * Valores de clase no perdidos ordenados de menor a mayor.
+	 */
+	private double[] mSortedTargets;
+	
+	/**
+	 * Matriz plana del conjunto a ordenar o null si no está disponible.
+	 */
+	private FlatEuclideanDistance mFlat;
+	
+	/**
+	 * Búsqueda indexada del enemigo más cercano sobre la matriz plana o null si no está disponible.
+	 */
+	private NearestEnemySearch mEnemySearch;
+	
 	/**
 	 * Constructor por defecto de la ordenación de instancias.
 	 * Por defecto utilizará la distancia euclídea para el cálculo de distancias y fabricará el 
@@ -193,10 +228,15 @@ public class SortByDistance  implements Serializable {
 	 * @throws Exception Excepción producida en el cálculo de distancias. 
 	 */
 	public void orderByNearestEnemy (boolean sortLowestToHighest) {
+		FlatEuclideanDistance flat = FlatEuclideanDistance.create(mToOrderSet, mDistanceFunction);
+		
 		// Recorrer cada instancia y calcular su distancia al enemigo más próximo.
 		for (int i = 0; i < mToOrderSet.numInstances(); i++)
-			mDistancesToNearEnemy[i] = getNearestEnemyDistance(mToOrderSet.instance(i),
-			                                                   mToOrderSet, mDistanceFunction);
+			if (flat != null)
+				mDistancesToNearEnemy[i] = getNearestEnemyDistance(i, mToOrderSet, flat);
+			else
+				mDistancesToNearEnemy[i] = getNearestEnemyDistance(mToOrderSet.instance(i),
+				                                                   mToOrderSet, mDistanceFunction);
 		
 		// Ordenar las instancias en función a la distancia de su enemigo más cercano.
 		mOrderedSet = getSortInstances(mToOrderSet, mDistancesToNearEnemy, sortLowestToHighest);
@@ -207,23 +247,173 @@ public class SortByDistance  implements Serializable {
 	 * La ordenación se realiza en función de la distancia al enemigo más próximo, el orden se establece por
 	 * parámetro.
 	 * 
-	 * @param neighbours Vecinos más cercanos de cada una de las instancias.
+	 * @param neighbours Grafo con los vecinos más cercanos de cada una de las instancias.
 	 * @param sortLowestToHighest Verdadero si se desea ordenar de menor a mayor, falso en caso
 	 * 		  contrario.
 	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
 	 * @throws Exception Excepción producida en el cálculo de distancias. 
 	 */
-	public void orderByNearestEnemyReg (Vector<Vector<Instance>> neighbours, boolean sortLowestToHighest, 
+	public void orderByNearestEnemyReg (NeighbourGraph neighbours, boolean sortLowestToHighest,
 	                                    double alpha) {
-		// Recorrer cada instancia y calcular su distancia al enemigo más próximo.
-		for (int i = 0; i < mToOrderSet.numInstances(); i++)
-			mDistancesToNearEnemy[i] = getNearestEnemyDistanceReg(neighbours, mToOrderSet.instance(i),
-			                                                      mToOrderSet, mDistanceFunction, 
-			                                                      alpha);
-		
+		// Calcular la distancia de cada instancia a su enemigo más próximo.
+		calcNearestEnemyDistancesReg(neighbours, alpha);
+
 		// Ordenar las instancias en función a la distancia de su enemigo más cercano.
 		mOrderedSet = getSortInstances(mToOrderSet, mDistancesToNearEnemy, sortLowestToHighest);
 	} // orderByNearestEnemy
+
+	/**
+	 * Calcula la distancia de cada instancia a su enemigo más cercano sin ordenar el conjunto.
+	 * Tras invocarlo <code>getDistancesToNearEnemy</code> devuelve las distancias en el orden del conjunto a
+	 * ordenar, de modo que a partir de ellas se puede calcular la permutación y aplicarla directamente.
+	 *
+	 * @param neighbours Grafo con los vecinos más cercanos de cada una de las instancias.
+	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
+	 */
+	public void calcNearestEnemyDistancesReg (NeighbourGraph neighbours, double alpha) {
+		prepareNearestEnemyReg(neighbours, alpha);
+		
+		calcNearestEnemyDistancesReg(0, mToOrderSet.numInstances());
+	} // calcNearestEnemyDistancesReg
+	
+	/**
+	 * Prepara el cálculo indexado de las distancias al enemigo más cercano.<br>
+	 * Calcula el umbral theta de cada instancia y ordena los valores de clase, de modo que los enemigos de
+	 * cada instancia (|y - y'| &gt; &theta;) forman dos rangos contiguos: los valores menores que
+	 * y - &theta; y los mayores que y + &theta;. Si las distancias se pueden calcular sobre la matriz plana
+	 * del conjunto se construye además un KD-tree que descarta las regiones sin enemigos o más lejanas que
+	 * el enemigo más cercano encontrado.
+	 *
+	 * @param neighbours Grafo con los vecinos más cercanos + 1 de cada instancia. No se tendrá en cuenta el
+	 *        último.
+	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
+	 */
+	public void prepareNearestEnemyReg (NeighbourGraph neighbours, double alpha) {
+		int n = mToOrderSet.numInstances(), numOfValid = 0;
+		double values[];
+		
+		mTargets = new double[n];
+		mThetas = new double[n];
+		
+		for (int i = 0; i < n; i++)
+			mTargets[i] = mToOrderSet.instance(i).classValue();
+		
+		for (int i = 0; i < n; i++) {
+			// Valores de la clase de los vecinos sin incluir el último, que es el vecino (k+1).
+			values = new double[Math.max(neighbours.numNeighbours(i) - 1, 0)];
+			
+			for (int j = 0; j < values.length; j++)
+				values[j] = mTargets[neighbours.getNeighbour(i, j)];
+			
+			// Calcular su theta.
+			if (values.length > 1 && !mToOrderSet.classAttribute().isNumeric())
+				mThetas[i] = 0.0;
+			else
+				mThetas[i] = AlgorithmReg.getTheta(values, values.length, alpha);
+		}
+		
+		// Ordenar los valores de clase dejando al final los perdidos, que nunca son enemigos.
+		mTargetOrder = Permutation.sort(mTargets, true);
+		
+		while (numOfValid < n && !Double.isNaN(mTargets[mTargetOrder[numOfValid]]))
+			numOfValid++;
+		
+		mSortedTargets = new double[numOfValid];
+		
+		for (int j = 0; j < numOfValid; j++)
+			mSortedTargets[j] = mTargets[mTargetOrder[j]];
+		
+		mFlat = FlatEuclideanDistance.create(mToOrderSet, mDistanceFunction);
+		mEnemySearch = mFlat != null ? new NearestEnemySearch(mFlat, mTargets) : null;
+	} // prepareNearestEnemyReg
+	
+	/**
+	 * Indica si tras <code>prepareNearestEnemyReg</code> se pueden calcular varios rangos de distancias al
+	 * enemigo más cercano en paralelo: solo las consultas sobre la matriz plana no modifican ningún estado.
+	 * 
+	 * @return Verdadero si <code>calcNearestEnemyDistancesReg(start, end)</code> se puede invocar desde
+	 *         varios hilos a la vez con rangos disjuntos.
+	 */
+	public boolean canRunInParallel () {
+		
+		return mEnemySearch != null;
+	} // canRunInParallel
+	
+	/**
+	 * Calcula la distancia al enemigo más cercano de las instancias del rango [start, end). Debe invocarse
+	 * tras <code>prepareNearestEnemyReg</code>.
+	 * 
+	 * @param start Primera instancia del rango.
+	 * @param end Instancia siguiente a la última del rango.
+	 */
+	public void calcNearestEnemyDistancesReg (int start, int end) {
+		for (int i = start; i < end; i++)
+			mDistancesToNearEnemy[i] = getIndexedNearestEnemyDistanceReg(i);
+	} // calcNearestEnemyDistancesReg
+	
+	/**
+	 * Devuelve la distancia al enemigo más cercano de la instancia que ocupa la posición dada a partir de
+	 * los datos calculados por <code>prepareNearestEnemyReg</code>. El resultado es idéntico al de recorrer
+	 * todo el conjunto.
+	 * 
+	 * @param pos Posición de la instancia a analizar.
+	 * @return Distancia al enemigo más próximo.
+	 */
+	private double getIndexedNearestEnemyDistanceReg (int pos) {
+		Instance target = mToOrderSet.instance(pos);
+		double value = mTargets[pos], theta = mThetas[pos], dis, disToNearEnemy = Double.MAX_VALUE;
+		int lower = 0, upper = mSortedTargets.length, left, middle;
+		
+		// Buscar el final de los enemigos de menor valor: y - y' > theta.
+		while (lower < upper) {
+			middle = (lower + upper) >>> 1;
+			
+			if (value - mSortedTargets[middle] > theta)
+				lower = middle + 1;
+			else
+				upper = middle;
+		}
+		
+		// Buscar el comienzo de los enemigos de mayor valor: y' - y > theta.
+		left = lower;
+		upper = mSortedTargets.length;
+		
+		while (left < upper) {
+			middle = (left + upper) >>> 1;
+			
+			if (mSortedTargets[middle] - value > theta)
+				upper = middle;
+			else
+				left = middle + 1;
+		}
+		
+		// Si no tiene enemigos no es necesario calcular ninguna distancia.
+		if (lower == 0 && upper == mSortedTargets.length)
+			return disToNearEnemy;
+		
+		if (mEnemySearch != null) {
+			dis = mEnemySearch.nearestEnemySquaredDistance(mFlat.pack(target), value, theta);
+			
+			return dis == Double.POSITIVE_INFINITY ? disToNearEnemy : Math.sqrt(dis);
+		}
+		
+		// Recorrer solo los dos rangos de enemigos.
+		for (int j = 0; j < lower; j++) {
+			dis = mDistanceFunction.distance(target, mToOrderSet.instance(mTargetOrder[j]));
+			
+			if (dis < disToNearEnemy)
+				disToNearEnemy = dis;
+		}
+		
+		for (int j = upper; j < mSortedTargets.length; j++) {
+			dis = mDistanceFunction.distance(target, mToOrderSet.instance(mTargetOrder[j]));
+			
+			if (dis < disToNearEnemy)
+				disToNearEnemy = dis;
+		}
+		
+		return disToNearEnemy;
+	} // getIndexedNearestEnemyDistanceReg
 	
 	/**
 	 * Ordena mediante Quicksort las instancias en función del vector que se le pasa por parámetro.
@@ -298,37 +488,117 @@ public class SortByDistance  implements Serializable {
 		return disToNearEnemy;
 	} // getNearestEnemyDistance
 	
+	/**
+	 * Devuelve la distancia al enemigo más cercano de la instancia que ocupa la posición dada, calculando
+	 * las distancias sobre la matriz plana del conjunto.
+	 * 
+	 * @param pos Posición de la instancia a analizar en setOfInstances.
+	 * @param setOfInstances Conjunto donde buscar la instancia.
+	 * @param flat Matriz plana de setOfInstances.
+	 * @return Distancia al enemigo más próximo.
+	 */
+	private double getNearestEnemyDistance (int pos, Instances setOfInstances, FlatEuclideanDistance flat) {
+		double query[] = flat.pack(setOfInstances.instance(pos)), classValue, dis;
+		double disToNearEnemy = Double.MAX_VALUE;
+		
+		classValue = setOfInstances.instance(pos).classValue();
+		
+		// Recorrer todas las instancias de setOfInstances.
+		for (int j = 0; j < setOfInstances.numInstances(); j++)
+			if (classValue != setOfInstances.instance(j).classValue()) {
+				dis = Math.sqrt(flat.squaredDistance(query, j, getSquaredCutOff(disToNearEnemy)));
+				
+				if (dis < disToNearEnemy)
+					disToNearEnemy = dis;
+			}
+		
+		return disToNearEnemy;
+	} // getNearestEnemyDistance
+	
+	/**
+	 * Devuelve la distancia al cuadrado a partir de la cual una instancia no puede estar más cerca que
+	 * la distancia dada. Se toma el siguiente valor representable del cuadrado para que el redondeo de la
+	 * raíz cuadrada no permita descartar una instancia que sí estaría más cerca.
+	 * 
+	 * @param distance Distancia al enemigo más próximo encontrado hasta el momento.
+	 * @return Distancia al cuadrado de corte.
+	 */
+	private static double getSquaredCutOff (double distance) {
+		
+		return Math.nextUp(distance * distance);
+	} // getSquaredCutOff
+	
 	/**
 	 * Devuelve la distancia al enemigo más cercano.
 	 * Recorre el conjunto de instancias que se le pasa y calcula con distanceFunction la instancia mas
 	 * próxima cuya clase sea distinta.
 	 * 
 	 * @param target Instancia de la cual se va a obtener la distancia al enemigo más próximo.
-	 * @param vNeighbours Vector de vectores de vecinos más cercanos + 1. No se tendrá en cuenta el último.
+	 * @param vNeighbours Grafo con los vecinos más cercanos + 1 de cada instancia de setOfInstances. No se
+	 *        tendrá en cuenta el último.
 	 * @param setOfInstances Conjunto donde buscar la instancia.
 	 * @param distanceFunction Función con la que se calculará las distancias.
 	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
 	 * @return Distancia al enemigo más próximo.
 	 */
-	public double getNearestEnemyDistanceReg (Vector<Vector<Instance>> vNeighbours, Instance target, 
+	public double getNearestEnemyDistanceReg (NeighbourGraph vNeighbours, Instance target, 
 	                                          Instances setOfInstances, DistanceFunction distanceFunction, 
 	                                          double alpha) {
-		Vector<Instance> neighbours;
-		Instance insTmp;
-		double theta, dis, disToNearEnemy = Double.MAX_VALUE;
-		int pos;
-
 		// Obtener la posición de la instancia a analizar.
-		pos = InstanceIS.getPosOfInstance(setOfInstances, target);
+		return getNearestEnemyDistanceReg(vNeighbours, InstanceIS.getPosOfInstance(setOfInstances, target),
+		                                  setOfInstances, distanceFunction, alpha);
+	} // getNearestEnemyDistanceReg
+	
+	/**
+	 * Devuelve la distancia al enemigo más cercano de la instancia que ocupa la posición dada.
+	 * Evita buscar la instancia en el conjunto cuando ya se conoce su posición.
+	 * 
+	 * @param vNeighbours Grafo con los vecinos más cercanos + 1 de cada instancia de setOfInstances. No se
+	 *        tendrá en cuenta el último.
+	 * @param pos Posición de la instancia a analizar en setOfInstances.
+	 * @param setOfInstances Conjunto donde buscar la instancia.
+	 * @param distanceFunction Función con la que se calculará las distancias.
+	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
+	 * @return Distancia al enemigo más próximo.
+	 */
+	public double getNearestEnemyDistanceReg (NeighbourGraph vNeighbours, int pos, 
+	                                          Instances setOfInstances, DistanceFunction distanceFunction, 
+	                                          double alpha) {
+		
+		return getNearestEnemyDistanceReg(vNeighbours, pos, setOfInstances, distanceFunction, null, alpha);
+	} // getNearestEnemyDistanceReg
+	
+	/**
+	 * Devuelve la distancia al enemigo más cercano de la instancia que ocupa la posición dada.
+	 * Si se dispone de la matriz plana del conjunto las distancias se calculan sobre ella.
+	 * 
+	 * @param vNeighbours Grafo con los vecinos más cercanos + 1 de cada instancia de setOfInstances. No se
+	 *        tendrá en cuenta el último.
+	 * @param pos Posición de la instancia a analizar en setOfInstances.
+	 * @param setOfInstances Conjunto donde buscar la instancia.
+	 * @param distanceFunction Función con la que se calculará las distancias.
+	 * @param flat Matriz plana de setOfInstances para distanceFunction o null si no está disponible.
+	 * @param alpha Multiplicador del radio de la soft-class calculada como \alpha · std(Y(nn)).
+	 * @return Distancia al enemigo más próximo.
+	 */
+	private double getNearestEnemyDistanceReg (NeighbourGraph vNeighbours, int pos, 
+	                                           Instances setOfInstances, DistanceFunction distanceFunction, 
+	                                           FlatEuclideanDistance flat, double alpha) {
+		Instance target = setOfInstances.instance(pos), insTmp;
+		double theta, dis, disToNearEnemy = Double.MAX_VALUE, query[], values[];
 		
-		// Copiar la lista de vecinos sin incluir la última que es el vecino (k+1).
-		neighbours = new Vector<Instance>(vNeighbours.elementAt(pos).size() - 1);
+		// Valores de la clase de los vecinos sin incluir el último, que es el vecino (k+1).
+		values = new double[Math.max(vNeighbours.numNeighbours(pos) - 1, 0)];
 
-		for (int i = 0; i < vNeighbours.elementAt(pos).size() - 1; i++)
-			neighbours.add(vNeighbours.elementAt(pos).get(i));
+		for (int i = 0; i < values.length; i++)
+			values[i] = setOfInstances.instance(vNeighbours.getNeighbour(pos, i)).classValue();
 
 		// Calcular su theta.
-		theta = AlgorithmReg.getTheta(neighbours, alpha, target.classIndex());
+		if (values.length > 1 && !target.classAttribute().isNumeric())
+			theta = 0.0;
+		else
+			theta = AlgorithmReg.getTheta(values, values.length, alpha);
+		query = flat != null ? flat.pack(target) : null;
 
 		// Recorrer todas las instancias de setOfInstances.
 		for (int j = 0; j < setOfInstances.numInstances(); j++) {
@@ -337,7 +607,10 @@ public class SortByDistance  implements Serializable {
 			// Si la instancia consultada es de otra "clase" calcular la distancia.
 			if (Math.abs(target.classValue() - insTmp.classValue()) > theta) {
 				// Calcular la distancia entre target e insTmp.
-				dis = distanceFunction.distance(target, insTmp);
+				if (query != null)
+					dis = Math.sqrt(flat.squaredDistance(query, j, getSquaredCutOff(disToNearEnemy)));
+				else
+					dis = distanceFunction.distance(target, insTmp);
 			
 				// Si la distancia calculada es menor que la distancia almacenada actualizar la 
 				// distancia a su enemigo. 
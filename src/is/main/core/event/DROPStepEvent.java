@@ -0,0 +1,81 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * DROPStepEvent.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <b>Descripción</b><br>
+ * Evento de Java Flight Recorder de un paso de eliminación de DROP.
+ * <p>
+ * <b>Detalles</b><br>
+ * Se emite al decidir si la instancia actual se elimina. Su duración es la de la decisión, incluida la
+ * evaluación de la ventana especulativa si la decisión la provoca.<br>
+ * Está desactivado por defecto; se activa en la configuración de la grabación con
+ * <code>&lt;event name="main.core.DROPStep"&gt;&lt;setting name="enabled"&gt;true&lt;/setting&gt;&lt;/event&gt;</code>.
+ * Desactivado, su coste es el de crear un objeto que el compilador elimina.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite ver en las grabaciones de JFR las decisiones de DROP y su coste.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+@Name("main.core.DROPStep")
+@Label("DROP Step")
+@Category({"Instance Selection", "DROP"})
+@Description("Decision on whether the current instance is removed")
+@Enabled(false)
+@StackTrace(false)
+public class DROPStepEvent extends jdk.jfr.Event {
+
+	/**
+	 * Algoritmo que toma la decisión.
+	 */
+	@Label("Algorithm")
+	public String algorithm;
+
+	/**
+	 * Índice de la instancia en el conjunto original.
+	 */
+	@Label("Instance ID")
+	public int instanceId;
+
+	/**
+	 * Número de asociados de la instancia.
+	 */
+	@Label("Associates")
+	public int associates;
+
+	/**
+	 * Verdadero si la instancia se elimina.
+	 */
+	@Label("Removed")
+	public boolean removed;
+
+} // DROPStepEvent
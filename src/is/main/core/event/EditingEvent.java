@@ -0,0 +1,73 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * EditingEvent.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <b>Descripción</b><br>
+ * Evento de Java Flight Recorder de la decisión de RegENN sobre una instancia.
+ * <p>
+ * <b>Detalles</b><br>
+ * Se emite en cada paso de RegENN, tanto cuando se ejecuta solo como cuando filtra el conjunto de
+ * entrenamiento de DROP3. Su duración es la del paso.<br>
+ * Está desactivado por defecto; se activa con el nombre <code>main.core.Editing</code>.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite ver en las grabaciones de JFR las decisiones del filtrado de ruido y su coste.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+@Name("main.core.Editing")
+@Label("RegENN Editing")
+@Category({"Instance Selection", "RegENN"})
+@Description("Decision of RegENN on whether an instance is noise")
+@Enabled(false)
+@StackTrace(false)
+public class EditingEvent extends jdk.jfr.Event {
+
+	/**
+	 * Índice de la instancia en el conjunto original.
+	 */
+	@Label("Instance ID")
+	public int instanceId;
+
+	/**
+	 * Verdadero si la decisión se ha tomado por lotes (edición de Wilson).
+	 */
+	@Label("Batch")
+	public boolean batch;
+
+	/**
+	 * Verdadero si la instancia se elimina.
+	 */
+	@Label("Removed")
+	public boolean removed;
+
+} // EditingEvent
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * KNNQueryEvent.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <b>Descripción</b><br>
+ * Evento de Java Flight Recorder de una búsqueda de vecinos cercanos.
+ * <p>
+ * <b>Detalles</b><br>
+ * Se emite en cada búsqueda de los k vecinos más cercanos de la búsqueda lineal y del KD-tree.
+ * Su duración es la de la búsqueda.<br>
+ * Está desactivado por defecto; se activa con el nombre <code>main.core.KNNQuery</code>. Al ser el evento
+ * más frecuente conviene activarlo con un umbral de duración.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite ver en las grabaciones de JFR el coste de las búsquedas de vecinos.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+@Name("main.core.KNNQuery")
+@Label("kNN Query")
+@Category({"Instance Selection", "Nearest Neighbours"})
+@Description("Search of the k nearest neighbours of an instance")
+@Enabled(false)
+@StackTrace(false)
+public class KNNQueryEvent extends jdk.jfr.Event {
+
+	/**
+	 * Algoritmo de búsqueda.
+	 */
+	@Label("Search")
+	public String search;
+
+	/**
+	 * Número de vecinos pedidos.
+	 */
+	@Label("K")
+	public int k;
+
+	/**
+	 * Número de vecinos devueltos, que incluye los empates con el k-ésimo.
+	 */
+	@Label("Neighbours")
+	public int neighbours;
+
+	/**
+	 * Número de distancias calculadas.
+	 */
+	@Label("Distances")
+	public long distances;
+
+} // KNNQueryEvent
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * NeighbourRepairEvent.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <b>Descripción</b><br>
+ * Evento de Java Flight Recorder de la reparación de vecinos tras eliminar una instancia en DROP.
+ * <p>
+ * <b>Detalles</b><br>
+ * Se emite al eliminar una instancia, cuando se ha buscado un nuevo vecino para cada uno de sus asociados.
+ * Su duración es la de la eliminación completa.<br>
+ * Está desactivado por defecto; se activa con el nombre <code>main.core.NeighbourRepair</code>.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite ver en las grabaciones de JFR el coste de mantener el grafo de vecinos.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.1
+ */
+@Name("main.core.NeighbourRepair")
+@Label("Neighbour Repair")
+@Category({"Instance Selection", "DROP"})
+@Description("Repair of the neighbour lists of the associates of a removed instance")
+@Enabled(false)
+@StackTrace(false)
+public class NeighbourRepairEvent extends jdk.jfr.Event {
+
+	/**
+	 * Índice de la instancia eliminada en el conjunto original.
+	 */
+	@Label("Instance ID")
+	public int instanceId;
+
+	/**
+	 * Número de asociados de la instancia eliminada.
+	 */
+	@Label("Associates")
+	public int associates;
+
+	/**
+	 * Número de asociados cuyo nuevo vecino se ha tomado de su lista de candidatos.
+	 */
+	@Label("Buffer Repairs")
+	public int bufferRepairs;
+
+	/**
+	 * Número de asociados cuyo nuevo vecino ha necesitado una búsqueda de vecinos cercanos.
+	 */
+	@Label("Query Repairs")
+	public int queryRepairs;
+
+} // NeighbourRepairEvent
@@ -0,0 +1,912 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * ENNRegEvaluator.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import main.core.algorithm.AlgorithmReg;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Evaluación de la regla de edición de RegENN de cada instancia a partir de un grafo de vecinos calculado
+ * una sola vez.
+ * <p>
+ * <b>Detalles</b><br>
+ * RegENN evalúa cada instancia frente al conjunto solución sin ella: &Theta; se calcula con sus k vecinos
+ * más cercanos según la distancia euclídea sin normalizar (<code>LinearISNNSearch</code>, que ignora las
+ * instancias iguales a ella) y la predicción es la de un <code>IBk</code> de k vecinos, cuya distancia se
+ * normaliza con los rangos del conjunto solución.<br>
+ * Como el conjunto solución solo pierde instancias, se guardan para cada instancia, ordenados por distancia,
+ * sus vecinos más cercanos en el conjunto inicial con ambas distancias, incluidos los empatados con el
+ * último. Los k vecinos en el conjunto actual son los primeros vecinos vivos de la lista; si no hay
+ * suficientes se vuelven a buscar entre las instancias vivas.<br>
+ * Al eliminar instancias los rangos del conjunto solución solo pueden reducirse, por lo que la distancia
+ * de IBk entre dos instancias vivas no es menor que la normalizada con los rangos iniciales. Si los rangos
+ * han cambiado, se calculan con los rangos actuales las distancias a los vecinos vivos de la lista y, si la
+ * del k-ésimo queda por debajo de la de la instancia más cercana fuera de la lista, ninguna de estas puede
+ * estar más cerca; solo en otro caso se vuelve a buscar entre las instancias vivas. Los rangos se mantienen
+ * con las instancias ordenadas por el valor de cada atributo, avanzando hasta la siguiente instancia viva
+ * cuando se elimina un extremo.<br>
+ * &Theta; se calcula con los mismos valores y en el mismo orden que RegENN; si vecinos empatados en
+ * distancia tienen distinto valor de clase su orden no está determinado y se utiliza una cota de &Theta;
+ * válida para cualquier orden. La predicción es la media de los vecinos, pero IBk los suma en el orden de
+ * su montículo, por lo que si el error queda tan cerca de &Theta; que ese orden podría cambiar la decisión
+ * la evaluación no decide y el llamante debe recurrir a IBk. Si todos los vecinos tienen el mismo valor de
+ * clase el orden no influye y la predicción es exactamente la de IBk.<br>
+ * Solo es aplicable si la clase y todos los atributos son numéricos, no hay valores perdidos ni infinitos
+ * y todas las instancias tienen peso 1; en otro caso <code>create</code> devuelve null. La evaluación
+ * utiliza matrices auxiliares propias, por lo que cada hilo debe utilizar su propia copia
+ * (<code>copy</code>) y no se deben eliminar instancias mientras se evalúa en paralelo.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Evaluación rápida de RegENN.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.1
+ */
+public class ENNRegEvaluator implements Serializable, Cloneable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = -2650411753908425873L;
+
+	/**
+	 * Unidad de redondeo de la aritmética en doble precisión.
+	 */
+	private static final double UNIT_ROUNDOFF = 0x1.0p-53;
+
+	/**
+	 * Número de vecinos cercanos.
+	 */
+	private int mNumOfNearestNeighbour;
+
+	/**
+	 * Número de vecinos que se guardan de cada instancia, sin contar los empatados con el último.
+	 */
+	private int mListSize;
+
+	/**
+	 * Número de instancias.
+	 */
+	private int mNumInstances;
+
+	/**
+	 * Número de atributos de cada fila.
+	 */
+	private int mNumAttributes;
+
+	/**
+	 * Valores de los atributos (sin la clase) de todas las instancias, fila tras fila.
+	 */
+	private double[] mData;
+
+	/**
+	 * Valores de los atributos normalizados con los rangos del conjunto inicial, fila tras fila.
+	 */
+	private double[] mNormalizedData;
+
+	/**
+	 * Valor de la clase de cada instancia.
+	 */
+	private double[] mClassValues;
+
+	/**
+	 * Mínimo de cada atributo en el conjunto inicial.
+	 */
+	private double[] mInitialMin;
+
+	/**
+	 * Máximo de cada atributo en el conjunto inicial.
+	 */
+	private double[] mInitialMax;
+
+	/**
+	 * Mínimo de cada atributo en el conjunto actual.
+	 */
+	private double[] mMin;
+
+	/**
+	 * Máximo de cada atributo en el conjunto actual.
+	 */
+	private double[] mMax;
+
+	/**
+	 * Indica si los rangos del conjunto actual son distintos de los del conjunto inicial.
+	 */
+	private boolean mRangesChanged;
+
+	/**
+	 * Identificadores de las instancias ordenados por el valor de cada atributo, de menor a mayor.
+	 */
+	private int[][] mSortedByValue;
+
+	/**
+	 * Posición en <code>mSortedByValue</code> de la primera instancia viva de cada atributo: la de menor
+	 * valor.
+	 */
+	private int[] mMinPos;
+
+	/**
+	 * Posición en <code>mSortedByValue</code> de la última instancia viva de cada atributo: la de mayor
+	 * valor.
+	 */
+	private int[] mMaxPos;
+
+	/**
+	 * Cota del error de redondeo de una distancia normalizada al cuadrado entre instancias cuyos valores
+	 * normalizados están en [0, 1].
+	 */
+	private double mDistanceTolerance;
+
+	/**
+	 * Indica, para cada instancia, si sigue en el conjunto actual.
+	 */
+	private boolean[] mAlive;
+
+	/**
+	 * Número de instancias del conjunto actual.
+	 */
+	private int mNumOfAlive;
+
+	/**
+	 * Vecinos de cada instancia según la distancia sin normalizar, de menor a mayor distancia.
+	 */
+	private int[][] mRawNeighbours;
+
+	/**
+	 * Distancias al cuadrado sin normalizar de cada instancia a sus vecinos.
+	 */
+	private double[][] mRawDistances;
+
+	/**
+	 * Indica, para cada instancia, si su lista de vecinos sin normalizar contiene todas las instancias.
+	 */
+	private boolean[] mRawComplete;
+
+	/**
+	 * Vecinos de cada instancia según la distancia normalizada con los rangos iniciales.
+	 */
+	private int[][] mNormalizedNeighbours;
+
+	/**
+	 * Distancias al cuadrado normalizadas de cada instancia a sus vecinos.
+	 */
+	private double[][] mNormalizedDistances;
+
+	/**
+	 * Indica, para cada instancia, si su lista de vecinos normalizada contiene todas las instancias.
+	 */
+	private boolean[] mNormalizedComplete;
+
+	/**
+	 * Distancia al cuadrado normalizada de cada instancia a la instancia más cercana que no está en su
+	 * lista de vecinos, infinito si la lista contiene todas las instancias.
+	 */
+	private double[] mNormalizedNextDistances;
+
+	/**
+	 * Distancias de la instancia evaluada a todas las instancias, para las búsquedas entre las vivas.
+	 */
+	private double[] mScratch;
+
+	/**
+	 * Valores de la clase de los vecinos con los que se calcula &Theta;.
+	 */
+	private double[] mValues;
+
+	/**
+	 * Vecinos de IBk seleccionados con los rangos del conjunto actual.
+	 */
+	private int[] mSelected;
+
+	/**
+	 * Distancias con los rangos del conjunto actual a los vecinos de <code>mSelected</code>.
+	 */
+	private double[] mDistances;
+
+	/**
+	 * Extremo inferior del intervalo de &Theta; cuando el orden de sus valores no está determinado.
+	 */
+	private double mThetaLow;
+
+	/**
+	 * Extremo superior del intervalo de &Theta; cuando el orden de sus valores no está determinado.
+	 */
+	private double mThetaHigh;
+
+	/**
+	 * Constructor privado, los evaluadores se crean mediante <code>create</code>.
+	 *
+	 * @param set Conjunto inicial, en el orden de los identificadores.
+	 * @param attributes Índices de los atributos que intervienen en la distancia.
+	 * @param numAttributes Número de atributos que intervienen en la distancia.
+	 * @param numOfNearestNeighbour Número de vecinos cercanos.
+	 * @param listSize Número de vecinos a guardar de cada instancia.
+	 */
+	private ENNRegEvaluator (Instances set, int[] attributes, int numAttributes, int numOfNearestNeighbour,
+	                         int listSize) {
+		double width, value, column[] = new double[set.numInstances()];
+
+		mNumOfNearestNeighbour = numOfNearestNeighbour;
+		mListSize = listSize;
+		mNumInstances = set.numInstances();
+		mNumAttributes = numAttributes;
+		mData = new double[mNumInstances * numAttributes];
+		mNormalizedData = new double[mNumInstances * numAttributes];
+		mClassValues = new double[mNumInstances];
+		mInitialMin = new double[numAttributes];
+		mInitialMax = new double[numAttributes];
+		mAlive = new boolean[mNumInstances];
+		mNumOfAlive = mNumInstances;
+
+		for (int i = 0; i < mNumInstances; i++) {
+			for (int j = 0; j < numAttributes; j++)
+				mData[i * numAttributes + j] = set.instance(i).value(attributes[j]);
+
+			mClassValues[i] = set.instance(i).classValue();
+			mAlive[i] = true;
+		}
+
+		for (int j = 0; j < numAttributes; j++)
+			calcRange(j, mInitialMin, mInitialMax);
+
+		mMin = mInitialMin.clone();
+		mMax = mInitialMax.clone();
+
+		// Instancias ordenadas por el valor de cada atributo para actualizar los rangos al eliminarlas.
+		mSortedByValue = new int[numAttributes][];
+		mMinPos = new int[numAttributes];
+		mMaxPos = new int[numAttributes];
+
+		for (int j = 0; j < numAttributes; j++) {
+			for (int i = 0; i < mNumInstances; i++)
+				column[i] = mData[i * numAttributes + j];
+
+			mSortedByValue[j] = Permutation.sort(column, true);
+			mMaxPos[j] = mNumInstances - 1;
+		}
+
+		// Cada diferencia normalizada al cuadrado se redondea en menos de 12u y la suma de los cuadrados,
+		// que no pasa del número de atributos, en menos de numAttributes·u por término.
+		mDistanceTolerance = (16.0 + numAttributes) * numAttributes * UNIT_ROUNDOFF;
+
+		// Normalizar como NormalizableDistance.norm.
+		for (int i = 0; i < mNumInstances; i++)
+			for (int j = 0; j < numAttributes; j++) {
+				width = mInitialMax[j] - mInitialMin[j];
+
+				if (mInitialMax[j] == mInitialMin[j])
+					value = 0;
+				else
+					value = (mData[i * numAttributes + j] - mInitialMin[j]) / width;
+
+				mNormalizedData[i * numAttributes + j] = value;
+			}
+
+		mRawNeighbours = new int[mNumInstances][];
+		mRawDistances = new double[mNumInstances][];
+		mRawComplete = new boolean[mNumInstances];
+		mNormalizedNeighbours = new int[mNumInstances][];
+		mNormalizedDistances = new double[mNumInstances][];
+		mNormalizedComplete = new boolean[mNumInstances];
+		mNormalizedNextDistances = new double[mNumInstances];
+		mScratch = new double[mNumInstances];
+		mValues = new double[mNumInstances];
+		mSelected = new int[mNumInstances];
+		mDistances = new double[mNumInstances];
+	} // ENNRegEvaluator
+
+	/**
+	 * Crea el evaluador de un conjunto de instancias. Las listas de vecinos se calculan después mediante
+	 * <code>calcNeighbours</code>.
+	 *
+	 * @param set Conjunto inicial, en el orden de los identificadores.
+	 * @param numOfNearestNeighbour Número de vecinos cercanos.
+	 * @param numOfExtraNeighbours Número de vecinos adicionales a guardar de cada instancia.
+	 * @return Evaluador del conjunto o null si los datos no lo permiten.
+	 */
+	public static ENNRegEvaluator create (Instances set, int numOfNearestNeighbour, int numOfExtraNeighbours) {
+		int attributes[] = new int[set.numAttributes()], n = 0;
+		Instance inst;
+
+		if (set.classIndex() < 0 || !set.classAttribute().isNumeric())
+			return null;
+
+		for (int i = 0; i < set.numAttributes(); i++)
+			if (i != set.classIndex()) {
+				if (set.attribute(i).type() != Attribute.NUMERIC)
+					return null;
+
+				attributes[n++] = i;
+			}
+
+		for (int i = 0; i < set.numInstances(); i++) {
+			inst = set.instance(i);
+
+			if (inst.weight() != 1 || inst.hasMissingValue() || Double.isInfinite(inst.classValue()))
+				return null;
+
+			for (int j = 0; j < n; j++)
+				if (Double.isInfinite(inst.value(attributes[j])))
+					return null;
+		}
+
+		return new ENNRegEvaluator(set, attributes, n, numOfNearestNeighbour,
+		                           numOfNearestNeighbour + numOfExtraNeighbours);
+	} // create
+
+	/**
+	 * Devuelve una copia del evaluador que comparte los datos, las listas de vecinos y el conjunto actual
+	 * pero no las matrices auxiliares, para evaluar desde otro hilo.
+	 *
+	 * @return Copia del evaluador.
+	 */
+	public ENNRegEvaluator copy () {
+		ENNRegEvaluator copy;
+
+		try {
+			copy = (ENNRegEvaluator)clone();
+		} catch (CloneNotSupportedException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		copy.mScratch = new double[mNumInstances];
+		copy.mValues = new double[mNumInstances];
+		copy.mSelected = new int[mNumInstances];
+		copy.mDistances = new double[mNumInstances];
+
+		return copy;
+	} // copy
+
+	/**
+	 * Devuelve el número de instancias del conjunto inicial.
+	 *
+	 * @return Número de instancias.
+	 */
+	public int numInstances () {
+
+		return mNumInstances;
+	} // numInstances
+
+	/**
+	 * Calcula las listas de vecinos en el conjunto inicial de las instancias [start, end). Cada bloque
+	 * utiliza sus propias matrices auxiliares, por lo que se pueden calcular bloques distintos en paralelo.
+	 *
+	 * @param start Primera instancia.
+	 * @param end Instancia siguiente a la última.
+	 */
+	public void calcNeighbours (int start, int end) {
+		double distances[] = new double[mNumInstances];
+		int[] list;
+
+		for (int id = start; id < end; id++) {
+			// Vecinos sin normalizar, sin las instancias iguales a la evaluada.
+			for (int i = 0; i < mNumInstances; i++)
+				if (i == id || isEqual(id, i))
+					distances[i] = Double.NaN;
+				else
+					distances[i] = squaredDistance(mData, id, i);
+
+			list = select(distances, mListSize);
+			mRawNeighbours[id] = list;
+			mRawDistances[id] = getDistances(list, distances);
+			mRawComplete[id] = list.length == countCandidates(distances);
+
+			// Vecinos normalizados, con las instancias iguales a la evaluada.
+			for (int i = 0; i < mNumInstances; i++)
+				if (i == id)
+					distances[i] = Double.NaN;
+				else
+					distances[i] = squaredDistance(mNormalizedData, id, i);
+
+			list = select(distances, mListSize);
+			mNormalizedNeighbours[id] = list;
+			mNormalizedDistances[id] = getDistances(list, distances);
+			mNormalizedComplete[id] = list.length == mNumInstances - 1;
+			mNormalizedNextDistances[id] = list.length == 0 ? Double.POSITIVE_INFINITY :
+			                               nextDistance(distances, distances[list[list.length - 1]]);
+		}
+	} // calcNeighbours
+
+	/**
+	 * Evalúa la regla de RegENN para una instancia frente al conjunto actual sin ella.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param alpha Valor de alfa con el que se calcula &Theta;.
+	 * @return 1 si se clasifica incorrectamente (debe eliminarse), -1 si se clasifica correctamente y 0 si
+	 *         solo IBk puede decidirlo.
+	 */
+	public int evaluate (int id, double alpha) {
+		int neighbours[], count;
+		double distances[], thetaLow, thetaHigh, sum = 0, sumOfAbsValues = 0, prediction, error, bound;
+		double firstValue = 0;
+		boolean ambiguous = false, sameValues = true;
+
+		// Casos límite que se dejan a RegENN: conjunto sin más instancias o con menos que k vecinos.
+		if (mNumOfAlive - (mAlive[id] ? 1 : 0) <= mNumOfNearestNeighbour)
+			return 0;
+
+		// Vecinos para el cálculo de theta.
+		neighbours = mRawNeighbours[id];
+		distances = mRawDistances[id];
+		count = collectAlive(neighbours, distances, mRawComplete[id]);
+
+		if (count < 0) {
+			for (int i = 0; i < mNumInstances; i++)
+				if (!mAlive[i] || i == id || isEqual(id, i))
+					mScratch[i] = Double.NaN;
+				else
+					mScratch[i] = squaredDistance(mData, id, i);
+
+			neighbours = select(mScratch, mNumOfNearestNeighbour);
+			distances = getDistances(neighbours, mScratch);
+			count = collectAlive(neighbours, distances, true);
+		}
+
+		if (count == 0)
+			return 0;
+
+		// RegENN suma los valores en el orden de las distancias: si dos vecinos empatados tienen distinto
+		// valor de clase su orden no está determinado.
+		for (int i = 0, c = 0; c < count; i++)
+			if (mAlive[neighbours[i]]) {
+				mValues[c] = mClassValues[neighbours[i]];
+
+				if (c > 0 && distances[i] == distances[previousAlive(neighbours, i)] &&
+				    mValues[c] != mValues[c - 1])
+					ambiguous = true;
+
+				c++;
+			}
+
+		thetaLow = AlgorithmReg.getTheta(mValues, count, alpha);
+		thetaHigh = thetaLow;
+
+		if (ambiguous) {
+			setThetaInterval(count, alpha);
+			thetaLow = mThetaLow;
+			thetaHigh = mThetaHigh;
+		}
+
+		// Vecinos de IBk.
+		if (!mRangesChanged) {
+			neighbours = mNormalizedNeighbours[id];
+			distances = mNormalizedDistances[id];
+			count = collectAlive(neighbours, distances, mNormalizedComplete[id]);
+		} else {
+			neighbours = mSelected;
+			count = collectRescaled(id);
+		}
+
+		if (count < 0) {
+			for (int i = 0; i < mNumInstances; i++)
+				if (!mAlive[i] || i == id)
+					mScratch[i] = Double.NaN;
+				else
+					mScratch[i] = normalizedDistance(id, i);
+
+			neighbours = select(mScratch, mNumOfNearestNeighbour);
+			distances = getDistances(neighbours, mScratch);
+			count = collectAlive(neighbours, distances, true);
+		}
+
+		for (int i = 0, c = 0; c < count; i++)
+			if (mAlive[neighbours[i]]) {
+				if (c == 0)
+					firstValue = mClassValues[neighbours[i]];
+				else if (mClassValues[neighbours[i]] != firstValue)
+					sameValues = false;
+
+				sum += mClassValues[neighbours[i]];
+				sumOfAbsValues += Math.abs(mClassValues[neighbours[i]]);
+				c++;
+			}
+
+		prediction = sum / count;
+		error = Math.abs(prediction - mClassValues[id]);
+
+		// Con todos los valores iguales la suma es la misma en cualquier orden.
+		if (sameValues)
+			bound = 0;
+		else
+			bound = AlgorithmReg.getPredictionErrorBound(sumOfAbsValues, count, prediction, mClassValues[id]);
+
+		if (error - thetaHigh > bound)
+			return 1;
+
+		if (thetaLow - error > bound)
+			return -1;
+
+		// Sin cotas el error y &Theta; son exactamente los de RegENN, que solo elimina si el error es mayor.
+		if (bound == 0 && !ambiguous)
+			return -1;
+
+		return 0;
+	} // evaluate
+
+	/**
+	 * Calcula el intervalo en el que está &Theta; sumando los valores de <code>mValues</code> en cualquier
+	 * orden, y lo deja en <code>mThetaLow</code> y <code>mThetaHigh</code>.<br>
+	 * Cambiar el orden de las sumas modifica la media como mucho en &delta; = 4u(&Sigma;|y| + |media|), y
+	 * con ella la suma de los cuadrados de las desviaciones como mucho en
+	 * E = 2n&delta;M + 10n<sup>2</sup>uM<sup>2</sup>, con M = max|y| + |media| + &delta;.
+	 *
+	 * @param count Número de valores, al menos 2.
+	 * @param alpha Valor de alfa.
+	 */
+	private void setThetaInterval (int count, double alpha) {
+		double mean = 0, sigma = 0, sumOfAbsValues = 0, maxAbsValue = 0, delta, max, error;
+
+		// Las mismas operaciones que AlgorithmReg.getStandardDeviation.
+		for (int i = 0; i < count; i++) {
+			mean += mValues[i];
+			sumOfAbsValues += Math.abs(mValues[i]);
+			maxAbsValue = Math.max(maxAbsValue, Math.abs(mValues[i]));
+		}
+
+		mean /= count;
+
+		for (int i = 0; i < count; i++)
+			sigma += Math.pow(mValues[i] - mean, 2);
+
+		delta = 4 * UNIT_ROUNDOFF * (sumOfAbsValues + Math.abs(mean));
+		max = maxAbsValue + Math.abs(mean) + delta;
+		error = 2 * count * delta * max + 10.0 * count * count * UNIT_ROUNDOFF * max * max;
+
+		mThetaLow = Math.sqrt(Math.max(sigma - error, 0) / (count - 1)) * alpha * (1 - 8 * UNIT_ROUNDOFF);
+		mThetaHigh = Math.sqrt((sigma + error) / (count - 1)) * alpha * (1 + 8 * UNIT_ROUNDOFF) +
+		             Double.MIN_VALUE;
+	} // setThetaInterval
+
+	/**
+	 * Elimina una instancia del conjunto actual y actualiza sus rangos. Cada posición de las instancias
+	 * ordenadas por atributo se recorre como mucho una vez en todas las eliminaciones.
+	 *
+	 * @param id Identificador de la instancia eliminada.
+	 */
+	public void remove (int id) {
+		int[] sorted;
+		double value;
+
+		if (!mAlive[id])
+			return;
+
+		mAlive[id] = false;
+		mNumOfAlive--;
+
+		for (int j = 0; j < mNumAttributes; j++) {
+			value = mData[id * mNumAttributes + j];
+
+			// Solo cambia el rango si la instancia era un extremo: se avanza hasta la siguiente instancia
+			// viva por cada lado.
+			if (value == mMin[j] || value == mMax[j]) {
+				sorted = mSortedByValue[j];
+
+				while (mMinPos[j] <= mMaxPos[j] && !mAlive[sorted[mMinPos[j]]])
+					mMinPos[j]++;
+
+				while (mMaxPos[j] >= mMinPos[j] && !mAlive[sorted[mMaxPos[j]]])
+					mMaxPos[j]--;
+
+				if (mMinPos[j] > mMaxPos[j]) {
+					mMin[j] = Double.POSITIVE_INFINITY;
+					mMax[j] = Double.NEGATIVE_INFINITY;
+				} else {
+					mMin[j] = mData[sorted[mMinPos[j]] * mNumAttributes + j];
+					mMax[j] = mData[sorted[mMaxPos[j]] * mNumAttributes + j];
+				}
+
+				if (mMin[j] != mInitialMin[j] || mMax[j] != mInitialMax[j])
+					mRangesChanged = true;
+			}
+		}
+	} // remove
+
+	/**
+	 * Selecciona los vecinos de IBk de una instancia con los rangos del conjunto actual a partir de su lista
+	 * de vecinos normalizada con los rangos iniciales, y los deja en <code>mSelected</code>.<br>
+	 * Los rangos actuales no son mayores que los iniciales, por lo que ninguna instancia viva fuera de la
+	 * lista está a menos distancia que la más cercana de ellas con los rangos iniciales. Si la distancia del
+	 * k-ésimo vecino vivo con los rangos actuales es menor que esa, con el margen de los redondeos de ambas
+	 * distancias, los vecinos de IBk y los empatados con el k-ésimo están en la lista.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @return Número de vecinos o -1 si la lista no basta para determinarlos.
+	 */
+	private int collectRescaled (int id) {
+		int neighbours[] = mNormalizedNeighbours[id], numOfCandidates = 0, count = 0;
+		double kthDistance;
+
+		for (int i = 0; i < neighbours.length; i++)
+			if (mAlive[neighbours[i]]) {
+				mSelected[numOfCandidates] = neighbours[i];
+				mDistances[numOfCandidates] = normalizedDistance(id, neighbours[i]);
+				numOfCandidates++;
+			}
+
+		if (numOfCandidates < mNumOfNearestNeighbour)
+			return mNormalizedComplete[id] ? numOfCandidates : -1;
+
+		System.arraycopy(mDistances, 0, mScratch, 0, numOfCandidates);
+		Arrays.sort(mScratch, 0, numOfCandidates);
+		kthDistance = mScratch[mNumOfNearestNeighbour - 1];
+
+		if (kthDistance >= mNormalizedNextDistances[id] - 2 * mDistanceTolerance)
+			return -1;
+
+		// Los k primeros y los empatados con el k-ésimo.
+		for (int i = 0; i < numOfCandidates; i++)
+			if (mDistances[i] <= kthDistance)
+				mSelected[count++] = mSelected[i];
+
+		return count;
+	} // collectRescaled
+
+	/**
+	 * Cuenta los vecinos vivos de una lista: los k primeros y los empatados con el k-ésimo.
+	 *
+	 * @param neighbours Lista de vecinos, de menor a mayor distancia.
+	 * @param distances Distancias a los vecinos.
+	 * @param complete Verdadero si la lista contiene todas las instancias candidatas.
+	 * @return Número de vecinos vivos o -1 si la lista no basta para determinarlos.
+	 */
+	private int collectAlive (int[] neighbours, double[] distances, boolean complete) {
+		int count = 0;
+		double kthDistance = 0;
+
+		for (int i = 0; i < neighbours.length; i++) {
+			if (!mAlive[neighbours[i]])
+				continue;
+
+			if (count >= mNumOfNearestNeighbour && distances[i] != kthDistance)
+				return count;
+
+			count++;
+
+			if (count == mNumOfNearestNeighbour)
+				kthDistance = distances[i];
+		}
+
+		// La lista contiene todas las instancias con distancia menor o igual que la del último vecino.
+		if (count >= mNumOfNearestNeighbour || complete)
+			return count;
+
+		return -1;
+	} // collectAlive
+
+	/**
+	 * Devuelve la posición del vecino vivo anterior a una posición de la lista.
+	 *
+	 * @param neighbours Lista de vecinos.
+	 * @param pos Posición de la lista.
+	 * @return Posición del vecino vivo anterior.
+	 */
+	private int previousAlive (int[] neighbours, int pos) {
+		int i = pos - 1;
+
+		while (!mAlive[neighbours[i]])
+			i--;
+
+		return i;
+	} // previousAlive
+
+	/**
+	 * Selecciona las instancias más cercanas: las size primeras y todas las empatadas con la última. Las
+	 * distancias NaN no se tienen en cuenta.
+	 *
+	 * @param distances Distancias a todas las instancias.
+	 * @param size Número de instancias a seleccionar.
+	 * @return Identificadores de las instancias seleccionadas, de menor a mayor distancia y, a igual
+	 *         distancia, de menor a mayor identificador.
+	 */
+	private static int[] select (double[] distances, int size) {
+		double best[] = new double[size], lastDistance;
+		int selected[], numOfBest = 0, count = 0, pos;
+
+		// Distancia de la instancia size-ésima, insertando en orden las menores.
+		for (int i = 0; i < distances.length; i++) {
+			if (Double.isNaN(distances[i]) || (numOfBest == size && distances[i] >= best[size - 1]))
+				continue;
+
+			pos = numOfBest < size ? numOfBest++ : size - 1;
+
+			while (pos > 0 && best[pos - 1] > distances[i]) {
+				best[pos] = best[pos - 1];
+				pos--;
+			}
+
+			best[pos] = distances[i];
+		}
+
+		lastDistance = numOfBest < size ? Double.POSITIVE_INFINITY : best[size - 1];
+
+		for (int i = 0; i < distances.length; i++)
+			if (distances[i] <= lastDistance)
+				count++;
+
+		selected = new int[count];
+		count = 0;
+
+		// Inserción estable, por lo que los empates quedan ordenados por identificador.
+		for (int i = 0; i < distances.length; i++)
+			if (distances[i] <= lastDistance) {
+				pos = count++;
+
+				while (pos > 0 && distances[selected[pos - 1]] > distances[i]) {
+					selected[pos] = selected[pos - 1];
+					pos--;
+				}
+
+				selected[pos] = i;
+			}
+
+		return selected;
+	} // select
+
+	/**
+	 * Devuelve la menor distancia mayor que una dada. Las distancias NaN no se tienen en cuenta.
+	 *
+	 * @param distances Distancias a todas las instancias.
+	 * @param distance Distancia de referencia.
+	 * @return Menor distancia mayor que la dada o infinito si no hay ninguna.
+	 */
+	private static double nextDistance (double[] distances, double distance) {
+		double next = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < distances.length; i++)
+			if (distances[i] > distance && distances[i] < next)
+				next = distances[i];
+
+		return next;
+	} // nextDistance
+
+	/**
+	 * Devuelve las distancias de una lista de instancias.
+	 *
+	 * @param list Identificadores de las instancias.
+	 * @param distances Distancias a todas las instancias.
+	 * @return Distancias a las instancias de la lista.
+	 */
+	private static double[] getDistances (int[] list, double[] distances) {
+		double[] result = new double[list.length];
+
+		for (int i = 0; i < list.length; i++)
+			result[i] = distances[list[i]];
+
+		return result;
+	} // getDistances
+
+	/**
+	 * Cuenta las distancias que no son NaN.
+	 *
+	 * @param distances Distancias a todas las instancias.
+	 * @return Número de instancias candidatas.
+	 */
+	private static int countCandidates (double[] distances) {
+		int count = 0;
+
+		for (int i = 0; i < distances.length; i++)
+			if (!Double.isNaN(distances[i]))
+				count++;
+
+		return count;
+	} // countCandidates
+
+	/**
+	 * Comprueba si dos instancias son iguales, como <code>InstanceIS.equals</code>: los mismos valores en
+	 * todos los atributos y en la clase.
+	 *
+	 * @param first Identificador de la primera instancia.
+	 * @param second Identificador de la segunda instancia.
+	 * @return Verdadero si las instancias son iguales.
+	 */
+	private boolean isEqual (int first, int second) {
+		if (mClassValues[first] != mClassValues[second])
+			return false;
+
+		for (int j = 0; j < mNumAttributes; j++)
+			if (mData[first * mNumAttributes + j] != mData[second * mNumAttributes + j])
+				return false;
+
+		return true;
+	} // isEqual
+
+	/**
+	 * Calcula la distancia euclídea al cuadrado entre dos filas de una matriz, sumando los cuadrados en
+	 * el orden de los atributos como <code>EuclideanDistance</code>.
+	 *
+	 * @param data Matriz de valores.
+	 * @param first Primera fila.
+	 * @param second Segunda fila.
+	 * @return Distancia al cuadrado.
+	 */
+	private double squaredDistance (double[] data, int first, int second) {
+		int row1 = first * mNumAttributes, row2 = second * mNumAttributes;
+		double distance = 0, diff;
+
+		for (int j = 0; j < mNumAttributes; j++) {
+			diff = data[row1 + j] - data[row2 + j];
+			distance = distance + diff * diff;
+		}
+
+		return distance;
+	} // squaredDistance
+
+	/**
+	 * Calcula la distancia euclídea al cuadrado entre dos instancias normalizada con los rangos del
+	 * conjunto actual, con las mismas operaciones que <code>EuclideanDistance</code>.
+	 *
+	 * @param first Instancia de prueba.
+	 * @param second Instancia de entrenamiento.
+	 * @return Distancia al cuadrado.
+	 */
+	private double normalizedDistance (int first, int second) {
+		int row1 = first * mNumAttributes, row2 = second * mNumAttributes;
+		double distance = 0, diff, width;
+
+		for (int j = 0; j < mNumAttributes; j++) {
+			width = mMax[j] - mMin[j];
+
+			if (mMax[j] == mMin[j])
+				diff = 0;
+			else
+				diff = (mData[row1 + j] - mMin[j]) / width - (mData[row2 + j] - mMin[j]) / width;
+
+			distance = distance + diff * diff;
+		}
+
+		return distance;
+	} // normalizedDistance
+
+	/**
+	 * Calcula el rango de un atributo en las instancias vivas.
+	 *
+	 * @param attribute Posición del atributo en la fila.
+	 * @param min Mínimos de los atributos, donde se guarda el del atributo.
+	 * @param max Máximos de los atributos, donde se guarda el del atributo.
+	 */
+	private void calcRange (int attribute, double[] min, double[] max) {
+		double value;
+
+		min[attribute] = Double.POSITIVE_INFINITY;
+		max[attribute] = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < mNumInstances; i++)
+			if (mAlive[i]) {
+				value = mData[i * mNumAttributes + attribute];
+
+				if (value < min[attribute])
+					min[attribute] = value;
+
+				if (value > max[attribute])
+					max[attribute] = value;
+			}
+	} // calcRange
+
+} // ENNRegEvaluator
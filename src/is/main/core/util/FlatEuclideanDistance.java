@@ -0,0 +1,356 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * FlatEuclideanDistance.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import weka.core.Attribute;
+import weka.core.DistanceFunction;
+import weka.core.EuclideanDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Range;
+
+/**
+ * <b>Descripción</b><br>
+ * Cálculo de distancias euclídeas sobre una matriz plana de atributos.
+ * <p>
+ * <b>Detalles</b><br>
+ * Empaqueta una sola vez los atributos que intervienen en la distancia de todas las instancias de un
+ * conjunto en un <code>double[]</code> por filas, ya normalizados si la función de distancia normaliza.
+ * Las distancias de una consulta a un bloque de filas se calculan en un bucle sin llamadas virtuales ni
+ * comprobaciones de tipo o de valores perdidos. Los bloques se dimensionan para que quepan en la caché
+ * L1.<br>
+ * Los atributos se suman en el mismo orden y con las mismas operaciones que
+ * <code>weka.core.EuclideanDistance</code>, por lo que las distancias son idénticas bit a bit. Solo es
+ * aplicable si la función de distancia es exactamente <code>EuclideanDistance</code>, todos los atributos
+ * que intervienen en ella son numéricos y no hay valores perdidos; en otro caso <code>create</code>
+ * devuelve null y se debe utilizar la función de distancia.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Cálculo rápido de distancias euclídeas al cuadrado.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class FlatEuclideanDistance implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = -3381936405916617457L;
+
+	/**
+	 * Tamaño en bytes de los bloques de filas: el de una caché L1 de datos habitual.
+	 */
+	private static final int BLOCK_BYTES = 32 * 1024;
+
+	/**
+	 * Número mínimo de filas de un bloque.
+	 */
+	private static final int MIN_BLOCK_SIZE = 16;
+
+	/**
+	 * Índices de los atributos que intervienen en la distancia, de menor a mayor.
+	 */
+	private int[] mAttributes;
+
+	/**
+	 * Mínimo de cada atributo para la normalización.
+	 */
+	private double[] mMin;
+
+	/**
+	 * Anchura de cada atributo para la normalización, 0 si el atributo es constante.
+	 */
+	private double[] mWidth;
+
+	/**
+	 * Indica si los valores se normalizan.
+	 */
+	private boolean mNormalize;
+
+	/**
+	 * Valores de los atributos de todas las filas, fila tras fila.
+	 */
+	private double[] mData;
+
+	/**
+	 * Número de filas de la matriz.
+	 */
+	private int mNumRows;
+
+	/**
+	 * Número de atributos de cada fila.
+	 */
+	private int mNumAttributes;
+
+	/**
+	 * Constructor privado, las matrices se crean mediante <code>create</code>.
+	 *
+	 * @param attributes Índices de los atributos que intervienen en la distancia.
+	 * @param normalize Verdadero si los valores se normalizan.
+	 * @param ranges Rangos de los atributos de la función de distancia, null si no se normaliza.
+	 * @param set Conjunto de instancias a empaquetar.
+	 */
+	private FlatEuclideanDistance (int[] attributes, boolean normalize, double[][] ranges, Instances set) {
+		mAttributes = attributes;
+		mNumAttributes = attributes.length;
+		mNormalize = normalize;
+		mMin = new double[mNumAttributes];
+		mWidth = new double[mNumAttributes];
+
+		if (normalize)
+			for (int j = 0; j < mNumAttributes; j++) {
+				mMin[j] = ranges[attributes[j]][0];
+				mWidth[j] = ranges[attributes[j]][2];
+			}
+
+		mNumRows = set.numInstances();
+		mData = new double[mNumRows * mNumAttributes];
+
+		for (int i = 0; i < mNumRows; i++)
+			pack(set.instance(i), mData, i * mNumAttributes);
+	} // FlatEuclideanDistance
+
+	/**
+	 * Crea la matriz plana de un conjunto de instancias para la función de distancia dada.
+	 *
+	 * @param set Conjunto de instancias a empaquetar.
+	 * @param distanceFunction Función de distancia a reproducir, con las instancias ya asignadas.
+	 * @return Matriz plana del conjunto o null si la función de distancia o los datos no lo permiten.
+	 */
+	public static FlatEuclideanDistance create (Instances set, DistanceFunction distanceFunction) {
+		EuclideanDistance euclidean;
+		Instances data;
+		Range range;
+		int attributes[], n = 0;
+		double ranges[][] = null;
+
+		// Las subclases podrían cambiar el cálculo de la distancia.
+		if (distanceFunction == null || distanceFunction.getClass() != EuclideanDistance.class)
+			return null;
+
+		euclidean = (EuclideanDistance)distanceFunction;
+		data = euclidean.getInstances();
+
+		if (data == null || !data.equalHeaders(set))
+			return null;
+
+		range = new Range(euclidean.getAttributeIndices());
+		range.setInvert(euclidean.getInvertSelection());
+		range.setUpper(data.numAttributes() - 1);
+		attributes = new int[data.numAttributes()];
+
+		for (int i = 0; i < data.numAttributes(); i++)
+			if (i != data.classIndex() && range.isInRange(i)) {
+				if (data.attribute(i).type() != Attribute.NUMERIC)
+					return null;
+
+				attributes[n++] = i;
+			}
+
+		// Las filas con valores perdidos necesitan el tratamiento especial de la función de distancia.
+		for (int i = 0; i < set.numInstances(); i++)
+			for (int j = 0; j < n; j++)
+				if (set.instance(i).isMissing(attributes[j]))
+					return null;
+
+		if (!euclidean.getDontNormalize()) {
+			try {
+				ranges = euclidean.getRanges();
+			} catch (Exception ex) {
+				return null;
+			}
+		}
+
+		return new FlatEuclideanDistance(Arrays.copyOf(attributes, n),
+		                                 !euclidean.getDontNormalize(), ranges, set);
+	} // create
+
+	/**
+	 * Devuelve el número de filas de la matriz.
+	 *
+	 * @return Número de filas.
+	 */
+	public int numRows () {
+
+		return mNumRows;
+	} // numRows
+
+	/**
+	 * Devuelve el número de atributos de cada fila.
+	 *
+	 * @return Número de atributos que intervienen en la distancia.
+	 */
+	public int numAttributes () {
+
+		return mNumAttributes;
+	} // numAttributes
+
+	/**
+	 * Devuelve el valor, normalizado si procede, de un atributo de una fila.
+	 *
+	 * @param row Fila de la matriz.
+	 * @param attribute Posición del atributo en la fila.
+	 * @return Valor del atributo.
+	 */
+	public double value (int row, int attribute) {
+
+		return mData[row * mNumAttributes + attribute];
+	} // value
+
+	/**
+	 * Devuelve el número de filas de un bloque, de modo que el bloque quepa en la caché L1.
+	 *
+	 * @return Número de filas de un bloque.
+	 */
+	public int getBlockSize () {
+
+		return Math.max(MIN_BLOCK_SIZE, BLOCK_BYTES / (8 * Math.max(1, mNumAttributes)));
+	} // getBlockSize
+
+	/**
+	 * Empaqueta una instancia como consulta.
+	 *
+	 * @param inst Instancia a empaquetar.
+	 * @return Valores de la instancia en los atributos de la distancia o null si tiene valores perdidos.
+	 */
+	public double[] pack (Instance inst) {
+		double[] query = new double[mNumAttributes];
+
+		for (int j = 0; j < mNumAttributes; j++)
+			if (inst.isMissing(mAttributes[j]))
+				return null;
+
+		pack(inst, query, 0);
+
+		return query;
+	} // pack
+
+	/**
+	 * Copia los valores, normalizados si procede, de una instancia en un array.
+	 * La normalización es la misma que la de <code>NormalizableDistance.norm</code>.
+	 *
+	 * @param inst Instancia a empaquetar.
+	 * @param dest Array destino.
+	 * @param offset Posición del array a partir de la que se copian los valores.
+	 */
+	private void pack (Instance inst, double[] dest, int offset) {
+		double value;
+
+		for (int j = 0; j < mNumAttributes; j++) {
+			value = inst.value(mAttributes[j]);
+
+			if (mNormalize)
+				value = mWidth[j] == 0 ? 0 : (value - mMin[j]) / mWidth[j];
+
+			dest[offset + j] = value;
+		}
+	} // pack
+
+	/**
+	 * Calcula la distancia euclídea al cuadrado entre una consulta y una fila.
+	 *
+	 * @param query Consulta empaquetada.
+	 * @param row Fila de la matriz.
+	 * @return Distancia al cuadrado.
+	 */
+	public double squaredDistance (double[] query, int row) {
+
+		return rowDistance(query, row * mNumAttributes, Double.POSITIVE_INFINITY);
+	} // squaredDistance
+
+	/**
+	 * Calcula la distancia euclídea al cuadrado entre una consulta y una fila, abandonando el cálculo en
+	 * cuanto la suma parcial supera la distancia de corte.
+	 *
+	 * @param query Consulta empaquetada.
+	 * @param row Fila de la matriz.
+	 * @param cutOff Distancia al cuadrado de corte.
+	 * @return Distancia al cuadrado o infinito si supera la distancia de corte.
+	 */
+	public double squaredDistance (double[] query, int row, double cutOff) {
+
+		return rowDistance(query, row * mNumAttributes, cutOff);
+	} // squaredDistance
+
+	/**
+	 * Calcula las distancias euclídeas al cuadrado entre una consulta y el bloque de filas [start, end).
+	 * Las distancias que superan la distancia de corte se devuelven como infinito.
+	 *
+	 * @param query Consulta empaquetada.
+	 * @param start Primera fila del bloque.
+	 * @param end Fila siguiente a la última del bloque.
+	 * @param cutOff Distancia al cuadrado de corte.
+	 * @param distances Array donde se devuelve la distancia a la fila start + i en la posición i.
+	 */
+	public void squaredDistances (double[] query, int start, int end, double cutOff, double[] distances) {
+		int offset = start * mNumAttributes;
+
+		for (int i = start; i < end; i++) {
+			distances[i - start] = rowDistance(query, offset, cutOff);
+			offset += mNumAttributes;
+		}
+	} // squaredDistances
+
+	/**
+	 * Núcleo del cálculo de la distancia euclídea al cuadrado.
+	 * Los atributos se procesan de cuatro en cuatro: las diferencias son independientes pero los
+	 * cuadrados se acumulan en orden, igual que en <code>EuclideanDistance</code>, de modo que el
+	 * resultado no cambia. La suma parcial solo crece, por lo que abandonar cuando supera la distancia de
+	 * corte, comprobándolo tras cada grupo de atributos, no altera qué filas quedan por debajo de ella.
+	 *
+	 * @param query Consulta empaquetada.
+	 * @param offset Posición en la matriz del primer valor de la fila.
+	 * @param cutOff Distancia al cuadrado de corte.
+	 * @return Distancia al cuadrado o infinito si supera la distancia de corte.
+	 */
+	private double rowDistance (double[] query, int offset, double cutOff) {
+		double distance = 0, diff0, diff1, diff2, diff3;
+		int j = 0;
+
+		for (; j + 3 < mNumAttributes; j += 4) {
+			diff0 = query[j] - mData[offset + j];
+			diff1 = query[j + 1] - mData[offset + j + 1];
+			diff2 = query[j + 2] - mData[offset + j + 2];
+			diff3 = query[j + 3] - mData[offset + j + 3];
+			distance = distance + diff0 * diff0;
+			distance = distance + diff1 * diff1;
+			distance = distance + diff2 * diff2;
+			distance = distance + diff3 * diff3;
+
+			if (distance > cutOff)
+				return Double.POSITIVE_INFINITY;
+		}
+
+		for (; j < mNumAttributes; j++) {
+			diff0 = query[j] - mData[offset + j];
+			distance = distance + diff0 * diff0;
+		}
+
+		return distance > cutOff ? Double.POSITIVE_INFINITY : distance;
+	} // rowDistance
+
+} // FlatEuclideanDistance
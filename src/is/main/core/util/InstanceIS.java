@@ -21,7 +21,8 @@
 package main.core.util;
 
 import java.io.Serializable;
-import java.util.TreeSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Vector;
 
 import weka.core.Instance;
@@ -43,7 +44,7 @@ import weka.filters.unsupervised.instance.Resample;
  * </p>
  * 
  * @author Álvar Arnáiz González
- * @version 1.3
+ * @version 1.4
  */
 public class InstanceIS implements Serializable {
 	
@@ -89,6 +90,30 @@ public class InstanceIS implements Serializable {
 		return true;
 	} // equals
 	
+	/**
+	 * Calcula un código hash del contenido de la instancia coherente con <code>equals</code>.
+	 * Dos instancias iguales según <code>equals</code> tienen el mismo código hash.
+	 * 
+	 * @param inst Instancia de la que calcular el código hash.
+	 * @return Código hash de la instancia.
+	 */
+	public static int hashCode (Instance inst) {
+		int hash = inst.numAttributes();
+		long bits;
+		
+		for (int i = 0; i < inst.numAttributes(); i++) {
+			// Los valores perdidos y el cero (incluido -0.0) comparten código.
+			if (inst.isMissing(i) || inst.value(i) == 0)
+				bits = 0;
+			else
+				bits = Double.doubleToLongBits(inst.value(i));
+			
+			hash = 31 * hash + (int)(bits ^ (bits >>> 32));
+		}
+		
+		return hash;
+	} // hashCode
+	
 	/**
 	 * Devuelve un vector con las instancias del Dataset que se pasa por parámetro.
 	 * 
@@ -139,48 +164,168 @@ public class InstanceIS implements Serializable {
 		return false;
 	} // removeInstanceFromVector
 
+	/**
+	 * Calcula una huella de 64 bits del contenido de la instancia coherente con
+	 * <code>InstanceComparator(true)</code>: dos instancias que el comparador considera iguales tienen la
+	 * misma huella. El peso no interviene, al igual que en el comparador.
+	 * 
+	 * @param inst Instancia de la que calcular la huella.
+	 * @return Huella de la instancia.
+	 */
+	public static long fingerprint (Instance inst) {
+		long hash = inst.numAttributes(), bits;
+		
+		for (int i = 0; i < inst.numAttributes(); i++) {
+			if (inst.isMissing(i))
+				bits = 0x7ff80000000000a5L;
+			else if (inst.attribute(i).isString())
+				// El comparador compara el texto, no su posición en la tabla de cadenas.
+				bits = inst.stringValue(i).hashCode();
+			else if (inst.attribute(i).isRelationValued() || inst.value(i) == 0)
+				// Los valores relacionales se verifican con el comparador; el cero incluye -0.0.
+				bits = 0;
+			else
+				bits = Double.doubleToLongBits(inst.value(i));
+			
+			hash = Long.rotateLeft((hash ^ bits) * 0x9e3779b97f4a7c15L, 31);
+		}
+		
+		// Mezcla final para repartir los bits altos sobre los bajos.
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		
+		return hash;
+	} // fingerprint
+	
+	/**
+	 * Marca las instancias duplicadas del conjunto. De cada grupo de instancias iguales se conserva la
+	 * primera que aparece y se marcan las demás.<br>
+	 * Las instancias se agrupan por su huella en una tabla de direccionamiento abierto y, cuando dos huellas
+	 * coinciden, se verifica con <code>InstanceComparator</code> que las instancias sean realmente iguales.
+	 * 
+	 * @param instances Conjunto de instancias.
+	 * @param multiplicities Salida con el número de copias de cada instancia conservada, 0 en las duplicadas.
+	 * @return Mapa de bits con las posiciones de las instancias duplicadas.
+	 */
+	private static BitSet markDuplicates (Instances instances, int[] multiplicities) {
+		InstanceComparator comparator = new InstanceComparator(true);
+		int n = instances.numInstances(), capacity = 2, mask, slot, representative;
+		BitSet duplicates = new BitSet(n);
+		
+		while (capacity < 2 * n)
+			capacity <<= 1;
+		
+		mask = capacity - 1;
+		int[] slots = new int[capacity];
+		long[] fingerprints = new long[n];
+		Arrays.fill(slots, -1);
+		
+		for (int i = 0; i < n; i++) {
+			fingerprints[i] = fingerprint(instances.instance(i));
+			slot = (int)(fingerprints[i] ^ (fingerprints[i] >>> 32)) & mask;
+			representative = -1;
+			
+			// Sondeo lineal hasta encontrar una instancia igual o una posición libre.
+			while (slots[slot] != -1) {
+				if (fingerprints[slots[slot]] == fingerprints[i] &&
+						comparator.compare(instances.instance(slots[slot]), instances.instance(i)) == 0) {
+					representative = slots[slot];
+					break;
+				}
+				
+				slot = (slot + 1) & mask;
+			}
+			
+			if (representative == -1) {
+				slots[slot] = i;
+				multiplicities[i] = 1;
+			} else {
+				duplicates.set(i);
+				multiplicities[representative]++;
+			}
+		}
+		
+		return duplicates;
+	} // markDuplicates
+	
+	/**
+	 * Compacta en una sola pasada el conjunto de instancias, y su vector de posiciones si lo hay, eliminando
+	 * las instancias marcadas. Las instancias conservadas mantienen su orden relativo.
+	 * 
+	 * @param instances Conjunto de instancias a compactar.
+	 * @param vIndex Vector de posiciones de cada instancia, puede ser null.
+	 * @param duplicates Posiciones de las instancias a eliminar.
+	 * @param multiplicities Número de copias de cada instancia.
+	 * @return Número de copias de cada instancia conservada, en su nueva posición.
+	 */
+	private static int[] compact (Instances instances, Vector<Integer> vIndex, BitSet duplicates,
+	                              int[] multiplicities) {
+		int n = instances.numInstances(), kept = 0;
+		int[] keptMultiplicities = new int[n - duplicates.cardinality()];
+		
+		for (int i = duplicates.nextClearBit(0); i < n; i = duplicates.nextClearBit(i + 1)) {
+			if (kept != i) {
+				instances.swap(kept, i);
+				
+				if (vIndex != null)
+					vIndex.set(kept, vIndex.get(i));
+			}
+			
+			keptMultiplicities[kept++] = multiplicities[i];
+		}
+		
+		// Las instancias sobrantes quedan al final, borrarlas desde el final no desplaza ninguna otra.
+		for (int i = n - 1; i >= kept; i--)
+			instances.delete(i);
+		
+		if (vIndex != null)
+			vIndex.setSize(kept);
+		
+		return keptMultiplicities;
+	} // compact
+	
+	/**
+	 * Devuelve el número de copias de cada instancia del conjunto. Cada grupo de instancias iguales se
+	 * cuenta en la primera que aparece, el resto de instancias del grupo tienen 0.
+	 * 
+	 * @param instances Conjunto de instancias.
+	 * @return Número de copias de cada instancia.
+	 */
+	public static int[] getDuplicateMultiplicities (Instances instances) {
+		int[] multiplicities = new int[instances.numInstances()];
+		
+		markDuplicates(instances, multiplicities);
+		
+		return multiplicities;
+	} // getDuplicateMultiplicities
+	
 	/**
 	 * Elimina del conjunto de instancias todas aquellas duplicadas, es decir, que tengan el mismo valor en
-	 * sus atributos. Si existen una o más instancias duplicadas tan sólo deja una en la salida, no tiene
-	 * por qué ser la primera que aparezca.
+	 * sus atributos. Si existen una o más instancias duplicadas tan sólo deja en la salida la primera que
+	 * aparece, y las instancias conservadas mantienen su orden relativo.
 	 * 
 	 * @param instances Conjunto de instancias donde se eliminarán las instancias duplicadas. 
 	 * @param vIndex Vector de posiciones de cada instancia del dataset a filtrar.
+	 * @return Número de copias que había de cada instancia conservada.
 	 */
-	public static void removeDuplicateInstances (Instances instances, Vector<Integer> vIndex) {
-		TreeSet<Instance> hashSet = new TreeSet<Instance>(new InstanceComparator(true));
-		int i = 0;
-		
-		// Recorrer todas las instancias;
-		while (i < instances.numInstances())
-			// Si la instancia ya existe la eliminamos, sino pasa a la siguiente. 
-			if (hashSet.add(instances.instance(i))) {
-				i++;
-			}
-			else {
-				instances.delete(i);
-				vIndex.remove(i);
-			}
+	public static int[] removeDuplicateInstances (Instances instances, Vector<Integer> vIndex) {
+		int[] multiplicities = new int[instances.numInstances()];
+		
+		return compact(instances, vIndex, markDuplicates(instances, multiplicities), multiplicities);
 	} // removeDuplicateInstances
 	
 	/**
 	 * Elimina del conjunto de instancias todas aquellas duplicadas, es decir, que tengan el mismo valor en
-	 * sus atributos. Si existen una o más instancias duplicadas tan sólo deja una en la salida, no tiene
-	 * por qué ser la primera que aparezca.
+	 * sus atributos. Si existen una o más instancias duplicadas tan sólo deja en la salida la primera que
+	 * aparece, y las instancias conservadas mantienen su orden relativo.
 	 * 
 	 * @param instances Conjunto de instancias donde se eliminarán las instancias duplicadas. 
+	 * @return Número de copias que había de cada instancia conservada.
 	 */
-	public static void removeDuplicateInstances (Instances instances) {
-		TreeSet<Instance> hashSet = new TreeSet<Instance>(new InstanceComparator(true));
-		int i = 0;
-		
-		// Recorrer todas las instancias;
-		while (i < instances.numInstances())
-			// Si la instancia ya existe la eliminamos, sino pasa a la siguiente. 
-			if (hashSet.add(instances.instance(i)))
-				i++;
-			else
-				instances.delete(i);
+	public static int[] removeDuplicateInstances (Instances instances) {
+		
+		return removeDuplicateInstances(instances, null);
 	} // removeDuplicateInstances
 	
 	/**
@@ -0,0 +1,252 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * InstanceIndex.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Índice de posiciones de las instancias de un conjunto de trabajo.
+ * <p>
+ * <b>Detalles</b><br>
+ * Cada instancia del conjunto de trabajo se identifica por su posición en él (ID). El índice mantiene
+ * la correspondencia entre los IDs y las posiciones que ocupan en un segundo conjunto derivado del de
+ * trabajo, el conjunto solución, del que solo se pueden borrar instancias. Además permite localizar una
+ * instancia cualquiera en el conjunto de trabajo por su contenido mediante una tabla hash.<br>
+ * Todas las consultas son O(1); borrar una instancia del conjunto solución es O(n) sobre arrays de
+ * enteros, igual que el propio borrado en <code>Instances</code>.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Sustituye a las búsquedas lineales de <code>InstanceIS.getPosOfInstance</code>.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class InstanceIndex implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = 6126841760254935319L;
+
+	/**
+	 * Conjunto de trabajo.
+	 */
+	private Instances mSet;
+
+	/**
+	 * ID de la instancia que ocupa cada posición del conjunto solución.
+	 */
+	private int[] mIdOfPos;
+
+	/**
+	 * Posición de cada ID en el conjunto solución, -1 si ha sido borrada.
+	 */
+	private int[] mPosOfId;
+
+	/**
+	 * Número de instancias en el conjunto solución.
+	 */
+	private int mSize;
+
+	/**
+	 * Tabla hash (direccionamiento abierto) con los IDs + 1 de las instancias, 0 indica hueco libre.
+	 */
+	private int[] mTable;
+
+	/**
+	 * Hash del contenido de cada instancia del conjunto de trabajo.
+	 */
+	private int[] mHashOfId;
+
+	/**
+	 * Constructor del índice. Inicialmente el conjunto solución coincide con el de trabajo.
+	 *
+	 * @param set Conjunto de trabajo.
+	 */
+	public InstanceIndex (Instances set) {
+		int n = set.numInstances();
+
+		mIdOfPos = new int[n];
+		mPosOfId = new int[n];
+		mSize = n;
+
+		for (int i = 0; i < n; i++) {
+			mIdOfPos[i] = i;
+			mPosOfId[i] = i;
+		}
+
+		mHashOfId = new int[n];
+
+		for (int i = 0; i < n; i++)
+			mHashOfId[i] = InstanceIS.hashCode(set.instance(i));
+
+		buildTable(set);
+	} // InstanceIndex
+
+	/**
+	 * Construye la tabla hash a partir de los hashes de las instancias.
+	 *
+	 * @param set Conjunto de trabajo.
+	 */
+	private void buildTable (Instances set) {
+		int capacity = 2, slot;
+
+		mSet = set;
+
+		// La tabla tendrá al menos el doble de huecos que instancias.
+		while (capacity < mHashOfId.length * 2)
+			capacity <<= 1;
+
+		mTable = new int[capacity];
+
+		for (int id = 0; id < mHashOfId.length; id++) {
+			slot = slotOf(mHashOfId[id]);
+
+			while (mTable[slot] != 0)
+				slot = (slot + 1) & (mTable.length - 1);
+
+			mTable[slot] = id + 1;
+		}
+	} // buildTable
+
+	/**
+	 * Devuelve el hueco inicial de la tabla para un hash.
+	 *
+	 * @param hash Hash de la instancia.
+	 * @return Hueco de la tabla.
+	 */
+	private int slotOf (int hash) {
+
+		// Mezclar los bits altos para que no se concentren los huecos.
+		return (hash ^ (hash >>> 16)) & (mTable.length - 1);
+	} // slotOf
+
+	/**
+	 * Devuelve el ID de una instancia buscándola por su contenido en el conjunto de trabajo.
+	 *
+	 * @param inst Instancia a buscar.
+	 * @return ID de la instancia o -1 si no ha sido encontrada.
+	 */
+	public int idOf (Instance inst) {
+		int hash = InstanceIS.hashCode(inst), slot = slotOf(hash), id;
+
+		while (mTable[slot] != 0) {
+			id = mTable[slot] - 1;
+
+			if (mHashOfId[id] == hash && InstanceIS.equals(mSet.instance(id), inst))
+				return id;
+
+			slot = (slot + 1) & (mTable.length - 1);
+		}
+
+		return -1;
+	} // idOf
+
+	/**
+	 * Devuelve el ID de la instancia que ocupa una posición del conjunto solución.
+	 *
+	 * @param pos Posición en el conjunto solución.
+	 * @return ID de la instancia.
+	 */
+	public int idAt (int pos) {
+
+		return mIdOfPos[pos];
+	} // idAt
+
+	/**
+	 * Devuelve la posición de una instancia en el conjunto solución.
+	 *
+	 * @param id ID de la instancia.
+	 * @return Posición en el conjunto solución o -1 si ha sido borrada.
+	 */
+	public int positionOf (int id) {
+
+		return mPosOfId[id];
+	} // positionOf
+
+	/**
+	 * Devuelve el número de instancias del conjunto solución.
+	 *
+	 * @return Número de instancias del conjunto solución.
+	 */
+	public int size () {
+
+		return mSize;
+	} // size
+
+	/**
+	 * Borra una instancia del conjunto solución desplazando las posiciones de las siguientes.
+	 *
+	 * @param id ID de la instancia a borrar.
+	 */
+	public void remove (int id) {
+		int pos = mPosOfId[id];
+
+		if (pos == -1)
+			return;
+
+		System.arraycopy(mIdOfPos, pos + 1, mIdOfPos, pos, mSize - pos - 1);
+		mSize--;
+
+		for (int i = pos; i < mSize; i++)
+			mPosOfId[mIdOfPos[i]] = i;
+
+		mPosOfId[id] = -1;
+	} // remove
+
+	/**
+	 * Reordena el conjunto de trabajo.
+	 * La instancia con ID <code>order[i]</code> pasa a tener el ID i. El conjunto solución conserva
+	 * sus instancias, que pasan a estar en el nuevo orden de IDs.
+	 *
+	 * @param order Permutación a aplicar: order[nuevoID] = antiguoID.
+	 * @param set Conjunto de trabajo ya reordenado.
+	 */
+	public void reorder (int[] order, Instances set) {
+		int[] hashOfId = new int[mHashOfId.length];
+		int[] posOfId = new int[mPosOfId.length];
+
+		mSize = 0;
+
+		for (int i = 0; i < order.length; i++) {
+			hashOfId[i] = mHashOfId[order[i]];
+
+			if (mPosOfId[order[i]] == -1) {
+				posOfId[i] = -1;
+			} else {
+				posOfId[i] = mSize;
+				mIdOfPos[mSize++] = i;
+			}
+		}
+
+		mHashOfId = hashOfId;
+		mPosOfId = posOfId;
+
+		buildTable(set);
+	} // reorder
+
+} // InstanceIndex
@@ -0,0 +1,828 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * KDTreeISNNSearch.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.util.Arrays;
+
+import main.core.event.KNNQueryEvent;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.NormalizableDistance;
+import weka.core.Range;
+import weka.core.RevisionUtils;
+import weka.core.neighboursearch.NearestNeighbourSearch;
+
+/**
+ * <b>Descripción</b><br>
+ * Algoritmo de cálculo de vecinos cercanos basado en un KD-tree que admite el borrado de instancias.
+ * <p>
+ * <b>Detalles</b><br>
+ * Al igual que <code>LinearISNNSearch</code> no devuelve las instancias iguales a la instancia objetivo y
+ * devuelve todas las instancias que empatan con el k-ésimo vecino. Las distancias se calculan con la misma
+ * función de distancia (sin normalizar), por lo que coinciden exactamente con las de la búsqueda lineal;
+ * los vecinos se devuelven ordenados por distancia y, a igual distancia, por posición.<br>
+ * Las instancias borradas se marcan en el árbol (tombstones) sin reconstruirlo; solo cuando se ha
+ * borrado más de la mitad de las instancias se reconstruye con las restantes. La poda del árbol utiliza
+ * únicamente los atributos numéricos sin valores perdidos, el resto no se tiene en cuenta en la cota.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Cálculo de vecinos cercanos sublineal para la reparación de vecindarios de la familia DROP.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.1
+ */
+public class KDTreeISNNSearch extends NearestNeighbourSearch {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = -1872364047625123391L;
+
+	/**
+	 * Número máximo de instancias en una hoja del árbol.
+	 */
+	private static final int LEAF_SIZE = 16;
+
+	/**
+	 * Atributos utilizados en la cota inferior de las distancias, ordenados de menor a mayor.
+	 */
+	private int[] mBoundAttributes;
+
+	/**
+	 * Instancias del árbol por posición de construcción.
+	 */
+	private Instance[] mPoints;
+
+	/**
+	 * Número de instancias con las que se construyó el árbol.
+	 */
+	private int mNumPoints;
+
+	/**
+	 * Número de instancias no borradas.
+	 */
+	private int mNumAlive;
+
+	/**
+	 * Instancias borradas (tombstones) por posición de construcción.
+	 */
+	private boolean[] mDeleted;
+
+	/**
+	 * Posición en el conjunto de instancias de cada posición de construcción.
+	 */
+	private int[] mPositions;
+
+	/**
+	 * Posición de construcción de cada instancia del conjunto de instancias, -1 si ha sido borrada.
+	 */
+	private int[] mBuildPositions;
+
+	/**
+	 * Posiciones de construcción ordenadas según las hojas del árbol.
+	 */
+	private int[] mOrder;
+
+	/**
+	 * Hoja en la que se encuentra cada instancia.
+	 */
+	private int[] mLeafOf;
+
+	/**
+	 * Número de nodos del árbol.
+	 */
+	private int mNumNodes;
+
+	/**
+	 * Primera posición de <code>mOrder</code> de cada nodo.
+	 */
+	private int[] mNodeStart;
+
+	/**
+	 * Posición siguiente a la última de <code>mOrder</code> de cada nodo.
+	 */
+	private int[] mNodeEnd;
+
+	/**
+	 * Hijo izquierdo de cada nodo, -1 si es una hoja.
+	 */
+	private int[] mNodeLeft;
+
+	/**
+	 * Hijo derecho de cada nodo, -1 si es una hoja.
+	 */
+	private int[] mNodeRight;
+
+	/**
+	 * Padre de cada nodo, -1 para la raíz.
+	 */
+	private int[] mNodeParent;
+
+	/**
+	 * Número de instancias no borradas de cada nodo.
+	 */
+	private int[] mNodeAlive;
+
+	/**
+	 * Mínimo de cada atributo de la cota en cada nodo (nodo * número de atributos + atributo).
+	 */
+	private double[] mNodeMin;
+
+	/**
+	 * Máximo de cada atributo de la cota en cada nodo (nodo * número de atributos + atributo).
+	 */
+	private double[] mNodeMax;
+
+	/**
+	 * Distancias a los vecinos devueltos en la última búsqueda.
+	 */
+	private double[] mDistances = new double[0];
+
+	/**
+	 * Posiciones, dentro del conjunto de instancias, de los vecinos devueltos en la última búsqueda.
+	 */
+	private int[] mNeighbourIndices = new int[0];
+
+	/**
+	 * Montículo de máximos con las k mejores distancias de la búsqueda en curso.
+	 */
+	private double[] mHeap;
+
+	/**
+	 * Número de elementos del montículo.
+	 */
+	private int mHeapSize;
+
+	/**
+	 * Candidatos (posiciones de construcción) de la búsqueda en curso.
+	 */
+	private int[] mCandidates = new int[16];
+
+	/**
+	 * Distancias de los candidatos de la búsqueda en curso.
+	 */
+	private double[] mCandidateDistances = new double[16];
+
+	/**
+	 * Número de candidatos de la búsqueda en curso.
+	 */
+	private int mNumCandidates;
+
+	/**
+	 * Número de búsquedas realizadas desde la última vez que se reiniciaron los contadores.
+	 */
+	private long mNumOfQueries;
+
+	/**
+	 * Número de distancias calculadas desde la última vez que se reiniciaron los contadores.
+	 */
+	private long mNumOfDistances;
+
+	/**
+	 * Constructor por defecto.
+	 * Es necesario asingar las instancias <code>setInstances(inst)</code> antes de poder utilizarlo.
+	 */
+	public KDTreeISNNSearch () {
+		super();
+
+		// El algoritmo de cálculo de distancias NO debe normalizar las instancias.
+		((NormalizableDistance)m_DistanceFunction).setDontNormalize(true);
+	} // KDTreeISNNSearch
+
+	/**
+	 * Constructor al que se le asigna un conjunto de instancias para utilizar.
+	 *
+	 * @param insts Instancias a utilizar.
+	 * @throws Exception Si no se puede construir el árbol.
+	 */
+	public KDTreeISNNSearch (Instances insts) throws Exception {
+		this();
+
+		setInstances(insts);
+	} // KDTreeISNNSearch
+
+	/**
+	 * Devuelve una descripción del algoritmo.
+	 *
+	 * @return Descripción del algoritmo.
+	 */
+	public String globalInfo () {
+
+		return "KD-tree nearest neighbour search that supports deleting instances in place.";
+	} // globalInfo
+
+	/**
+	 * Devuelve la revisión de la clase.
+	 *
+	 * @return Revisión de la clase.
+	 */
+	public String getRevision () {
+
+		return RevisionUtils.extract("$Revision: 1.0 $");
+	} // getRevision
+
+	/**
+	 * Asigna el conjunto de instancias y construye el árbol.
+	 *
+	 * @param insts Instancias a utilizar.
+	 * @throws Exception Si no se puede inicializar la función de distancia.
+	 */
+	public void setInstances (Instances insts) throws Exception {
+		Instance[] points = new Instance[insts.numInstances()];
+		int[] positions = new int[insts.numInstances()];
+
+		super.setInstances(insts);
+		m_DistanceFunction.setInstances(insts);
+
+		mBuildPositions = new int[points.length];
+
+		for (int i = 0; i < points.length; i++) {
+			points[i] = insts.instance(i);
+			positions[i] = i;
+		}
+
+		mBoundAttributes = getBoundAttributes(insts);
+
+		buildTree(points, positions, points.length);
+	} // setInstances
+
+	/**
+	 * Crea una búsqueda para otro hilo que comparte con esta, sin copiarlos, el conjunto de instancias, la
+	 * función de distancia y el árbol. Solo son suyos el montículo, los candidatos, el resultado de la
+	 * última búsqueda y los contadores, por lo que crearla no cuesta nada.<br>
+	 * La búsqueda creada solo es válida mientras no se modifique esta: asignar las instancias, añadir o
+	 * borrar una instancia.
+	 *
+	 * @return Búsqueda que comparte el árbol de esta.
+	 * @throws Exception Si no se puede inicializar la función de distancia.
+	 */
+	public KDTreeISNNSearch createWorker () throws Exception {
+		KDTreeISNNSearch worker = new KDTreeISNNSearch();
+
+		// La función de distancia se inicializa antes de compartirla, después solo se lee.
+		((NormalizableDistance)m_DistanceFunction).getRanges();
+
+		worker.m_Instances = m_Instances;
+		worker.m_DistanceFunction = m_DistanceFunction;
+		worker.mBoundAttributes = mBoundAttributes;
+		worker.mPoints = mPoints;
+		worker.mNumPoints = mNumPoints;
+		worker.mNumAlive = mNumAlive;
+		worker.mDeleted = mDeleted;
+		worker.mPositions = mPositions;
+		worker.mBuildPositions = mBuildPositions;
+		worker.mOrder = mOrder;
+		worker.mLeafOf = mLeafOf;
+		worker.mNumNodes = mNumNodes;
+		worker.mNodeStart = mNodeStart;
+		worker.mNodeEnd = mNodeEnd;
+		worker.mNodeLeft = mNodeLeft;
+		worker.mNodeRight = mNodeRight;
+		worker.mNodeParent = mNodeParent;
+		worker.mNodeAlive = mNodeAlive;
+		worker.mNodeMin = mNodeMin;
+		worker.mNodeMax = mNodeMax;
+
+		return worker;
+	} // createWorker
+
+	/**
+	 * Actualiza el árbol tras añadir una instancia al conjunto de instancias.
+	 * Al igual que en Weka, se supone que la instancia ya ha sido añadida por el llamante. El árbol se
+	 * reconstruye con el conjunto completo.
+	 *
+	 * @param ins Instancia añadida.
+	 * @throws Exception Si no se ha asignado previamente un conjunto de instancias.
+	 */
+	public void update (Instance ins) throws Exception {
+		if (m_Instances == null)
+			throw new Exception("No se ha asignado un conjunto de instancias.");
+
+		setInstances(m_Instances);
+	} // update
+
+	/**
+	 * Marca como borrada la instancia que ocupa la posición dada en el conjunto de instancias.
+	 * La instancia no se borra del conjunto asignado, que no debe modificarse: deja de devolverse como
+	 * vecino y las posiciones del resto no cambian. El árbol no se reconstruye salvo que se haya borrado
+	 * más de la mitad de las instancias con las que se construyó.
+	 *
+	 * @param index Posición de la instancia a borrar.
+	 * @throws IllegalArgumentException Si la posición no es válida o la instancia ya estaba borrada.
+	 */
+	public void removeInstance (int index) {
+		int pos;
+
+		if (index < 0 || index >= mBuildPositions.length || mBuildPositions[index] == -1)
+			throw new IllegalArgumentException("La posición " + index + " no es válida.");
+
+		pos = mBuildPositions[index];
+
+		mBuildPositions[index] = -1;
+		mDeleted[pos] = true;
+		mNumAlive--;
+
+		for (int node = mLeafOf[pos]; node != -1; node = mNodeParent[node])
+			mNodeAlive[node]--;
+
+		// Reconstrucción perezosa del árbol.
+		if (mNumAlive * 2 < mNumPoints) {
+			Instance[] points = new Instance[mNumAlive];
+			int n = 0, positions[] = new int[mNumAlive];
+
+			for (int i = 0; i < mNumPoints; i++)
+				if (!mDeleted[i]) {
+					points[n] = mPoints[i];
+					positions[n++] = mPositions[i];
+				}
+
+			buildTree(points, positions, n);
+		}
+	} // removeInstance
+
+	/**
+	 * Devuelve el vecino más próximo.
+	 * Si no hay ningún vecino cercano devolverá la misma instancia.
+	 *
+	 * @param target Instancia de la cual se desea obtener el vecino más próximo.
+	 * @return Vecino más próximo o la propia instancia si no tiene vecinos.
+	 * @throws Exception Si se produce algún error en el cálculo de instancias.
+	 */
+	public Instance nearestNeighbour (Instance target) throws Exception {
+		Instances nearestNeighbours = kNearestNeighbours(target, 1);
+
+		// Si no tiene vecinos próximos devolver target.
+		if (nearestNeighbours.numInstances() == 0)
+			return target;
+
+		return nearestNeighbours.firstInstance();
+	} // nearestNeighbour
+
+	/**
+	 * Devuelve las "k" instancias más cercanas a la instancia dada junto con las que empaten con la
+	 * k-ésima. Las instancias iguales a la instancia objetivo no se tienen en cuenta.<br>
+	 * Cada búsqueda emite un evento <code>KNNQueryEvent</code> si está activado.
+	 *
+	 * @param target Instancia de la que se desean obtener sus k vecinos cercanos.
+	 * @param kNN Número de vecinos cercanos a obtener.
+	 * @return Los k vecinos cercanos ordenados por distancia.
+	 * @throws Exception Si se produce algún error en el cálculo de instancias.
+	 */
+	public Instances kNearestNeighbours (Instance target, int kNN) throws Exception {
+		KNNQueryEvent event = new KNNQueryEvent();
+		Instances neighbours;
+		double query[] = new double[mBoundAttributes.length], kth;
+		int numOfNeighbours = 0, results[], tmp;
+		long numOfDistances = mNumOfDistances;
+
+		event.begin();
+
+		if (mHeap == null || mHeap.length < kNN)
+			mHeap = new double[Math.max(kNN, 1)];
+
+		mHeapSize = 0;
+		mNumCandidates = 0;
+		mNumOfQueries++;
+
+		// Valores de la instancia objetivo en los atributos de la cota, NaN si es un valor perdido.
+		for (int a = 0; a < mBoundAttributes.length; a++)
+			query[a] = target.isMissing(mBoundAttributes[a]) ? Double.NaN : target.value(mBoundAttributes[a]);
+
+		if (kNN > 0 && mNumNodes > 0)
+			search(0, target, query, kNN);
+
+		// Quedarse con los candidatos que no superan la distancia del k-ésimo vecino.
+		kth = mHeapSize == kNN ? mHeap[0] : Double.POSITIVE_INFINITY;
+		results = new int[mNumCandidates];
+
+		for (int i = 0; i < mNumCandidates; i++)
+			if (mCandidateDistances[i] <= kth)
+				results[numOfNeighbours++] = i;
+
+		// Ordenar por inserción por distancia y, a igual distancia, por posición.
+		for (int i = 1; i < numOfNeighbours; i++)
+			for (int j = i; j > 0 && compareCandidates(results[j - 1], results[j]) > 0; j--) {
+				tmp = results[j];
+				results[j] = results[j - 1];
+				results[j - 1] = tmp;
+			}
+
+		neighbours = new Instances(m_Instances, numOfNeighbours);
+		mDistances = new double[numOfNeighbours];
+		mNeighbourIndices = new int[numOfNeighbours];
+
+		for (int i = 0; i < numOfNeighbours; i++) {
+			neighbours.add(mPoints[mCandidates[results[i]]]);
+			mDistances[i] = mCandidateDistances[results[i]];
+			mNeighbourIndices[i] = mPositions[mCandidates[results[i]]];
+		}
+
+		m_DistanceFunction.postProcessDistances(mDistances);
+
+		if (event.shouldCommit()) {
+			event.search = getClass().getSimpleName();
+			event.k = kNN;
+			event.neighbours = numOfNeighbours;
+			event.distances = mNumOfDistances - numOfDistances;
+			event.commit();
+		}
+
+		return neighbours;
+	} // kNearestNeighbours
+
+	/**
+	 * Devuelve las distancias a los vecinos devueltos en la última búsqueda.
+	 *
+	 * @return Distancias a los últimos vecinos calculados.
+	 */
+	public double[] getDistances () {
+
+		return mDistances;
+	} // getDistances
+
+	/**
+	 * Devuelve las posiciones, dentro del conjunto de instancias, de los vecinos obtenidos en la última
+	 * llamada a <code>kNearestNeighbours</code>, en el mismo orden en que fueron devueltos.
+	 *
+	 * @return Posiciones de los últimos vecinos calculados.
+	 */
+	public int[] getNeighbourIndices () {
+
+		return mNeighbourIndices;
+	} // getNeighbourIndices
+
+	/**
+	 * Devuelve el número de búsquedas realizadas desde la última vez que se reiniciaron los contadores.
+	 *
+	 * @return Número de búsquedas.
+	 */
+	public long getNumOfQueries () {
+
+		return mNumOfQueries;
+	} // getNumOfQueries
+
+	/**
+	 * Devuelve el número de distancias calculadas desde la última vez que se reiniciaron los contadores.
+	 *
+	 * @return Número de distancias.
+	 */
+	public long getNumOfDistances () {
+
+		return mNumOfDistances;
+	} // getNumOfDistances
+
+	/**
+	 * Reinicia los contadores de búsquedas y distancias.
+	 */
+	public void resetCounters () {
+		mNumOfQueries = 0;
+		mNumOfDistances = 0;
+	} // resetCounters
+
+	/**
+	 * Devuelve los atributos que se pueden utilizar en la cota inferior de las distancias: numéricos,
+	 * distintos de la clase, incluidos en la función de distancia y sin valores perdidos.
+	 *
+	 * @param insts Conjunto de instancias.
+	 * @return Atributos de la cota ordenados de menor a mayor.
+	 */
+	private int[] getBoundAttributes (Instances insts) {
+		Range range = new Range(((NormalizableDistance)m_DistanceFunction).getAttributeIndices());
+		int attributes[] = new int[insts.numAttributes()], n = 0;
+		Attribute att;
+
+		range.setInvert(((NormalizableDistance)m_DistanceFunction).getInvertSelection());
+		range.setUpper(insts.numAttributes() - 1);
+
+		for (int i = 0; i < insts.numAttributes(); i++) {
+			att = insts.attribute(i);
+
+			if (att.isNumeric() && i != insts.classIndex() && range.isInRange(i) &&
+					insts.attributeStats(i).missingCount == 0)
+				attributes[n++] = i;
+		}
+
+		return Arrays.copyOf(attributes, n);
+	} // getBoundAttributes
+
+	/**
+	 * Construye el árbol con las instancias dadas, que pasan a ser las posiciones de construcción.
+	 * Las posiciones en el conjunto de instancias deben ser crecientes, de modo que el orden por posición
+	 * de construcción coincida con el orden por posición en el conjunto.
+	 *
+	 * @param points Instancias del árbol.
+	 * @param positions Posición en el conjunto de instancias de cada instancia del árbol.
+	 * @param n Número de instancias de <code>points</code> a utilizar.
+	 */
+	private void buildTree (Instance[] points, int[] positions, int n) {
+		int maxNodes = 2 * n + 1;
+
+		mPoints = points;
+		mPositions = positions;
+		mNumPoints = n;
+		mNumAlive = n;
+		mDeleted = new boolean[n];
+		mOrder = new int[n];
+		mLeafOf = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			mOrder[i] = i;
+			mBuildPositions[positions[i]] = i;
+		}
+
+		mNumNodes = 0;
+		mNodeStart = new int[maxNodes];
+		mNodeEnd = new int[maxNodes];
+		mNodeLeft = new int[maxNodes];
+		mNodeRight = new int[maxNodes];
+		mNodeParent = new int[maxNodes];
+		mNodeAlive = new int[maxNodes];
+		mNodeMin = new double[maxNodes * mBoundAttributes.length];
+		mNodeMax = new double[maxNodes * mBoundAttributes.length];
+
+		if (n > 0)
+			buildNode(0, n, -1);
+	} // buildTree
+
+	/**
+	 * Construye un nodo del árbol dividiendo por la mediana del atributo de mayor rango.
+	 *
+	 * @param start Primera posición de <code>mOrder</code> del nodo.
+	 * @param end Posición siguiente a la última de <code>mOrder</code> del nodo.
+	 * @param parent Padre del nodo.
+	 * @return Nodo construido.
+	 */
+	private int buildNode (int start, int end, int parent) {
+		int node = mNumNodes++, numAtts = mBoundAttributes.length, split = -1;
+		double value, spread = 0;
+
+		mNodeStart[node] = start;
+		mNodeEnd[node] = end;
+		mNodeParent[node] = parent;
+		mNodeAlive[node] = end - start;
+		mNodeLeft[node] = -1;
+		mNodeRight[node] = -1;
+
+		// Calcular la caja que contiene a las instancias del nodo.
+		for (int a = 0; a < numAtts; a++) {
+			mNodeMin[node * numAtts + a] = Double.POSITIVE_INFINITY;
+			mNodeMax[node * numAtts + a] = Double.NEGATIVE_INFINITY;
+
+			for (int i = start; i < end; i++) {
+				value = mPoints[mOrder[i]].value(mBoundAttributes[a]);
+				mNodeMin[node * numAtts + a] = Math.min(mNodeMin[node * numAtts + a], value);
+				mNodeMax[node * numAtts + a] = Math.max(mNodeMax[node * numAtts + a], value);
+			}
+
+			if (mNodeMax[node * numAtts + a] - mNodeMin[node * numAtts + a] > spread) {
+				spread = mNodeMax[node * numAtts + a] - mNodeMin[node * numAtts + a];
+				split = a;
+			}
+		}
+
+		// Si el nodo es pequeño o no se puede dividir es una hoja.
+		if (end - start <= LEAF_SIZE || split == -1) {
+			for (int i = start; i < end; i++)
+				mLeafOf[mOrder[i]] = node;
+
+			return node;
+		}
+
+		select(start, end, (start + end) / 2, mBoundAttributes[split]);
+
+		mNodeLeft[node] = buildNode(start, (start + end) / 2, node);
+		mNodeRight[node] = buildNode((start + end) / 2, end, node);
+
+		return node;
+	} // buildNode
+
+	/**
+	 * Reordena <code>mOrder[start, end)</code> de modo que en la posición <code>k</code> quede la instancia
+	 * que le correspondería si estuviese ordenado por el atributo dado (QuickSelect).
+	 *
+	 * @param start Primera posición.
+	 * @param end Posición siguiente a la última.
+	 * @param k Posición a fijar.
+	 * @param attribute Atributo por el que ordenar.
+	 */
+	private void select (int start, int end, int k, int attribute) {
+		int left = start, right = end - 1, i, j, tmp;
+		double pivot;
+
+		while (left < right) {
+			pivot = mPoints[mOrder[(left + right) >>> 1]].value(attribute);
+			i = left;
+			j = right;
+
+			while (i <= j) {
+				while (mPoints[mOrder[i]].value(attribute) < pivot)
+					i++;
+
+				while (mPoints[mOrder[j]].value(attribute) > pivot)
+					j--;
+
+				if (i <= j) {
+					tmp = mOrder[i];
+					mOrder[i] = mOrder[j];
+					mOrder[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				return;
+		}
+	} // select
+
+	/**
+	 * Recorre un nodo del árbol buscando los vecinos de la instancia objetivo.
+	 *
+	 * @param node Nodo a recorrer.
+	 * @param target Instancia objetivo.
+	 * @param query Valores de la instancia objetivo en los atributos de la cota.
+	 * @param kNN Número de vecinos a obtener.
+	 */
+	private void search (int node, Instance target, double[] query, int kNN) {
+		double distance, leftBound, rightBound;
+		int pos;
+
+		if (mNodeAlive[node] == 0)
+			return;
+
+		// Si es una hoja calcular la distancia a todas sus instancias no borradas.
+		if (mNodeLeft[node] == -1) {
+			for (int i = mNodeStart[node]; i < mNodeEnd[node]; i++) {
+				pos = mOrder[i];
+
+				if (mDeleted[pos] || InstanceIS.equals(target, mPoints[pos]))
+					continue;
+
+				mNumOfDistances++;
+
+				if (mHeapSize < kNN) {
+					distance = m_DistanceFunction.distance(target, mPoints[pos], Double.POSITIVE_INFINITY);
+					addCandidate(pos, distance);
+					heapPush(distance);
+				} else {
+					distance = m_DistanceFunction.distance(target, mPoints[pos], mHeap[0]);
+
+					// Los empates con el k-ésimo también son candidatos.
+					if (distance <= mHeap[0]) {
+						addCandidate(pos, distance);
+
+						if (distance < mHeap[0])
+							heapReplaceTop(distance);
+					}
+				}
+			}
+
+			return;
+		}
+
+		leftBound = lowerBound(mNodeLeft[node], query);
+		rightBound = lowerBound(mNodeRight[node], query);
+
+		// Recorrer primero el hijo más prometedor; se poda solo si la cota supera estrictamente al k-ésimo.
+		if (leftBound <= rightBound) {
+			if (mHeapSize < kNN || leftBound <= mHeap[0])
+				search(mNodeLeft[node], target, query, kNN);
+
+			if (mHeapSize < kNN || rightBound <= mHeap[0])
+				search(mNodeRight[node], target, query, kNN);
+		} else {
+			if (mHeapSize < kNN || rightBound <= mHeap[0])
+				search(mNodeRight[node], target, query, kNN);
+
+			if (mHeapSize < kNN || leftBound <= mHeap[0])
+				search(mNodeLeft[node], target, query, kNN);
+		}
+	} // search
+
+	/**
+	 * Calcula una cota inferior de la distancia (sin post-procesar) de la instancia objetivo a cualquier
+	 * instancia de un nodo.
+	 * Se suman los términos en el mismo orden de atributos que la función de distancia y cada término es
+	 * menor o igual que el real, por lo que la cota nunca supera a la distancia calculada.
+	 *
+	 * @param node Nodo del árbol.
+	 * @param query Valores de la instancia objetivo en los atributos de la cota.
+	 * @return Cota inferior de la distancia.
+	 */
+	private double lowerBound (int node, double[] query) {
+		int numAtts = mBoundAttributes.length;
+		double bound = 0, diff;
+
+		for (int a = 0; a < numAtts; a++) {
+			if (Double.isNaN(query[a]))
+				continue;
+
+			if (query[a] < mNodeMin[node * numAtts + a])
+				diff = mNodeMin[node * numAtts + a] - query[a];
+			else if (query[a] > mNodeMax[node * numAtts + a])
+				diff = query[a] - mNodeMax[node * numAtts + a];
+			else
+				continue;
+
+			bound += diff * diff;
+		}
+
+		return bound;
+	} // lowerBound
+
+	/**
+	 * Añade un candidato a la búsqueda en curso.
+	 *
+	 * @param pos Posición de construcción del candidato.
+	 * @param distance Distancia del candidato.
+	 */
+	private void addCandidate (int pos, double distance) {
+		if (mNumCandidates == mCandidates.length) {
+			mCandidates = Arrays.copyOf(mCandidates, mNumCandidates * 2);
+			mCandidateDistances = Arrays.copyOf(mCandidateDistances, mNumCandidates * 2);
+		}
+
+		mCandidates[mNumCandidates] = pos;
+		mCandidateDistances[mNumCandidates] = distance;
+		mNumCandidates++;
+	} // addCandidate
+
+	/**
+	 * Compara dos candidatos por distancia y, a igual distancia, por posición.
+	 *
+	 * @param c1 Primer candidato.
+	 * @param c2 Segundo candidato.
+	 * @return Negativo, cero o positivo si c1 es menor, igual o mayor que c2.
+	 */
+	private int compareCandidates (int c1, int c2) {
+		if (mCandidateDistances[c1] != mCandidateDistances[c2])
+			return mCandidateDistances[c1] < mCandidateDistances[c2] ? -1 : 1;
+
+		return mCandidates[c1] - mCandidates[c2];
+	} // compareCandidates
+
+	/**
+	 * Inserta una distancia en el montículo de máximos.
+	 *
+	 * @param distance Distancia a insertar.
+	 */
+	private void heapPush (double distance) {
+		int i = mHeapSize++;
+
+		while (i > 0 && mHeap[(i - 1) / 2] < distance) {
+			mHeap[i] = mHeap[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+
+		mHeap[i] = distance;
+	} // heapPush
+
+	/**
+	 * Sustituye la mayor distancia del montículo por la dada.
+	 *
+	 * @param distance Distancia a insertar.
+	 */
+	private void heapReplaceTop (double distance) {
+		int i = 0, child;
+
+		while ((child = 2 * i + 1) < mHeapSize) {
+			if (child + 1 < mHeapSize && mHeap[child + 1] > mHeap[child])
+				child++;
+
+			if (mHeap[child] <= distance)
+				break;
+
+			mHeap[i] = mHeap[child];
+			i = child;
+		}
+
+		mHeap[i] = distance;
+	} // heapReplaceTop
+
+} // KDTreeISNNSearch
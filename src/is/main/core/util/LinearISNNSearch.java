@@ -20,6 +20,11 @@
 
 package main.core.util;
 
+import java.util.BitSet;
+
+import main.core.event.KNNQueryEvent;
+
+import weka.core.DistanceFunction;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.NormalizableDistance;
@@ -30,7 +35,10 @@ import weka.core.neighboursearch.LinearNNSearch;
  * Algoritmo de cálculo de vecinos cercanos.
  * <p>
  * <b>Detalles</b><br>
- * Se asegura de que la instancia de la que se desea obtener sus vecinos no sea devuelta.  
+ * Se asegura de que la instancia de la que se desea obtener sus vecinos no sea devuelta.<br>
+ * Si los datos lo permiten las distancias se calculan por bloques sobre una matriz plana de atributos
+ * (<code>FlatEuclideanDistance</code>), con idénticos resultados a los de la función de distancia.<br>
+ * Las instancias borradas se marcan (tombstones) sin modificar el conjunto de instancias ni la matriz plana.
  * </p>
  * <p>
  * <b>Funcionalidad</b><br>
@@ -38,7 +46,7 @@ import weka.core.neighboursearch.LinearNNSearch;
  * </p>
  * 
  * @author Álvar Arnáiz González
- * @version 1.1
+ * @version 1.4
  */
 public class LinearISNNSearch extends LinearNNSearch {
 
@@ -47,6 +55,31 @@ public class LinearISNNSearch extends LinearNNSearch {
 	 */
 	private static final long serialVersionUID = 2038643255873524858L;
 
+	/**
+	 * Posiciones, dentro del conjunto de instancias, de los vecinos devueltos en la última búsqueda.
+	 */
+	private int[] mNeighbourIndices = new int[0];
+
+	/**
+	 * Matriz plana de atributos del conjunto de instancias, null si no es aplicable.
+	 */
+	private FlatEuclideanDistance mFlat;
+
+	/**
+	 * Posiciones de las instancias borradas, que no se devuelven como vecinos.
+	 */
+	private BitSet mRemoved = new BitSet();
+
+	/**
+	 * Número de búsquedas realizadas desde la última vez que se reiniciaron los contadores.
+	 */
+	private long mNumOfQueries;
+
+	/**
+	 * Número de distancias calculadas desde la última vez que se reiniciaron los contadores.
+	 */
+	private long mNumOfDistances;
+
 	/**
 	 * Constructor por defecto.
 	 * Es necesario asingar las instancias <code>setInstances(inst)</code> antes de poder utilizarlo.
@@ -68,8 +101,83 @@ public class LinearISNNSearch extends LinearNNSearch {
 		
 		// El algoritmo de cálculo de distancias NO debe normalizar las instancias.
 		((NormalizableDistance)m_DistanceFunction).setDontNormalize(true);
+		mFlat = FlatEuclideanDistance.create(insts, m_DistanceFunction);
 	} // LinearISNNSearch
 	
+	/**
+	 * Asigna el conjunto de instancias y empaqueta sus atributos.
+	 * 
+	 * @param insts Instancias a utilizar.
+	 * @throws Exception Si no se puede inicializar la función de distancia.
+	 */
+	public void setInstances(Instances insts) throws Exception {
+		super.setInstances(insts);
+		
+		mFlat = FlatEuclideanDistance.create(insts, m_DistanceFunction);
+		mRemoved = new BitSet(insts.numInstances());
+	} // setInstances
+	
+	/**
+	 * Asigna la función de distancia y vuelve a empaquetar los atributos.
+	 * 
+	 * @param df Función de distancia.
+	 * @throws Exception Si la función de distancia no es válida.
+	 */
+	public void setDistanceFunction(DistanceFunction df) throws Exception {
+		super.setDistanceFunction(df);
+		
+		if (m_Instances != null)
+			mFlat = FlatEuclideanDistance.create(m_Instances, m_DistanceFunction);
+	} // setDistanceFunction
+	
+	/**
+	 * Crea una búsqueda para otro hilo que comparte con esta, sin copiarlos, el conjunto de instancias, la
+	 * función de distancia, la matriz plana y las marcas de borrado. Solo son suyos el resultado de la
+	 * última búsqueda y los contadores, por lo que crearla no cuesta nada.<br>
+	 * La búsqueda creada solo es válida mientras no se modifique esta: asignar las instancias, añadir o
+	 * borrar una instancia.
+	 * 
+	 * @return Búsqueda que comparte las estructuras de esta.
+	 * @throws Exception Si no se puede inicializar la función de distancia.
+	 */
+	public LinearISNNSearch createWorker() throws Exception {
+		LinearISNNSearch worker = new LinearISNNSearch();
+		
+		// La función de distancia se inicializa antes de compartirla, después solo se lee.
+		((NormalizableDistance)m_DistanceFunction).getRanges();
+		
+		worker.m_Instances = m_Instances;
+		worker.m_DistanceFunction = m_DistanceFunction;
+		worker.mFlat = mFlat;
+		worker.mRemoved = mRemoved;
+		
+		return worker;
+	} // createWorker
+	
+	/**
+	 * Actualiza la búsqueda tras añadir una instancia al conjunto de instancias.
+	 * Al igual que en Weka, se supone que la instancia ya ha sido añadida por el llamante.
+	 * 
+	 * @param ins Instancia añadida.
+	 * @throws Exception Si no se ha asignado previamente un conjunto de instancias.
+	 */
+	public void update(Instance ins) throws Exception {
+		super.update(ins);
+		
+		mFlat = FlatEuclideanDistance.create(m_Instances, m_DistanceFunction);
+	} // update
+	
+	/**
+	 * Marca como borrada la instancia que ocupa la posición dada en el conjunto de instancias.
+	 * La instancia no se borra del conjunto asignado, que no debe modificarse: deja de devolverse como
+	 * vecino y las posiciones del resto no cambian.
+	 * 
+	 * @param index Posición de la instancia a borrar.
+	 */
+	public void removeInstance(int index) {
+		mRemoved.set(index);
+	} // removeInstance
+	
 	/**
 	 * Devuelve el vecino más próximo.
 	 * Si no hay ningún vecino cercano devolverá la misma instancia.<br>
@@ -91,6 +199,7 @@ public class LinearISNNSearch extends LinearNNSearch {
 	
 	/**
 	 * Devuelve las "k" instancias más cercanas a la instancia dada. 
+	 * Cada búsqueda emite un evento <code>KNNQueryEvent</code> si está activado.
 	 * 
 	 * @param target Instancia de la que se desean obtener sus k vecinos cercanos.
 	 * @param kNN Número de vecinos cercanos a obtener.
@@ -98,30 +207,42 @@ public class LinearISNNSearch extends LinearNNSearch {
 	 * @throws Exception Si se produce algún error en el cálculo de instancias.
 	 */
 	public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
+		KNNQueryEvent event = new KNNQueryEvent();
 		MyHeap heap = new MyHeap(kNN);
-		double distance;
+		double distance, query[] = mFlat != null ? mFlat.pack(target) : null;
 		int firstkNN = 0;
+		long numOfDistances = mNumOfDistances;
 		
-		// Recorrer todas las instancias del conjunto de entrenamiento de la clase.
-		for (int i = 0; i < m_Instances.numInstances(); i++) {
-			// Si la instancia del conjunto de entrenamiento es igual a la instancia objetivo no tenerla en
-			// cuenta.
-			if (InstanceIS.equals(target, m_Instances.instance(i)))
-				continue;
+		event.begin();
+		mNumOfQueries++;
+		
+		if (query != null) {
+			// Recorrer por bloques la matriz plana del conjunto de entrenamiento.
+			fillHeap(heap, target, query, kNN);
+		} else {
+			// Recorrer todas las instancias del conjunto de entrenamiento de la clase.
+			for (int i = 0; i < m_Instances.numInstances(); i++) {
+				// Si la instancia del conjunto de entrenamiento está borrada o es igual a la instancia objetivo
+				// no tenerla en cuenta.
+				if (mRemoved.get(i) || InstanceIS.equals(target, m_Instances.instance(i)))
+					continue;
+				
+				mNumOfDistances++;
 			
-			if (firstkNN < kNN) {
-				distance = m_DistanceFunction.distance(target, m_Instances.instance(i),
-				                                        Double.POSITIVE_INFINITY);
+				if (firstkNN < kNN) {
+					distance = m_DistanceFunction.distance(target, m_Instances.instance(i),
+					                                        Double.POSITIVE_INFINITY);
 				
-				heap.put(i, distance);
-				firstkNN++;
-			} else {
-				MyHeapElement temp = heap.peek();
-				distance = m_DistanceFunction.distance(target, m_Instances.instance(i), temp.distance);
-				if (distance < temp.distance) {
-					heap.putBySubstitute(i, distance);
-				} else if (distance == temp.distance) {
-					heap.putKthNearest(i, distance);
+					heap.put(i, distance);
+					firstkNN++;
+				} else {
+					MyHeapElement temp = heap.peek();
+					distance = m_DistanceFunction.distance(target, m_Instances.instance(i), temp.distance);
+					if (distance < temp.distance) {
+						heap.putBySubstitute(i, distance);
+					} else if (distance == temp.distance) {
+						heap.putKthNearest(i, distance);
+					}
 				}
 			}
 		}
@@ -147,11 +268,104 @@ public class LinearISNNSearch extends LinearNNSearch {
 		}
 
 		m_DistanceFunction.postProcessDistances(m_Distances);
+		mNeighbourIndices = indices;
 
 		for (int k = 0; k < indices.length; k++)
 			neighbours.add(m_Instances.instance(indices[k]));
 		
+		if (event.shouldCommit()) {
+			event.search = getClass().getSimpleName();
+			event.k = kNN;
+			event.neighbours = indices.length;
+			event.distances = mNumOfDistances - numOfDistances;
+			event.commit();
+		}
+		
 		return neighbours;
 	} // kNearestNeighbours
 	
+	/**
+	 * Recorre la matriz plana por bloques insertando en el montículo los vecinos más cercanos.
+	 * Las decisiones son las mismas que con la función de distancia: las distancias que esta abandona por
+	 * superar el k-ésimo vecino tampoco entran en el montículo con su valor completo.
+	 * 
+	 * @param heap Montículo de vecinos.
+	 * @param target Instancia objetivo.
+	 * @param query Atributos empaquetados de la instancia objetivo.
+	 * @param kNN Número de vecinos cercanos a obtener.
+	 * @throws Exception Si se produce algún error en el montículo.
+	 */
+	private void fillHeap(MyHeap heap, Instance target, double[] query, int kNN) throws Exception {
+		int blockSize = mFlat.getBlockSize(), firstkNN = 0, end;
+		double distances[] = new double[blockSize], distance, cutOff;
+		MyHeapElement temp;
+		
+		for (int start = 0; start < mFlat.numRows(); start += blockSize) {
+			end = Math.min(start + blockSize, mFlat.numRows());
+			// Las filas más lejanas que el k-ésimo vecino actual no pueden entrar en el montículo.
+			cutOff = firstkNN < kNN ? Double.POSITIVE_INFINITY : heap.peek().distance;
+			mFlat.squaredDistances(query, start, end, cutOff, distances);
+			mNumOfDistances += end - start;
+			
+			for (int i = start; i < end; i++) {
+				distance = distances[i - start];
+				
+				// Solo una instancia a distancia 0 puede ser igual a la instancia objetivo.
+				if (mRemoved.get(i) || distance == 0 && InstanceIS.equals(target, m_Instances.instance(i)))
+					continue;
+				
+				if (firstkNN < kNN) {
+					heap.put(i, distance);
+					firstkNN++;
+				} else {
+					temp = heap.peek();
+					
+					if (distance < temp.distance)
+						heap.putBySubstitute(i, distance);
+					else if (distance == temp.distance)
+						heap.putKthNearest(i, distance);
+				}
+			}
+		}
+	} // fillHeap
+	
+	/**
+	 * Devuelve el número de búsquedas realizadas desde la última vez que se reiniciaron los contadores.
+	 * 
+	 * @return Número de búsquedas.
+	 */
+	public long getNumOfQueries() {
+		
+		return mNumOfQueries;
+	} // getNumOfQueries
+	
+	/**
+	 * Devuelve el número de distancias calculadas desde la última vez que se reiniciaron los contadores.
+	 * 
+	 * @return Número de distancias.
+	 */
+	public long getNumOfDistances() {
+		
+		return mNumOfDistances;
+	} // getNumOfDistances
+	
+	/**
+	 * Reinicia los contadores de búsquedas y distancias.
+	 */
+	public void resetCounters() {
+		mNumOfQueries = 0;
+		mNumOfDistances = 0;
+	} // resetCounters
+	
+	/**
+	 * Devuelve las posiciones, dentro del conjunto de instancias, de los vecinos obtenidos en la última
+	 * llamada a <code>kNearestNeighbours</code>, en el mismo orden en que fueron devueltos.
+	 * 
+	 * @return Posiciones de los últimos vecinos calculados.
+	 */
+	public int[] getNeighbourIndices() {
+		
+		return mNeighbourIndices;
+	} // getNeighbourIndices
+	
 } // LinearISNNSearch
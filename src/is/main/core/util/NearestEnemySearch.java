@@ -0,0 +1,361 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * NearestEnemySearch.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+
+/**
+ * <b>Descripción</b><br>
+ * Búsqueda del enemigo más cercano en regresión sobre una matriz plana de atributos.
+ * <p>
+ * <b>Detalles</b><br>
+ * Un enemigo de una instancia con valor de clase y y umbral &theta; es cualquier instancia con valor de
+ * clase y' tal que |y - y'| &gt; &theta;. Los valores que no son enemigos forman un intervalo alrededor de
+ * y, por lo que un conjunto de instancias no contiene enemigos si ni su valor de clase mínimo ni el máximo
+ * lo son.<br>
+ * Las filas de la matriz se organizan en un KD-tree cuyos nodos guardan la caja que contiene a sus filas
+ * y el rango de sus valores de clase. La búsqueda descarta los nodos sin enemigos y los que están más
+ * lejos que el enemigo más cercano encontrado, y calcula las distancias con el mismo núcleo que la matriz
+ * plana, de modo que el resultado es idéntico al de recorrer todas las filas.<br>
+ * La búsqueda no modifica el árbol, por lo que se puede invocar desde varios hilos a la vez.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Cálculo de la distancia al enemigo más cercano en tiempo sublineal en la práctica.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class NearestEnemySearch implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = 4177805365291038829L;
+
+	/**
+	 * Número máximo de filas de una hoja.
+	 */
+	private static final int LEAF_SIZE = 16;
+
+	/**
+	 * Matriz plana de atributos.
+	 */
+	private FlatEuclideanDistance mFlat;
+
+	/**
+	 * Valor de clase de cada fila.
+	 */
+	private double[] mTargets;
+
+	/**
+	 * Filas ordenadas de modo que las de cada nodo son contiguas.
+	 */
+	private int[] mOrder;
+
+	/**
+	 * Número de nodos del árbol.
+	 */
+	private int mNumNodes;
+
+	/**
+	 * Primera posición de <code>mOrder</code> de cada nodo.
+	 */
+	private int[] mNodeStart;
+
+	/**
+	 * Posición siguiente a la última de <code>mOrder</code> de cada nodo.
+	 */
+	private int[] mNodeEnd;
+
+	/**
+	 * Hijo izquierdo de cada nodo, -1 si es una hoja.
+	 */
+	private int[] mNodeLeft;
+
+	/**
+	 * Hijo derecho de cada nodo, -1 si es una hoja.
+	 */
+	private int[] mNodeRight;
+
+	/**
+	 * Mínimo de cada atributo en cada nodo.
+	 */
+	private double[] mNodeMin;
+
+	/**
+	 * Máximo de cada atributo en cada nodo.
+	 */
+	private double[] mNodeMax;
+
+	/**
+	 * Valor de clase mínimo de cada nodo, sin tener en cuenta los perdidos.
+	 */
+	private double[] mNodeTargetMin;
+
+	/**
+	 * Valor de clase máximo de cada nodo, sin tener en cuenta los perdidos.
+	 */
+	private double[] mNodeTargetMax;
+
+	/**
+	 * Constructor de la búsqueda: construye el árbol sobre todas las filas de la matriz.
+	 *
+	 * @param flat Matriz plana de atributos.
+	 * @param targets Valor de clase de cada fila de la matriz.
+	 */
+	public NearestEnemySearch (FlatEuclideanDistance flat, double[] targets) {
+		int n = flat.numRows(), maxNodes = 2 * (n / ((LEAF_SIZE + 1) / 2) + 1);
+		int numAtts = flat.numAttributes();
+
+		mFlat = flat;
+		mTargets = targets;
+		mOrder = new int[n];
+
+		for (int i = 0; i < n; i++)
+			mOrder[i] = i;
+
+		mNodeStart = new int[maxNodes];
+		mNodeEnd = new int[maxNodes];
+		mNodeLeft = new int[maxNodes];
+		mNodeRight = new int[maxNodes];
+		mNodeMin = new double[maxNodes * numAtts];
+		mNodeMax = new double[maxNodes * numAtts];
+		mNodeTargetMin = new double[maxNodes];
+		mNodeTargetMax = new double[maxNodes];
+
+		if (n > 0)
+			buildNode(0, n);
+	} // NearestEnemySearch
+
+	/**
+	 * Construye un nodo del árbol dividiendo por la mediana del atributo de mayor rango.
+	 *
+	 * @param start Primera posición de <code>mOrder</code> del nodo.
+	 * @param end Posición siguiente a la última de <code>mOrder</code> del nodo.
+	 * @return Nodo construido.
+	 */
+	private int buildNode (int start, int end) {
+		int node = mNumNodes++, numAtts = mFlat.numAttributes(), split = -1, row;
+		double value, spread = 0;
+
+		mNodeStart[node] = start;
+		mNodeEnd[node] = end;
+		mNodeLeft[node] = -1;
+		mNodeRight[node] = -1;
+		mNodeTargetMin[node] = Double.POSITIVE_INFINITY;
+		mNodeTargetMax[node] = Double.NEGATIVE_INFINITY;
+
+		// Calcular el rango de los valores de clase del nodo.
+		for (int i = start; i < end; i++) {
+			row = mOrder[i];
+
+			if (!Double.isNaN(mTargets[row])) {
+				mNodeTargetMin[node] = Math.min(mNodeTargetMin[node], mTargets[row]);
+				mNodeTargetMax[node] = Math.max(mNodeTargetMax[node], mTargets[row]);
+			}
+		}
+
+		// Calcular la caja que contiene a las filas del nodo.
+		for (int a = 0; a < numAtts; a++) {
+			mNodeMin[node * numAtts + a] = Double.POSITIVE_INFINITY;
+			mNodeMax[node * numAtts + a] = Double.NEGATIVE_INFINITY;
+
+			for (int i = start; i < end; i++) {
+				value = mFlat.value(mOrder[i], a);
+				mNodeMin[node * numAtts + a] = Math.min(mNodeMin[node * numAtts + a], value);
+				mNodeMax[node * numAtts + a] = Math.max(mNodeMax[node * numAtts + a], value);
+			}
+
+			if (mNodeMax[node * numAtts + a] - mNodeMin[node * numAtts + a] > spread) {
+				spread = mNodeMax[node * numAtts + a] - mNodeMin[node * numAtts + a];
+				split = a;
+			}
+		}
+
+		// Si el nodo es pequeño o no se puede dividir es una hoja.
+		if (end - start <= LEAF_SIZE || split == -1)
+			return node;
+
+		select(start, end, (start + end) / 2, split);
+
+		mNodeLeft[node] = buildNode(start, (start + end) / 2);
+		mNodeRight[node] = buildNode((start + end) / 2, end);
+
+		return node;
+	} // buildNode
+
+	/**
+	 * Reordena <code>mOrder[start, end)</code> de modo que en la posición <code>k</code> quede la fila
+	 * que le correspondería si estuviese ordenado por el atributo dado (QuickSelect).
+	 *
+	 * @param start Primera posición.
+	 * @param end Posición siguiente a la última.
+	 * @param k Posición a fijar.
+	 * @param attribute Posición del atributo en la fila por el que ordenar.
+	 */
+	private void select (int start, int end, int k, int attribute) {
+		int left = start, right = end - 1, i, j, tmp;
+		double pivot;
+
+		while (left < right) {
+			pivot = mFlat.value(mOrder[(left + right) >>> 1], attribute);
+			i = left;
+			j = right;
+
+			while (i <= j) {
+				while (mFlat.value(mOrder[i], attribute) < pivot)
+					i++;
+
+				while (mFlat.value(mOrder[j], attribute) > pivot)
+					j--;
+
+				if (i <= j) {
+					tmp = mOrder[i];
+					mOrder[i] = mOrder[j];
+					mOrder[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				return;
+		}
+	} // select
+
+	/**
+	 * Devuelve la distancia al cuadrado de una consulta a su enemigo más cercano.
+	 *
+	 * @param query Consulta empaquetada con <code>FlatEuclideanDistance.pack</code>.
+	 * @param target Valor de clase de la consulta.
+	 * @param theta Umbral a partir del cual dos valores de clase se consideran distintos.
+	 * @return Distancia al cuadrado al enemigo más cercano o infinito si no tiene enemigos.
+	 */
+	public double nearestEnemySquaredDistance (double[] query, double target, double theta) {
+		if (mNumNodes == 0)
+			return Double.POSITIVE_INFINITY;
+
+		return search(0, query, target, theta, Double.POSITIVE_INFINITY);
+	} // nearestEnemySquaredDistance
+
+	/**
+	 * Recorre un nodo del árbol buscando el enemigo más cercano de la consulta.
+	 *
+	 * @param node Nodo a recorrer.
+	 * @param query Consulta empaquetada.
+	 * @param target Valor de clase de la consulta.
+	 * @param theta Umbral a partir del cual dos valores de clase se consideran distintos.
+	 * @param best Distancia al cuadrado al enemigo más cercano encontrado hasta el momento.
+	 * @return Distancia al cuadrado al enemigo más cercano tras recorrer el nodo.
+	 */
+	private double search (int node, double[] query, double target, double theta, double best) {
+		double distance, leftBound, rightBound;
+		int row;
+
+		// Descartar el nodo si no tiene valores de clase o si ninguno es de un enemigo.
+		if (mNodeTargetMin[node] > mNodeTargetMax[node] ||
+		    (!isEnemy(target, mNodeTargetMin[node], theta) && !isEnemy(target, mNodeTargetMax[node], theta)))
+			return best;
+
+		// Si es una hoja calcular la distancia a sus enemigos.
+		if (mNodeLeft[node] == -1) {
+			for (int i = mNodeStart[node]; i < mNodeEnd[node]; i++) {
+				row = mOrder[i];
+
+				if (isEnemy(target, mTargets[row], theta)) {
+					distance = mFlat.squaredDistance(query, row, best);
+
+					if (distance < best)
+						best = distance;
+				}
+			}
+
+			return best;
+		}
+
+		leftBound = lowerBound(mNodeLeft[node], query);
+		rightBound = lowerBound(mNodeRight[node], query);
+
+		// Recorrer primero el hijo más prometedor; se poda solo si la cota supera estrictamente al mejor.
+		if (leftBound <= rightBound) {
+			if (leftBound <= best)
+				best = search(mNodeLeft[node], query, target, theta, best);
+
+			if (rightBound <= best)
+				best = search(mNodeRight[node], query, target, theta, best);
+		} else {
+			if (rightBound <= best)
+				best = search(mNodeRight[node], query, target, theta, best);
+
+			if (leftBound <= best)
+				best = search(mNodeLeft[node], query, target, theta, best);
+		}
+
+		return best;
+	} // search
+
+	/**
+	 * Indica si un valor de clase es de un enemigo de la consulta.
+	 *
+	 * @param target Valor de clase de la consulta.
+	 * @param value Valor de clase a comprobar.
+	 * @param theta Umbral a partir del cual dos valores de clase se consideran distintos.
+	 * @return Verdadero si |target - value| &gt; theta.
+	 */
+	private static boolean isEnemy (double target, double value, double theta) {
+
+		return Math.abs(target - value) > theta;
+	} // isEnemy
+
+	/**
+	 * Calcula una cota inferior de la distancia al cuadrado de la consulta a cualquier fila de un nodo.
+	 * Se suman los términos en el mismo orden de atributos que la matriz plana y cada término es menor o
+	 * igual que el real, por lo que la cota nunca supera a la distancia calculada.
+	 *
+	 * @param node Nodo del árbol.
+	 * @param query Consulta empaquetada.
+	 * @return Cota inferior de la distancia al cuadrado.
+	 */
+	private double lowerBound (int node, double[] query) {
+		int numAtts = query.length;
+		double bound = 0, diff;
+
+		for (int a = 0; a < numAtts; a++) {
+			if (query[a] < mNodeMin[node * numAtts + a])
+				diff = mNodeMin[node * numAtts + a] - query[a];
+			else if (query[a] > mNodeMax[node * numAtts + a])
+				diff = query[a] - mNodeMax[node * numAtts + a];
+			else
+				continue;
+
+			bound += diff * diff;
+		}
+
+		return bound;
+	} // lowerBound
+
+} // NearestEnemySearch
@@ -0,0 +1,451 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * NeighbourErrorEvaluator.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Evaluación del error de regresión de los asociados de una instancia con y sin dicha instancia como vecina.
+ * <p>
+ * <b>Detalles</b><br>
+ * Reproduce, sin crear conjuntos de instancias ni clasificadores, el error que obtiene
+ * <code>weka.classifiers.Evaluation</code> al probar cada asociado con un <code>IBk</code> de k vecinos
+ * entrenado con su vecindario: los vecinos que elige IBk se determinan con las mismas operaciones que su
+ * distancia euclídea normalizada (rangos del conjunto de entrenamiento y la instancia de prueba), y su
+ * predicción es la media de los valores de clase de dichos vecinos.<br>
+ * El orden en que IBk suma los valores de clase depende de su montículo, por lo que los errores se
+ * acompañan de una cota de su diferencia con los de IBk. Si la comparación de los errores queda dentro de
+ * la cota no se decide y el llamante debe recurrir a IBk.<br>
+ * Solo es aplicable si todos los atributos son numéricos, no hay valores perdidos ni infinitos y todas las
+ * instancias tienen peso 1; en otro caso <code>create</code> devuelve null. Las matrices auxiliares se
+ * reservan al crearlo, por lo que cada hilo debe utilizar su propia copia (<code>copy</code>).
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Comparación rápida de los errores with y without de los asociados.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class NeighbourErrorEvaluator implements Serializable, Cloneable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = 6207539513986217035L;
+
+	/**
+	 * Unidad de redondeo de la aritmética en doble precisión.
+	 */
+	private static final double UNIT_ROUNDOFF = 0x1.0p-53;
+
+	/**
+	 * Diferencia máxima entre un error y la raíz de su cuadrado cuando este cae en el rango subnormal.
+	 */
+	private static final double SQRT_ERROR = 0x1.0p-500;
+
+	/**
+	 * Error máximo con el que se evita que el cuadrado que calcula Evaluation se desborde.
+	 */
+	private static final double MAX_ERROR = 0x1.0p500;
+
+	/**
+	 * Número de vecinos de IBk.
+	 */
+	private int mNumOfNearestNeighbour;
+
+	/**
+	 * Valores de los atributos (sin la clase) de todas las instancias, fila tras fila.
+	 */
+	private double[] mData;
+
+	/**
+	 * Valor de la clase de cada instancia.
+	 */
+	private double[] mClassValues;
+
+	/**
+	 * Número de atributos de cada fila.
+	 */
+	private int mNumAttributes;
+
+	/**
+	 * Identificadores del conjunto de entrenamiento del asociado evaluado.
+	 */
+	private int[] mTrain;
+
+	/**
+	 * Distancias al cuadrado del asociado evaluado a su conjunto de entrenamiento.
+	 */
+	private double[] mDistances;
+
+	/**
+	 * Mínimo de cada atributo en el conjunto de entrenamiento y la instancia de prueba.
+	 */
+	private double[] mMin;
+
+	/**
+	 * Máximo de cada atributo en el conjunto de entrenamiento y la instancia de prueba.
+	 */
+	private double[] mMax;
+
+	/**
+	 * Error de la última predicción.
+	 */
+	private double mError;
+
+	/**
+	 * Error without del último asociado evaluado.
+	 */
+	private double mErrorWithout;
+
+	/**
+	 * Error with del último asociado evaluado.
+	 */
+	private double mErrorWith;
+
+	/**
+	 * Cota de la diferencia entre el error de la última predicción y el de IBk; tras evaluar un asociado,
+	 * cota de la suma de sus dos errores.
+	 */
+	private double mErrorBound;
+
+	/**
+	 * Constructor privado, los evaluadores se crean mediante <code>create</code>.
+	 *
+	 * @param set Conjunto de trabajo, en el orden de los identificadores.
+	 * @param attributes Índices de los atributos que intervienen en la distancia.
+	 * @param numAttributes Número de atributos que intervienen en la distancia.
+	 * @param classValues Valores de clase de las instancias del conjunto de trabajo.
+	 * @param numOfNearestNeighbour Número de vecinos de IBk.
+	 */
+	private NeighbourErrorEvaluator (Instances set, int[] attributes, int numAttributes, double[] classValues,
+	                                 int numOfNearestNeighbour) {
+		mNumOfNearestNeighbour = numOfNearestNeighbour;
+		mNumAttributes = numAttributes;
+		mClassValues = classValues;
+		mData = new double[set.numInstances() * numAttributes];
+
+		for (int i = 0; i < set.numInstances(); i++)
+			for (int j = 0; j < numAttributes; j++)
+				mData[i * numAttributes + j] = set.instance(i).value(attributes[j]);
+
+		// El conjunto de entrenamiento más grande es el vecindario más la instancia evaluada.
+		mTrain = new int[numOfNearestNeighbour + 2];
+		mDistances = new double[numOfNearestNeighbour + 2];
+		mMin = new double[numAttributes];
+		mMax = new double[numAttributes];
+	} // NeighbourErrorEvaluator
+
+	/**
+	 * Crea el evaluador de un conjunto de trabajo.
+	 *
+	 * @param set Conjunto de trabajo, en el orden de los identificadores.
+	 * @param classValues Valores de clase de las instancias del conjunto de trabajo.
+	 * @param numOfNearestNeighbour Número de vecinos de IBk.
+	 * @return Evaluador del conjunto o null si los datos no lo permiten.
+	 */
+	public static NeighbourErrorEvaluator create (Instances set, double[] classValues, int numOfNearestNeighbour) {
+		int attributes[] = new int[set.numAttributes()], n = 0;
+		Instance inst;
+
+		if (set.classIndex() < 0 || !set.classAttribute().isNumeric())
+			return null;
+
+		for (int i = 0; i < set.numAttributes(); i++)
+			if (i != set.classIndex()) {
+				if (set.attribute(i).type() != Attribute.NUMERIC)
+					return null;
+
+				attributes[n++] = i;
+			}
+
+		for (int i = 0; i < set.numInstances(); i++) {
+			inst = set.instance(i);
+
+			if (inst.weight() != 1 || inst.hasMissingValue() || Double.isInfinite(inst.classValue()))
+				return null;
+
+			for (int j = 0; j < n; j++)
+				if (Double.isInfinite(inst.value(attributes[j])))
+					return null;
+		}
+
+		return new NeighbourErrorEvaluator(set, attributes, n, classValues, numOfNearestNeighbour);
+	} // create
+
+	/**
+	 * Devuelve una copia del evaluador que comparte los datos pero no las matrices auxiliares, para
+	 * utilizarla desde otro hilo.
+	 *
+	 * @return Copia del evaluador.
+	 */
+	public NeighbourErrorEvaluator copy () {
+		NeighbourErrorEvaluator copy;
+
+		try {
+			copy = (NeighbourErrorEvaluator)clone();
+		} catch (CloneNotSupportedException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		copy.mTrain = new int[mTrain.length];
+		copy.mDistances = new double[mDistances.length];
+		copy.mMin = new double[mNumAttributes];
+		copy.mMax = new double[mNumAttributes];
+
+		return copy;
+	} // copy
+
+	/**
+	 * Devuelve el error without del último asociado evaluado.
+	 *
+	 * @return Error sin la instancia actual como vecina.
+	 */
+	public double getErrorWithout () {
+
+		return mErrorWithout;
+	} // getErrorWithout
+
+	/**
+	 * Devuelve el error with del último asociado evaluado.
+	 *
+	 * @return Error con la instancia actual como vecina.
+	 */
+	public double getErrorWith () {
+
+		return mErrorWith;
+	} // getErrorWith
+
+	/**
+	 * Devuelve la cota de la diferencia con IBk de la suma de los errores with y without del último
+	 * asociado evaluado.
+	 *
+	 * @return Cota de los errores.
+	 */
+	public double getErrorBound () {
+
+		return mErrorBound;
+	} // getErrorBound
+
+	/**
+	 * Compara el error de los asociados de una instancia sin ella (without) con su error teniéndola como
+	 * vecina (with) más alfa. Los errores de cada asociado se suman en el orden de su lista de asociados.
+	 *
+	 * @param graph Grafo de vecinos y asociados.
+	 * @param current Identificador de la instancia evaluada.
+	 * @param alpha Valor de alfa.
+	 * @return 1 si without &gt; with + alfa, -1 si without &lt;= with + alfa y 0 si los errores están tan
+	 *         próximos que solo IBk puede decidirlo.
+	 */
+	public int compare (NeighbourGraph graph, int current, double alpha) {
+		double errorWith = 0, errorWithout = 0, errorBound = 0;
+		int numOfAssociates = graph.numAssociates(current);
+
+		for (int a = 0; a < numOfAssociates; a++) {
+			if (!evaluate(graph, current, a))
+				return 0;
+
+			errorWithout += mErrorWithout;
+			errorWith += mErrorWith;
+			errorBound += mErrorBound;
+		}
+
+		return compare(errorWith, errorWithout, errorBound, numOfAssociates, alpha);
+	} // compare
+
+	/**
+	 * Compara las sumas de los errores without y with más alfa de los asociados de una instancia.
+	 *
+	 * @param errorWith Suma, en el orden de los asociados, de sus errores with.
+	 * @param errorWithout Suma, en el orden de los asociados, de sus errores without.
+	 * @param errorBound Suma de las cotas de los errores de los asociados.
+	 * @param numOfAssociates Número de asociados.
+	 * @param alpha Valor de alfa.
+	 * @return 1 si without &gt; with + alfa, -1 si without &lt;= with + alfa y 0 si los errores están tan
+	 *         próximos que solo IBk puede decidirlo.
+	 */
+	public static int compare (double errorWith, double errorWithout, double errorBound, int numOfAssociates,
+	                           double alpha) {
+		double difference = errorWithout - (errorWith + alpha), bound;
+
+		// Cota de las diferencias de cada error más el redondeo de las sumas, que pueden acumular en distinto
+		// orden los errores de IBk, y de la suma de alfa.
+		bound = errorBound + 4 * (numOfAssociates + 2) * UNIT_ROUNDOFF *
+		        (errorWith + errorWithout + alpha + errorBound) + Double.MIN_VALUE;
+
+		if (difference > bound)
+			return 1;
+
+		if (difference < -bound)
+			return -1;
+
+		return 0;
+	} // compare
+
+	/**
+	 * Calcula los errores without y with de un asociado de una instancia, que se obtienen mediante
+	 * <code>getErrorWithout</code> y <code>getErrorWith</code> junto con su cota.
+	 *
+	 * @param graph Grafo de vecinos y asociados.
+	 * @param current Identificador de la instancia evaluada.
+	 * @param a Posición del asociado en la lista de asociados de la instancia.
+	 * @return Falso si algún error es tan grande que su cuadrado se desbordaría.
+	 */
+	public boolean evaluate (NeighbourGraph graph, int current, int a) {
+		int assoc = graph.getAssociate(current, a), neighbour, numOfTrain = 0;
+		double errorBound;
+
+		// Conjunto de entrenamiento sin la instancia actual.
+		for (int i = 0; i < graph.numNeighbours(assoc); i++) {
+			neighbour = graph.getNeighbour(assoc, i);
+
+			if (neighbour != current)
+				mTrain[numOfTrain++] = neighbour;
+		}
+
+		if (!predict(assoc, numOfTrain))
+			return false;
+
+		mErrorWithout = mError;
+		errorBound = mErrorBound;
+
+		// Añadir la instancia actual al final, como en el conjunto de entrenamiento de IBk.
+		mTrain[numOfTrain++] = current;
+
+		if (!predict(assoc, numOfTrain))
+			return false;
+
+		mErrorWith = mError;
+		mErrorBound += errorBound;
+
+		return true;
+	} // evaluate
+
+	/**
+	 * Calcula el error al predecir una instancia con un IBk entrenado con las primeras instancias de
+	 * <code>mTrain</code>, y lo deja en <code>mError</code> junto con su cota en <code>mErrorBound</code>.<br>
+	 * IBk utiliza los k vecinos más cercanos y todos los empatados con el k-ésimo.
+	 *
+	 * @param id Identificador de la instancia a predecir.
+	 * @param numOfTrain Número de instancias del conjunto de entrenamiento.
+	 * @return Falso si el error es tan grande que su cuadrado se desbordaría.
+	 */
+	private boolean predict (int id, int numOfTrain) {
+		double sum = 0, sumOfAbsValues = 0, prediction, kthDistance = Double.POSITIVE_INFINITY;
+		int count = 0, closer;
+
+		if (numOfTrain > mNumOfNearestNeighbour) {
+			calcDistances(id, numOfTrain);
+
+			// La distancia del k-ésimo vecino es la mayor que tiene menos de k instancias más cercanas.
+			kthDistance = Double.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < numOfTrain; i++) {
+				closer = 0;
+
+				for (int j = 0; j < numOfTrain; j++)
+					if (mDistances[j] < mDistances[i])
+						closer++;
+
+				if (closer < mNumOfNearestNeighbour && mDistances[i] > kthDistance)
+					kthDistance = mDistances[i];
+			}
+		}
+
+		for (int i = 0; i < numOfTrain; i++)
+			if (numOfTrain <= mNumOfNearestNeighbour || mDistances[i] <= kthDistance) {
+				sum += mClassValues[mTrain[i]];
+				sumOfAbsValues += Math.abs(mClassValues[mTrain[i]]);
+				count++;
+			}
+
+		// Sin vecinos IBk predice 0, como el ZeroR sin instancias.
+		prediction = count == 0 ? 0 : sum / count;
+		mError = Math.abs(prediction - mClassValues[id]);
+
+		if (mError > MAX_ERROR)
+			return false;
+
+		// Evaluation calcula el error como la raíz de su cuadrado.
+		mErrorBound = 4 * UNIT_ROUNDOFF * (2 * Math.max(count - 1, 0) * sumOfAbsValues / Math.max(count, 1) +
+		              2 * (Math.abs(prediction) + Math.abs(mClassValues[id]))) + SQRT_ERROR;
+
+		return true;
+	} // predict
+
+	/**
+	 * Calcula las distancias al cuadrado de una instancia a las instancias de <code>mTrain</code> con las
+	 * mismas operaciones que <code>EuclideanDistance</code>: cada atributo se normaliza con el rango del
+	 * conjunto de entrenamiento y la instancia, y los cuadrados se suman en el orden de los atributos.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param numOfTrain Número de instancias del conjunto de entrenamiento.
+	 */
+	private void calcDistances (int id, int numOfTrain) {
+		int test = id * mNumAttributes, row;
+		double distance, diff, width, value;
+
+		for (int j = 0; j < mNumAttributes; j++) {
+			mMin[j] = mData[test + j];
+			mMax[j] = mData[test + j];
+		}
+
+		for (int i = 0; i < numOfTrain; i++) {
+			row = mTrain[i] * mNumAttributes;
+
+			for (int j = 0; j < mNumAttributes; j++) {
+				value = mData[row + j];
+
+				if (value < mMin[j])
+					mMin[j] = value;
+
+				if (value > mMax[j])
+					mMax[j] = value;
+			}
+		}
+
+		for (int i = 0; i < numOfTrain; i++) {
+			row = mTrain[i] * mNumAttributes;
+			distance = 0;
+
+			for (int j = 0; j < mNumAttributes; j++) {
+				width = mMax[j] - mMin[j];
+
+				if (mMax[j] == mMin[j])
+					diff = 0;
+				else
+					diff = (mData[test + j] - mMin[j]) / width - (mData[row + j] - mMin[j]) / width;
+
+				distance = distance + diff * diff;
+			}
+
+			mDistances[i] = distance;
+		}
+	} // calcDistances
+
+} // NeighbourErrorEvaluator
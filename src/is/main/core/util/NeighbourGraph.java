@@ -0,0 +1,581 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * NeighbourGraph.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <b>Descripción</b><br>
+ * Grafo de vecinos y asociados de un conjunto de instancias identificadas por enteros.
+ * <p>
+ * <b>Detalles</b><br>
+ * Cada instancia se identifica por su posición (ID) en el conjunto de trabajo del algoritmo. Los
+ * vecinos de todas las instancias se almacenan en un único array plano de enteros, reservando
+ * <code>neighbourCapacity</code> huecos por instancia, y los asociados en listas de enteros que crecen
+ * bajo demanda. Junto a cada vecino se guarda su distancia a la instancia, de modo que no sea necesario
+ * volver a calcularla. Opcionalmente cada instancia puede tener una lista de candidatos a vecino (los
+ * siguientes más cercanos) con la que sustituir a los vecinos eliminados sin realizar una nueva búsqueda.<br>
+ * Mantiene el orden de inserción de vecinos y asociados, de modo que los algoritmos que lo utilizan
+ * recorren los vecinos en el mismo orden en que fueron calculados.<br>
+ * Cada modificación de una lista de vecinos o de asociados incrementa un contador del grafo y queda
+ * registrada en la instancia, de modo que se puede comprobar si sus listas han cambiado desde un momento
+ * dado.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Sustituye a los vectores de vectores de instancias en los algoritmos de la familia DROP.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.1
+ */
+public class NeighbourGraph implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = -2731940265516364470L;
+
+	/**
+	 * Número de instancias (nodos) del grafo.
+	 */
+	private int mNumNodes;
+
+	/**
+	 * Número máximo de vecinos por instancia.
+	 */
+	private int mNeighbourCapacity;
+
+	/**
+	 * Vecinos de todas las instancias. Los vecinos de la instancia i ocupan las posiciones
+	 * [i * mNeighbourCapacity, i * mNeighbourCapacity + mNumNeighbours[i]).
+	 */
+	private int[] mNeighbours;
+
+	/**
+	 * Distancias de cada instancia a sus vecinos, en las mismas posiciones que <code>mNeighbours</code>.
+	 */
+	private double[] mNeighbourDistances;
+
+	/**
+	 * Número de vecinos de cada instancia.
+	 */
+	private int[] mNumNeighbours;
+
+	/**
+	 * Listas de asociados de cada instancia.
+	 */
+	private int[][] mAssociates;
+
+	/**
+	 * Número de asociados de cada instancia.
+	 */
+	private int[] mNumAssociates;
+
+	/**
+	 * Listas de candidatos a vecino de cada instancia ordenados de menor a mayor distancia, null si no se
+	 * utilizan.
+	 */
+	private int[][] mCandidates;
+
+	/**
+	 * Distancias de cada instancia a sus candidatos.
+	 */
+	private double[][] mCandidateDistances;
+
+	/**
+	 * Distancia a partir de la cual la lista de candidatos de cada instancia deja de ser exhaustiva: puede
+	 * haber instancias fuera de la lista a esa distancia o más.
+	 */
+	private double[] mCandidateBounds;
+
+	/**
+	 * Número de modificaciones de las listas de vecinos y asociados realizadas en el grafo.
+	 */
+	private long mModificationCount;
+
+	/**
+	 * Valor del contador de modificaciones tras la última modificación de la lista de vecinos de cada
+	 * instancia.
+	 */
+	private long[] mNeighbourStamps;
+
+	/**
+	 * Valor del contador de modificaciones tras la última modificación de la lista de asociados de cada
+	 * instancia.
+	 */
+	private long[] mAssociateStamps;
+
+	/**
+	 * Constructor del grafo.
+	 *
+	 * @param numNodes Número de instancias del grafo.
+	 * @param neighbourCapacity Número máximo de vecinos por instancia.
+	 */
+	public NeighbourGraph (int numNodes, int neighbourCapacity) {
+		mNumNodes = numNodes;
+		mNeighbourCapacity = neighbourCapacity;
+		mNeighbours = new int[numNodes * neighbourCapacity];
+		mNeighbourDistances = new double[numNodes * neighbourCapacity];
+		mNumNeighbours = new int[numNodes];
+		mAssociates = new int[numNodes][];
+		mNumAssociates = new int[numNodes];
+		mNeighbourStamps = new long[numNodes];
+		mAssociateStamps = new long[numNodes];
+
+		// La capacidad inicial de asociados es el doble de la de vecinos.
+		for (int i = 0; i < numNodes; i++)
+			mAssociates[i] = new int[neighbourCapacity * 2];
+	} // NeighbourGraph
+
+	/**
+	 * Devuelve el número de instancias del grafo.
+	 *
+	 * @return Número de instancias.
+	 */
+	public int numNodes () {
+
+		return mNumNodes;
+	} // numNodes
+
+	/**
+	 * Devuelve el número máximo de vecinos por instancia.
+	 *
+	 * @return Número máximo de vecinos.
+	 */
+	public int getNeighbourCapacity () {
+
+		return mNeighbourCapacity;
+	} // getNeighbourCapacity
+
+	/**
+	 * Devuelve el número de vecinos de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @return Número de vecinos de la instancia.
+	 */
+	public int numNeighbours (int id) {
+
+		return mNumNeighbours[id];
+	} // numNeighbours
+
+	/**
+	 * Devuelve el vecino j-ésimo de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param j Posición del vecino en la lista de vecinos.
+	 * @return Identificador del vecino.
+	 */
+	public int getNeighbour (int id, int j) {
+
+		return mNeighbours[id * mNeighbourCapacity + j];
+	} // getNeighbour
+
+	/**
+	 * Devuelve la distancia de una instancia a su vecino j-ésimo.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param j Posición del vecino en la lista de vecinos.
+	 * @return Distancia al vecino.
+	 */
+	public double getNeighbourDistance (int id, int j) {
+
+		return mNeighbourDistances[id * mNeighbourCapacity + j];
+	} // getNeighbourDistance
+
+	/**
+	 * Establece la lista de vecinos de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param neighbours Identificadores de los vecinos ordenados.
+	 * @param distances Distancias de la instancia a cada uno de los vecinos.
+	 * @param count Número de vecinos a copiar de <code>neighbours</code>.
+	 */
+	public void setNeighbours (int id, int[] neighbours, double[] distances, int count) {
+		if (count > mNeighbourCapacity)
+			throw new IllegalArgumentException("Demasiados vecinos para la instancia " + id);
+
+		System.arraycopy(neighbours, 0, mNeighbours, id * mNeighbourCapacity, count);
+		System.arraycopy(distances, 0, mNeighbourDistances, id * mNeighbourCapacity, count);
+		mNumNeighbours[id] = count;
+		mNeighbourStamps[id] = ++mModificationCount;
+	} // setNeighbours
+
+	/**
+	 * Añade un vecino al final de la lista de vecinos de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param neighbour Identificador del nuevo vecino.
+	 * @param distance Distancia de la instancia al nuevo vecino.
+	 */
+	public void addNeighbour (int id, int neighbour, double distance) {
+		if (mNumNeighbours[id] == mNeighbourCapacity)
+			throw new IllegalStateException("La lista de vecinos de la instancia " + id + " está llena");
+
+		mNeighbours[id * mNeighbourCapacity + mNumNeighbours[id]] = neighbour;
+		mNeighbourDistances[id * mNeighbourCapacity + mNumNeighbours[id]] = distance;
+		mNumNeighbours[id]++;
+		mNeighbourStamps[id] = ++mModificationCount;
+	} // addNeighbour
+
+	/**
+	 * Devuelve la posición de un vecino dentro de la lista de vecinos de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param neighbour Identificador del vecino a buscar.
+	 * @return Posición del vecino o -1 si no es vecino de la instancia.
+	 */
+	public int indexOfNeighbour (int id, int neighbour) {
+		int offset = id * mNeighbourCapacity;
+
+		for (int j = 0; j < mNumNeighbours[id]; j++)
+			if (mNeighbours[offset + j] == neighbour)
+				return j;
+
+		return -1;
+	} // indexOfNeighbour
+
+	/**
+	 * Comprueba si una instancia es vecina de otra.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param neighbour Identificador del posible vecino.
+	 * @return Verdadero si neighbour es vecino de id, falso en caso contrario.
+	 */
+	public boolean containsNeighbour (int id, int neighbour) {
+
+		return indexOfNeighbour(id, neighbour) != -1;
+	} // containsNeighbour
+
+	/**
+	 * Elimina un vecino de la lista de vecinos de una instancia manteniendo el orden del resto.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param neighbour Identificador del vecino a eliminar.
+	 * @return Verdadero si el vecino estaba en la lista (y ha sido borrado), falso en caso contrario.
+	 */
+	public boolean removeNeighbour (int id, int neighbour) {
+		int offset = id * mNeighbourCapacity, j = indexOfNeighbour(id, neighbour);
+
+		if (j == -1)
+			return false;
+
+		System.arraycopy(mNeighbours, offset + j + 1, mNeighbours, offset + j, mNumNeighbours[id] - j - 1);
+		System.arraycopy(mNeighbourDistances, offset + j + 1, mNeighbourDistances, offset + j, 
+		                 mNumNeighbours[id] - j - 1);
+		mNumNeighbours[id]--;
+		mNeighbourStamps[id] = ++mModificationCount;
+
+		return true;
+	} // removeNeighbour
+
+	/**
+	 * Devuelve el número de asociados de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @return Número de asociados de la instancia.
+	 */
+	public int numAssociates (int id) {
+
+		return mNumAssociates[id];
+	} // numAssociates
+
+	/**
+	 * Devuelve el asociado j-ésimo de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param j Posición del asociado en la lista de asociados.
+	 * @return Identificador del asociado.
+	 */
+	public int getAssociate (int id, int j) {
+
+		return mAssociates[id][j];
+	} // getAssociate
+
+	/**
+	 * Añade un asociado al final de la lista de asociados de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param associate Identificador del nuevo asociado.
+	 */
+	public void addAssociate (int id, int associate) {
+		// Duplicar la capacidad de la lista si está llena.
+		if (mNumAssociates[id] == mAssociates[id].length) {
+			int[] tmp = new int[Math.max(mAssociates[id].length * 2, 1)];
+			System.arraycopy(mAssociates[id], 0, tmp, 0, mNumAssociates[id]);
+			mAssociates[id] = tmp;
+		}
+
+		mAssociates[id][mNumAssociates[id]] = associate;
+		mNumAssociates[id]++;
+		mAssociateStamps[id] = ++mModificationCount;
+	} // addAssociate
+
+	/**
+	 * Establece la lista de asociados de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param associates Identificadores de los asociados.
+	 * @param count Número de asociados a copiar de <code>associates</code>.
+	 */
+	public void setAssociates (int id, int[] associates, int count) {
+		if (mAssociates[id].length < count)
+			mAssociates[id] = new int[count];
+
+		System.arraycopy(associates, 0, mAssociates[id], 0, count);
+		mNumAssociates[id] = count;
+		mAssociateStamps[id] = ++mModificationCount;
+	} // setAssociates
+
+	/**
+	 * Devuelve el número de candidatos a vecino de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @return Número de candidatos de la instancia.
+	 */
+	public int numCandidates (int id) {
+		if (mCandidates == null || mCandidates[id] == null)
+			return 0;
+
+		return mCandidates[id].length;
+	} // numCandidates
+
+	/**
+	 * Devuelve el candidato a vecino j-ésimo de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param j Posición del candidato en la lista de candidatos.
+	 * @return Identificador del candidato.
+	 */
+	public int getCandidate (int id, int j) {
+
+		return mCandidates[id][j];
+	} // getCandidate
+
+	/**
+	 * Devuelve la distancia de una instancia a su candidato a vecino j-ésimo.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param j Posición del candidato en la lista de candidatos.
+	 * @return Distancia al candidato.
+	 */
+	public double getCandidateDistance (int id, int j) {
+
+		return mCandidateDistances[id][j];
+	} // getCandidateDistance
+
+	/**
+	 * Devuelve la distancia a partir de la cual la lista de candidatos de una instancia deja de ser
+	 * exhaustiva.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @return Distancia límite de la lista de candidatos.
+	 */
+	public double getCandidateBound (int id) {
+
+		return mCandidateBounds[id];
+	} // getCandidateBound
+
+	/**
+	 * Reserva las listas de candidatos a vecino de todas las instancias.
+	 * Debe invocarse antes de establecer candidatos desde varios hilos a la vez.
+	 */
+	public void initCandidates () {
+		if (mCandidates != null)
+			return;
+
+		mCandidates = new int[mNumNodes][];
+		mCandidateDistances = new double[mNumNodes][];
+		mCandidateBounds = new double[mNumNodes];
+	} // initCandidates
+
+	/**
+	 * Establece la lista de candidatos a vecino de una instancia.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param candidates Identificadores de los candidatos ordenados de menor a mayor distancia.
+	 * @param distances Distancias de la instancia a cada uno de los candidatos.
+	 * @param count Número de candidatos a copiar de <code>candidates</code>.
+	 * @param bound Distancia a partir de la cual la lista deja de ser exhaustiva.
+	 */
+	public void setCandidates (int id, int[] candidates, double[] distances, int count, double bound) {
+		if (mCandidates == null)
+			initCandidates();
+
+		mCandidates[id] = Arrays.copyOf(candidates, count);
+		mCandidateDistances[id] = Arrays.copyOf(distances, count);
+		mCandidateBounds[id] = bound;
+	} // setCandidates
+
+	/**
+	 * Reordena las instancias del grafo.
+	 * La instancia que ocupaba la posición <code>order[i]</code> pasa a tener el identificador i. Se
+	 * traducen tanto las filas como los identificadores almacenados en las listas de vecinos y asociados.
+	 *
+	 * @param order Permutación a aplicar: order[nuevoID] = antiguoID.
+	 */
+	public void reorder (int[] order) {
+		int[] newIds = new int[mNumNodes];
+		int[] neighbours = new int[mNeighbours.length];
+		double[] neighbourDistances = new double[mNeighbourDistances.length];
+		int[] numNeighbours = new int[mNumNodes];
+		int[][] associates = new int[mNumNodes][];
+		int[] numAssociates = new int[mNumNodes];
+
+		// Calcular la permutación inversa: antiguoID -> nuevoID.
+		for (int i = 0; i < mNumNodes; i++)
+			newIds[order[i]] = i;
+
+		for (int i = 0; i < mNumNodes; i++) {
+			int old = order[i];
+
+			numNeighbours[i] = mNumNeighbours[old];
+
+			for (int j = 0; j < mNumNeighbours[old]; j++) {
+				neighbours[i * mNeighbourCapacity + j] = newIds[mNeighbours[old * mNeighbourCapacity + j]];
+				neighbourDistances[i * mNeighbourCapacity + j] = mNeighbourDistances[old * mNeighbourCapacity + j];
+			}
+
+			numAssociates[i] = mNumAssociates[old];
+			associates[i] = mAssociates[old];
+
+			for (int j = 0; j < mNumAssociates[old]; j++)
+				associates[i][j] = newIds[associates[i][j]];
+		}
+
+		// Reordenar las listas de candidatos.
+		if (mCandidates != null) {
+			int[][] candidates = new int[mNumNodes][];
+			double[][] candidateDistances = new double[mNumNodes][];
+			double[] candidateBounds = new double[mNumNodes];
+
+			for (int i = 0; i < mNumNodes; i++) {
+				candidates[i] = mCandidates[order[i]];
+				candidateDistances[i] = mCandidateDistances[order[i]];
+				candidateBounds[i] = mCandidateBounds[order[i]];
+
+				for (int j = 0; candidates[i] != null && j < candidates[i].length; j++)
+					candidates[i][j] = newIds[candidates[i][j]];
+			}
+
+			mCandidates = candidates;
+			mCandidateDistances = candidateDistances;
+			mCandidateBounds = candidateBounds;
+		}
+
+		mNeighbours = neighbours;
+		mNeighbourDistances = neighbourDistances;
+		mNumNeighbours = numNeighbours;
+		mAssociates = associates;
+		mNumAssociates = numAssociates;
+
+		// Todos los identificadores han cambiado.
+		mModificationCount++;
+		Arrays.fill(mNeighbourStamps, mModificationCount);
+		Arrays.fill(mAssociateStamps, mModificationCount);
+	} // reorder
+
+	/**
+	 * Devuelve el número de modificaciones de las listas de vecinos y asociados realizadas en el grafo.
+	 *
+	 * @return Contador de modificaciones.
+	 */
+	public long getModificationCount () {
+
+		return mModificationCount;
+	} // getModificationCount
+
+	/**
+	 * Comprueba si la lista de vecinos de una instancia ha cambiado desde un momento dado.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param modificationCount Contador de modificaciones en el momento de referencia.
+	 * @return Verdadero si la lista de vecinos se ha modificado después.
+	 */
+	public boolean neighboursModifiedSince (int id, long modificationCount) {
+
+		return mNeighbourStamps[id] > modificationCount;
+	} // neighboursModifiedSince
+
+	/**
+	 * Comprueba si la lista de asociados de una instancia ha cambiado desde un momento dado.
+	 *
+	 * @param id Identificador de la instancia.
+	 * @param modificationCount Contador de modificaciones en el momento de referencia.
+	 * @return Verdadero si la lista de asociados se ha modificado después.
+	 */
+	public boolean associatesModifiedSince (int id, long modificationCount) {
+
+		return mAssociateStamps[id] > modificationCount;
+	} // associatesModifiedSince
+
+	/**
+	 * Estima la memoria ocupada por las listas del grafo en bytes, suponiendo 16 bytes de cabecera por
+	 * array y referencias de 4 bytes.<br>
+	 * Se puede invocar desde otro hilo mientras se modifica el grafo, en cuyo caso la estimación es
+	 * aproximada.
+	 *
+	 * @return Memoria estimada en bytes.
+	 */
+	public long getMemoryFootprint () {
+		int[][] associates = mAssociates, candidates = mCandidates;
+		double[][] candidateDistances = mCandidateDistances;
+		long bytes;
+
+		bytes = arrayBytes(mNeighbours.length, 4) + arrayBytes(mNeighbourDistances.length, 8) +
+		        arrayBytes(mNumNeighbours.length, 4) + arrayBytes(mNumAssociates.length, 4) +
+		        arrayBytes(mNeighbourStamps.length, 8) + arrayBytes(mAssociateStamps.length, 8) +
+		        arrayBytes(associates.length, 4);
+
+		for (int[] row : associates)
+			if (row != null)
+				bytes += arrayBytes(row.length, 4);
+
+		if (candidates != null && candidateDistances != null) {
+			bytes += arrayBytes(candidates.length, 4) + arrayBytes(candidateDistances.length, 4) +
+			         arrayBytes(candidates.length, 8);
+
+			for (int i = 0; i < candidates.length; i++) {
+				if (candidates[i] != null)
+					bytes += arrayBytes(candidates[i].length, 4);
+
+				if (candidateDistances[i] != null)
+					bytes += arrayBytes(candidateDistances[i].length, 8);
+			}
+		}
+
+		return bytes;
+	} // getMemoryFootprint
+
+	/**
+	 * Estima la memoria ocupada por un array.
+	 *
+	 * @param length Longitud del array.
+	 * @param elementSize Tamaño en bytes de cada elemento.
+	 * @return Memoria estimada en bytes.
+	 */
+	private static long arrayBytes (int length, int elementSize) {
+
+		return 16 + (long)length * elementSize;
+	} // arrayBytes
+
+} // NeighbourGraph
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Permutation.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+import java.util.Vector;
+
+import weka.core.Instances;
+
+/**
+ * <b>Descripción</b><br>
+ * Permutaciones de los conjuntos de trabajo.
+ * <p>
+ * <b>Detalles</b><br>
+ * Una permutación es un array <code>order</code> en el que <code>order[nuevaPos] = antiguaPos</code>, el
+ * mismo convenio que utilizan <code>NeighbourGraph.reorder</code> e <code>InstanceIndex.reorder</code>. Se
+ * calcula una sola vez ordenando las claves con una ordenación de tipos primitivos y se aplica a cada array
+ * paralelo del conjunto de trabajo (instancias, índices, valores de clase...).<br>
+ * Las instancias se reordenan en el propio conjunto intercambiándolas, sin copiarlas.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Sustituye a la ordenación de índices en un <code>double[]</code> y a la copia de las instancias una a una
+ * en un conjunto nuevo.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public class Permutation implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = -2518906418402117390L;
+
+	/**
+	 * Devuelve la permutación que ordena las claves dadas. La ordenación es estable: las posiciones con la
+	 * misma clave conservan su orden relativo en ambos sentidos.
+	 *
+	 * @param keys Claves a ordenar, no se modifican.
+	 * @param sortLowestToHighest Verdadero para ordenar de menor a mayor, falso de mayor a menor.
+	 * @return Permutación: order[nuevaPos] = antiguaPos.
+	 */
+	public static int[] sort (double[] keys, boolean sortLowestToHighest) {
+		int order[] = new int[keys.length], buffer[] = new int[keys.length];
+
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+
+		mergeSort(keys, sortLowestToHighest, order, buffer, 0, order.length);
+
+		return order;
+	} // sort
+
+	/**
+	 * Ordena por mezcla las posiciones [start, end) de la permutación.
+	 *
+	 * @param keys Claves de cada posición antigua.
+	 * @param sortLowestToHighest Verdadero para ordenar de menor a mayor, falso de mayor a menor.
+	 * @param order Permutación a ordenar.
+	 * @param buffer Array auxiliar del mismo tamaño que la permutación.
+	 * @param start Primera posición del rango.
+	 * @param end Posición siguiente a la última del rango.
+	 */
+	private static void mergeSort (double[] keys, boolean sortLowestToHighest, int[] order, int[] buffer,
+	                               int start, int end) {
+		int middle, left, right, tmp;
+
+		// Los rangos pequeños se ordenan por inserción.
+		if (end - start <= 16) {
+			for (int i = start + 1; i < end; i++) {
+				tmp = order[i];
+				left = i;
+
+				while (left > start && precedes(keys, sortLowestToHighest, tmp, order[left - 1])) {
+					order[left] = order[left - 1];
+					left--;
+				}
+
+				order[left] = tmp;
+			}
+
+			return;
+		}
+
+		middle = (start + end) >>> 1;
+		mergeSort(keys, sortLowestToHighest, order, buffer, start, middle);
+		mergeSort(keys, sortLowestToHighest, order, buffer, middle, end);
+
+		// Si las dos mitades ya están en orden no es necesario mezclarlas.
+		if (!precedes(keys, sortLowestToHighest, order[middle], order[middle - 1]))
+			return;
+
+		System.arraycopy(order, start, buffer, start, end - start);
+		left = start;
+		right = middle;
+
+		for (int i = start; i < end; i++)
+			if (right >= end ||
+			    (left < middle && !precedes(keys, sortLowestToHighest, buffer[right], buffer[left])))
+				order[i] = buffer[left++];
+			else
+				order[i] = buffer[right++];
+	} // mergeSort
+
+	/**
+	 * Indica si la posición a debe ir estrictamente antes que la posición b.
+	 *
+	 * @param keys Claves de cada posición.
+	 * @param sortLowestToHighest Verdadero para ordenar de menor a mayor, falso de mayor a menor.
+	 * @param a Primera posición.
+	 * @param b Segunda posición.
+	 * @return Verdadero si a va antes que b.
+	 */
+	private static boolean precedes (double[] keys, boolean sortLowestToHighest, int a, int b) {
+		int comparison = Double.compare(keys[a], keys[b]);
+
+		return sortLowestToHighest ? comparison < 0 : comparison > 0;
+	} // precedes
+
+	/**
+	 * Reordena un conjunto de instancias en el propio conjunto, recorriendo los ciclos de la permutación
+	 * e intercambiando las instancias, sin copiarlas.
+	 *
+	 * @param set Conjunto de instancias a reordenar.
+	 * @param order Permutación a aplicar.
+	 */
+	public static void apply (Instances set, int[] order) {
+		boolean placed[] = new boolean[order.length];
+		int current, next;
+
+		for (int i = 0; i < order.length; i++) {
+			if (placed[i])
+				continue;
+
+			// La posición current recibe la instancia de order[current], que pasa a ser el siguiente hueco.
+			current = i;
+			placed[current] = true;
+
+			while (!placed[order[current]]) {
+				next = order[current];
+				set.swap(current, next);
+				placed[next] = true;
+				current = next;
+			}
+		}
+	} // apply
+
+	/**
+	 * Reordena un vector de índices en el propio vector.
+	 *
+	 * @param indexes Vector de índices a reordenar.
+	 * @param order Permutación a aplicar.
+	 */
+	public static void apply (Vector<Integer> indexes, int[] order) {
+		Integer copy[] = indexes.toArray(new Integer[indexes.size()]);
+
+		for (int i = 0; i < order.length; i++)
+			indexes.set(i, copy[order[i]]);
+	} // apply
+
+	/**
+	 * Devuelve un array con los valores de otro reordenados.
+	 *
+	 * @param values Valores a reordenar, no se modifican.
+	 * @param order Permutación a aplicar.
+	 * @return Valores reordenados.
+	 */
+	public static double[] apply (double[] values, int[] order) {
+		double permuted[] = new double[order.length];
+
+		for (int i = 0; i < order.length; i++)
+			permuted[i] = values[order[i]];
+
+		return permuted;
+	} // apply
+
+} // Permutation
@@ -0,0 +1,440 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * SelectionMetrics.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package main.core.util;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <b>Descripción</b><br>
+ * Métricas de una ejecución de un algoritmo de selección de instancias.
+ * <p>
+ * <b>Detalles</b><br>
+ * Para cada fase del algoritmo guarda el tiempo real, los tiempos de CPU de usuario y de sistema, y un
+ * conjunto de contadores. Las fases se pueden iniciar y terminar varias veces, los tiempos se acumulan. Una
+ * fase iniciada y no terminada cuenta también el tiempo real transcurrido hasta la consulta.<br>
+ * El tiempo de CPU de una fase es el del hilo que la ejecuta más el de las tareas ejecutadas por otros hilos
+ * mientras la fase está en curso, que cada tarea mide en su propio hilo y suma con
+ * <code>addWorkerTime</code>. El tiempo de CPU de todas las tareas se acumula también para toda la
+ * ejecución.<br>
+ * Los contadores se pueden incrementar desde varios hilos a la vez; para que su coste sea despreciable los
+ * algoritmos los incrementan una vez por bloque de trabajo y no por cada operación.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Permite saber qué fase de una ejecución es responsable de su coste.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.2
+ */
+public class SelectionMetrics implements Serializable {
+
+	/**
+	 * Para la serialización.
+	 */
+	private static final long serialVersionUID = 5118293624466839202L;
+
+	/**
+	 * Fases de un algoritmo de selección de instancias.
+	 */
+	public enum Phase {
+
+		/**
+		 * Filtrado previo del conjunto de entrenamiento por RegENN.
+		 */
+		EDITING,
+
+		/**
+		 * Eliminación de las instancias duplicadas.
+		 */
+		DEDUPLICATION,
+
+		/**
+		 * Cálculo del grafo de los k + 1 vecinos más cercanos.
+		 */
+		NEIGHBOURS,
+
+		/**
+		 * Cálculo de los asociados y de las desviaciones de los vecindarios.
+		 */
+		ASSOCIATES,
+
+		/**
+		 * Ordenación por la distancia al enemigo más próximo.
+		 */
+		ORDERING,
+
+		/**
+		 * Recorrido de las instancias decidiendo cuáles se eliminan.
+		 */
+		REMOVAL
+	} // Phase
+
+	/**
+	 * Contadores de operaciones de cada fase.
+	 */
+	public enum Counter {
+
+		/**
+		 * Distancias calculadas por las búsquedas de vecinos cercanos.
+		 */
+		DISTANCES,
+
+		/**
+		 * Búsquedas de vecinos cercanos.
+		 */
+		KNN_QUERIES,
+
+		/**
+		 * Vecinos sustituidos en los asociados de las instancias eliminadas.
+		 */
+		NEIGHBOUR_REPAIRS,
+
+		/**
+		 * Evaluaciones del clasificador kNN sobre los asociados de una instancia para decidir si se elimina.
+		 */
+		CLASSIFIER_EVALUATIONS,
+
+		/**
+		 * Instancias eliminadas.
+		 */
+		REMOVED_INSTANCES
+	} // Counter
+
+	/**
+	 * Tiempo real acumulado de cada fase en nanosegundos.
+	 */
+	private long[] mWallTimes;
+
+	/**
+	 * Tiempo de CPU de usuario acumulado de cada fase en nanosegundos.
+	 */
+	private long[] mUserTimes;
+
+	/**
+	 * Tiempo de CPU de sistema acumulado de cada fase en nanosegundos.
+	 */
+	private long[] mSystemTimes;
+
+	/**
+	 * Instante real de inicio de cada fase en curso, -1 si la fase no está en curso.
+	 */
+	private long[] mWallStarts;
+
+	/**
+	 * Tiempo de CPU de usuario del hilo al iniciar cada fase en curso.
+	 */
+	private long[] mUserStarts;
+
+	/**
+	 * Tiempo de CPU total del hilo al iniciar cada fase en curso.
+	 */
+	private long[] mCPUStarts;
+
+	/**
+	 * Tiempo de CPU de usuario de las tareas ejecutadas por otros hilos en toda la ejecución.
+	 */
+	private AtomicLong mWorkerUserTime;
+
+	/**
+	 * Tiempo de CPU de sistema de las tareas ejecutadas por otros hilos en toda la ejecución.
+	 */
+	private AtomicLong mWorkerSystemTime;
+
+	/**
+	 * Contadores de cada fase (fase * número de contadores + contador).
+	 */
+	private AtomicLongArray mCounters;
+
+	/**
+	 * Constructor de unas métricas vacías.
+	 */
+	public SelectionMetrics () {
+		int numOfPhases = Phase.values().length;
+
+		mWallTimes = new long[numOfPhases];
+		mUserTimes = new long[numOfPhases];
+		mSystemTimes = new long[numOfPhases];
+		mWallStarts = new long[numOfPhases];
+		mUserStarts = new long[numOfPhases];
+		mCPUStarts = new long[numOfPhases];
+		mCounters = new AtomicLongArray(numOfPhases * Counter.values().length);
+		mWorkerUserTime = new AtomicLong();
+		mWorkerSystemTime = new AtomicLong();
+
+		for (int p = 0; p < numOfPhases; p++)
+			mWallStarts[p] = -1;
+	} // SelectionMetrics
+
+	/**
+	 * Inicia una fase. Si ya estaba en curso no se hace nada.
+	 *
+	 * @param phase Fase a iniciar.
+	 */
+	public synchronized void startPhase (Phase phase) {
+		if (mWallStarts[phase.ordinal()] != -1)
+			return;
+
+		mUserStarts[phase.ordinal()] = getThreadUserTime();
+		mCPUStarts[phase.ordinal()] = getThreadCPUTime();
+		mWallStarts[phase.ordinal()] = System.nanoTime();
+	} // startPhase
+
+	/**
+	 * Termina una fase acumulando sus tiempos. Si no estaba en curso no se hace nada.<br>
+	 * Se mide el tiempo de CPU del hilo actual, que debe ser el mismo que inició la fase.
+	 *
+	 * @param phase Fase a terminar.
+	 */
+	public synchronized void endPhase (Phase phase) {
+		long userTime, cpuTime;
+
+		if (mWallStarts[phase.ordinal()] == -1)
+			return;
+
+		userTime = getThreadUserTime() - mUserStarts[phase.ordinal()];
+		cpuTime = getThreadCPUTime() - mCPUStarts[phase.ordinal()];
+
+		mWallTimes[phase.ordinal()] += System.nanoTime() - mWallStarts[phase.ordinal()];
+		mUserTimes[phase.ordinal()] += userTime;
+		mSystemTimes[phase.ordinal()] += Math.max(0, cpuTime - userTime);
+		mWallStarts[phase.ordinal()] = -1;
+	} // endPhase
+
+	/**
+	 * Suma el tiempo de CPU de una tarea ejecutada en otro hilo a la ejecución y a las fases en curso.
+	 * Se puede invocar desde varios hilos a la vez.
+	 *
+	 * @param userTime Tiempo de CPU de usuario de la tarea en nanosegundos.
+	 * @param systemTime Tiempo de CPU de sistema de la tarea en nanosegundos.
+	 */
+	public synchronized void addWorkerTime (long userTime, long systemTime) {
+		mWorkerUserTime.addAndGet(userTime);
+		mWorkerSystemTime.addAndGet(systemTime);
+
+		for (int p = 0; p < mWallStarts.length; p++)
+			if (mWallStarts[p] != -1) {
+				mUserTimes[p] += userTime;
+				mSystemTimes[p] += systemTime;
+			}
+	} // addWorkerTime
+
+	/**
+	 * Suma el tiempo de CPU de las tareas de otra ejecución, por ejemplo de un algoritmo anidado con su
+	 * propio conjunto de hilos, a esta ejecución y a sus fases en curso.
+	 *
+	 * @param metrics Métricas de la otra ejecución.
+	 */
+	public void addWorkerTimes (SelectionMetrics metrics) {
+		addWorkerTime(metrics.getWorkerUserTime(), metrics.getWorkerSystemTime());
+	} // addWorkerTimes
+
+	/**
+	 * Indica si una fase está en curso.
+	 *
+	 * @param phase Fase a consultar.
+	 * @return Verdadero si la fase se ha iniciado y no se ha terminado.
+	 */
+	public synchronized boolean isRunning (Phase phase) {
+
+		return mWallStarts[phase.ordinal()] != -1;
+	} // isRunning
+
+	/**
+	 * Devuelve la fase en curso; si hay varias, la última en el orden del algoritmo.
+	 *
+	 * @return Fase en curso, null si no hay ninguna.
+	 */
+	public synchronized Phase getCurrentPhase () {
+		Phase[] phases = Phase.values();
+
+		for (int p = phases.length - 1; p >= 0; p--)
+			if (mWallStarts[p] != -1)
+				return phases[p];
+
+		return null;
+	} // getCurrentPhase
+
+	/**
+	 * Suma una cantidad a un contador de una fase. Se puede invocar desde varios hilos a la vez.
+	 *
+	 * @param phase Fase a la que pertenece la operación.
+	 * @param counter Contador a incrementar.
+	 * @param amount Cantidad a sumar.
+	 */
+	public void add (Phase phase, Counter counter, long amount) {
+		if (amount != 0)
+			mCounters.addAndGet(phase.ordinal() * Counter.values().length + counter.ordinal(), amount);
+	} // add
+
+	/**
+	 * Devuelve el tiempo real de una fase, incluido el transcurrido si está en curso.
+	 *
+	 * @param phase Fase a consultar.
+	 * @return Tiempo real en nanosegundos.
+	 */
+	public synchronized long getWallTime (Phase phase) {
+		long wallTime = mWallTimes[phase.ordinal()];
+
+		if (mWallStarts[phase.ordinal()] != -1)
+			wallTime += System.nanoTime() - mWallStarts[phase.ordinal()];
+
+		return wallTime;
+	} // getWallTime
+
+	/**
+	 * Devuelve el tiempo de CPU de usuario de una fase, sumando todos los hilos. Si está en curso no incluye
+	 * el tiempo transcurrido en el hilo que la ejecuta, ya que solo se puede medir desde él.
+	 *
+	 * @param phase Fase a consultar.
+	 * @return Tiempo de CPU de usuario en nanosegundos.
+	 */
+	public synchronized long getUserTime (Phase phase) {
+
+		return mUserTimes[phase.ordinal()];
+	} // getUserTime
+
+	/**
+	 * Devuelve el tiempo de CPU de sistema de una fase, sumando todos los hilos.
+	 *
+	 * @param phase Fase a consultar.
+	 * @return Tiempo de CPU de sistema en nanosegundos.
+	 */
+	public synchronized long getSystemTime (Phase phase) {
+
+		return mSystemTimes[phase.ordinal()];
+	} // getSystemTime
+
+	/**
+	 * Devuelve el tiempo de CPU total (usuario más sistema) de una fase, sumando todos los hilos.
+	 *
+	 * @param phase Fase a consultar.
+	 * @return Tiempo de CPU en nanosegundos.
+	 */
+	public synchronized long getCPUTime (Phase phase) {
+
+		return mUserTimes[phase.ordinal()] + mSystemTimes[phase.ordinal()];
+	} // getCPUTime
+
+	/**
+	 * Devuelve el tiempo de CPU de usuario de todas las tareas ejecutadas por otros hilos.
+	 *
+	 * @return Tiempo de CPU de usuario en nanosegundos.
+	 */
+	public long getWorkerUserTime () {
+
+		return mWorkerUserTime.get();
+	} // getWorkerUserTime
+
+	/**
+	 * Devuelve el tiempo de CPU de sistema de todas las tareas ejecutadas por otros hilos.
+	 *
+	 * @return Tiempo de CPU de sistema en nanosegundos.
+	 */
+	public long getWorkerSystemTime () {
+
+		return mWorkerSystemTime.get();
+	} // getWorkerSystemTime
+
+	/**
+	 * Devuelve el valor de un contador de una fase.
+	 *
+	 * @param phase Fase a consultar.
+	 * @param counter Contador a consultar.
+	 * @return Valor del contador.
+	 */
+	public long getCount (Phase phase, Counter counter) {
+
+		return mCounters.get(phase.ordinal() * Counter.values().length + counter.ordinal());
+	} // getCount
+
+	/**
+	 * Devuelve la suma de un contador en todas las fases.
+	 *
+	 * @param counter Contador a consultar.
+	 * @return Valor total del contador.
+	 */
+	public long getTotal (Counter counter) {
+		long total = 0;
+
+		for (Phase phase : Phase.values())
+			total += getCount(phase, counter);
+
+		return total;
+	} // getTotal
+
+	/**
+	 * Devuelve el tiempo de CPU de usuario del hilo actual, 0 si no se puede medir.
+	 *
+	 * @return Tiempo de CPU de usuario en nanosegundos.
+	 */
+	public static long getThreadUserTime () {
+		ThreadMXBean thMonitor = ManagementFactory.getThreadMXBean();
+
+		if (!thMonitor.isCurrentThreadCpuTimeSupported() || !thMonitor.isThreadCpuTimeEnabled())
+			return 0;
+
+		return thMonitor.getCurrentThreadUserTime();
+	} // getThreadUserTime
+
+	/**
+	 * Devuelve el tiempo de CPU total (usuario más sistema) del hilo actual, 0 si no se puede medir.
+	 *
+	 * @return Tiempo de CPU en nanosegundos.
+	 */
+	public static long getThreadCPUTime () {
+		ThreadMXBean thMonitor = ManagementFactory.getThreadMXBean();
+
+		if (!thMonitor.isCurrentThreadCpuTimeSupported() || !thMonitor.isThreadCpuTimeEnabled())
+			return 0;
+
+		return thMonitor.getCurrentThreadCpuTime();
+	} // getThreadCPUTime
+
+	/**
+	 * Devuelve una tabla con los tiempos, en milisegundos, y los contadores de cada fase.
+	 *
+	 * @return Descripción de las métricas.
+	 */
+	public String toString () {
+		StringBuilder text = new StringBuilder();
+
+		text.append(String.format("%-16s %12s %12s %12s", "Phase", "Wall (ms)", "User (ms)", "System (ms)"));
+
+		for (Counter counter : Counter.values())
+			text.append(String.format(" %22s", counter));
+
+		for (Phase phase : Phase.values()) {
+			text.append(String.format("%n%-16s %12.3f %12.3f %12.3f", phase, getWallTime(phase) / 1e6,
+			                          getUserTime(phase) / 1e6, getSystemTime(phase) / 1e6));
+
+			for (Counter counter : Counter.values())
+				text.append(String.format(" %22d", getCount(phase, counter)));
+		}
+
+		return text.toString();
+	} // toString
+
+} // SelectionMetrics
@@ -21,11 +21,14 @@
 package weka.filters.supervised.instance;
 
 import main.core.algorithm.Algorithm;
+import main.core.algorithm.AlgorithmProgress;
+import main.core.algorithm.StepListener;
 import main.core.algorithm.DROP2RegThresholdAlgorithm;
 import main.core.algorithm.DROP3RegErrorAlgorithm;
 import main.core.algorithm.DROP3RegThresholdAlgorithm;
 import main.core.algorithm.DROPRegErrorAlgorithm;
 import main.core.exception.NotEnoughInstancesException;
+import main.core.util.SelectionMetrics;
 
 import weka.core.Capabilities;
 import weka.core.Instance;
@@ -44,6 +47,8 @@ import java.lang.management.ThreadMXBean;
 import java.util.Enumeration;
 import java.util.Vector;
 
+import javax.management.ObjectName;
+
 /**
  * <b>Descripción</b><br>
  * Filtro que implementa algoritmos de selección de instancias para regresión.
@@ -64,9 +69,10 @@ import java.util.Vector;
  * <p>
  * 
  * @author Álvar Arnaiz González
- * @version 1.7
+ * @version 1.15
  */
-public class InstanceSelectionForRegDROP extends Filter implements SupervisedFilter, OptionHandler, InstanceSelectionFilterIF {
+public class InstanceSelectionForRegDROP extends Filter implements SupervisedFilter, OptionHandler, InstanceSelectionFilterIF,
+                                                    InstanceSelectionMetricsIF {
 
 	/**
 	 * Serial UID.
@@ -79,9 +85,19 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	private main.core.algorithm.DROPRegAlgorithm mAlgorithm;
 	
 	/**
-	 * Tiempo de CPU utilizado en el filtrado.
+	 * Tiempo de CPU total (usuario más sistema) utilizado en el filtrado por todos los hilos.
 	 */
-	private long mCPUTimeElapsed;
+	private long mTotalCPUTimeElapsed;
+	
+	/**
+	 * Tiempo de CPU de usuario utilizado en el filtrado por todos los hilos.
+	 */
+	private long mUserCPUTimeElapsed;
+	
+	/**
+	 * Tiempo de CPU de sistema utilizado en el filtrado por todos los hilos.
+	 */
+	private long mSystemCPUTimeElapsed;
 	
 	/**
 	 * Tiempo utilizado en el filtrado.
@@ -103,6 +119,61 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	 */
 	private double mBeta = 5;
 	
+	/**
+	 * Indica si se utiliza un KD-tree para la búsqueda de vecinos.
+	 */
+	private boolean mUseKDTree = false;
+	
+	/**
+	 * Número de vecinos adicionales que se guardan como candidatos.
+	 */
+	private int mNumOfExtraNeighbours = 0;
+	
+	/**
+	 * Número de hilos utilizados en las fases paralelizables del algoritmo.
+	 */
+	private int mNumOfThreads = 1;
+	
+	/**
+	 * Número mínimo de asociados para evaluarlos en paralelo, 0 para evaluarlos secuencialmente.
+	 */
+	private int mMinParallelAssociates = 0;
+	
+	/**
+	 * Número de instancias cuya eliminación se evalúa por adelantado en paralelo, 0 para no hacerlo.
+	 */
+	private int mSpeculativeWindow = 0;
+	
+	/**
+	 * Indica si el filtrado RegENN de los algoritmos DROP3 se realiza por lotes (edición de Wilson).
+	 */
+	private boolean mBatchEditing = false;
+	
+	/**
+	 * Indica si el filtrado por lotes se compara con el filtrado secuencial (diagnóstico).
+	 */
+	private boolean mCountEditingDifferences = false;
+	
+	/**
+	 * Indica si los índices de salida se reordenan con las instancias al ordenarlas.
+	 */
+	private boolean mTrackOutputIndex = false;
+	
+	/**
+	 * Indica si las instancias se ordenan realmente por su distancia al enemigo más próximo.
+	 */
+	private boolean mSortByEnemyDistance = false;
+	
+	/**
+	 * Indica si se conserva la última instancia del conjunto solución.
+	 */
+	private boolean mKeepLastInstance = false;
+	
+	/**
+	 * Observadores de los pasos que se añaden a cada algoritmo creado por el filtro.
+	 */
+	private transient Vector<StepListener> mStepListeners = new Vector<StepListener>();
+	
 	/**
 	 * Algoritmo RegDROP2 (error).
 	 */
@@ -230,6 +301,331 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 		return "Beta value to use in algorithm (for filtering and sorting).";
 	} // alphaTipText
 
+	/**
+	 * Indica si se utiliza un KD-tree para la búsqueda de vecinos.
+	 * 
+	 * @return Verdadero si se utiliza un KD-tree.
+	 */
+	public boolean getUseKDTree () {
+		
+		return mUseKDTree;
+	} // getUseKDTree
+
+	/**
+	 * Establece si se utiliza un KD-tree para la búsqueda de vecinos.
+	 * 
+	 * @param useKDTree Verdadero para utilizar un KD-tree.
+	 */
+	public void setUseKDTree (boolean useKDTree) {
+		mUseKDTree = useKDTree;
+	} // setUseKDTree
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether a KD-tree is used.
+	 */
+	public String useKDTreeTipText () {
+		
+		return "Use a KD-tree that supports deletions for the neighbour search instead of a linear scan " +
+		       "(ties between equidistant neighbours are broken by position).";
+	} // useKDTreeTipText
+
+	/**
+	 * Devuelve el número de vecinos adicionales que se guardan como candidatos.
+	 * 
+	 * @return Número de vecinos adicionales.
+	 */
+	public int getNumOfExtraNeighbours () {
+		
+		return mNumOfExtraNeighbours;
+	} // getNumOfExtraNeighbours
+
+	/**
+	 * Establece el número de vecinos adicionales que se guardan como candidatos.
+	 * 
+	 * @param m Número de vecinos adicionales.
+	 */
+	public void setNumOfExtraNeighbours (int m) {
+		mNumOfExtraNeighbours = m;
+	} // setNumOfExtraNeighbours
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Number of extra neighbours kept per instance.
+	 */
+	public String numOfExtraNeighboursTipText () {
+		
+		return "Number of extra nearest neighbours kept per instance to replace removed neighbours " +
+		       "without a new search (0 disables the buffer).";
+	} // numOfExtraNeighboursTipText
+
+	/**
+	 * Devuelve el número de hilos utilizados por el algoritmo.
+	 * 
+	 * @return Número de hilos.
+	 */
+	public int getNumOfThreads () {
+		
+		return mNumOfThreads;
+	} // getNumOfThreads
+
+	/**
+	 * Establece el número de hilos utilizados por el algoritmo.
+	 * 
+	 * @param numOfThreads Número de hilos.
+	 */
+	public void setNumOfThreads (int numOfThreads) {
+		mNumOfThreads = numOfThreads;
+	} // setNumOfThreads
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Number of threads used by the algorithm.
+	 */
+	public String numOfThreadsTipText () {
+		
+		return "Number of threads used to compute the nearest neighbours and, if enabled, to evaluate " +
+		       "the associates (1 runs sequentially, the result does not depend on it).";
+	} // numOfThreadsTipText
+
+	/**
+	 * Devuelve el número mínimo de asociados para evaluarlos en paralelo.
+	 * 
+	 * @return Número mínimo de asociados, 0 si se evalúan secuencialmente.
+	 */
+	public int getMinParallelAssociates () {
+		
+		return mMinParallelAssociates;
+	} // getMinParallelAssociates
+
+	/**
+	 * Establece el número mínimo de asociados para evaluarlos en paralelo.
+	 * 
+	 * @param minParallelAssociates Número mínimo de asociados, 0 para evaluarlos secuencialmente.
+	 */
+	public void setMinParallelAssociates (int minParallelAssociates) {
+		mMinParallelAssociates = minParallelAssociates;
+	} // setMinParallelAssociates
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Minimum number of associates to evaluate them in parallel.
+	 */
+	public String minParallelAssociatesTipText () {
+		
+		return "Minimum number of associates of an instance to split their evaluation among the threads " +
+		       "(0 always evaluates them sequentially, the result does not depend on it).";
+	} // minParallelAssociatesTipText
+
+	/**
+	 * Devuelve el número de instancias cuya eliminación se evalúa por adelantado en paralelo.
+	 * 
+	 * @return Tamaño de la ventana especulativa, 0 si no se utiliza.
+	 */
+	public int getSpeculativeWindow () {
+		
+		return mSpeculativeWindow;
+	} // getSpeculativeWindow
+
+	/**
+	 * Establece el número de instancias cuya eliminación se evalúa por adelantado en paralelo.
+	 * 
+	 * @param speculativeWindow Tamaño de la ventana especulativa, 0 para no utilizarla.
+	 */
+	public void setSpeculativeWindow (int speculativeWindow) {
+		mSpeculativeWindow = speculativeWindow;
+	} // setSpeculativeWindow
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Number of instances whose removal is evaluated ahead in parallel.
+	 */
+	public String speculativeWindowTipText () {
+		
+		return "Number of upcoming instances whose removal is evaluated ahead in parallel; decisions " +
+		       "invalidated by an earlier removal are evaluated again (0 disables it, the result does " +
+		       "not depend on it).";
+	} // speculativeWindowTipText
+
+	/**
+	 * Indica si el filtrado RegENN de los algoritmos DROP3 se realiza por lotes.
+	 * 
+	 * @return Verdadero si se filtra por lotes.
+	 */
+	public boolean getBatchEditing () {
+		
+		return mBatchEditing;
+	} // getBatchEditing
+
+	/**
+	 * Establece si el filtrado RegENN de los algoritmos DROP3 se realiza por lotes.
+	 * 
+	 * @param batchEditing Verdadero para filtrar por lotes.
+	 */
+	public void setBatchEditing (boolean batchEditing) {
+		mBatchEditing = batchEditing;
+	} // setBatchEditing
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether the RegENN filter of DROP3 edits in batch.
+	 */
+	public String batchEditingTipText () {
+		
+		return "Use batch (Wilson) editing in the RegENN filter of the DROP3 algorithms: every instance is " +
+		       "judged in parallel against the whole training set instead of the already edited one.";
+	} // batchEditingTipText
+
+	/**
+	 * Indica si el filtrado por lotes se compara con el filtrado secuencial.
+	 * 
+	 * @return Verdadero si se cuentan las decisiones que difieren.
+	 */
+	public boolean getCountEditingDifferences () {
+		
+		return mCountEditingDifferences;
+	} // getCountEditingDifferences
+
+	/**
+	 * Establece si, como diagnóstico, el filtrado por lotes se compara con el filtrado secuencial completo.
+	 * Su coste se incluye en los tiempos de CPU medidos.
+	 * 
+	 * @param countEditingDifferences Verdadero para comparar ambos filtrados.
+	 */
+	public void setCountEditingDifferences (boolean countEditingDifferences) {
+		mCountEditingDifferences = countEditingDifferences;
+	} // setCountEditingDifferences
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether batch editing is compared with sequential editing.
+	 */
+	public String countEditingDifferencesTipText () {
+		
+		return "Diagnostic: also run the sequential RegENN filter after batch editing and count the " +
+		       "decisions that differ. Its cost is included in the measured times.";
+	} // countEditingDifferencesTipText
+
+	/**
+	 * Indica si los índices de salida se reordenan con las instancias al ordenarlas.
+	 * 
+	 * @return Verdadero si los índices de salida se reordenan con las instancias.
+	 */
+	public boolean getTrackOutputIndex () {
+		
+		return mTrackOutputIndex;
+	} // getTrackOutputIndex
+
+	/**
+	 * Establece si los índices de salida se reordenan con las instancias al ordenarlas. Cambia los índices
+	 * devueltos, no las instancias seleccionadas.
+	 * 
+	 * @param trackOutputIndex Verdadero para reordenar los índices de salida con las instancias.
+	 */
+	public void setTrackOutputIndex (boolean trackOutputIndex) {
+		mTrackOutputIndex = trackOutputIndex;
+	} // setTrackOutputIndex
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether the output indices follow their instances when they are ordered.
+	 */
+	public String trackOutputIndexTipText () {
+		
+		return "Reorder the output indices together with the instances when they are ordered. By default " +
+		       "the original mapping is kept, which gives wrong indices after removing duplicates or " +
+		       "editing (DROP3). Changes the returned indices, not the selected instances.";
+	} // trackOutputIndexTipText
+
+	/**
+	 * Indica si las instancias se ordenan realmente por su distancia al enemigo más próximo.
+	 * 
+	 * @return Verdadero si se ordenan por su distancia al enemigo más próximo.
+	 */
+	public boolean getSortByEnemyDistance () {
+		
+		return mSortByEnemyDistance;
+	} // getSortByEnemyDistance
+
+	/**
+	 * Establece si las instancias se ordenan realmente por su distancia al enemigo más próximo. Cambia
+	 * las instancias seleccionadas por los algoritmos con ordenación.
+	 * 
+	 * @param sortByEnemyDistance Verdadero para ordenar por la distancia al enemigo más próximo.
+	 */
+	public void setSortByEnemyDistance (boolean sortByEnemyDistance) {
+		mSortByEnemyDistance = sortByEnemyDistance;
+	} // setSortByEnemyDistance
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether the instances are really ordered by their distance to the nearest enemy.
+	 */
+	public String sortByEnemyDistanceTipText () {
+		
+		return "Order the instances by their distance to the nearest enemy with a stable sort (the output " +
+		       "indices always follow the instances). By default the original ordering is kept, which " +
+		       "leaves the instances almost in their input order. Changes the selected instances of the " +
+		       "algorithms with ordering.";
+	} // sortByEnemyDistanceTipText
+
+	/**
+	 * Indica si se conserva la última instancia del conjunto solución.
+	 * 
+	 * @return Verdadero si la última instancia del conjunto solución no se elimina nunca.
+	 */
+	public boolean getKeepLastInstance () {
+		
+		return mKeepLastInstance;
+	} // getKeepLastInstance
+
+	/**
+	 * Establece si se conserva la última instancia del conjunto solución, de modo que el filtro no
+	 * devuelva nunca un conjunto vacío.
+	 * 
+	 * @param keepLastInstance Verdadero para no eliminar nunca la última instancia del conjunto solución.
+	 */
+	public void setKeepLastInstance (boolean keepLastInstance) {
+		mKeepLastInstance = keepLastInstance;
+	} // setKeepLastInstance
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return Whether the last instance of the solution set is always kept.
+	 */
+	public String keepLastInstanceTipText () {
+		
+		return "Never remove the last instance left in the solution set, so the filter never returns an " +
+		       "empty data set. By default the removal rule also applies to it, as in the original algorithm.";
+	} // keepLastInstanceTipText
+
+	/**
+	 * Devuelve el número de decisiones del filtrado por lotes que difieren de las del filtrado secuencial
+	 * en la última ejecución.
+	 * 
+	 * @return Número de decisiones distintas o -1 si no se ha pedido la comparación o no se ha filtrado
+	 *         por lotes.
+	 */
+	public int getNumOfEditingDifferences () {
+		if (mAlgorithm instanceof DROP3RegThresholdAlgorithm)
+			return ((DROP3RegThresholdAlgorithm)mAlgorithm).getNumOfEditingDifferences();
+		
+		if (mAlgorithm instanceof DROP3RegErrorAlgorithm)
+			return ((DROP3RegErrorAlgorithm)mAlgorithm).getNumOfEditingDifferences();
+		
+		return -1;
+	} // getNumOfEditingDifferences
+
 	/**
 	 * Devuelve las opciones del algoritmo.
 	 * 
@@ -249,6 +645,36 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 		    
 		result.add("-T");
 		result.add("" + mType);
+		
+		result.add("-M");
+		result.add("" + getNumOfExtraNeighbours());
+		
+		result.add("-P");
+		result.add("" + getNumOfThreads());
+		
+		result.add("-S");
+		result.add("" + getMinParallelAssociates());
+		
+		result.add("-W");
+		result.add("" + getSpeculativeWindow());
+		
+		if (getUseKDTree())
+			result.add("-D");
+		
+		if (getBatchEditing())
+			result.add("-E");
+		
+		if (getCountEditingDifferences())
+			result.add("-C");
+		
+		if (getTrackOutputIndex())
+			result.add("-I");
+		
+		if (getSortByEnemyDistance())
+			result.add("-O");
+		
+		if (getKeepLastInstance())
+			result.add("-L");
 		 			    
 		return result.toArray(new String[result.size()]); 
 	} // getOptions
@@ -307,6 +733,35 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 		                                "\t\t 5 = Reg DROP3 (error)\n",
 		                                "T", 1, "-T <int>"));
 
+		newVector.addElement(new Option("\tUse a KD-tree for the neighbour search\n" +
+		                                "\t(default linear search)", "D", 0, "-D"));
+
+		newVector.addElement(new Option("\tSpecifies the number of extra neighbours kept per instance\n" +
+		                                "\t(default 0)", "M", 1, "-M <num>"));
+
+		newVector.addElement(new Option("\tSpecifies the number of threads\n" +
+		                                "\t(default 1)", "P", 1, "-P <num>"));
+
+		newVector.addElement(new Option("\tSpecifies the minimum number of associates to evaluate them in parallel\n" +
+		                                "\t(default 0, sequential)", "S", 1, "-S <num>"));
+
+		newVector.addElement(new Option("\tSpecifies the number of instances evaluated ahead in parallel\n" +
+		                                "\t(default 0, disabled)", "W", 1, "-W <num>"));
+
+		newVector.addElement(new Option("\tUse batch (Wilson) editing in the RegENN filter of DROP3\n" +
+		                                "\t(default sequential editing)", "E", 0, "-E"));
+
+		newVector.addElement(new Option("\tCompare batch editing with sequential editing (diagnostic)\n" +
+		                                "\t(default not compared)", "C", 0, "-C"));
+
+		newVector.addElement(new Option("\tReorder the output indices with the instances when ordering them\n" +
+		                                "\t(default original index mapping)", "I", 0, "-I"));
+
+		newVector.addElement(new Option("\tOrder the instances by their distance to the nearest enemy\n" +
+		                                "\t(default original ordering)", "O", 0, "-O"));
+
+		newVector.addElement(new Option("\tNever remove the last instance of the solution set\n" +
+		                                "\t(default the removal rule also applies to it)", "L", 0, "-L"));
 
 		return newVector.elements();
 	} // listOptions
@@ -321,6 +776,10 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 		String tmpStr = Utils.getOption('A', options);
 		String tmpStr2 = Utils.getOption('B', options);
 		String typeStr = Utils.getOption('T', options);
+		String extraStr = Utils.getOption('M', options);
+		String threadsStr = Utils.getOption('P', options);
+		String associatesStr = Utils.getOption('S', options);
+		String windowStr = Utils.getOption('W', options);
 		
 		// Si el número de vecinos cercanos es distinto de 0 se asigna, sino se utilizará 1.
 		if (numStr.length() != 0)
@@ -345,6 +804,42 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	    	setType(new SelectedTag(Integer.parseInt(typeStr), TAGS_TYPE));
 	    else
 	    	setType(new SelectedTag(TYPE_REG_DROP2_ERROR, TAGS_TYPE));
+	    
+	    setUseKDTree(Utils.getFlag('D', options));
+	    
+	    setBatchEditing(Utils.getFlag('E', options));
+	    
+	    setCountEditingDifferences(Utils.getFlag('C', options));
+	    
+	    setTrackOutputIndex(Utils.getFlag('I', options));
+	    
+	    setSortByEnemyDistance(Utils.getFlag('O', options));
+	    
+	    setKeepLastInstance(Utils.getFlag('L', options));
+	    
+	    // Si se indica el número de vecinos adicionales se asigna, sino no se guardan candidatos.
+	    if (extraStr.length() != 0)
+	    	setNumOfExtraNeighbours(Integer.parseInt(extraStr));
+	    else
+	    	setNumOfExtraNeighbours(0);
+	    
+	    // Si se indica el número de hilos se asigna, sino se ejecuta secuencialmente.
+	    if (threadsStr.length() != 0)
+	    	setNumOfThreads(Integer.parseInt(threadsStr));
+	    else
+	    	setNumOfThreads(1);
+	    
+	    // Si se indica el número mínimo de asociados se asigna, sino se evalúan secuencialmente.
+	    if (associatesStr.length() != 0)
+	    	setMinParallelAssociates(Integer.parseInt(associatesStr));
+	    else
+	    	setMinParallelAssociates(0);
+	    
+	    // Si se indica el tamaño de la ventana especulativa se asigna, sino no se utiliza.
+	    if (windowStr.length() != 0)
+	    	setSpeculativeWindow(Integer.parseInt(windowStr));
+	    else
+	    	setSpeculativeWindow(0);
 	} // setOptions
 
 	/**
@@ -435,7 +930,10 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	
 	/**
 	 * Realiza la selección de instancias.
-	 * Las instancias se añadirán a una cola.
+	 * Las instancias se añadirán a una cola.<br>
+	 * Los tiempos de CPU (de usuario, de sistema y total) son los del hilo actual más los de las tareas
+	 * ejecutadas por los hilos del algoritmo.<br>
+	 * Mientras se ejecuta, el progreso del algoritmo se publica como MBean <code>AlgorithmProgress</code>.
 	 * 
 	 * @param inst Instancias a filtrar.
 	 * @throws Exception Si el algoritmo ha producido algún error durante su ejecución.
@@ -443,6 +941,7 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	public void filter (Instances inst) throws Exception {
 		ThreadMXBean thMonitor = ManagementFactory.getThreadMXBean();
 		Instances solution;
+		ObjectName progressName;
 		boolean canMeasureCPUTime = thMonitor.isThreadCpuTimeSupported();
 		
 		// Si se puede medir la CPU
@@ -450,12 +949,14 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 			thMonitor.setThreadCpuTimeEnabled(true);
 		
 		long thID = Thread.currentThread().getId();
-		long CPUStartTime=-1, userTimeStart;
+		long CPUStartTime=-1, userCPUStartTime=-1, userTimeStart, CPUTime, userCPUTime;
 		
 		userTimeStart = System.currentTimeMillis();
 		
-		if(canMeasureCPUTime)
-			CPUStartTime = thMonitor.getThreadUserTime(thID);
+		if(canMeasureCPUTime) {
+			CPUStartTime = thMonitor.getThreadCpuTime(thID);
+			userCPUStartTime = thMonitor.getThreadUserTime(thID);
+		}
 
 		// Crear el algoritmo de selección de instancias y asignar las opciones.
 		try {
@@ -467,13 +968,33 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 			} else if (mType == TYPE_REG_DROP3_THRESHOLD) {
 				mAlgorithm = new DROP3RegThresholdAlgorithm(inst);
 				((DROP2RegThresholdAlgorithm)mAlgorithm).setBeta(mBeta);
+				((DROP3RegThresholdAlgorithm)mAlgorithm).setBatchEditing(mBatchEditing);
+				((DROP3RegThresholdAlgorithm)mAlgorithm).setCountEditingDifferences(mCountEditingDifferences);
 			} else if (mType == TYPE_REG_DROP3_ERROR) {
 				mAlgorithm = new DROP3RegErrorAlgorithm(inst);
 				((DROP3RegErrorAlgorithm)mAlgorithm).setBeta(mBeta);
+				((DROP3RegErrorAlgorithm)mAlgorithm).setBatchEditing(mBatchEditing);
+				((DROP3RegErrorAlgorithm)mAlgorithm).setCountEditingDifferences(mCountEditingDifferences);
 			}
 			
 			mAlgorithm.setNumOfNearestNeighbour(mNearestNeighbourNum);
 			mAlgorithm.setAlpha(mAlpha);
+			mAlgorithm.setUseKDTree(mUseKDTree);
+			mAlgorithm.setNumOfExtraNeighbours(mNumOfExtraNeighbours);
+			mAlgorithm.setNumOfThreads(mNumOfThreads);
+			mAlgorithm.setParallelAssociates(mMinParallelAssociates > 0);
+			
+			if (mMinParallelAssociates > 0)
+				mAlgorithm.setMinParallelAssociates(mMinParallelAssociates);
+			
+			mAlgorithm.setSpeculativeWindow(mSpeculativeWindow);
+			mAlgorithm.setTrackOutputIndex(mTrackOutputIndex);
+			mAlgorithm.setSortByEnemyDistance(mSortByEnemyDistance);
+			mAlgorithm.setKeepLastInstance(mKeepLastInstance);
+			
+			if (mStepListeners != null)
+				for (StepListener listener : mStepListeners)
+					mAlgorithm.addStepListener(listener);
 		}catch (NotEnoughInstancesException ex) {
 			ex.printStackTrace();
 			throw new IllegalStateException("The dataset has not enough instances");
@@ -484,12 +1005,29 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 			throw new Exception("Invalid Algorithm");
 		}
 		
-		// Si el algoritmo existe, ejecutar todos sus pasos.
-		if (mAlgorithm != null)
-			mAlgorithm.allSteps();
+		// Si el algoritmo existe, ejecutar todos sus pasos publicando su progreso por JMX.
+		if (mAlgorithm != null) {
+			progressName = AlgorithmProgress.register(mAlgorithm);
+			
+			try {
+				mAlgorithm.allSteps();
+			} finally {
+				AlgorithmProgress.unregister(progressName);
+			}
+		}
 		
-		if(canMeasureCPUTime)
-			mCPUTimeElapsed = (thMonitor.getThreadUserTime(thID) - CPUStartTime) / 1000000;
+		if(canMeasureCPUTime) {
+			CPUTime = thMonitor.getThreadCpuTime(thID) - CPUStartTime;
+			userCPUTime = thMonitor.getThreadUserTime(thID) - userCPUStartTime;
+			
+			// Sumar el tiempo de las tareas ejecutadas por los hilos del algoritmo.
+			CPUTime += mAlgorithm.getMetrics().getWorkerUserTime() + mAlgorithm.getMetrics().getWorkerSystemTime();
+			userCPUTime += mAlgorithm.getMetrics().getWorkerUserTime();
+			
+			mTotalCPUTimeElapsed = CPUTime / 1000000;
+			mUserCPUTimeElapsed = userCPUTime / 1000000;
+			mSystemCPUTimeElapsed = Math.max(0, CPUTime - userCPUTime) / 1000000;
+		}
 		
 		mUserTimeElapsed = System.currentTimeMillis() - userTimeStart;
 		
@@ -502,6 +1040,28 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 			push(solution.instance(i));
 	} // filter	  
 	
+	/**
+	 * Añade un observador de los pasos de los algoritmos que ejecute el filtro.
+	 * 
+	 * @param listener Observador a añadir.
+	 */
+	public void addStepListener (StepListener listener) {
+		if (mStepListeners == null)
+			mStepListeners = new Vector<StepListener>();
+		
+		mStepListeners.add(listener);
+	} // addStepListener
+	
+	/**
+	 * Elimina un observador de los pasos de los algoritmos que ejecute el filtro.
+	 * 
+	 * @param listener Observador a eliminar.
+	 */
+	public void removeStepListener (StepListener listener) {
+		if (mStepListeners != null)
+			mStepListeners.remove(listener);
+	} // removeStepListener
+	
 	/**
 	 * Devuelve el algoritmo de selección de instancias.
 	 * 
@@ -524,15 +1084,48 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	
 	/**
 	 * Devuelve el tiempo de CPU empleado en el filtrado por el algoritmo de selección de instancias 
-	 * seleccionado.
+	 * seleccionado. Como antes, es tiempo de usuario, ahora sumado en todos los hilos utilizados, por lo
+	 * que coincide con <code>getFilterUserCPUTime</code>. El tiempo de usuario más el de sistema lo
+	 * devuelve <code>getFilterTotalCPUTime</code>.
 	 * 
-	 * @return Tiempo de CPU utilizado en el filtrado.
+	 * @return Tiempo de CPU de usuario utilizado en el filtrado en milisegundos.
 	 */
 	public long getFilterCPUTime () {
 	
-		return mCPUTimeElapsed;
+		return mUserCPUTimeElapsed;
 	} // getFilterCPUTime
 	
+	/**
+	 * Devuelve el tiempo de CPU total (usuario más sistema) empleado en el filtrado por todos los hilos
+	 * utilizados.
+	 * 
+	 * @return Tiempo de CPU total utilizado en el filtrado en milisegundos.
+	 */
+	public long getFilterTotalCPUTime () {
+	
+		return mTotalCPUTimeElapsed;
+	} // getFilterTotalCPUTime
+	
+	/**
+	 * Devuelve el tiempo de CPU de usuario empleado en el filtrado por todos los hilos utilizados.
+	 * 
+	 * @return Tiempo de CPU de usuario utilizado en el filtrado en milisegundos.
+	 */
+	public long getFilterUserCPUTime () {
+	
+		return mUserCPUTimeElapsed;
+	} // getFilterUserCPUTime
+	
+	/**
+	 * Devuelve el tiempo de CPU de sistema empleado en el filtrado por todos los hilos utilizados.
+	 * 
+	 * @return Tiempo de CPU de sistema utilizado en el filtrado en milisegundos.
+	 */
+	public long getFilterSystemCPUTime () {
+	
+		return mSystemCPUTimeElapsed;
+	} // getFilterSystemCPUTime
+	
 	/**
 	 * Devuelve el tiempo empleado en el filtrado por el algoritmo de selección de instancias 
 	 * seleccionado.
@@ -543,5 +1136,18 @@ public class InstanceSelectionForRegDROP extends Filter implements SupervisedFil
 	
 		return mUserTimeElapsed;
 	} // getFilterUserTime
+	
+	/**
+	 * Devuelve las métricas por fases del último filtrado realizado por el algoritmo de selección de 
+	 * instancias seleccionado.
+	 * 
+	 * @return Métricas del filtrado, vacías si aún no se ha filtrado.
+	 */
+	public SelectionMetrics getMetrics () {
+		if (mAlgorithm == null)
+			return new SelectionMetrics();
+		
+		return mAlgorithm.getMetrics();
+	} // getMetrics
 
 } // InstanceSelectionForRegDROP
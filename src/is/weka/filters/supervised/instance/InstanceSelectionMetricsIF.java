@@ -0,0 +1,52 @@
+/*
+ * This file is part of Instance Selection Library.
+ *
+ * Instance Selection Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Instance Selection Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Instance Selection Library.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * InstanceSelectionMetricsIF.java
+ * Copyright (C) 2026 Universidad de Burgos
+ */
+
+package weka.filters.supervised.instance;
+
+import main.core.util.SelectionMetrics;
+
+/**
+ * <b>Descripción</b><br>
+ * Interfaz opcional de los filtros de selección de instancias que miden sus fases.
+ * <p>
+ * <b>Detalles</b><br>
+ * Los filtros que la implementan devuelven, además de los tiempos totales de
+ * <code>InstanceSelectionFilterIF</code>, las métricas por fases de su último filtrado. Es una interfaz
+ * aparte para que los filtros existentes no tengan que implementarla.
+ * </p>
+ * <p>
+ * <b>Funcionalidad</b><br>
+ * Acceso a las métricas (<code>SelectionMetrics</code>) del último filtrado.
+ * </p>
+ *
+ * @author Álvar Arnaiz González
+ * @version 1.0
+ */
+public interface InstanceSelectionMetricsIF {
+
+	/**
+	 * Devuelve las métricas del filtrado: tiempos real y de CPU y contadores de operaciones de cada fase
+	 * del algoritmo de selección de instancias.
+	 *
+	 * @return Métricas del último filtrado.
+	 */
+	public SelectionMetrics getMetrics ();
+
+} // InstanceSelectionMetricsIF